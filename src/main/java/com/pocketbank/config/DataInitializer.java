@@ -2,14 +2,17 @@ package com.pocketbank.config;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import com.pocketbank.config.service.AccountNumberGenerator;
 import com.pocketbank.entity.Account;
 import com.pocketbank.entity.FixedDeposit;
 import com.pocketbank.entity.Loan;
+import com.pocketbank.entity.Money;
 import com.pocketbank.entity.Transaction;
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.AccountStatus;
@@ -36,6 +39,7 @@ public class DataInitializer implements CommandLineRunner {
 	private final LoanRepository loanRepository;
 	private final FixedDepositRepository fdRepository;
 	private final PasswordEncoder passwordEncoder;
+	private final AccountNumberGenerator accountNumberGenerator;
 
 	@Override
 	public void run(String... args) throws Exception {
@@ -79,7 +83,6 @@ public class DataInitializer implements CommandLineRunner {
 				.createdAt(LocalDateTime.now()
 						.minusDays(30))
 				.build();
-		userRepository.save(john);
 
 		User sara = User.builder()
 				.username("sara")
@@ -93,7 +96,6 @@ public class DataInitializer implements CommandLineRunner {
 				.createdAt(LocalDateTime.now()
 						.minusDays(20))
 				.build();
-		userRepository.save(sara);
 
 		User mike = User.builder()
 				.username("mike")
@@ -107,139 +109,134 @@ public class DataInitializer implements CommandLineRunner {
 				.createdAt(LocalDateTime.now()
 						.minusDays(15))
 				.build();
-		userRepository.save(mike);
+
+		userRepository.saveAll(List.of(john, sara, mike));
 
 		System.out.println(
 				"✅ Created 3 Customer users (username: john/sara/mike, password: password)");
 
 		// Created Accounts for john
 		Account johnSavings = Account.builder()
-				.accountNumber("PB" + System.currentTimeMillis() + "001")
+				.accountNumber(accountNumberGenerator.next())
 				.accountType(AccountType.SAVINGS)
-				.balance(new BigDecimal("50000.00"))
+				.balance(Money.of("50000.00"))
 				.status(AccountStatus.APPROVED)
 				.user(john)
 				.createdAt(LocalDateTime.now()
 						.minusDays(28))
 				.build();
-		accountRepository.save(johnSavings);
 
 		Account johnChecking = Account.builder()
-				.accountNumber("PB" + System.currentTimeMillis() + "002")
+				.accountNumber(accountNumberGenerator.next())
 				.accountType(AccountType.CHECKING)
-				.balance(new BigDecimal("25000.00"))
+				.balance(Money.of("25000.00"))
 				.status(AccountStatus.APPROVED)
 				.user(john)
 				.createdAt(LocalDateTime.now()
 						.minusDays(25))
 				.build();
-		accountRepository.save(johnChecking);
 
 		// Create Accounts for Sarah
 		Account sarahSavings = Account.builder()
-				.accountNumber("PB" + System.currentTimeMillis() + "003")
+				.accountNumber(accountNumberGenerator.next())
 				.accountType(AccountType.SAVINGS)
-				.balance(new BigDecimal("75000.00"))
+				.balance(Money.of("75000.00"))
 				.status(AccountStatus.APPROVED)
 				.user(sara)
 				.createdAt(LocalDateTime.now()
 						.minusDays(18))
 				.build();
-		accountRepository.save(sarahSavings);
 
 		// Create Pending Account for Mike
 		Account mikePending = Account.builder()
-				.accountNumber("PB" + System.currentTimeMillis() + "004")
+				.accountNumber(accountNumberGenerator.next())
 				.accountType(AccountType.SAVINGS)
-				.balance(BigDecimal.ZERO)
+				.balance(Money.ZERO)
 				.status(AccountStatus.PENDING)
 				.user(mike)
 				.createdAt(LocalDateTime.now()
 						.minusDays(2))
 				.build();
-		accountRepository.save(mikePending);
+
+		accountRepository.saveAll(List.of(johnSavings, johnChecking, sarahSavings, mikePending));
 
 		System.out.println("✓ Created 4 Accounts (3 approved, 1 pending)");
 
 		// Create Sample Transactions for John's Savings Account
 		Transaction tx1 = Transaction.builder()
 				.type(TransactionType.DEPOSIT)
-				.amount(new BigDecimal("30000.00"))
-				.balanceAfter(new BigDecimal("30000.00"))
+				.amount(Money.of("30000.00"))
+				.balanceAfter(Money.of("30000.00"))
 				.description("Initial Deposit")
 				.account(johnSavings)
 				.transactionDate(LocalDateTime.now()
 						.minusDays(27))
 				.build();
-		transactionRepository.save(tx1);
 
 		Transaction tx2 = Transaction.builder()
 				.type(TransactionType.DEPOSIT)
-				.amount(new BigDecimal("15000.00"))
-				.balanceAfter(new BigDecimal("45000.00"))
+				.amount(Money.of("15000.00"))
+				.balanceAfter(Money.of("45000.00"))
 				.description("Salary Credit")
 				.account(johnSavings)
 				.transactionDate(LocalDateTime.now()
 						.minusDays(15))
 				.build();
-		transactionRepository.save(tx2);
 
 		Transaction tx3 = Transaction.builder()
 				.type(TransactionType.WITHDRAWAL)
-				.amount(new BigDecimal("5000.00"))
-				.balanceAfter(new BigDecimal("40000.00"))
+				.amount(Money.of("5000.00"))
+				.balanceAfter(Money.of("40000.00"))
 				.description("ATM Withdrawal")
 				.account(johnSavings)
 				.transactionDate(LocalDateTime.now()
 						.minusDays(10))
 				.build();
-		transactionRepository.save(tx3);
 
 		Transaction tx4 = Transaction.builder()
 				.type(TransactionType.DEPOSIT)
-				.amount(new BigDecimal("10000.00"))
-				.balanceAfter(new BigDecimal("50000.00"))
+				.amount(Money.of("10000.00"))
+				.balanceAfter(Money.of("50000.00"))
 				.description("Cash Deposit")
 				.account(johnSavings)
 				.transactionDate(LocalDateTime.now()
 						.minusDays(5))
 				.build();
-		transactionRepository.save(tx4);
 
 		// Transactions for John's Checking Account
 		Transaction tx5 = Transaction.builder()
 				.type(TransactionType.DEPOSIT)
-				.amount(new BigDecimal("25000.00"))
-				.balanceAfter(new BigDecimal("25000.00"))
+				.amount(Money.of("25000.00"))
+				.balanceAfter(Money.of("25000.00"))
 				.description("Initial Deposit")
 				.account(johnChecking)
 				.transactionDate(LocalDateTime.now()
 						.minusDays(24))
 				.build();
-		transactionRepository.save(tx5);
 
 		// Transactions for Sarah's Account
 		Transaction tx6 = Transaction.builder()
 				.type(TransactionType.DEPOSIT)
-				.amount(new BigDecimal("50000.00"))
-				.balanceAfter(new BigDecimal("50000.00"))
+				.amount(Money.of("50000.00"))
+				.balanceAfter(Money.of("50000.00"))
 				.description("Initial Deposit")
 				.account(sarahSavings)
 				.transactionDate(LocalDateTime.now()
 						.minusDays(17))
 				.build();
-		transactionRepository.save(tx6);
 
 		Transaction tx7 = Transaction.builder()
 				.type(TransactionType.DEPOSIT)
-				.amount(new BigDecimal("25000.00"))
-				.balanceAfter(new BigDecimal("75000.00"))
+				.amount(Money.of("25000.00"))
+				.balanceAfter(Money.of("75000.00"))
 				.description("Bonus Credit")
 				.account(sarahSavings)
 				.transactionDate(LocalDateTime.now()
 						.minusDays(8))
 				.build();
-		transactionRepository.save(tx7);
+
+		// written in one JDBC batch
+		transactionRepository.saveAll(List.of(tx1, tx2, tx3, tx4, tx5, tx6, tx7));
 
 		System.out.println("✓ Created 7 Sample Transactions");
 
@@ -257,7 +254,6 @@ public class DataInitializer implements CommandLineRunner {
 						.minusDays(18))
 				.user(john)
 				.build();
-		loanRepository.save(johnLoan);
 
 		Loan mikeLoan = Loan.builder()
 				.loanAmount(new BigDecimal("50000.00"))
@@ -272,7 +268,8 @@ public class DataInitializer implements CommandLineRunner {
 						.minusDays(2))
 				.user(mike)
 				.build();
-		loanRepository.save(mikeLoan);
+
+		loanRepository.saveAll(List.of(johnLoan, mikeLoan));
 
 		System.out.println("✓ Created 2 Sample Loans (1 approved, 1 pending)");
 
@@ -290,7 +287,6 @@ public class DataInitializer implements CommandLineRunner {
 				.status(FdStatus.ACTIVE)
 				.user(sara)
 				.build();
-		fdRepository.save(sarahFd);
 
 		FixedDeposit johnFd = FixedDeposit.builder()
 				.principalAmount(new BigDecimal("50000.00"))
@@ -305,7 +301,8 @@ public class DataInitializer implements CommandLineRunner {
 				.status(FdStatus.ACTIVE)
 				.user(john)
 				.build();
-		fdRepository.save(johnFd);
+
+		fdRepository.saveAll(List.of(sarahFd, johnFd));
 
 		System.out.println("✓ Created 2 Sample Fixed Deposits");
 
@@ -0,0 +1,76 @@
+package com.pocketbank.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves each id_generators row past the highest id already in its table. Rows
+ * written while the tables still used AUTO_INCREMENT would otherwise collide
+ * with the first pooled block.
+ *
+ * Runs as soon as the EntityManagerFactory is built, before it is handed to the
+ * repositories, so no request or scheduled job can allocate a block first. The
+ * tables, generator rows and allocation sizes come from the entities'
+ * @TableGenerator mappings.
+ */
+@Slf4j
+@Component
+public class IdGeneratorInitializer implements BeanPostProcessor {
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (bean instanceof AbstractEntityManagerFactoryBean factoryBean
+				&& factoryBean.getNativeEntityManagerFactory() != null) {
+			seed(factoryBean);
+		}
+		return bean;
+	}
+
+	private static void seed(AbstractEntityManagerFactoryBean factoryBean) {
+		List<Generated> tables = new ArrayList<>();
+		factoryBean.getNativeEntityManagerFactory()
+				.unwrap(SessionFactoryImplementor.class)
+				.getMappingMetamodel()
+				.forEachEntityDescriptor(persister -> {
+					if (!persister.isInherited()
+							&& persister.getGenerator() instanceof TableGenerator generator
+							&& persister instanceof AbstractEntityPersister entity) {
+						tables.add(new Generated(entity.getIdentifierTableName(),
+								entity.getIdentifierColumnNames()[0], generator));
+					}
+				});
+
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(factoryBean.getDataSource());
+		for (Generated table : tables) {
+			TableGenerator generator = table.generator();
+			// pooled optimizer hands out (next_val - allocation size, next_val]
+			long floor = jdbcTemplate.queryForObject(
+					"SELECT COALESCE(MAX(" + table.idColumn() + "), 0) FROM " + table.name(),
+					Long.class) + generator.getIncrementSize();
+
+			int updated = jdbcTemplate.update("UPDATE " + generator.getTableName() + " SET "
+					+ generator.getValueColumnName() + " = GREATEST(" + generator.getValueColumnName()
+					+ ", ?) WHERE " + generator.getSegmentColumnName() + " = ?", floor,
+					generator.getSegmentValue());
+			if (updated == 0) {
+				jdbcTemplate.update("INSERT INTO " + generator.getTableName() + " ("
+						+ generator.getSegmentColumnName() + ", " + generator.getValueColumnName()
+						+ ") VALUES (?, ?)", generator.getSegmentValue(), floor);
+			}
+		}
+		log.info("Id generators checked for {} tables", tables.size());
+	}
+
+	private record Generated(String name, String idColumn, TableGenerator generator) {
+	}
+}
@@ -0,0 +1,51 @@
+package com.pocketbank.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * JDBC batching configuration. Entity ids come from pooled table generators
+ * (see id_generators), so Hibernate can group inserts and updates into JDBC
+ * batches instead of one round trip per row.
+ */
+@Configuration
+public class PersistenceConfig {
+
+	@Bean
+	HibernatePropertiesCustomizer jdbcBatchingCustomizer(
+			@Value("${pocketbank.jdbc.batch-size:100}") int batchSize) {
+		return properties -> {
+			properties.put("hibernate.jdbc.batch_size", batchSize);
+			properties.put("hibernate.order_inserts", true);
+			properties.put("hibernate.order_updates", true);
+		};
+	}
+
+	/**
+	 * Lets MySQL Connector/J rewrite a JDBC batch into multi-row INSERTs, without
+	 * this the driver still sends one statement per row. On MySQL the streamed
+	 * repository queries also fetch through a server-side cursor, so their fetch
+	 * size hint is honoured instead of the driver reading the whole result set.
+	 */
+	@Bean
+	static BeanPostProcessor rewriteBatchedStatementsPostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) {
+				if (bean instanceof HikariDataSource dataSource) {
+					dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+					if (dataSource.getJdbcUrl() != null && dataSource.getJdbcUrl()
+							.startsWith("jdbc:mysql:")) {
+						dataSource.addDataSourceProperty("useCursorFetch", "true");
+					}
+				}
+				return bean;
+			}
+		};
+	}
+}
@@ -0,0 +1,76 @@
+package com.pocketbank.config;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.pocketbank.config.service.RateLimiter;
+import com.pocketbank.config.service.RateLimiter.Route;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Throttles login attempts and withdraw/transfer posts per client IP and per
+ * user (the submitted username for logins) before they reach BCrypt or the
+ * database. A request over its limit gets 429 with Retry-After. Sits in the
+ * security chain ahead of the login filter, see SecurityConfig.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private final RateLimiter rateLimiter;
+
+	public RateLimitFilter(RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request,
+			HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+
+		Route route = route(request);
+		if (route != null) {
+			String user = route == Route.LOGIN ? request.getParameter("username")
+					: authenticatedUser();
+			long wait = rateLimiter.tryAcquire(route, request.getRemoteAddr(), user);
+			if (wait > 0) {
+				response.setHeader(HttpHeaders.RETRY_AFTER,
+						Long.toString(TimeUnit.NANOSECONDS.toSeconds(wait) + 1));
+				response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(),
+						"Too many requests, try again shortly");
+				return;
+			}
+		}
+		filterChain.doFilter(request, response);
+	}
+
+	// the throttled routes are all POSTs
+	static Route route(HttpServletRequest request) {
+		if (!"POST".equals(request.getMethod())) {
+			return null;
+		}
+		String path = request.getRequestURI()
+				.substring(request.getContextPath()
+						.length());
+		return switch (path) {
+		case "/login" -> Route.LOGIN;
+		case "/customer/withdraw" -> Route.WITHDRAW;
+		case "/customer/transfer" -> Route.TRANSFER;
+		default -> null;
+		};
+	}
+
+	private static String authenticatedUser() {
+		Authentication auth = SecurityContextHolder.getContext()
+				.getAuthentication();
+		return auth != null && auth.isAuthenticated() ? auth.getName() : null;
+	}
+}
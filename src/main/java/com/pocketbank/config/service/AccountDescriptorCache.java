@@ -0,0 +1,138 @@
+package com.pocketbank.config.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.repository.AccountRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Account number to the parts of an account the posting path checks before it
+ * locks anything: id, owner, type and status. Kept in a bounded LRU map;
+ * approvals and suspensions evict their entry after commit. A descriptor loaded
+ * while an eviction for it went by is returned but not kept.
+ *
+ * There is no balance here. Postings still lock the row (by id) and check its
+ * status again, the descriptor only saves the account number lookup and turns
+ * away unknown and inactive accounts early.
+ */
+@Service
+public class AccountDescriptorCache {
+
+	private final AccountRepository accountRepository;
+
+	// guarded by itself
+	private final Map<String, Entry> descriptors;
+
+	private final Counter hits;
+	private final Counter misses;
+
+	public AccountDescriptorCache(AccountRepository accountRepository,
+			MeterRegistry meterRegistry,
+			@Value("${pocketbank.account-descriptors.max-accounts:100000}") int maxAccounts) {
+		this.accountRepository = accountRepository;
+		this.descriptors = new LinkedHashMap<>(1024, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxAccounts;
+			}
+		};
+
+		this.hits = lookups(meterRegistry, "hit");
+		this.misses = lookups(meterRegistry, "miss");
+		Gauge.builder("pocketbank.account-descriptors.accounts", this,
+				AccountDescriptorCache::size)
+				.register(meterRegistry);
+	}
+
+	// Descriptor of an account, empty when there is no such account (misses are not kept)
+	public Optional<AccountDescriptor> find(String accountNumber) {
+		Entry entry;
+		synchronized (descriptors) {
+			entry = descriptors.get(accountNumber);
+			if (entry != null && entry.descriptor != null) {
+				hits.increment();
+				return Optional.of(entry.descriptor);
+			}
+			// an eviction removes this marker, which tells us not to keep what we load
+			entry = new Entry();
+			descriptors.put(accountNumber, entry);
+		}
+
+		misses.increment();
+		AccountDescriptor descriptor;
+		try {
+			descriptor = load(accountNumber);
+		} catch (RuntimeException e) {
+			synchronized (descriptors) {
+				descriptors.remove(accountNumber, entry);
+			}
+			throw e;
+		}
+		synchronized (descriptors) {
+			if (descriptor != null && descriptors.get(accountNumber) == entry) {
+				entry.descriptor = descriptor;
+			} else {
+				descriptors.remove(accountNumber, entry);
+			}
+		}
+		return Optional.ofNullable(descriptor);
+	}
+
+	// approvals and suspensions, once they commit
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAccountStatusChanged(AccountStatusChangedEvent event) {
+		synchronized (descriptors) {
+			descriptors.remove(event.accountNumber());
+		}
+	}
+
+	public int size() {
+		synchronized (descriptors) {
+			return descriptors.size();
+		}
+	}
+
+	private AccountDescriptor load(String accountNumber) {
+		List<Object[]> rows = accountRepository.findDescriptor(accountNumber);
+		if (rows.isEmpty()) {
+			return null;
+		}
+		Object[] row = rows.get(0);
+		return new AccountDescriptor((Long) row[0], (Long) row[1], (AccountType) row[2],
+				(AccountStatus) row[3]);
+	}
+
+	private static Counter lookups(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("pocketbank.account-descriptors.lookups")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	// A cached descriptor, or a marker for one being loaded. Guarded by the descriptors monitor.
+	private static class Entry {
+
+		private AccountDescriptor descriptor;
+	}
+
+	public record AccountDescriptor(Long id,
+			Long userId,
+			AccountType accountType,
+			AccountStatus status) {
+
+		public boolean isActive() {
+			return status == AccountStatus.APPROVED;
+		}
+	}
+}
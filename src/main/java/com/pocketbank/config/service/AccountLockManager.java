@@ -0,0 +1,104 @@
+package com.pocketbank.config.service;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Striped in-process locks for accounts. Every money-moving operation locks the
+ * accounts it touches through here, always in ascending stripe order, so two
+ * transfers in opposite directions can never wait on each other. Accounts that
+ * hash to different stripes proceed fully in parallel.
+ */
+@Component
+public class AccountLockManager {
+
+	private final ReentrantLock[] stripes;
+
+	public AccountLockManager(@Value("${pocketbank.lock.stripes:1024}") int stripeCount) {
+		if (stripeCount <= 0) {
+			throw new IllegalArgumentException("Stripe count must be posetive");
+		}
+		this.stripes = new ReentrantLock[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	// Lock the given accounts. Inside a transaction the locks are held until it
+	// completes, otherwise they are released when the lease is closed.
+	public Lease lock(String... accountNumbers) {
+
+		int[] indexes = stripesFor(accountNumbers);
+		for (int index : indexes) {
+			stripes[index].lock();
+		}
+
+		Lease lease = new Lease(indexes);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			lease.bound = true;
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					lease.release();
+				}
+			});
+		}
+		return lease;
+	}
+
+	public int stripeCount() {
+		return stripes.length;
+	}
+
+	// Distinct stripe indexes in ascending order - the global lock order
+	int[] stripesFor(String... accountNumbers) {
+		return Arrays.stream(accountNumbers)
+				.mapToInt(this::stripeOf)
+				.distinct()
+				.sorted()
+				.toArray();
+	}
+
+	private int stripeOf(String accountNumber) {
+		int h = accountNumber.hashCode();
+		h ^= (h >>> 16);
+		return Math.floorMod(h, stripes.length);
+	}
+
+	/**
+	 * Handle for a set of held stripes. Closing it is a no-op when the stripes are
+	 * bound to the surrounding transaction.
+	 */
+	public final class Lease implements AutoCloseable {
+
+		private final int[] indexes;
+		private boolean bound;
+		private boolean released;
+
+		private Lease(int[] indexes) {
+			this.indexes = indexes;
+		}
+
+		@Override
+		public void close() {
+			if (!bound) {
+				release();
+			}
+		}
+
+		private void release() {
+			if (released) {
+				return;
+			}
+			released = true;
+			for (int i = indexes.length - 1; i >= 0; i--) {
+				stripes[indexes[i]].unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.pocketbank.config.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.NumberSequence;
+import com.pocketbank.repository.NumberSequenceRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Account numbers: "PB", a 10-digit sequence number and a Luhn check digit.
+ *
+ * Sequence numbers are leased from the number_sequences row in blocks, one row
+ * lock per block, in a transaction of their own so the lock is never held by
+ * the caller's transaction. Within a block numbers are handed out from memory
+ * without locking. Numbers of a block left over at shutdown are never used, so
+ * the sequence has gaps but no repeats.
+ */
+@Service
+public class AccountNumberGenerator {
+
+	static final String SEQUENCE = "account_numbers";
+	static final String PREFIX = "PB";
+	static final int SEQUENCE_DIGITS = 10;
+	static final long MAX_SEQUENCE = 9_999_999_999L;
+
+	private static final Pattern SHAPE = Pattern.compile("PB\\d+");
+
+	private final NumberSequenceRepository numberSequenceRepository;
+	private final TransactionTemplate leaseTemplate;
+	private final int blockSize;
+	private final Counter leases;
+
+	// replaced whole when it runs out; only replacing it is synchronized
+	private volatile Block block = new Block(0, 0);
+
+	public AccountNumberGenerator(NumberSequenceRepository numberSequenceRepository,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${pocketbank.account-numbers.block-size:1000}") int blockSize) {
+		this.numberSequenceRepository = numberSequenceRepository;
+		this.leaseTemplate = new TransactionTemplate(transactionManager);
+		this.leaseTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.blockSize = blockSize;
+		this.leases = Counter.builder("pocketbank.account-numbers.leases")
+				.register(meterRegistry);
+	}
+
+	// Next unused account number
+	public String next() {
+		while (true) {
+			Block current = block;
+			long value = current.next.getAndIncrement();
+			if (value < current.end) {
+				return format(value);
+			}
+			refill(current);
+		}
+	}
+
+	// Syntax and check digit of a number someone typed; legacy numbers (before the
+	// check digit) have another length and only get the shape check
+	public static boolean isValid(String accountNumber) {
+		if (accountNumber == null || !SHAPE.matcher(accountNumber)
+				.matches()) {
+			return false;
+		}
+		if (accountNumber.length() != PREFIX.length() + SEQUENCE_DIGITS + 1) {
+			return true;
+		}
+		String digits = accountNumber.substring(PREFIX.length());
+		return checkDigit(digits.substring(0, SEQUENCE_DIGITS)) == digits
+				.charAt(SEQUENCE_DIGITS) - '0';
+	}
+
+	static String format(long value) {
+		String digits = String.format("%0" + SEQUENCE_DIGITS + "d", value);
+		return PREFIX + digits + checkDigit(digits);
+	}
+
+	// Luhn: double every second digit from the right, the check digit makes the sum
+	// a multiple of ten
+	static int checkDigit(String digits) {
+		int sum = 0;
+		boolean doubled = true;
+		for (int i = digits.length() - 1; i >= 0; i--) {
+			int digit = digits.charAt(i) - '0';
+			if (doubled) {
+				digit *= 2;
+				if (digit > 9) {
+					digit -= 9;
+				}
+			}
+			sum += digit;
+			doubled = !doubled;
+		}
+		return (10 - sum % 10) % 10;
+	}
+
+	private synchronized void refill(Block exhausted) {
+		if (block != exhausted) {
+			return; // another thread leased one already
+		}
+		long start = lease();
+		block = new Block(start, start + blockSize);
+	}
+
+	// first number of a newly leased block
+	private long lease() {
+		try {
+			return leaseTemplate.execute(status -> leaseBlock());
+		} catch (DataIntegrityViolationException e) {
+			// another node created the sequence row first
+			return leaseTemplate.execute(status -> leaseBlock());
+		}
+	}
+
+	private long leaseBlock() {
+		NumberSequence sequence = numberSequenceRepository.findByNameForUpdate(SEQUENCE)
+				.orElse(null);
+		if (sequence == null) {
+			sequence = NumberSequence.builder()
+					.name(SEQUENCE)
+					.nextValue(1L)
+					.build();
+		}
+		long start = sequence.getNextValue();
+		if (start + blockSize - 1 > MAX_SEQUENCE) {
+			throw new RuntimeException("Account numbers are exhausted");
+		}
+		sequence.setNextValue(start + blockSize);
+		numberSequenceRepository.saveAndFlush(sequence);
+		leases.increment();
+		return start;
+	}
+
+	// Leased numbers [next, end); next runs past end once the block is used up
+	private static class Block {
+
+		private final AtomicLong next;
+		private final long end;
+
+		private Block(long start, long end) {
+			this.next = new AtomicLong(start);
+			this.end = end;
+		}
+	}
+}
@@ -2,12 +2,15 @@ package com.pocketbank.config.service;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.AccountStatus;
 import com.pocketbank.entity.enums.AccountType;
@@ -20,12 +23,26 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class AccountService {
 
+	// sort keys of the admin account listing
+	private static final Map<String, String> SORT_KEYS = Map.of("createdAt", "createdAt",
+			"accountNumber", "accountNumber", "balance", "balance", "customer", "user.fullName");
+
 	private final AccountRepository accountRepository;
 	private final UserRepository userRepository;
+	private final ApplicationEventPublisher eventPublisher;
+	private final ShardedBalanceService shardedBalanceService;
+	private final AggregateCounterService aggregateCounterService;
+	private final DashboardBroadcaster dashboardBroadcaster;
+	private final UserProfileService userProfileService;
+	private final AccountNumberGenerator accountNumberGenerator;
+	private final AccountDescriptorCache accountDescriptorCache;
 
 	// get all accounts for a user
 	public List<Account> getUserAccounts(Long userId) {
-		return accountRepository.findByUserId(userId);
+		return accountRepository.findByUserId(userId)
+				.stream()
+				.map(this::withLiveBalance)
+				.toList();
 	}
 
 	// create new account
@@ -35,33 +52,52 @@ public class AccountService {
 				.orElseThrow(() -> new RuntimeException("User not found"));
 
 		Account account = Account.builder()
-				.accountNumber(generateAccountNumber())
+				.accountNumber(accountNumberGenerator.next())
 				.accountType(accountType)
-				.balance(BigDecimal.ZERO)
+				.balance(Money.ZERO)
 				.status(AccountStatus.PENDING)
 				.user(user)
 				.build();
 
+		aggregateCounterService.accountOpened();
+		dashboardBroadcaster.accountOpened();
+		userProfileService.invalidate(userId);
 		return accountRepository.save(account);
 	}
 
-	// Generate Unique account number
-	private String generateAccountNumber() {
-
-		String accountNumber;
-		do {
-			accountNumber = "PB" + System.currentTimeMillis() + new Random().nextInt(1000);
-		} while (accountRepository.existsByAccountNumber(accountNumber));
+	// Does the account belong to the user
+	public boolean isOwnedBy(Long accountId, Long userId) {
+		return accountRepository.existsByIdAndUserId(accountId, userId);
+	}
 
-		return accountNumber;
+	// Id of the account with this number, null when there is none
+	public Long findIdByAccountNumber(String accountNumber) {
+		return accountDescriptorCache.find(accountNumber)
+				.map(AccountDescriptorCache.AccountDescriptor::id)
+				.orElse(null);
 	}
 
 	// Get Account by Id
 	public Account findById(Long id) {
+		return withLiveBalance(load(id));
+	}
+
+	private Account load(Long id) {
 		return accountRepository.findById(id)
 				.orElseThrow(() -> new RuntimeException("Account not found"));
 	}
 
+	// balance of a sharded account is the sum of its slots; it goes on a detached
+	// copy so it is never flushed over the stored balance
+	private Account withLiveBalance(Account account) {
+		if (account.getBalanceSlots() == null) {
+			return account;
+		}
+		return account.toBuilder()
+				.balance(shardedBalanceService.balanceOf(account))
+				.build();
+	}
+
 	// Get total accounts count
 	public Long countAccounts() {
 		return accountRepository.countBy();
@@ -77,16 +113,29 @@ public class AccountService {
 		return accountRepository.findByStatusOrderByCreatedAtDesc(AccountStatus.PENDING);
 	}
 
-	// Get All accounts
-	public List<Account> getAllAccounts() {
-		return accountRepository.findAll();
+	// One page of all accounts (admin), optionally filtered by status and a search
+	// on account number or owner name
+	public Page<Account> getAccountsPage(AccountStatus status, String search, int page, int size,
+			String sort, String direction) {
+		return accountRepository.findAdminPage(status, AdminListing.searchPattern(search),
+				AdminListing.pageRequest(page, size, sort, direction, SORT_KEYS, "createdAt"));
 	}
 
 	// Approve account
 	@Transactional
 	public Account approveAccount(Long accountId) {
-		Account account = findById(accountId);
+		Account account = load(accountId);
+		// the row balance of a sharded account is stale, its slots hold the real one
+		Money balance = shardedBalanceService.balanceOf(account);
+		aggregateCounterService.accountStatusChanged(balance, account.getStatus(),
+				AccountStatus.APPROVED);
+		dashboardBroadcaster.accountStatusChanged(balance, account.getStatus(),
+				AccountStatus.APPROVED);
 		account.setStatus(AccountStatus.APPROVED);
+		userProfileService.invalidate(account.getUser()
+				.getId());
+		eventPublisher.publishEvent(new AccountStatusChangedEvent(account.getId(),
+				account.getAccountNumber(), account.getStatus()));
 		return accountRepository.save(account);
 	}
 
@@ -94,8 +143,18 @@ public class AccountService {
 	@Transactional
 	public Account suspendAccount(Long accountId) {
 
-		Account account = findById(accountId);
+		Account account = load(accountId);
+		// the row balance of a sharded account is stale, its slots hold the real one
+		Money balance = shardedBalanceService.balanceOf(account);
+		aggregateCounterService.accountStatusChanged(balance, account.getStatus(),
+				AccountStatus.SUSPENDED);
+		dashboardBroadcaster.accountStatusChanged(balance, account.getStatus(),
+				AccountStatus.SUSPENDED);
 		account.setStatus(AccountStatus.SUSPENDED);
+		userProfileService.invalidate(account.getUser()
+				.getId());
+		eventPublisher.publishEvent(new AccountStatusChangedEvent(account.getId(),
+				account.getAccountNumber(), account.getStatus()));
 		return accountRepository.save(account);
 	}
 
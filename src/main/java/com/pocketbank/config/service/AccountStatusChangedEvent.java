@@ -0,0 +1,10 @@
+package com.pocketbank.config.service;
+
+import com.pocketbank.entity.enums.AccountStatus;
+
+/**
+ * Published by AccountService whenever an account is approved or suspended, so
+ * components holding account state in memory can drop it after commit.
+ */
+public record AccountStatusChangedEvent(Long accountId, String accountNumber, AccountStatus status) {
+}
@@ -0,0 +1,48 @@
+package com.pocketbank.config.service;
+
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Paging, sorting and search terms of the admin listings. Each listing names the
+ * sort keys it offers, so a request parameter never reaches an ORDER BY
+ * unchecked, and page sizes are capped.
+ */
+public final class AdminListing {
+
+	public static final int DEFAULT_PAGE_SIZE = 25;
+	public static final int MAX_PAGE_SIZE = 100;
+
+	private AdminListing() {
+	}
+
+	// sortKeys maps a sort key to the entity property it orders by
+	static Pageable pageRequest(int page, int size, String sort, String direction,
+			Map<String, String> sortKeys, String defaultSort) {
+		String property = sortKeys.get(sort != null && sortKeys.containsKey(sort) ? sort
+				: defaultSort);
+		Sort.Direction order = "asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC
+				: Sort.Direction.DESC;
+		int pageSize = size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+		// id breaks ties so rows do not move between pages
+		return PageRequest.of(Math.max(page, 0), pageSize, Sort.by(order, property)
+				.and(Sort.by(order, "id")));
+	}
+
+	// LIKE pattern for a case-insensitive contains search, null when there is no term
+	static String searchPattern(String search) {
+		if (search == null || search.isBlank()) {
+			return null;
+		}
+		String escaped = search.trim()
+				.toLowerCase(Locale.ROOT)
+				.replace("\\", "\\\\")
+				.replace("%", "\\%")
+				.replace("_", "\\_");
+		return "%" + escaped + "%";
+	}
+}
@@ -0,0 +1,240 @@
+package com.pocketbank.config.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.AggregateCounter;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.Aggregate;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.AggregateCounterRepository;
+import com.pocketbank.repository.TransactionRepository;
+import com.pocketbank.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bank-wide totals for the admin dashboard and reports, kept up to date by the
+ * posting and account code paths in the same database transaction as the
+ * change itself. Each total is spread over striped rows of aggregate_counters
+ * so concurrent postings rarely wait on the same row; reading sums the stripes.
+ *
+ * A nightly job compares the counters with a full scan and corrects drift.
+ */
+@Slf4j
+@Service
+public class AggregateCounterService {
+
+	private final AggregateCounterRepository counterRepository;
+	private final TransactionRepository transactionRepository;
+	private final AccountRepository accountRepository;
+	private final UserRepository userRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final TransactionTemplate snapshotTemplate;
+	private final int stripes;
+	private final boolean repair;
+
+	public AggregateCounterService(AggregateCounterRepository counterRepository,
+			TransactionRepository transactionRepository,
+			AccountRepository accountRepository,
+			UserRepository userRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${pocketbank.aggregates.stripes:16}") int stripes,
+			@Value("${pocketbank.aggregates.repair:true}") boolean repair) {
+		this.counterRepository = counterRepository;
+		this.transactionRepository = transactionRepository;
+		this.accountRepository = accountRepository;
+		this.userRepository = userRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		// counters and tables are read from one consistent snapshot
+		this.snapshotTemplate = new TransactionTemplate(transactionManager);
+		this.snapshotTemplate.setReadOnly(true);
+		this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+		this.stripes = stripes;
+		this.repair = repair;
+	}
+
+	// Current totals, O(stripes) rows
+	public Totals totals() {
+		Map<Aggregate, Long> sums = new EnumMap<>(Aggregate.class);
+		for (Object[] row : counterRepository.sumByName()) {
+			sums.put((Aggregate) row[0], ((Number) row[1]).longValue());
+		}
+		return Totals.of(sums);
+	}
+
+	// Count postings, and move deposits, withdrawals and the approved balance
+	public void recordPostings(Collection<Transaction> postings) {
+		long deposits = 0;
+		long withdrawals = 0;
+		long balance = 0;
+		for (Transaction posting : postings) {
+			long paise = posting.getAmount()
+					.paise();
+			switch (posting.getType()) {
+			case DEPOSIT -> {
+				deposits += paise;
+				balance += paise;
+			}
+			case WITHDRAWAL -> {
+				withdrawals += paise;
+				balance -= paise;
+			}
+			case TRANSFER_IN, LOAN_DISBURSMENT -> balance += paise;
+			case TRANSFER_OUT, FD_CREATION -> balance -= paise;
+			}
+		}
+		add(Aggregate.TRANSACTIONS, postings.size());
+		add(Aggregate.DEPOSITS, deposits);
+		add(Aggregate.WITHDRAWALS, withdrawals);
+		// both legs of an internal transfer cancel out
+		add(Aggregate.BALANCE, balance);
+	}
+
+	public void accountOpened() {
+		add(Aggregate.ACCOUNTS, 1);
+	}
+
+	public void customerRegistered() {
+		add(Aggregate.CUSTOMERS, 1);
+	}
+
+	// Only approved balances count towards the bank total
+	public void accountStatusChanged(Money balance, AccountStatus from, AccountStatus to) {
+		if (from == to) {
+			return;
+		}
+		if (to == AccountStatus.APPROVED) {
+			add(Aggregate.BALANCE, balance.paise());
+		} else if (from == AccountStatus.APPROVED) {
+			add(Aggregate.BALANCE, -balance.paise());
+		}
+	}
+
+	// Create missing stripes; an empty table is seeded from a full scan
+	@EventListener(ApplicationReadyEvent.class)
+	public void initialize() {
+		transactionTemplate.executeWithoutResult(status -> {
+			boolean empty = counterRepository.count() == 0;
+			Map<Aggregate, Long> scanned = empty ? scan() : Map.of();
+
+			List<AggregateCounter> created = new ArrayList<>();
+			for (Aggregate name : Aggregate.values()) {
+				for (int stripe = 0; stripe < stripes; stripe++) {
+					if (empty || !counterRepository.existsByNameAndStripe(name, stripe)) {
+						created.add(AggregateCounter.builder()
+								.name(name)
+								.stripe(stripe)
+								.total(stripe == 0 ? scanned.getOrDefault(name, 0L) : 0L)
+								.build());
+					}
+				}
+			}
+			counterRepository.saveAll(created);
+		});
+	}
+
+	// Nightly check of the counters against a full scan
+	@Scheduled(cron = "${pocketbank.aggregates.verify-cron:0 30 2 * * *}")
+	public void verifyNightly() {
+		List<Mismatch> mismatches = verify(repair);
+		log.info("Aggregate counter check finished: {} mismatched totals", mismatches.size());
+	}
+
+	// Compare every counter with a full scan, optionally adding the difference
+	public List<Mismatch> verify(boolean repair) {
+		List<Mismatch> mismatches = snapshotTemplate.execute(status -> {
+			Map<Aggregate, Long> counted = new EnumMap<>(Aggregate.class);
+			for (Object[] row : counterRepository.sumByName()) {
+				counted.put((Aggregate) row[0], ((Number) row[1]).longValue());
+			}
+			Map<Aggregate, Long> scanned = scan();
+
+			List<Mismatch> found = new ArrayList<>();
+			for (Aggregate name : Aggregate.values()) {
+				long counter = counted.getOrDefault(name, 0L);
+				long actual = scanned.get(name);
+				if (counter != actual) {
+					log.warn("Aggregate {} counter {} does not match full scan {}", name, counter,
+							actual);
+					found.add(new Mismatch(name, counter, actual));
+				}
+			}
+			return found;
+		});
+
+		if (repair && !mismatches.isEmpty()) {
+			// a delta commutes with postings made since the snapshot
+			transactionTemplate.executeWithoutResult(status -> mismatches
+					.forEach(m -> add(m.aggregate(), m.scanned() - m.counted())));
+		}
+		return mismatches;
+	}
+
+	private Map<Aggregate, Long> scan() {
+		Map<Aggregate, Long> scanned = new EnumMap<>(Aggregate.class);
+		scanned.put(Aggregate.DEPOSITS, Money.of(transactionRepository.getTotalDeposits())
+				.paise());
+		scanned.put(Aggregate.WITHDRAWALS, Money.of(transactionRepository.getTotalWithdrawals())
+				.paise());
+		scanned.put(Aggregate.BALANCE, Money.of(accountRepository.getLiveTotalBalance())
+				.paise());
+		scanned.put(Aggregate.TRANSACTIONS, transactionRepository.countBy());
+		scanned.put(Aggregate.ACCOUNTS, accountRepository.countBy());
+		scanned.put(Aggregate.CUSTOMERS, userRepository.countCustomers());
+		return scanned;
+	}
+
+	private void add(Aggregate name, long delta) {
+		if (delta == 0) {
+			return;
+		}
+		int stripe = ThreadLocalRandom.current()
+				.nextInt(stripes);
+		if (counterRepository.add(name, stripe, delta) == 0) {
+			// stripes are created at startup; the nightly check picks this up
+			log.warn("No aggregate counter row for {} stripe {}", name, stripe);
+		}
+	}
+
+	/**
+	 * Bank-wide totals as shown on the admin pages
+	 */
+	public record Totals(Money deposits,
+			Money withdrawals,
+			Money balance,
+			long transactions,
+			long accounts,
+			long customers) {
+
+		static Totals of(Map<Aggregate, Long> sums) {
+			return new Totals(Money.ofPaise(sums.getOrDefault(Aggregate.DEPOSITS, 0L)),
+					Money.ofPaise(sums.getOrDefault(Aggregate.WITHDRAWALS, 0L)),
+					Money.ofPaise(sums.getOrDefault(Aggregate.BALANCE, 0L)),
+					sums.getOrDefault(Aggregate.TRANSACTIONS, 0L),
+					sums.getOrDefault(Aggregate.ACCOUNTS, 0L),
+					sums.getOrDefault(Aggregate.CUSTOMERS, 0L));
+		}
+	}
+
+	/**
+	 * Aggregate whose counter differs from the full scan
+	 */
+	public record Mismatch(Aggregate aggregate, long counted, long scanned) {
+	}
+}
@@ -0,0 +1,294 @@
+package com.pocketbank.config.service;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Loan;
+import com.pocketbank.entity.LoanInstallment;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.repository.LoanInstallmentRepository;
+import com.pocketbank.repository.LoanRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * EMIs and month-by-month repayment schedules of loans. Amounts are paise; each
+ * month's interest is the outstanding balance times the monthly rate, rounded
+ * half up to the paisa, the rest of the EMI repays principal, and the last
+ * installment clears whatever is left, so a schedule always ends at zero.
+ *
+ * The monthly rate, (1+r)^n and the EMI factor r(1+r)^n/((1+r)^n-1) are worked
+ * out to 34 digits once per annual rate (one table per tier of
+ * LoanService.calculateIntrestRate) for every tenure up to
+ * pocketbank.amortization.max-tenure-months.
+ *
+ * Schedules are stored in loan_installments when a loan is approved. A nightly
+ * job fills in any approved or disbursed loan without one, splitting the loan
+ * book into id ranges over pocketbank.amortization.workers threads; each range
+ * is one transaction whose inserts are flushed in JDBC batches of
+ * pocketbank.jdbc.batch-size rows and cleared from the persistence context, so
+ * memory stays bounded however long the schedules are.
+ */
+@Slf4j
+@Service
+public class AmortizationEngine {
+
+	private static final List<LoanStatus> SCHEDULED = List.of(LoanStatus.APPROVED,
+			LoanStatus.DISBURSED);
+
+	private final LoanRepository loanRepository;
+	private final LoanInstallmentRepository installmentRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final EntityManager entityManager;
+	private final int maxTenureMonths;
+	private final int workers;
+	private final long rangeSize;
+	private final int batchSize;
+
+	// keyed by annual rate in percent
+	private final Map<Double, RateFactors> factors = new ConcurrentHashMap<>();
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	public AmortizationEngine(LoanRepository loanRepository,
+			LoanInstallmentRepository installmentRepository,
+			PlatformTransactionManager transactionManager,
+			EntityManager entityManager,
+			@Value("${pocketbank.amortization.max-tenure-months:360}") int maxTenureMonths,
+			@Value("${pocketbank.amortization.workers:4}") int workers,
+			@Value("${pocketbank.amortization.loan-range-size:500}") long rangeSize,
+			@Value("${pocketbank.jdbc.batch-size:100}") int batchSize) {
+		this.loanRepository = loanRepository;
+		this.installmentRepository = installmentRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.entityManager = entityManager;
+		this.maxTenureMonths = maxTenureMonths;
+		this.workers = workers;
+		this.rangeSize = rangeSize;
+		this.batchSize = batchSize;
+	}
+
+	// Monthly EMI of a loan, to the paisa
+	public BigDecimal emi(BigDecimal principal, double annualRate, int months) {
+		return Money.of(principal)
+				.times(factors(annualRate).emiFactor(months))
+				.toBigDecimal();
+	}
+
+	// The loan's schedule, worked out from its amount, rate, tenure and agreed EMI;
+	// the first installment is due a month after approval
+	public List<Installment> schedule(Loan loan) {
+		LocalDate start = (loan.getApprovedAt() != null ? loan.getApprovedAt()
+				: loan.getAppliedAt()).toLocalDate();
+		return schedule(Money.of(loan.getLoanAmount()), loan.getInterestRate(),
+				loan.getTenureMonths(), Money.of(loan.getMonthlyEmi()), start);
+	}
+
+	public List<Installment> schedule(Money principal, double annualRate, int months, Money emi,
+			LocalDate start) {
+		BigDecimal monthlyRate = factors(annualRate).monthlyRate;
+		List<Installment> installments = new ArrayList<>(months);
+		long balance = principal.paise();
+		for (int number = 1; number <= months; number++) {
+			long interest = Money.ofPaise(balance)
+					.times(monthlyRate)
+					.paise();
+			long repaid = number == months ? balance : Math.min(emi.paise() - interest, balance);
+			if (repaid < 0) {
+				throw new RuntimeException("EMI does not cover the interest of installment " + number);
+			}
+			balance -= repaid;
+			installments.add(new Installment(number, start.plusMonths(number),
+					Money.ofPaise(repaid + interest), Money.ofPaise(repaid), Money.ofPaise(interest),
+					Money.ofPaise(balance)));
+		}
+		return installments;
+	}
+
+	// Stored schedule of the loan, or one worked out now when it has none yet
+	public List<Installment> getSchedule(Loan loan) {
+		List<LoanInstallment> stored = installmentRepository
+				.findByLoanIdOrderByNumberAsc(loan.getId());
+		if (stored.isEmpty()) {
+			return schedule(loan);
+		}
+		return stored.stream()
+				.map(i -> new Installment(i.getNumber(), i.getDueDate(), i.getAmount(),
+						i.getPrincipal(), i.getInterest(), i.getBalance()))
+				.toList();
+	}
+
+	// (Re)write the loan's schedule, in the caller's transaction
+	public void store(Loan loan) {
+		installmentRepository.deleteByLoanId(loan.getId());
+		installmentRepository.saveAll(installmentRows(loan));
+	}
+
+	@Scheduled(cron = "${pocketbank.amortization.cron:0 45 3 * * *}")
+	public void generateNightly() {
+		generateLoanBook();
+	}
+
+	// Schedules for every approved or disbursed loan that has none
+	public BookReport generateLoanBook() {
+		if (!running.compareAndSet(false, true)) {
+			throw new RuntimeException("Loan schedules are already being generated");
+		}
+		try {
+			long started = System.nanoTime();
+			Object[] bounds = loanRepository.findIdBounds()
+					.get(0);
+			long first = bounds[0] != null ? (Long) bounds[0] : 1L;
+			long last = bounds[1] != null ? (Long) bounds[1] : 0L;
+
+			List<Callable<long[]>> ranges = new ArrayList<>();
+			for (long start = first; start <= last; start += rangeSize) {
+				long from = start;
+				long to = Math.min(last, start + rangeSize - 1);
+				ranges.add(() -> generateRange(from, to));
+			}
+
+			long loans = 0;
+			long installments = 0;
+			ForkJoinPool pool = new ForkJoinPool(workers);
+			try {
+				for (Future<long[]> range : pool.invokeAll(ranges)) {
+					long[] counts = range.get();
+					loans += counts[0];
+					installments += counts[1];
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+				throw new RuntimeException("Interrupted while generating loan schedules");
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Could not generate loan schedules", e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+
+			BookReport report = new BookReport(loans, installments,
+					(System.nanoTime() - started) / 1_000_000);
+			log.info("Generated schedules for {} loans ({} installments) in {} ms", report.loans(),
+					report.installments(), report.elapsedMs());
+			return report;
+		} finally {
+			running.set(false);
+		}
+	}
+
+	// loans and installments written for loan ids [from, to]
+	private long[] generateRange(long from, long to) {
+		return transactionTemplate.execute(status -> {
+			List<Loan> loans = loanRepository.findWithoutSchedule(from, to, SCHEDULED);
+			List<LoanInstallment> batch = new ArrayList<>(batchSize);
+			long rows = 0;
+			for (Loan loan : loans) {
+				for (LoanInstallment row : installmentRows(loan)) {
+					batch.add(row);
+					if (batch.size() == batchSize) {
+						rows += write(batch);
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+			}
+			rows += write(batch);
+			return new long[] { loans.size(), rows };
+		});
+	}
+
+	// Insert one JDBC batch and let go of its rows
+	private int write(List<LoanInstallment> batch) {
+		if (batch.isEmpty()) {
+			return 0;
+		}
+		installmentRepository.saveAll(batch);
+		entityManager.flush();
+		entityManager.clear();
+		return batch.size();
+	}
+
+	private List<LoanInstallment> installmentRows(Loan loan) {
+		return schedule(loan).stream()
+				.map(i -> LoanInstallment.builder()
+						.loanId(loan.getId())
+						.number(i.number())
+						.dueDate(i.dueDate())
+						.amount(i.amount())
+						.principal(i.principal())
+						.interest(i.interest())
+						.balance(i.balance())
+						.build())
+				.toList();
+	}
+
+	private RateFactors factors(double annualRate) {
+		return factors.computeIfAbsent(annualRate, rate -> new RateFactors(rate, maxTenureMonths));
+	}
+
+	// Monthly rate and EMI factors of one annual rate, for tenures 1..maxMonths
+	private static final class RateFactors {
+
+		private final BigDecimal monthlyRate;
+		private final BigDecimal[] emiFactors;
+
+		private RateFactors(double annualRate, int maxMonths) {
+			this.monthlyRate = BigDecimal.valueOf(annualRate)
+					.divide(BigDecimal.valueOf(1200), MathContext.DECIMAL128);
+			this.emiFactors = new BigDecimal[maxMonths + 1];
+			BigDecimal growth = BigDecimal.ONE;
+			for (int months = 1; months <= maxMonths; months++) {
+				growth = growth.multiply(BigDecimal.ONE.add(monthlyRate), MathContext.DECIMAL128);
+				emiFactors[months] = emiFactor(months, growth);
+			}
+		}
+
+		private BigDecimal emiFactor(int months) {
+			if (months < 1) {
+				throw new RuntimeException("Tenure must be at least one month");
+			}
+			if (months < emiFactors.length) {
+				return emiFactors[months];
+			}
+			return emiFactor(months, BigDecimal.ONE.add(monthlyRate)
+					.pow(months, MathContext.DECIMAL128));
+		}
+
+		// r(1+r)^n/((1+r)^n-1), or 1/n without interest
+		private BigDecimal emiFactor(int months, BigDecimal growth) {
+			if (monthlyRate.signum() == 0) {
+				return BigDecimal.ONE.divide(BigDecimal.valueOf(months), MathContext.DECIMAL128);
+			}
+			return monthlyRate.multiply(growth, MathContext.DECIMAL128)
+					.divide(growth.subtract(BigDecimal.ONE), MathContext.DECIMAL128);
+		}
+	}
+
+	public record Installment(int number,
+			LocalDate dueDate,
+			Money amount,
+			Money principal,
+			Money interest,
+			Money balance) {
+	}
+
+	public record BookReport(long loans, long installments, long elapsedMs) {
+	}
+}
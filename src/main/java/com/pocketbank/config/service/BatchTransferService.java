@@ -0,0 +1,322 @@
+package com.pocketbank.config.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/**
+ * Bulk (payroll) transfers from one source account. The CSV is read line by line
+ * and processed in chunks: each chunk locks its accounts once, debits the source
+ * once, and writes all postings and credits as JDBC batches in one database
+ * transaction. A bad row is rejected on its own and does not stop the file.
+ *
+ * CSV format: toAccountNumber,amount[,description], optional header line.
+ */
+@Service
+public class BatchTransferService {
+
+	private final AccountRepository accountRepository;
+	private final TransactionRepository transactionRepository;
+	private final AccountLockManager accountLockManager;
+	private final LedgerJournal ledgerJournal;
+	private final AggregateCounterService aggregateCounterService;
+	private final RollupService rollupService;
+	private final ApplicationEventPublisher eventPublisher;
+	private final TransactionService transactionService;
+	private final ObjectProvider<ShardedLedgerEngine> ledgerEngine;
+	private final ShardedBalanceService shardedBalanceService;
+	private final TransactionTemplate transactionTemplate;
+	private final int chunkSize;
+
+	public BatchTransferService(AccountRepository accountRepository,
+			TransactionRepository transactionRepository,
+			AccountLockManager accountLockManager,
+			LedgerJournal ledgerJournal,
+			AggregateCounterService aggregateCounterService,
+			RollupService rollupService,
+			ApplicationEventPublisher eventPublisher,
+			TransactionService transactionService,
+			ObjectProvider<ShardedLedgerEngine> ledgerEngine,
+			ShardedBalanceService shardedBalanceService,
+			PlatformTransactionManager transactionManager,
+			@Value("${pocketbank.batch-transfer.chunk-size:500}") int chunkSize) {
+		this.accountRepository = accountRepository;
+		this.transactionRepository = transactionRepository;
+		this.accountLockManager = accountLockManager;
+		this.ledgerJournal = ledgerJournal;
+		this.aggregateCounterService = aggregateCounterService;
+		this.rollupService = rollupService;
+		this.eventPublisher = eventPublisher;
+		this.transactionService = transactionService;
+		this.ledgerEngine = ledgerEngine;
+		this.shardedBalanceService = shardedBalanceService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.chunkSize = chunkSize;
+	}
+
+	// Run every row of the CSV as a transfer from the user's source account
+	public BatchReport transfer(Long userId, String fromAccountNumber, InputStream csv) {
+
+		Account source = accountRepository.findByAccountNumber(fromAccountNumber)
+				.orElseThrow(() -> new RuntimeException("Source account not found."));
+		if (!source.getUser()
+				.getId()
+				.equals(userId)) {
+			throw new RuntimeException("Source account does not belong to you");
+		}
+
+		long started = System.nanoTime();
+		List<RowResult> results = new ArrayList<>();
+		List<Row> chunk = new ArrayList<>(chunkSize);
+
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.isBlank()) {
+					continue;
+				}
+				Row row = parse(lineNumber, line, fromAccountNumber, results);
+				if (row != null) {
+					chunk.add(row);
+				}
+				if (chunk.size() == chunkSize) {
+					results.addAll(process(fromAccountNumber, chunk));
+					chunk.clear();
+				}
+			}
+			if (!chunk.isEmpty()) {
+				results.addAll(process(fromAccountNumber, chunk));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read uploaded file", e);
+		}
+
+		results.sort((a, b) -> Integer.compare(a.lineNumber(), b.lineNumber()));
+		return BatchReport.of(results, System.nanoTime() - started);
+	}
+
+	private Row parse(int lineNumber, String line, String fromAccountNumber,
+			List<RowResult> results) {
+
+		String[] fields = line.split(",", 3);
+		String toAccountNumber = fields[0].trim();
+		BigDecimal parsed;
+		try {
+			parsed = fields.length > 1 ? new BigDecimal(fields[1].trim()) : null;
+		} catch (NumberFormatException e) {
+			if (lineNumber == 1) {
+				return null; // header
+			}
+			parsed = null;
+		}
+		Money amount;
+		try {
+			amount = parsed != null ? Money.of(parsed) : null;
+		} catch (ArithmeticException e) {
+			amount = null; // more paise than a long holds
+		}
+
+		String error = null;
+		if (!AccountNumberGenerator.isValid(toAccountNumber)) {
+			error = "Invalid account number";
+		} else if (amount == null) {
+			error = "Invalid amount";
+		} else if (parsed.signum() <= 0) {
+			error = "Amount must be posetive";
+		} else if (parsed.scale() > 2) {
+			error = "Amount can have at most 2 decimals";
+		} else if (toAccountNumber.equals(fromAccountNumber)) {
+			error = "Cannot transfer to the same account.";
+		}
+
+		if (error != null) {
+			results.add(RowResult.failed(lineNumber, toAccountNumber, amount, error));
+			return null;
+		}
+		String description = fields.length > 2 && !fields[2].isBlank() ? fields[2].trim() : null;
+		return new Row(lineNumber, toAccountNumber, amount, description);
+	}
+
+	private List<RowResult> process(String fromAccountNumber, List<Row> chunk) {
+		if (ledgerEngine.getIfAvailable() != null
+				|| shardedBalanceService.isSharded(fromAccountNumber)) {
+			// balances live in the ledger shards or balance slots, go row by row
+			return chunk.stream()
+					.map(row -> {
+						try {
+							transactionService.transfer(fromAccountNumber, row.toAccountNumber(),
+									row.amount()
+											.toBigDecimal(),
+									row.description());
+							return RowResult.ok(row);
+						} catch (RuntimeException e) {
+							return RowResult.failed(row, e.getMessage());
+						}
+					})
+					.toList();
+		}
+		return transactionTemplate.execute(status -> processChunk(fromAccountNumber, chunk));
+	}
+
+	// One database transaction: lock, debit the source once, credit in batches
+	private List<RowResult> processChunk(String fromAccountNumber, List<Row> chunk) {
+
+		Set<String> numbers = new LinkedHashSet<>();
+		numbers.add(fromAccountNumber);
+		chunk.forEach(row -> numbers.add(row.toAccountNumber()));
+
+		try (AccountLockManager.Lease lease = accountLockManager
+				.lock(numbers.toArray(String[]::new))) {
+			Map<String, Account> accounts = new HashMap<>();
+			accountRepository.findByAccountNumberInForUpdate(numbers)
+					.forEach(a -> accounts.put(a.getAccountNumber(), a));
+
+			Account source = accounts.get(fromAccountNumber);
+			if (source == null || source.getStatus() != AccountStatus.APPROVED) {
+				return chunk.stream()
+						.map(row -> RowResult.failed(row, "Account is not active"))
+						.toList();
+			}
+
+			List<RowResult> results = new ArrayList<>(chunk.size());
+			List<Transaction> postings = new ArrayList<>(chunk.size() * 2);
+			Money balance = source.getBalance();
+
+			for (Row row : chunk) {
+				Account destination = accounts.get(row.toAccountNumber());
+				if (destination == null) {
+					results.add(RowResult.failed(row, "Destination account not found."));
+					continue;
+				}
+				if (destination.getStatus() != AccountStatus.APPROVED) {
+					results.add(RowResult.failed(row, "Account is not active"));
+					continue;
+				}
+				if (balance.isLessThan(row.amount())) {
+					results.add(RowResult.failed(row, "Insufficient balance"));
+					continue;
+				}
+
+				balance = balance.minus(row.amount());
+				Money destinationBalance;
+				if (destination.getBalanceSlots() != null) {
+					destinationBalance = shardedBalanceService.credit(destination, row.amount());
+				} else {
+					destination.setBalance(destination.getBalance()
+							.plus(row.amount()));
+					destinationBalance = destination.getBalance();
+				}
+
+				postings.add(Transaction.builder()
+						.type(TransactionType.TRANSFER_OUT)
+						.amount(row.amount())
+						.balanceAfter(balance)
+						.recipientAccountNumber(row.toAccountNumber())
+						.description(row.description() != null ? row.description()
+								: "Transfer to " + row.toAccountNumber())
+						.account(source)
+						.build());
+				postings.add(Transaction.builder()
+						.type(TransactionType.TRANSFER_IN)
+						.amount(row.amount())
+						.balanceAfter(destinationBalance)
+						.recipientAccountNumber(fromAccountNumber)
+						.description(row.description() != null ? row.description()
+								: "Transfer from " + fromAccountNumber)
+						.account(destination)
+						.build());
+				results.add(RowResult.ok(row));
+			}
+
+			// the source is debited once for the whole chunk
+			source.setBalance(balance);
+			List<Transaction> saved = transactionRepository.saveAll(postings);
+			saved.forEach(ledgerJournal::record);
+			aggregateCounterService.recordPostings(saved);
+			rollupService.recordPostings(saved);
+			eventPublisher.publishEvent(new PostingsCommitted(saved));
+			return results;
+		}
+	}
+
+	private record Row(int lineNumber, String toAccountNumber, Money amount,
+			String description) {
+	}
+
+	/**
+	 * Outcome of one CSV line
+	 */
+	public record RowResult(int lineNumber,
+			String toAccountNumber,
+			Money amount,
+			boolean success,
+			String message) {
+
+		static RowResult ok(Row row) {
+			return new RowResult(row.lineNumber(), row.toAccountNumber(), row.amount(), true,
+					"Transferred");
+		}
+
+		static RowResult failed(Row row, String message) {
+			return failed(row.lineNumber(), row.toAccountNumber(), row.amount(), message);
+		}
+
+		static RowResult failed(int lineNumber, String toAccountNumber, Money amount,
+				String message) {
+			return new RowResult(lineNumber, toAccountNumber, amount, false, message);
+		}
+	}
+
+	/**
+	 * Per-row results plus totals and throughput for the whole file
+	 */
+	public record BatchReport(List<RowResult> rows,
+			int succeeded,
+			int failed,
+			Money totalTransferred,
+			long elapsedMillis,
+			double rowsPerSecond) {
+
+		static BatchReport of(List<RowResult> rows, long elapsedNanos) {
+			int succeeded = 0;
+			Money total = Money.ZERO;
+			for (RowResult row : rows) {
+				if (row.success()) {
+					succeeded++;
+					total = total.plus(row.amount());
+				}
+			}
+			double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+			return new BatchReport(rows, succeeded, rows.size() - succeeded, total,
+					elapsedNanos / 1_000_000, rows.size() / seconds);
+		}
+	}
+}
@@ -0,0 +1,348 @@
+package com.pocketbank.config.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.LoanStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes changes to open admin dashboards over Server-Sent Events. Committed
+ * postings and account and loan status changes are folded into one pending
+ * delta, which is sent to every client each push interval (250 ms by default).
+ *
+ * Each client has a small bounded queue drained by a shared sender pool. A
+ * client whose queue is full is dropped; its browser reconnects and reloads.
+ * Nothing on the posting path ever waits for a client.
+ */
+@Slf4j
+@Service
+public class DashboardBroadcaster {
+
+	static final int RECENT_POSTINGS = 20;
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+			.ofPattern("dd-MM-yyyy HH:mm");
+
+	private final long emitterTimeoutMs;
+	private final int queueCapacity;
+	private final ExecutorService senders;
+	private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+	private final Object pendingLock = new Object();
+	private Delta pending = new Delta();
+
+	private final Counter dropped;
+
+	public DashboardBroadcaster(MeterRegistry meterRegistry,
+			@Value("${pocketbank.dashboard.live.timeout-ms:1800000}") long emitterTimeoutMs,
+			@Value("${pocketbank.dashboard.live.queue-capacity:16}") int queueCapacity,
+			@Value("${pocketbank.dashboard.live.sender-threads:4}") int senderThreads) {
+		this.emitterTimeoutMs = emitterTimeoutMs;
+		this.queueCapacity = queueCapacity;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(senderThreads, senderThreads, 30,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024), task -> {
+					Thread thread = new Thread(task, "dashboard-push-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		this.senders = pool;
+
+		this.dropped = Counter.builder("pocketbank.dashboard.live.dropped")
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.dashboard.live.clients", clients, Set::size)
+				.register(meterRegistry);
+	}
+
+	// Register an admin session; its emitter goes away on completion, timeout or error
+	public SseEmitter subscribe() {
+		Client client = new Client(newEmitter());
+		clients.add(client);
+		client.emitter.onCompletion(() -> clients.remove(client));
+		client.emitter.onTimeout(() -> clients.remove(client));
+		client.emitter.onError(e -> clients.remove(client));
+		return client.emitter;
+	}
+
+	public int clientCount() {
+		return clients.size();
+	}
+
+	// Postings appear on the dashboards once they commit
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPostingsCommitted(PostingsCommitted event) {
+		if (clients.isEmpty()) {
+			return;
+		}
+		List<Transaction> postings = event.postings();
+		List<RecentPosting> recent = new ArrayList<>(postings.size());
+		for (Transaction posting : postings) {
+			recent.add(new RecentPosting(DATE_FORMAT.format(posting.getTransactionDate()),
+					posting.getAccount()
+							.getAccountNumber(),
+					posting.getType()
+							.name(),
+					posting.getAmount()
+							.toBigDecimal(),
+					posting.getDescription()));
+		}
+		apply(delta -> {
+			for (Transaction posting : postings) {
+				delta.transactions++;
+				long paise = posting.getAmount()
+						.paise();
+				switch (posting.getType()) {
+				case DEPOSIT -> {
+					delta.deposits += paise;
+					delta.balance += paise;
+				}
+				case WITHDRAWAL -> {
+					delta.withdrawals += paise;
+					delta.balance -= paise;
+				}
+				case TRANSFER_IN, LOAN_DISBURSMENT -> delta.balance += paise;
+				case TRANSFER_OUT, FD_CREATION -> delta.balance -= paise;
+				}
+			}
+			recent.forEach(delta::addRecent);
+		});
+	}
+
+	// New accounts wait for approval
+	public void accountOpened() {
+		afterCommit(delta -> delta.pendingAccounts++);
+	}
+
+	public void accountStatusChanged(Money balance, AccountStatus from, AccountStatus to) {
+		if (from == to) {
+			return;
+		}
+		afterCommit(delta -> {
+			if (from == AccountStatus.PENDING) {
+				delta.pendingAccounts--;
+			}
+			// only approved balances count towards the bank total
+			if (to == AccountStatus.APPROVED) {
+				delta.balance += balance.paise();
+			} else if (from == AccountStatus.APPROVED) {
+				delta.balance -= balance.paise();
+			}
+		});
+	}
+
+	public void loanStatusChanged(LoanStatus from, LoanStatus to) {
+		if (from == to) {
+			return;
+		}
+		afterCommit(delta -> {
+			if (from == LoanStatus.PENDING) {
+				delta.pendingLoans--;
+			}
+			if (to == LoanStatus.PENDING) {
+				delta.pendingLoans++;
+			}
+		});
+	}
+
+	// Hand what changed since the last push to every client
+	@Scheduled(fixedDelayString = "${pocketbank.dashboard.live.push-interval-ms:250}")
+	public void flush() {
+		Delta changes;
+		synchronized (pendingLock) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			changes = pending;
+			pending = new Delta();
+		}
+		DashboardDelta event = changes.toEvent();
+		for (Client client : clients) {
+			client.offer(event);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		senders.shutdownNow();
+		clients.forEach(client -> client.emitter.complete());
+	}
+
+	// overridden in tests to watch what is sent
+	protected SseEmitter newEmitter() {
+		return new SseEmitter(emitterTimeoutMs);
+	}
+
+	private void afterCommit(Consumer<Delta> change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronization() {
+						@Override
+						public void afterCommit() {
+							apply(change);
+						}
+					});
+		} else {
+			apply(change);
+		}
+	}
+
+	private void apply(Consumer<Delta> change) {
+		if (clients.isEmpty()) {
+			return;
+		}
+		synchronized (pendingLock) {
+			change.accept(pending);
+		}
+	}
+
+	// One connected dashboard. At most one sender drains its queue at a time.
+	private class Client {
+
+		private final SseEmitter emitter;
+		private final BlockingQueue<DashboardDelta> queue = new ArrayBlockingQueue<>(queueCapacity);
+		private final AtomicBoolean draining = new AtomicBoolean();
+
+		Client(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		void offer(DashboardDelta event) {
+			if (!queue.offer(event)) {
+				drop("its queue is full");
+				return;
+			}
+			scheduleDrain();
+		}
+
+		private void scheduleDrain() {
+			if (draining.compareAndSet(false, true)) {
+				try {
+					senders.execute(this::drain);
+				} catch (RejectedExecutionException e) {
+					draining.set(false);
+					drop("the sender pool is saturated");
+				}
+			}
+		}
+
+		private void drain() {
+			try {
+				DashboardDelta event;
+				while ((event = queue.poll()) != null) {
+					emitter.send(SseEmitter.event()
+							.name("delta")
+							.data(event, MediaType.APPLICATION_JSON));
+				}
+			} catch (IOException | IllegalStateException e) {
+				drop("sending failed");
+			} finally {
+				draining.set(false);
+			}
+			// an offer may have slipped in after the last poll
+			if (!queue.isEmpty() && clients.contains(this)) {
+				scheduleDrain();
+			}
+		}
+
+		private void drop(String reason) {
+			if (clients.remove(this)) {
+				dropped.increment();
+				log.debug("Dropping dashboard client because {}", reason);
+				queue.clear();
+				emitter.complete();
+			}
+		}
+	}
+
+	// Changes since the last push, amounts in paise. Guarded by pendingLock.
+	private static class Delta {
+
+		private long transactions;
+		private long deposits;
+		private long withdrawals;
+		private long balance;
+		private long pendingAccounts;
+		private long pendingLoans;
+		private final Deque<RecentPosting> recent = new ArrayDeque<>();
+
+		void addRecent(RecentPosting posting) {
+			recent.addFirst(posting);
+			if (recent.size() > RECENT_POSTINGS) {
+				recent.removeLast();
+			}
+		}
+
+		boolean isEmpty() {
+			return transactions == 0 && balance == 0 && pendingAccounts == 0 && pendingLoans == 0;
+		}
+
+		DashboardDelta toEvent() {
+			return new DashboardDelta(transactions, Money.ofPaise(deposits)
+					.toBigDecimal(),
+					Money.ofPaise(withdrawals)
+							.toBigDecimal(),
+					Money.ofPaise(balance)
+							.toBigDecimal(),
+					pendingAccounts, pendingLoans, List.copyOf(recent));
+		}
+	}
+
+	/**
+	 * What changed on the dashboard since the previous event; recent postings
+	 * newest first
+	 */
+	public record DashboardDelta(long transactions,
+			BigDecimal deposits,
+			BigDecimal withdrawals,
+			BigDecimal balance,
+			long pendingAccounts,
+			long pendingLoans,
+			List<RecentPosting> recent) {
+	}
+
+	/**
+	 * A posting as shown in the dashboard's recent transactions table
+	 */
+	public record RecentPosting(String date,
+			String accountNumber,
+			String type,
+			BigDecimal amount,
+			String description) {
+	}
+}
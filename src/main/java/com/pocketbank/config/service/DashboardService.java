@@ -0,0 +1,167 @@
+package com.pocketbank.config.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Loan;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.LoanRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Assembles the admin dashboard. Its independent reads run in parallel on a
+ * small bounded pool, each in its own read-only transaction, so the page takes
+ * about as long as the slowest read instead of the sum of all of them.
+ *
+ * A read that misses the deadline (pocketbank.dashboard.timeout-ms) or fails is
+ * shown with its last good value, or empty, and reported as stale.
+ */
+@Slf4j
+@Service
+public class DashboardService {
+
+	public static final String TOTALS = "totals";
+	public static final String RECENT_TRANSACTIONS = "recentTransactions";
+	public static final String PENDING_ACCOUNTS = "pendingAccounts";
+	public static final String PENDING_LOANS = "pendingLoans";
+
+	private final ExecutorService executor;
+	private final TransactionTemplate readOnlyTemplate;
+	private final long timeoutMs;
+
+	private final Source<AggregateCounterService.Totals> totals;
+	private final Source<List<Transaction>> recentTransactions;
+	private final Source<List<Account>> pendingAccounts;
+	private final Source<List<Loan>> pendingLoans;
+
+	public DashboardService(AggregateCounterService aggregateCounterService,
+			TransactionRepository transactionRepository,
+			AccountRepository accountRepository,
+			LoanRepository loanRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${pocketbank.dashboard.threads:8}") int threads,
+			@Value("${pocketbank.dashboard.timeout-ms:500}") long timeoutMs) {
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(threads * 16), task -> {
+					Thread thread = new Thread(task, "dashboard-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		this.executor = pool;
+
+		// the transaction timeout is applied to every query as a statement timeout,
+		// so a read we stopped waiting for does not hold a connection much longer
+		this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+		this.readOnlyTemplate.setReadOnly(true);
+		this.readOnlyTemplate.setTimeout((int) Math.max(1, (timeoutMs + 999) / 1000));
+		this.timeoutMs = timeoutMs;
+
+		this.totals = new Source<>(TOTALS, aggregateCounterService::totals,
+				AggregateCounterService.Totals.of(Map.of()));
+		this.recentTransactions = new Source<>(RECENT_TRANSACTIONS,
+				transactionRepository::findTop20ByOrderByTransactionDateDesc, List.of());
+		this.pendingAccounts = new Source<>(PENDING_ACCOUNTS,
+				() -> accountRepository.findByStatusOrderByCreatedAtDesc(AccountStatus.PENDING),
+				List.of());
+		this.pendingLoans = new Source<>(PENDING_LOANS,
+				() -> loanRepository.findByStatus(LoanStatus.PENDING), List.of());
+	}
+
+	// Start every read, then wait for all of them against one deadline
+	public Dashboard load() {
+		CompletableFuture<AggregateCounterService.Totals> totalsRead = totals.start();
+		CompletableFuture<List<Transaction>> recentRead = recentTransactions.start();
+		CompletableFuture<List<Account>> accountsRead = pendingAccounts.start();
+		CompletableFuture<List<Loan>> loansRead = pendingLoans.start();
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		Set<String> stale = new TreeSet<>();
+		return new Dashboard(totals.await(totalsRead, deadline, stale),
+				recentTransactions.await(recentRead, deadline, stale),
+				pendingAccounts.await(accountsRead, deadline, stale),
+				pendingLoans.await(loansRead, deadline, stale),
+				stale);
+	}
+
+	@PreDestroy
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Everything the admin dashboard shows, with the names of the reads that
+	 * fell back to an older or empty value
+	 */
+	public record Dashboard(AggregateCounterService.Totals totals,
+			List<Transaction> recentTransactions,
+			List<Account> pendingAccounts,
+			List<Loan> pendingLoans,
+			Set<String> stale) {
+	}
+
+	// One dashboard read and the last value it returned
+	private class Source<T> {
+
+		private final String name;
+		private final Supplier<T> query;
+		private volatile T last;
+
+		Source(String name, Supplier<T> query, T empty) {
+			this.name = name;
+			this.query = query;
+			this.last = empty;
+		}
+
+		CompletableFuture<T> start() {
+			try {
+				return CompletableFuture.supplyAsync(() -> readOnlyTemplate.execute(status -> query.get()),
+						executor);
+			} catch (RejectedExecutionException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+
+		T await(CompletableFuture<T> read, long deadline, Set<String> stale) {
+			try {
+				T value = read.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				last = value;
+				return value;
+			} catch (TimeoutException e) {
+				log.warn("Dashboard read {} took longer than {} ms", name, timeoutMs);
+			} catch (ExecutionException e) {
+				log.warn("Dashboard read {} failed", name, e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+			}
+			stale.add(name);
+			return last;
+		}
+	}
+}
@@ -1,14 +1,17 @@
 package com.pocketbank.config.service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.math.MathContext;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.pocketbank.entity.FixedDeposit;
+import com.pocketbank.entity.Money;
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.FdStatus;
 import com.pocketbank.repository.FixedDepositRepository;
@@ -20,39 +23,65 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class FixedDepositService {
 
+	// sort keys of the admin fixed deposit listing
+	private static final Map<String, String> SORT_KEYS = Map.of("startDate", "startDate",
+			"maturityDate", "maturityDate", "principalAmount", "principalAmount", "customer",
+			"user.fullName");
+
 	private final FixedDepositRepository fdRepository;
 	private final UserRepository userRepository;
 	private final TransactionService transactionService;
+	private final UserProfileService userProfileService;
+	private final TransactionTemplate transactionTemplate;
 
 	public List<FixedDeposit> getUserFixedDeposits(Long userId) {
 		return fdRepository.findByUserIdOrderByStartDateDesc(userId);
 	}
 
-	public List<FixedDeposit> getAllFixedDeposits() {
-		return fdRepository.findAll();
+	// One page of all fixed deposits (admin), optionally filtered by status and a
+	// search on owner name
+	public Page<FixedDeposit> getFixedDepositsPage(FdStatus status, String search, int page,
+			int size, String sort, String direction) {
+		return fdRepository.findAdminPage(status, AdminListing.searchPattern(search),
+				AdminListing.pageRequest(page, size, sort, direction, SORT_KEYS, "startDate"));
 	}
 
-	// Create fixed deposit
-	@Transactional
+	// Create fixed deposit. The sharded ledger commits the withdrawal on its own,
+	// so it is made first and paid back if the deposit cannot be saved.
 	public FixedDeposit createFixedDeposit(Long userId,
 			String accountNumber,
 			BigDecimal principalAmount,
 			Integer tenureMonths) {
 
-		User user = userRepository.findById(userId)
-				.orElseThrow(() -> new RuntimeException("User not found."));
+		if (!userRepository.existsById(userId)) {
+			throw new RuntimeException("User not found.");
+		}
 
 		// Deduct amount from account
 		transactionService.withdraw(accountNumber,
 				principalAmount,
 				"Fixed Deposit creation for " + tenureMonths + " months");
 
+		try {
+			return transactionTemplate.execute(
+					status -> save(userRepository.getReferenceById(userId), principalAmount,
+							tenureMonths));
+		} catch (RuntimeException e) {
+			transactionService.deposit(accountNumber,
+					principalAmount,
+					"Refund of failed Fixed Deposit creation");
+			throw e;
+		}
+	}
+
+	private FixedDeposit save(User user, BigDecimal principalAmount, Integer tenureMonths) {
+
 		// calculate intrest rate
 		double interestRate = calculateFdInterestRate(tenureMonths);
 
 		// calculate maturity amount: A = P(1 + r/100)^t
-		double maturityAmount = principalAmount.doubleValue()
-				* Math.pow(1 + interestRate / 100, tenureMonths / 12.0);
+		Money maturityAmount = Money.of(principalAmount)
+				.times(growthFactor(interestRate, tenureMonths));
 
 		LocalDateTime maturityDate = LocalDateTime.now()
 				.plusMonths(tenureMonths);
@@ -61,17 +90,31 @@ public class FixedDepositService {
 				.principalAmount(principalAmount)
 				.tenureMonths(tenureMonths)
 				.interestRate(interestRate)
-				.maturityAmount(BigDecimal.valueOf(maturityAmount)
-						.setScale(2, RoundingMode.HALF_UP))
+				.maturityAmount(maturityAmount.toBigDecimal())
 				.maturityDate(maturityDate)
 				.status(FdStatus.ACTIVE)
 				.user(user)
 				.build();
 
+		userProfileService.invalidate(user.getId());
 		return fdRepository.save(fd);
 
 	}
 
+	// (1 + r/100)^(months/12): whole years exactly, the part of a year through
+	// Math.pow since that root is irrational anyway
+	private static BigDecimal growthFactor(double interestRate, int tenureMonths) {
+		BigDecimal yearly = BigDecimal.ONE.add(BigDecimal.valueOf(interestRate)
+				.movePointLeft(2));
+		BigDecimal growth = yearly.pow(tenureMonths / 12, MathContext.DECIMAL128);
+		if (tenureMonths % 12 != 0) {
+			growth = growth.multiply(
+					BigDecimal.valueOf(Math.pow(yearly.doubleValue(), (tenureMonths % 12) / 12.0)),
+					MathContext.DECIMAL128);
+		}
+		return growth;
+	}
+
 	// Calculate FD interest rate
 	private double calculateFdInterestRate(Integer tenureMonths) {
 
@@ -0,0 +1,272 @@
+package com.pocketbank.config.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.IdempotencyRecord;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.repository.IdempotencyRecordRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Deduplicates retried deposit, withdraw and transfer requests. The key is
+ * claimed in the idempotency_keys table in the same database transaction as
+ * the posting, so a concurrent retry blocks on the key and then gets the
+ * original Transaction back instead of moving the money again. A failed
+ * request rolls its key back and may be retried. Recent outcomes are kept in a
+ * bounded, time-expiring LRU map so most retries never reach the database.
+ *
+ * The sharded ledger (pocketbank.ledger.sharded=true) commits postings in its
+ * own transaction, so there the key is claimed first, the posting is made
+ * outside any transaction and the key is completed or released after it. When
+ * the ledger does not answer in time the key stays in progress until the
+ * posting settles, and a retry with the key then gets its outcome.
+ */
+@Service
+public class IdempotencyService {
+
+	private static final int MAX_KEY_LENGTH = 64;
+
+	private final IdempotencyRecordRepository idempotencyRecordRepository;
+	private final TransactionRepository transactionRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final Duration ttl;
+	private final boolean ledgerSharded;
+	private final Map<String, CachedOutcome> cache;
+
+	private final Counter cacheHits;
+	private final Counter storeHits;
+	private final Counter misses;
+	private final Counter conflicts;
+
+	public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+			TransactionRepository transactionRepository,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${pocketbank.idempotency.cache-size:10000}") int cacheSize,
+			@Value("${pocketbank.idempotency.ttl-minutes:1440}") long ttlMinutes,
+			@Value("${pocketbank.ledger.sharded:false}") boolean ledgerSharded) {
+		this.idempotencyRecordRepository = idempotencyRecordRepository;
+		this.transactionRepository = transactionRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.ttl = Duration.ofMinutes(ttlMinutes);
+		this.ledgerSharded = ledgerSharded;
+		this.cache = new LinkedHashMap<>(cacheSize * 4 / 3 + 1, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedOutcome> eldest) {
+				return size() > cacheSize;
+			}
+		};
+
+		this.cacheHits = lookups(meterRegistry, "cache_hit");
+		this.storeHits = lookups(meterRegistry, "store_hit");
+		this.misses = lookups(meterRegistry, "miss");
+		this.conflicts = lookups(meterRegistry, "conflict");
+		Gauge.builder("pocketbank.idempotency.cache.size", this, IdempotencyService::cacheSize)
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.idempotency.cache.hit.ratio", this,
+				IdempotencyService::hitRatio)
+				.register(meterRegistry);
+	}
+
+	// Run the operation once per key; repeats of the key get the first result back
+	public Transaction execute(String scope,
+			String key,
+			String fingerprint,
+			Supplier<Transaction> operation) {
+
+		if (key == null || key.isBlank()) {
+			return operation.get();
+		}
+		if (key.length() > MAX_KEY_LENGTH) {
+			throw new RuntimeException("Idempotency key is too long");
+		}
+		String id = scope + ":" + key;
+
+		CachedOutcome cached = cached(id);
+		if (cached != null) {
+			cacheHits.increment();
+			return cached.replay(fingerprint);
+		}
+
+		Transaction result;
+		try {
+			result = ledgerSharded ? claimThenRun(id, fingerprint, operation)
+					: transactionTemplate.execute(status -> {
+						Transaction replayed = claim(id, fingerprint);
+						if (replayed != null) {
+							return replayed;
+						}
+						Transaction posting = operation.get();
+						idempotencyRecordRepository.complete(id, posting.getId());
+						return posting;
+					});
+		} catch (DataIntegrityViolationException e) {
+			// a concurrent request with the same key committed first
+			conflicts.increment();
+			IdempotencyRecord winner = idempotencyRecordRepository.findById(id)
+					.orElseThrow(() -> e);
+			result = replay(winner, fingerprint);
+		}
+
+		remember(id, fingerprint, result);
+		return result;
+	}
+
+	// Claim the key in its own transaction, run the operation outside one, then
+	// complete the key, or release it when the operation failed
+	private Transaction claimThenRun(String id, String fingerprint,
+			Supplier<Transaction> operation) {
+		Transaction replayed = transactionTemplate.execute(status -> claim(id, fingerprint));
+		if (replayed != null) {
+			return replayed;
+		}
+
+		Transaction posting;
+		try {
+			posting = operation.get();
+		} catch (ShardedLedgerEngine.OutcomeUnknownException e) {
+			// the key stays in progress until the ledger settles the posting
+			e.outcome()
+					.whenCompleteAsync((settled, failure) -> settle(id,
+							settled instanceof Transaction t ? t : null));
+			throw new RuntimeException(
+					"Request is still being processed, retry with the same idempotency key");
+		} catch (RuntimeException e) {
+			settle(id, null);
+			throw e;
+		}
+		settle(id, posting);
+		return posting;
+	}
+
+	// Stored outcome of the key, or null once the key is claimed for this request
+	private Transaction claim(String id, String fingerprint) {
+		Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(id);
+		if (stored.isPresent() && !expired(stored.get())) {
+			storeHits.increment();
+			return replay(stored.get(), fingerprint);
+		}
+		if (stored.isPresent()) {
+			idempotencyRecordRepository.deleteExpired(id, cutoff());
+		}
+
+		idempotencyRecordRepository.claim(id, fingerprint, LocalDateTime.now());
+		misses.increment();
+		return null;
+	}
+
+	// Record the posting under the key, or release the key when there is none
+	private void settle(String id, Transaction posting) {
+		transactionTemplate.executeWithoutResult(status -> {
+			if (posting != null) {
+				idempotencyRecordRepository.complete(id, posting.getId());
+			} else {
+				idempotencyRecordRepository.deleteById(id);
+			}
+		});
+	}
+
+	// Drop keys that are past the retention window
+	@Scheduled(fixedDelayString = "${pocketbank.idempotency.purge-interval-ms:3600000}")
+	public void purgeExpired() {
+		transactionTemplate.executeWithoutResult(
+				status -> idempotencyRecordRepository.deleteOlderThan(cutoff()));
+		long now = System.currentTimeMillis();
+		synchronized (cache) {
+			Iterator<CachedOutcome> outcomes = cache.values()
+					.iterator();
+			while (outcomes.hasNext()) {
+				if (outcomes.next().expiresAt < now) {
+					outcomes.remove();
+				}
+			}
+		}
+	}
+
+	public int cacheSize() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	public double hitRatio() {
+		double hits = cacheHits.count() + storeHits.count();
+		double total = hits + misses.count();
+		return total == 0 ? 0 : hits / total;
+	}
+
+	private CachedOutcome cached(String id) {
+		synchronized (cache) {
+			CachedOutcome outcome = cache.get(id);
+			if (outcome != null && outcome.expiresAt < System.currentTimeMillis()) {
+				cache.remove(id);
+				return null;
+			}
+			return outcome;
+		}
+	}
+
+	private void remember(String id, String fingerprint, Transaction result) {
+		CachedOutcome outcome = new CachedOutcome(fingerprint, result,
+				System.currentTimeMillis() + ttl.toMillis());
+		synchronized (cache) {
+			cache.put(id, outcome);
+		}
+	}
+
+	private Transaction replay(IdempotencyRecord record, String fingerprint) {
+		if (!record.getFingerprint()
+				.equals(fingerprint)) {
+			throw new RuntimeException("Idempotency key was already used for a different request");
+		}
+		if (record.getTransactionId() == null) {
+			throw new RuntimeException("Request with this idempotency key is still in progress");
+		}
+		return transactionRepository.findById(record.getTransactionId())
+				.orElseThrow(() -> new RuntimeException("Transaction not found"));
+	}
+
+	private boolean expired(IdempotencyRecord record) {
+		return record.getCreatedAt()
+				.isBefore(cutoff());
+	}
+
+	private LocalDateTime cutoff() {
+		return LocalDateTime.now()
+				.minus(ttl);
+	}
+
+	private static Counter lookups(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("pocketbank.idempotency.lookups")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	private record CachedOutcome(String fingerprint, Transaction transaction, long expiresAt) {
+
+		Transaction replay(String requested) {
+			if (!fingerprint.equals(requested)) {
+				throw new RuntimeException(
+						"Idempotency key was already used for a different request");
+			}
+			return transaction;
+		}
+	}
+}
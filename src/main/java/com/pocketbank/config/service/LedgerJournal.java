@@ -0,0 +1,373 @@
+package com.pocketbank.config.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.TransactionType;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only write-ahead journal of ledger postings. Records are fixed-width
+ * and written into memory-mapped segment files, so appending is a sequential
+ * memory copy. Postings made inside a database transaction are appended and
+ * forced to disk just before it commits; concurrent committers share one
+ * fsync (group commit). Turned off with pocketbank.journal.enabled=false.
+ *
+ * Every pocketbank.journal.checkpoint-ms the highest sequence up to which no
+ * record is in doubt is written to the checkpoint file, and segments wholly
+ * before it are deleted. A record is in doubt while its transaction has not
+ * completed, and the records found after the checkpoint on startup stay in
+ * doubt until LedgerRecoveryService has checked them, so recovery only ever
+ * reads the tail.
+ */
+@Component
+public class LedgerJournal {
+
+	// sequence, timestamp, transaction id, account id, type, amount, balance
+	// after (amounts in paise), crc32, padding
+	static final int RECORD_SIZE = 64;
+	private static final int CRC_OFFSET = 52;
+
+	private static final Object PENDING_KEY = new Object();
+	private static final String CHECKPOINT_FILE = "checkpoint";
+
+	private final boolean enabled;
+	private final Path directory;
+	private final int segmentRecords;
+
+	private final Object syncLock = new Object();
+	private MappedByteBuffer segment;
+	private int segmentIndex;
+	private long nextSequence;
+	private volatile long syncedSequence;
+
+	// last sequence in the checkpoint file
+	private volatile long checkpoint;
+	// first sequences of the records in doubt, guarded by this
+	private final TreeSet<Long> inDoubt = new TreeSet<>();
+	// first sequence of the tail found on startup, 0 once recovery has checked it
+	private long unchecked;
+
+	public LedgerJournal(@Value("${pocketbank.journal.enabled:true}") boolean enabled,
+			@Value("${pocketbank.journal.dir:journal}") String directory,
+			@Value("${pocketbank.journal.segment-records:1048576}") int segmentRecords) {
+		this.enabled = enabled;
+		this.directory = Path.of(directory);
+		this.segmentRecords = segmentRecords;
+		if (enabled) {
+			open();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	// Journal a posting. Inside a transaction the record is written and forced just
+	// before commit, otherwise straight away.
+	public void record(Transaction transaction) {
+		if (!enabled) {
+			return;
+		}
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			sync(append(List.of(transaction)));
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Transaction> pending = (List<Transaction>) TransactionSynchronizationManager
+				.getResource(PENDING_KEY);
+		if (pending == null) {
+			List<Transaction> postings = new ArrayList<>();
+			TransactionSynchronizationManager.bindResource(PENDING_KEY, postings);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				private long first;
+
+				@Override
+				public void beforeCommit(boolean readOnly) {
+					synchronized (LedgerJournal.this) {
+						first = nextSequence + 1;
+						inDoubt.add(first);
+					}
+					sync(append(postings));
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResource(PENDING_KEY);
+					// committed or rolled back, either way no longer in doubt
+					if (first != 0) {
+						synchronized (LedgerJournal.this) {
+							inDoubt.remove(first);
+						}
+					}
+				}
+			});
+			pending = postings;
+		}
+		pending.add(transaction);
+	}
+
+	// Write the records and return the sequence of the last one
+	public synchronized long append(List<Transaction> postings) {
+		long now = System.currentTimeMillis();
+		for (Transaction t : postings) {
+			if (!segment.hasRemaining()) {
+				segment.force();
+				map(segmentIndex + 1);
+			}
+			write(segment, ++nextSequence, now, t);
+		}
+		return nextSequence;
+	}
+
+	// Make sure every record up to the sequence is on disk. Callers that arrive
+	// while another thread is forcing are usually covered by that fsync.
+	public void sync(long sequence) {
+		if (syncedSequence >= sequence) {
+			return;
+		}
+		synchronized (syncLock) {
+			if (syncedSequence >= sequence) {
+				return;
+			}
+			MappedByteBuffer current;
+			long target;
+			synchronized (this) {
+				current = segment;
+				target = nextSequence;
+			}
+			current.force();
+			syncedSequence = target;
+		}
+	}
+
+	// Read every intact record in order, stopping at the first torn one
+	public void replay(Consumer<JournalRecord> consumer) {
+		replay(0, consumer);
+	}
+
+	// Read the intact records after the sequence in order, stopping at the first
+	// torn one; segments that end before it are not opened
+	public void replay(long afterSequence, Consumer<JournalRecord> consumer) {
+		try {
+			List<Path> files = segmentFiles();
+			for (int i = 0; i < files.size(); i++) {
+				if (i + 1 < files.size() && firstSequence(files.get(i + 1)) - 1 <= afterSequence) {
+					continue;
+				}
+				try (FileChannel channel = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+					MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+							channel.size());
+					JournalRecord record;
+					while (buffer.remaining() >= RECORD_SIZE && (record = read(buffer)) != null) {
+						if (record.sequence() > afterSequence) {
+							consumer.accept(record);
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not replay ledger journal", e);
+		}
+	}
+
+	// Last sequence known to be settled when the journal was last checkpointed
+	public long checkpointSequence() {
+		return checkpoint;
+	}
+
+	// Recovery has checked the tail found on startup; postings from the given
+	// sequence on are still unresolved (0 for none) and stay in doubt, so the next
+	// startup checks them again
+	public synchronized void recovered(long unresolvedFrom) {
+		if (unchecked != 0) {
+			inDoubt.remove(unchecked);
+			unchecked = 0;
+		}
+		if (unresolvedFrom > 0) {
+			inDoubt.add(unresolvedFrom);
+		}
+	}
+
+	// Move the checkpoint up to the last settled record and drop the segments
+	// wholly before it
+	@Scheduled(fixedDelayString = "${pocketbank.journal.checkpoint-ms:10000}")
+	public void checkpoint() {
+		if (!enabled) {
+			return;
+		}
+		long settled;
+		synchronized (this) {
+			settled = inDoubt.isEmpty() ? nextSequence : inDoubt.first() - 1;
+		}
+		if (settled <= checkpoint) {
+			return;
+		}
+		try {
+			Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+			Files.writeString(temp, Long.toString(settled));
+			Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			checkpoint = settled;
+
+			List<Path> files = segmentFiles();
+			// the last segment is the one being written
+			for (int i = 0; i + 1 < files.size(); i++) {
+				if (firstSequence(files.get(i + 1)) - 1 > settled) {
+					break;
+				}
+				Files.delete(files.get(i));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not checkpoint ledger journal", e);
+		}
+	}
+
+	@PreDestroy
+	public synchronized void close() {
+		if (enabled) {
+			segment.force();
+		}
+	}
+
+	private void open() {
+		try {
+			Files.createDirectories(directory);
+			int last;
+			try (Stream<Path> files = Files.list(directory)) {
+				last = files.map(p -> p.getFileName()
+						.toString())
+						.filter(n -> n.endsWith(".journal"))
+						.mapToInt(n -> Integer.parseInt(n.substring(7, n.length() - 8)))
+						.max()
+						.orElse(0);
+			}
+			map(last);
+
+			// skip the records already written to this segment
+			MappedByteBuffer scan = segment.duplicate();
+			JournalRecord record;
+			while (scan.remaining() >= RECORD_SIZE && (record = read(scan)) != null) {
+				nextSequence = record.sequence();
+				segment.position(scan.position());
+			}
+			syncedSequence = nextSequence;
+
+			Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+			checkpoint = Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile)
+					.trim()) : 0;
+			if (nextSequence > checkpoint) {
+				unchecked = checkpoint + 1;
+				inDoubt.add(unchecked);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not open ledger journal in " + directory, e);
+		}
+	}
+
+	private List<Path> segmentFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(p -> p.getFileName()
+					.toString()
+					.endsWith(".journal"))
+					.sorted()
+					.toList();
+		}
+	}
+
+	// sequence of the segment's first record, or MAX_VALUE while it has none
+	private static long firstSequence(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					Math.min(channel.size(), RECORD_SIZE));
+			JournalRecord record = buffer.remaining() >= RECORD_SIZE ? read(buffer) : null;
+			return record != null ? record.sequence() : Long.MAX_VALUE;
+		}
+	}
+
+	private void map(int index) {
+		Path file = directory.resolve(String.format("ledger-%06d.journal", index));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					(long) segmentRecords * RECORD_SIZE);
+			segmentIndex = index;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not map journal segment " + file, e);
+		}
+	}
+
+	private static void write(MappedByteBuffer buffer, long sequence, long timestamp,
+			Transaction t) {
+		int start = buffer.position();
+		buffer.putLong(sequence)
+				.putLong(timestamp)
+				.putLong(t.getId() != null ? t.getId() : 0L)
+				.putLong(t.getAccount()
+						.getId())
+				.putInt(t.getType()
+						.ordinal())
+				.putLong(t.getAmount()
+						.paise())
+				.putLong(t.getBalanceAfter()
+						.paise());
+		buffer.putInt(crc(buffer, start));
+		buffer.position(start + RECORD_SIZE);
+	}
+
+	private static JournalRecord read(MappedByteBuffer buffer) {
+		int start = buffer.position();
+		long sequence = buffer.getLong(start);
+		if (sequence == 0 || buffer.getInt(start + CRC_OFFSET) != crc(buffer, start)) {
+			return null;
+		}
+		buffer.position(start + RECORD_SIZE);
+		return new JournalRecord(sequence,
+				buffer.getLong(start + 8),
+				buffer.getLong(start + 16),
+				buffer.getLong(start + 24),
+				TransactionType.values()[buffer.getInt(start + 32)],
+				Money.ofPaise(buffer.getLong(start + 36)),
+				Money.ofPaise(buffer.getLong(start + 44)));
+	}
+
+	private static int crc(MappedByteBuffer buffer, int start) {
+		CRC32 crc = new CRC32();
+		crc.update(buffer.slice(start, CRC_OFFSET));
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * One replayed journal entry
+	 */
+	public record JournalRecord(long sequence,
+			long timestamp,
+			long transactionId,
+			long accountId,
+			TransactionType type,
+			Money amount,
+			Money balanceAfter) {
+	}
+}
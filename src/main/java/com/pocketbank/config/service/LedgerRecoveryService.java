@@ -0,0 +1,189 @@
+package com.pocketbank.config.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pocketbank.config.service.LedgerJournal.JournalRecord;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Replays the ledger journal after a restart and finds the postings the
+ * database is missing, without scanning the transactions table: only the tail
+ * after the journal's checkpoint is read, streamed in chunks, and each chunk's
+ * transaction ids are looked up at once. Mismatched postings stay in doubt, so
+ * the checkpoint does not pass them and the next restart checks them again.
+ * A missing posting followed by a stored one of the same account never
+ * committed and is dropped; the missing postings at the end of an account's
+ * journal are the ones the database lost.
+ *
+ * With pocketbank.journal.repair=true those postings are written back (and
+ * journaled again under their new ids) and the balance moves by their amounts,
+ * as long as that lands on the last journaled balance. A posting whose commit
+ * failed after it was journaled looks the same as a lost one, so repair is off
+ * by default.
+ */
+@Slf4j
+@Service
+@Order(1)
+@RequiredArgsConstructor
+public class LedgerRecoveryService implements CommandLineRunner {
+
+	private static final int CHUNK_SIZE = 500;
+
+	private final LedgerJournal ledgerJournal;
+	private final AccountRepository accountRepository;
+	private final TransactionRepository transactionRepository;
+
+	@Value("${pocketbank.journal.verify-on-startup:true}")
+	private boolean verifyOnStartup;
+
+	@Value("${pocketbank.journal.repair:false}")
+	private boolean repair;
+
+	@Override
+	@Transactional
+	public void run(String... args) {
+		if (verifyOnStartup && ledgerJournal.isEnabled()) {
+			List<Mismatch> mismatches = verify(repair);
+			log.info("Ledger journal check finished: {} mismatched accounts", mismatches.size());
+		}
+	}
+
+	// Find the journaled postings missing from the database, account by account
+	@Transactional
+	public List<Mismatch> verify(boolean repair) {
+
+		// missing postings at the end of each account's journal so far, oldest first
+		Map<Long, List<JournalRecord>> missing = new HashMap<>();
+		List<JournalRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+		ledgerJournal.replay(ledgerJournal.checkpointSequence(), record -> {
+			chunk.add(record);
+			if (chunk.size() == CHUNK_SIZE) {
+				collectMissing(chunk, missing);
+				chunk.clear();
+			}
+		});
+		collectMissing(chunk, missing);
+
+		List<Mismatch> mismatches = new ArrayList<>();
+		// first sequence still to be checked after this run
+		long unresolvedFrom = Long.MAX_VALUE;
+		List<Long> ids = new ArrayList<>(missing.keySet());
+		for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+			List<Long> accounts = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+
+			for (Account account : accountRepository.findAllById(accounts)) {
+				if (account.getBalanceSlots() != null) {
+					// the balance lives in the slots, not in the account row
+					continue;
+				}
+
+				List<JournalRecord> postings = missing.get(account.getId());
+				// repaired ones too, the repair only settles once this transaction commits
+				unresolvedFrom = Math.min(unresolvedFrom, postings.get(0)
+						.sequence());
+				long balance = account.getBalance()
+						.paise();
+				for (JournalRecord record : postings) {
+					balance += signed(record);
+				}
+				Money journaled = postings.get(postings.size() - 1)
+						.balanceAfter();
+				boolean repairable = journaled.equals(Money.ofPaise(balance));
+
+				mismatches.add(new Mismatch(account.getId(), account.getBalance(), journaled,
+						postings.size(), repairable));
+				log.warn("Account {} is missing {} journaled postings, balance {} journaled {}{}",
+						account.getAccountNumber(), postings.size(), account.getBalance(), journaled,
+						repairable ? "" : " (postings do not add up, not replayed)");
+
+				if (repair && repairable) {
+					replay(account, postings);
+				}
+			}
+		}
+		ledgerJournal.recovered(unresolvedFrom == Long.MAX_VALUE ? 0 : unresolvedFrom);
+		return mismatches;
+	}
+
+	// Sort a chunk of journal records into stored and missing postings
+	private void collectMissing(List<JournalRecord> chunk, Map<Long, List<JournalRecord>> missing) {
+		if (chunk.isEmpty()) {
+			return;
+		}
+
+		Set<Long> stored = new HashSet<>(transactionRepository.findExistingIds(chunk.stream()
+				.map(JournalRecord::transactionId)
+				.toList()));
+		for (JournalRecord record : chunk) {
+			if (stored.contains(record.transactionId())) {
+				// a later posting committed, so the missing ones before it never did
+				missing.remove(record.accountId());
+			} else {
+				missing.computeIfAbsent(record.accountId(), id -> new ArrayList<>())
+						.add(record);
+			}
+		}
+	}
+
+	// Write the lost postings back and move the balance by them
+	private void replay(Account account, List<JournalRecord> postings) {
+		Money balance = account.getBalance();
+		List<Transaction> replayed = new ArrayList<>(postings.size());
+		for (JournalRecord record : postings) {
+			balance = Money.ofPaise(balance.paise() + signed(record));
+			replayed.add(Transaction.builder()
+					.type(record.type())
+					.amount(record.amount())
+					.balanceAfter(balance)
+					.description("Replayed from ledger journal")
+					.transactionDate(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()),
+							ZoneId.systemDefault()))
+					.account(account)
+					.build());
+		}
+
+		transactionRepository.saveAll(replayed)
+				.forEach(ledgerJournal::record);
+		accountRepository.updateBalance(account.getId(), balance);
+	}
+
+	private static long signed(JournalRecord record) {
+		return switch (record.type()) {
+		case DEPOSIT, TRANSFER_IN, LOAN_DISBURSMENT -> record.amount()
+				.paise();
+		case WITHDRAWAL, TRANSFER_OUT, FD_CREATION -> -record.amount()
+				.paise();
+		};
+	}
+
+	/**
+	 * Account with journaled postings the database does not have
+	 */
+	public record Mismatch(Long accountId,
+			Money storedBalance,
+			Money journaledBalance,
+			int missingPostings,
+			boolean repairable) {
+	}
+}
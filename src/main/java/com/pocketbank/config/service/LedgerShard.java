@@ -0,0 +1,225 @@
+package com.pocketbank.config.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/**
+ * One single-threaded worker of the sharded ledger. It is the only thread that
+ * changes the balances of the accounts routed to it, so it keeps them hot in
+ * memory without locks. Postings are applied in memory and flushed to the
+ * database in batches; each caller is completed once its batch has committed.
+ */
+class LedgerShard implements Runnable {
+
+	private static final Runnable WAKE_UP = () -> {
+	};
+
+	private final int batchSize;
+	private final AccountRepository accountRepository;
+	private final TransactionRepository transactionRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final LedgerJournal ledgerJournal;
+	private final AggregateCounterService aggregateCounterService;
+	private final RollupService rollupService;
+	private final ApplicationEventPublisher eventPublisher;
+
+	// bounded ring for new requests, unbounded hand-offs between shards so two
+	// shards forwarding to each other can never block
+	private final BlockingQueue<Runnable> ring;
+	private final Queue<Runnable> handOffs = new ConcurrentLinkedQueue<>();
+
+	// hot accounts, least recently used first
+	private final Map<String, Account> hot;
+
+	// current batch
+	private final Map<Long, Account> dirty = new LinkedHashMap<>();
+	private final List<Transaction> postings = new ArrayList<>();
+	private final List<CompletableFuture<Transaction>> waiters = new ArrayList<>();
+
+	private volatile boolean running = true;
+
+	LedgerShard(int ringSize,
+			int batchSize,
+			int hotAccounts,
+			AccountRepository accountRepository,
+			TransactionRepository transactionRepository,
+			TransactionTemplate transactionTemplate,
+			LedgerJournal ledgerJournal,
+			AggregateCounterService aggregateCounterService,
+			RollupService rollupService,
+			ApplicationEventPublisher eventPublisher) {
+		this.batchSize = batchSize;
+		this.ring = new ArrayBlockingQueue<>(ringSize);
+		this.accountRepository = accountRepository;
+		this.transactionRepository = transactionRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.ledgerJournal = ledgerJournal;
+		this.aggregateCounterService = aggregateCounterService;
+		this.rollupService = rollupService;
+		this.eventPublisher = eventPublisher;
+		this.hot = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Account> eldest) {
+				return size() > hotAccounts && !dirty.containsKey(eldest.getValue()
+						.getId());
+			}
+		};
+	}
+
+	// Queue a new request, failing fast when the ring stays full
+	void submit(CompletableFuture<?> result, Runnable command) {
+		try {
+			if (!ring.offer(guard(result, command), 1, TimeUnit.SECONDS)) {
+				throw new RuntimeException("Ledger is busy, please try again");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+			throw new RuntimeException("Interrupted while queueing posting");
+		}
+	}
+
+	// Queue a step of a request that is already in flight on another shard
+	void handOff(CompletableFuture<?> result, Runnable command) {
+		handOffs.add(guard(result, command));
+		ring.offer(WAKE_UP);
+	}
+
+	// Hot account for the number, loaded on first use. Shard thread only.
+	Account account(String accountNumber) {
+		Account account = hot.get(accountNumber);
+		if (account == null) {
+			account = accountRepository.findByAccountNumber(accountNumber)
+					.orElse(null);
+			if (account != null) {
+				hot.put(accountNumber, account);
+			}
+		}
+		return account;
+	}
+
+	// Stage a posting for the next flush. Shard thread only.
+	void post(Account account, Transaction transaction, CompletableFuture<Transaction> result) {
+		dirty.put(account.getId(), account);
+		postings.add(transaction);
+		waiters.add(result);
+	}
+
+	// Run a database-path posting on one of this shard's accounts: the staged
+	// batch is flushed first and the account reloaded after, so neither side
+	// overwrites the other's balance. Shard thread only.
+	<T> T exclusive(String accountNumber, Supplier<T> posting) {
+		flush();
+		try {
+			return posting.get();
+		} finally {
+			hot.remove(accountNumber);
+		}
+	}
+
+	// Apply a status change made outside the ledger. Shard thread only.
+	void statusChanged(String accountNumber, AccountStatus status) {
+		Account account = hot.get(accountNumber);
+		if (account != null) {
+			account.setStatus(status);
+		}
+	}
+
+	void stop() {
+		running = false;
+	}
+
+	@Override
+	public void run() {
+		List<Runnable> batch = new ArrayList<>(batchSize);
+		while (running || !ring.isEmpty() || !handOffs.isEmpty()) {
+			try {
+				Runnable first = handOffs.poll();
+				if (first == null) {
+					first = ring.poll(10, TimeUnit.MILLISECONDS);
+				}
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				Runnable next;
+				while (batch.size() < batchSize && (next = handOffs.poll()) != null) {
+					batch.add(next);
+				}
+				ring.drainTo(batch, batchSize - batch.size());
+
+				for (Runnable command : batch) {
+					command.run();
+				}
+				batch.clear();
+				flush();
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+				return;
+			}
+		}
+	}
+
+	// Write the staged postings and balances in one database transaction
+	private void flush() {
+		if (postings.isEmpty()) {
+			return;
+		}
+
+		try {
+			List<Transaction> saved = transactionTemplate.execute(status -> {
+				dirty.values()
+						.forEach(a -> accountRepository.updateBalance(a.getId(), a.getBalance()));
+				List<Transaction> written = transactionRepository.saveAll(postings);
+				written.forEach(ledgerJournal::record);
+				aggregateCounterService.recordPostings(written);
+				rollupService.recordPostings(written);
+				eventPublisher.publishEvent(new PostingsCommitted(written));
+				return written;
+			});
+			for (int i = 0; i < waiters.size(); i++) {
+				waiters.get(i)
+						.complete(saved.get(i));
+			}
+		} catch (RuntimeException e) {
+			// memory is ahead of the database now, reload these accounts on next use
+			dirty.values()
+					.forEach(a -> hot.remove(a.getAccountNumber()));
+			waiters.forEach(w -> w.completeExceptionally(e));
+		} finally {
+			dirty.clear();
+			postings.clear();
+			waiters.clear();
+		}
+	}
+
+	private static Runnable guard(CompletableFuture<?> result, Runnable command) {
+		return () -> {
+			try {
+				command.run();
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		};
+	}
+}
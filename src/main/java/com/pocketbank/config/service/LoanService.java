@@ -1,12 +1,14 @@
 package com.pocketbank.config.service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.pocketbank.entity.Loan;
 import com.pocketbank.entity.User;
@@ -20,10 +22,18 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class LoanService {
 
+	// sort keys of the admin loan listing
+	private static final Map<String, String> SORT_KEYS = Map.of("appliedAt", "appliedAt",
+			"loanAmount", "loanAmount", "status", "status", "customer", "user.fullName");
+
 	private final LoanRepository loanRepository;
 	private final UserRepository userRepository;
 	private final TransactionService transactionService;
 	private final AccountService accountService;
+	private final DashboardBroadcaster dashboardBroadcaster;
+	private final UserProfileService userProfileService;
+	private final AmortizationEngine amortizationEngine;
+	private final TransactionTemplate transactionTemplate;
 
 	// Get user loans
 	public List<Loan> getUserLoans(Long userId) {
@@ -41,8 +51,8 @@ public class LoanService {
 		// calculate interest rate based on tenure
 		double interestRate = calculateIntrestRate(tenureMonths);
 
-		// calculate monthly emi
-		BigDecimal monthlyEmi = calculateEmi(loanAmount, interestRate, tenureMonths);
+		// calculate monthly emi from the cached factors of the rate tier
+		BigDecimal monthlyEmi = amortizationEngine.emi(loanAmount, interestRate, tenureMonths);
 
 		Loan loan = Loan.builder()
 				.loanAmount(loanAmount)
@@ -54,19 +64,11 @@ public class LoanService {
 				.user(user)
 				.build();
 
+		dashboardBroadcaster.loanStatusChanged(null, LoanStatus.PENDING);
+		userProfileService.invalidate(userId);
 		return loanRepository.save(loan);
 	}
 
-	// calculate EMI using formula: P*r* (1+r)^n/((1+r)^n-1)
-	private BigDecimal calculateEmi(BigDecimal principal, double annualRate, Integer months) {
-
-		double monthlyRate = annualRate / 12 / 100;
-		double emi = principal.doubleValue() * monthlyRate * Math.pow(1 + monthlyRate, months)
-				/ (Math.pow(1 + monthlyRate, months) - 1);
-		return BigDecimal.valueOf(emi)
-				.setScale(2, RoundingMode.HALF_UP);
-	}
-
 	// calculate interest rate
 	private double calculateIntrestRate(Integer tenureMonths) {
 		if (tenureMonths <= 12) {
@@ -80,40 +82,73 @@ public class LoanService {
 		}
 	}
 
+	// Find loan by ID
+	public Loan findById(Long loanId) {
+		return loanRepository.findById(loanId)
+				.orElseThrow(() -> new RuntimeException("Loan not found"));
+	}
+
+	// Month-by-month principal, interest and outstanding balance of a loan
+	public List<AmortizationEngine.Installment> getSchedule(Loan loan) {
+		return amortizationEngine.getSchedule(loan);
+	}
+
 	// Get pending loans (admin)
 	public List<Loan> getPendingLoans() {
-		return loanRepository.findByStatus(LoanStatus.PENDING);
+		return loanRepository.findWithApplicantAccountsByStatusOrderByAppliedAtAsc(LoanStatus.PENDING);
 	}
 
-	// Get All loans (admin)
-	public List<Loan> getAllLoans() {
-		return loanRepository.findAll();
+	// One page of all loans (admin), optionally filtered by status and a search on
+	// applicant name or purpose
+	public Page<Loan> getLoansPage(LoanStatus status, String search, int page, int size,
+			String sort, String direction) {
+		return loanRepository.findAdminPage(status, AdminListing.searchPattern(search),
+				AdminListing.pageRequest(page, size, sort, direction, SORT_KEYS, "appliedAt"));
 	}
 
-	// Approve loan and disburse
-	@Transactional
+	// Approve loan and disburse. The sharded ledger commits the disbursement on
+	// its own, so it is made first and taken back if the loan cannot be saved.
 	public Loan approveLoan(Long loanId, String accountNumber) {
 
-		Loan loan = loanRepository.findById(loanId)
-				.orElseThrow(() -> new RuntimeException("Loan not found"));
-
-		loan.setStatus(LoanStatus.APPROVED);
-		loan.setApprovedAt(LocalDateTime.now());
-		loanRepository.save(loan);
+		BigDecimal loanAmount = loanRepository.findById(loanId)
+				.orElseThrow(() -> new RuntimeException("Loan not found"))
+				.getLoanAmount();
 
 		// Disburse loan amount to account
 		transactionService.deposit(accountNumber,
-				loan.getLoanAmount(),
+				loanAmount,
 				"Loan disbursment - Loan ID: " + loanId);
-		loan.setStatus(LoanStatus.DISBURSED);
-		return loanRepository.save(loan);
+
+		try {
+			return transactionTemplate.execute(status -> {
+				Loan loan = loanRepository.findById(loanId)
+						.orElseThrow(() -> new RuntimeException("Loan not found"));
+
+				dashboardBroadcaster.loanStatusChanged(loan.getStatus(), LoanStatus.APPROVED);
+				loan.setStatus(LoanStatus.APPROVED);
+				userProfileService.invalidate(loan.getUser()
+						.getId());
+				loan.setApprovedAt(LocalDateTime.now());
+				loan.setStatus(LoanStatus.DISBURSED);
+				amortizationEngine.store(loan);
+				return loanRepository.save(loan);
+			});
+		} catch (RuntimeException e) {
+			transactionService.withdraw(accountNumber,
+					loanAmount,
+					"Reversal of loan disbursment - Loan ID: " + loanId);
+			throw e;
+		}
 	}
 
 	@Transactional
 	public Loan rejectLoan(Long loanId) {
 		Loan loan = loanRepository.findById(loanId)
 				.orElseThrow(() -> new RuntimeException("Loan not found"));
+		dashboardBroadcaster.loanStatusChanged(loan.getStatus(), LoanStatus.REJECTED);
 		loan.setStatus(LoanStatus.REJECTED);
+		userProfileService.invalidate(loan.getUser()
+				.getId());
 		return loanRepository.save(loan);
 	}
 
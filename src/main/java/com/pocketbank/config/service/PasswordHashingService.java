@@ -0,0 +1,223 @@
+package com.pocketbank.config.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The application's PasswordEncoder: BCrypt run on a small pool of its own
+ * instead of on request threads, so a burst of logins cannot take all the CPU.
+ * The pool has a bounded queue; a hash that does not fit, or that would wait
+ * behind the running and queued hashes for longer than
+ * pocketbank.passwords.wait-ms going by recent hash times, is refused at once
+ * with a BusyException (503) rather than left waiting. A hash that was let in
+ * but has not started after that wait is taken off the queue and refused the
+ * same way. One that has started is always waited for: BCrypt ignores
+ * interrupts, so giving up on it would only leave the work running.
+ *
+ * The BCrypt cost is measured at startup: the highest cost whose hash takes no
+ * longer than the target latency, never below BCrypt's default of 10. Hashes
+ * stored with a lower cost are re-hashed on the next successful login (see
+ * UserService.updatePassword).
+ */
+@Slf4j
+@Service
+public class PasswordHashingService implements PasswordEncoder {
+
+	static final int MIN_STRENGTH = 10;
+	static final int MAX_STRENGTH = 16;
+
+	private final BCryptPasswordEncoder bcrypt;
+	private final int strength;
+	private final ThreadPoolExecutor pool;
+	private final int poolSize;
+	private final long waitNanos;
+
+	// recent time of one hash, a moving average; 0 until the first one finishes
+	private volatile long hashNanos;
+	// hashes on the pool threads now, which cannot be called off
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final Counter shed;
+
+	public PasswordHashingService(MeterRegistry meterRegistry,
+			@Value("${pocketbank.passwords.strength:0}") int strength,
+			@Value("${pocketbank.passwords.target-ms:250}") long targetMs,
+			@Value("${pocketbank.passwords.threads:0}") int threads,
+			@Value("${pocketbank.passwords.queue-capacity:64}") int queueCapacity,
+			@Value("${pocketbank.passwords.wait-ms:250}") long waitMs) {
+		// strength 0 means measure it
+		this.strength = strength > 0 ? strength : calibrate(targetMs);
+		this.bcrypt = new BCryptPasswordEncoder(this.strength);
+		this.waitNanos = TimeUnit.MILLISECONDS.toNanos(waitMs);
+
+		this.poolSize = threads > 0 ? threads : Runtime.getRuntime()
+				.availableProcessors();
+		AtomicInteger threadCount = new AtomicInteger();
+		this.pool = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), task -> {
+					Thread thread = new Thread(task, "password-hash-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		pool.allowCoreThreadTimeOut(true);
+
+		this.shed = Counter.builder("pocketbank.passwords.shed")
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.passwords.queue.depth", pool, p -> p.getQueue()
+				.size())
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.passwords.strength", this, PasswordHashingService::strength)
+				.register(meterRegistry);
+		log.info("BCrypt cost {} on {} hashing threads", this.strength, poolSize);
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return run(() -> bcrypt.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+	}
+
+	// true for hashes made with a lower cost than the current one; only reads the hash
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return bcrypt.upgradeEncoding(encodedPassword);
+	}
+
+	public int strength() {
+		return strength;
+	}
+
+	@PreDestroy
+	public void stop() {
+		pool.shutdownNow();
+	}
+
+	private <T> T run(Callable<T> hash) {
+		if (expectedWaitNanos() > waitNanos) {
+			shed.increment();
+			throw new BusyException();
+		}
+
+		// whoever sets it first decides: the pool thread starts the hash, or the
+		// caller gives up on it while it is still queued
+		AtomicBoolean claimed = new AtomicBoolean();
+		CountDownLatch started = new CountDownLatch(1);
+		Future<T> result;
+		try {
+			result = pool.submit(() -> {
+				if (!claimed.compareAndSet(false, true)) {
+					return null;
+				}
+				started.countDown();
+				running.incrementAndGet();
+				long startedAt = System.nanoTime();
+				try {
+					return hash.call();
+				} finally {
+					running.decrementAndGet();
+					observe(System.nanoTime() - startedAt);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			shed.increment();
+			throw new BusyException();
+		}
+		try {
+			if (!started.await(waitNanos, TimeUnit.NANOSECONDS)
+					&& claimed.compareAndSet(false, true)) {
+				// still queued: free its slot, it will never run
+				pool.remove((Runnable) result);
+				shed.increment();
+				throw new BusyException();
+			}
+			return result.get();
+		} catch (InterruptedException e) {
+			claimed.compareAndSet(false, true);
+			Thread.currentThread()
+					.interrupt();
+			throw new BusyException();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof RuntimeException runtime ? runtime
+					: new RuntimeException(e.getCause());
+		}
+	}
+
+	// how long a hash submitted now would queue: the running and queued hashes
+	// ahead of it, less the threads free, shared out over the pool threads
+	private long expectedWaitNanos() {
+		int ahead = running.get() + pool.getQueue()
+				.size();
+		return ahead < poolSize ? 0 : (ahead - poolSize + 1) * hashNanos / poolSize;
+	}
+
+	// a lost update between two hashes finishing together is harmless
+	private void observe(long nanos) {
+		long average = hashNanos;
+		hashNanos = average == 0 ? nanos : (average * 7 + nanos) / 8;
+	}
+
+	// BCrypt doubles its work with each cost step, so one timing at the minimum
+	// cost tells how many steps fit in the target
+	static int calibrate(long targetMs) {
+		BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+		probe.encode("warm-up");
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			long started = System.nanoTime();
+			probe.encode("calibration");
+			best = Math.min(best, System.nanoTime() - started);
+		}
+		return strengthFor(TimeUnit.NANOSECONDS.toMillis(best), targetMs);
+	}
+
+	public static int strengthFor(long minStrengthMs, long targetMs) {
+		int strength = MIN_STRENGTH;
+		long ms = Math.max(1, minStrengthMs);
+		while (strength < MAX_STRENGTH && ms * 2 <= targetMs) {
+			ms *= 2;
+			strength++;
+		}
+		return strength;
+	}
+
+	/**
+	 * The hashing pool is full. A login fails with it and the security config
+	 * answers 503; anywhere else it maps to 503 through its status.
+	 */
+	@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE,
+			reason = "Too many sign-ins, try again shortly")
+	public static class BusyException extends InternalAuthenticationServiceException {
+
+		private static final long serialVersionUID = 1L;
+
+		public BusyException() {
+			super("Too many sign-ins, try again shortly");
+		}
+	}
+}
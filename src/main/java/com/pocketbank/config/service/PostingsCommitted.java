@@ -0,0 +1,13 @@
+package com.pocketbank.config.service;
+
+import java.util.List;
+
+import com.pocketbank.entity.Transaction;
+
+/**
+ * Published by TransactionService, BatchTransferService and the sharded ledger
+ * with the postings they write, so components showing balances and activity
+ * can pick them up once the transaction commits.
+ */
+public record PostingsCommitted(List<Transaction> postings) {
+}
@@ -0,0 +1,268 @@
+package com.pocketbank.config.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Token buckets for the login and money-moving routes, one per client IP and
+ * one per user. Limits are "capacity/seconds" per route, e.g. 5/60 is a burst
+ * of five refilled over a minute.
+ *
+ * A bucket is a single long: the nanoTime at which it will be full again.
+ * Taking a token moves that time one refill interval on with a CAS, and refill
+ * is worked out from it when the bucket is next used, so there are no locks
+ * and no timer threads.
+ *
+ * Buckets live in 64 shards per limit, each an open-addressing table of
+ * (64-bit key hash, full-again time) pairs in one AtomicLongArray, so finding a
+ * bucket is usually one cache line and no key comparison. A shard that gets
+ * half full is rebuilt without the buckets that have been full for the idle
+ * time, which are the same as no bucket.
+ */
+@Service
+public class RateLimiter {
+
+	private static final int SHARDS = 64;
+	private static final int MIN_SLOTS = 1024;
+
+	private final Map<Route, Limit> perIp = new EnumMap<>(Route.class);
+	private final Map<Route, Limit> perUser = new EnumMap<>(Route.class);
+
+	private final Counter limited;
+
+	public RateLimiter(MeterRegistry meterRegistry,
+			@Value("${pocketbank.rate-limit.login.per-ip:50/60}") String loginPerIp,
+			@Value("${pocketbank.rate-limit.login.per-user:5/60}") String loginPerUser,
+			@Value("${pocketbank.rate-limit.withdraw.per-ip:60/60}") String withdrawPerIp,
+			@Value("${pocketbank.rate-limit.withdraw.per-user:20/60}") String withdrawPerUser,
+			@Value("${pocketbank.rate-limit.transfer.per-ip:60/60}") String transferPerIp,
+			@Value("${pocketbank.rate-limit.transfer.per-user:20/60}") String transferPerUser,
+			@Value("${pocketbank.rate-limit.idle-seconds:600}") long idleSeconds) {
+		long idle = TimeUnit.SECONDS.toNanos(idleSeconds);
+		perIp.put(Route.LOGIN, Limit.parse(loginPerIp, idle));
+		perUser.put(Route.LOGIN, Limit.parse(loginPerUser, idle));
+		perIp.put(Route.WITHDRAW, Limit.parse(withdrawPerIp, idle));
+		perUser.put(Route.WITHDRAW, Limit.parse(withdrawPerUser, idle));
+		perIp.put(Route.TRANSFER, Limit.parse(transferPerIp, idle));
+		perUser.put(Route.TRANSFER, Limit.parse(transferPerUser, idle));
+
+		this.limited = Counter.builder("pocketbank.rate-limit.limited")
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.rate-limit.buckets", this, RateLimiter::size)
+				.register(meterRegistry);
+	}
+
+	// Take a token from the client's IP bucket and, when known, the user's; 0 when
+	// the request may go ahead, else nanoseconds until it may be retried
+	public long tryAcquire(Route route, String ip, String user) {
+		return tryAcquire(route, ip, user, System.nanoTime());
+	}
+
+	// now is a System.nanoTime() reading
+	public long tryAcquire(Route route, String ip, String user, long now) {
+		Limit ipLimit = perIp.get(route);
+		long wait = ipLimit.take(ip, now);
+		if (wait == 0 && user != null && !user.isEmpty()) {
+			wait = perUser.get(route)
+					.take(user, now);
+			if (wait > 0) {
+				// refused for the user, so the IP has not spent its token
+				ipLimit.giveBack(ip);
+			}
+		}
+		if (wait > 0) {
+			limited.increment();
+		}
+		return wait;
+	}
+
+	public int size() {
+		int size = 0;
+		for (Limit limit : perIp.values()) {
+			size += limit.size();
+		}
+		for (Limit limit : perUser.values()) {
+			size += limit.size();
+		}
+		return size;
+	}
+
+	public enum Route {
+		LOGIN, WITHDRAW, TRANSFER
+	}
+
+	// One limit and its buckets, keyed by IP or username
+	static final class Limit {
+
+		private final long interval;
+		private final long burst;
+		private final long idle;
+		private final Shard[] shards = new Shard[SHARDS];
+
+		private Limit(int capacity, long periodNanos, long idle) {
+			this.interval = periodNanos / capacity;
+			this.burst = interval * capacity;
+			this.idle = idle;
+			for (int i = 0; i < SHARDS; i++) {
+				shards[i] = new Shard();
+			}
+		}
+
+		static Limit parse(String value, long idle) {
+			int slash = value.indexOf('/');
+			try {
+				int capacity = Integer.parseInt(value.substring(0, slash)
+						.trim());
+				long seconds = Long.parseLong(value.substring(slash + 1)
+						.trim());
+				if (capacity < 1 || seconds < 1) {
+					throw new NumberFormatException();
+				}
+				return new Limit(capacity, TimeUnit.SECONDS.toNanos(seconds), idle);
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Rate limit must be capacity/seconds: " + value);
+			}
+		}
+
+		long take(String key, long now) {
+			long hash = hash(key);
+			Shard shard = shards[(int) (hash >>> 58)];
+			while (true) {
+				AtomicLongArray table = shard.table;
+				int slot = shard.find(table, hash);
+				if (slot < 0) {
+					shard.rebuild(table, now - idle); // full, only under a burst of new keys
+					continue;
+				}
+				long wait = take(table, slot + 1, now);
+				if (shard.used.get() > table.length() / 4) {
+					shard.rebuild(table, now - idle);
+				}
+				return wait;
+			}
+		}
+
+		// Return a token just taken from the key's bucket
+		void giveBack(String key) {
+			long hash = hash(key);
+			AtomicLongArray table = shards[(int) (hash >>> 58)].table;
+			int slots = table.length() / 2;
+			int slot = (int) hash & (slots - 1);
+			for (int probes = 0; probes < slots; probes++) {
+				long stored = table.get(2 * slot);
+				if (stored == 0) {
+					return; // dropped by a rebuild meanwhile
+				}
+				if (stored == hash) {
+					long fullAt;
+					do {
+						fullAt = table.get(2 * slot + 1);
+					} while (fullAt != 0
+							&& !table.compareAndSet(2 * slot + 1, fullAt, fullAt - interval));
+					return;
+				}
+				slot = (slot + 1) & (slots - 1);
+			}
+		}
+
+		private long take(AtomicLongArray table, int index, long now) {
+			while (true) {
+				long fullAt = table.get(index);
+				// 0 is a bucket not used yet, which is full
+				long base = fullAt == 0 || fullAt - now < 0 ? now : fullAt;
+				long next = base + interval;
+				if (next - now > burst) {
+					return next - now - burst;
+				}
+				if (table.compareAndSet(index, fullAt, next)) {
+					return 0;
+				}
+			}
+		}
+
+		int size() {
+			int size = 0;
+			for (Shard shard : shards) {
+				size += shard.used.get();
+			}
+			return size;
+		}
+
+		// 64-bit FNV-1a, never 0 (0 marks a free slot)
+		private static long hash(String key) {
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < key.length(); i++) {
+				hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+			}
+			return hash == 0 ? 1 : hash;
+		}
+	}
+
+	private static final class Shard {
+
+		// (hash, full-again time) pairs, linear probing; replaced whole by rebuild
+		private volatile AtomicLongArray table = new AtomicLongArray(2 * MIN_SLOTS);
+		private final AtomicInteger used = new AtomicInteger();
+
+		// index of the key's pair, claiming a free one for a new key; -1 when full
+		private int find(AtomicLongArray table, long hash) {
+			int slots = table.length() / 2;
+			int slot = (int) hash & (slots - 1);
+			for (int probes = 0; probes < slots; probes++) {
+				long stored = table.get(2 * slot);
+				if (stored == hash) {
+					return 2 * slot;
+				}
+				if (stored == 0) {
+					if (table.compareAndSet(2 * slot, 0, hash)) {
+						used.incrementAndGet();
+						return 2 * slot;
+					}
+					continue; // claimed meanwhile, look at it again
+				}
+				slot = (slot + 1) & (slots - 1);
+			}
+			return -1;
+		}
+
+		// Copy the buckets used since idleSince into a table sized for them; a
+		// request racing the copy may go uncounted
+		private synchronized void rebuild(AtomicLongArray old, long idleSince) {
+			if (table != old) {
+				return; // another thread rebuilt it
+			}
+			int live = 0;
+			for (int i = 0; i < old.length(); i += 2) {
+				if (old.get(i) != 0 && old.get(i + 1) - idleSince >= 0) {
+					live++;
+				}
+			}
+			int slots = Math.max(MIN_SLOTS, Integer.highestOneBit(Math.max(live, 1) * 4 - 1) << 1);
+			AtomicLongArray rebuilt = new AtomicLongArray(2 * slots);
+			for (int i = 0; i < old.length(); i += 2) {
+				long hash = old.get(i);
+				long fullAt = old.get(i + 1);
+				if (hash != 0 && fullAt - idleSince >= 0) {
+					int slot = (int) hash & (slots - 1);
+					while (rebuilt.get(2 * slot) != 0) {
+						slot = (slot + 1) & (slots - 1);
+					}
+					rebuilt.set(2 * slot, hash);
+					rebuilt.set(2 * slot + 1, fullAt);
+				}
+			}
+			used.set(live);
+			table = rebuilt;
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package com.pocketbank.config.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Last postings of recently used accounts, for the customer dashboard. Each
+ * account gets a ring buffer of the newest postings that deposit, withdraw and
+ * transfer push into after commit; a bounded LRU map of buffers caps memory.
+ * A miss warms the buffer from the transactions table once.
+ *
+ * Buffers hold trimmed copies (no account/user graph) so an entry costs about
+ * the same whatever the account looks like.
+ */
+@Service
+public class RecentActivityCache {
+
+	static final int RECENT_POSTINGS = 10;
+
+	// rough size of one trimmed posting with its strings, for the memory gauge
+	private static final long ESTIMATED_POSTING_BYTES = 240;
+
+	private final TransactionRepository transactionRepository;
+	private final Map<Long, Ring> rings;
+
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter evictions;
+
+	public RecentActivityCache(TransactionRepository transactionRepository,
+			MeterRegistry meterRegistry,
+			@Value("${pocketbank.recent-activity.max-accounts:100000}") int maxAccounts) {
+		this.transactionRepository = transactionRepository;
+		this.rings = new LinkedHashMap<>(1024, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Ring> eldest) {
+				if (size() > maxAccounts) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+
+		this.hits = lookups(meterRegistry, "hit");
+		this.misses = lookups(meterRegistry, "miss");
+		this.evictions = Counter.builder("pocketbank.recent-activity.evictions")
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.recent-activity.accounts", this, RecentActivityCache::size)
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.recent-activity.memory.bytes", this,
+				RecentActivityCache::estimatedBytes)
+				.baseUnit("bytes")
+				.register(meterRegistry);
+		Gauge.builder("pocketbank.recent-activity.hit.ratio", this, RecentActivityCache::hitRatio)
+				.register(meterRegistry);
+	}
+
+	// Newest postings of an account, newest first
+	public List<Transaction> recent(Long accountId) {
+		Ring ring;
+		synchronized (rings) {
+			ring = rings.computeIfAbsent(accountId, Ring::new);
+		}
+
+		synchronized (ring) {
+			if (ring.warm) {
+				hits.increment();
+			} else {
+				// postings pushed while we were away are kept, the load fills in the rest
+				misses.increment();
+				transactionRepository.findTop10ByAccountIdOrderByTransactionDateDesc(accountId)
+						.forEach(ring::push);
+				ring.warm = true;
+			}
+			return ring.newestFirst();
+		}
+	}
+
+	// Add committed postings to their accounts' buffers
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPostingsCommitted(PostingsCommitted event) {
+		event.postings()
+				.forEach(this::push);
+	}
+
+	public int size() {
+		synchronized (rings) {
+			return rings.size();
+		}
+	}
+
+	public double hitRatio() {
+		double total = hits.count() + misses.count();
+		return total == 0 ? 0 : hits.count() / total;
+	}
+
+	private long estimatedBytes() {
+		long postings = 0;
+		synchronized (rings) {
+			for (Ring ring : rings.values()) {
+				postings += ring.count;
+			}
+		}
+		return postings * ESTIMATED_POSTING_BYTES;
+	}
+
+	private void push(Transaction posting) {
+		Ring ring;
+		synchronized (rings) {
+			// accounts nobody is looking at are not worth caching
+			ring = rings.get(posting.getAccount()
+					.getId());
+		}
+		if (ring != null) {
+			synchronized (ring) {
+				ring.push(posting);
+			}
+		}
+	}
+
+	private static Counter lookups(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("pocketbank.recent-activity.lookups")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	// Fixed-size ring of one account's postings, a new one overwrites the oldest.
+	// Guarded by its own monitor.
+	private static class Ring {
+
+		private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+				.comparing(Transaction::getTransactionDate)
+				.thenComparing(Transaction::getId)
+				.reversed();
+
+		private final Account account;
+		private final Transaction[] postings = new Transaction[RECENT_POSTINGS];
+		private int count;
+		private boolean warm;
+
+		Ring(Long accountId) {
+			this.account = Account.builder()
+					.id(accountId)
+					.build();
+		}
+
+		void push(Transaction posting) {
+			for (int i = 0; i < count; i++) {
+				if (postings[i].getId()
+						.equals(posting.getId())) {
+					return; // already loaded from the table
+				}
+			}
+			Transaction copy = Transaction.builder()
+					.id(posting.getId())
+					.type(posting.getType())
+					.amount(posting.getAmount())
+					.balanceAfter(posting.getBalanceAfter())
+					.description(posting.getDescription())
+					.recipientAccountNumber(posting.getRecipientAccountNumber())
+					.transactionDate(posting.getTransactionDate())
+					.account(account)
+					.build();
+
+			if (count < RECENT_POSTINGS) {
+				postings[count++] = copy;
+				return;
+			}
+			// full: overwrite the oldest slot, unless the newcomer is older still
+			int oldest = oldestIndex();
+			if (NEWEST_FIRST.compare(copy, postings[oldest]) < 0) {
+				postings[oldest] = copy;
+			}
+		}
+
+		List<Transaction> newestFirst() {
+			List<Transaction> list = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				list.add(postings[i]);
+			}
+			list.sort(NEWEST_FIRST);
+			return list;
+		}
+
+		private int oldestIndex() {
+			int oldest = 0;
+			for (int i = 1; i < count; i++) {
+				if (NEWEST_FIRST.compare(postings[i], postings[oldest]) > 0) {
+					oldest = i;
+				}
+			}
+			return oldest;
+		}
+	}
+}
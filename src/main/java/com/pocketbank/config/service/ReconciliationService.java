@@ -0,0 +1,500 @@
+package com.pocketbank.config.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.ReconciliationMismatch;
+import com.pocketbank.entity.ReconciliationRange;
+import com.pocketbank.entity.ReconciliationRun;
+import com.pocketbank.entity.enums.MismatchKind;
+import com.pocketbank.entity.enums.ReconciliationStatus;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.ReconciliationMismatchRepository;
+import com.pocketbank.repository.ReconciliationRangeRepository;
+import com.pocketbank.repository.ReconciliationRunRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Checks the ledger against itself, in two fork-join passes over a fixed
+ * number of workers (pocketbank.reconciliation.workers):
+ *
+ * Balances: accounts are split into id ranges. Each range reads its accounts
+ * and streams their postings in one ordered pass, in one snapshot, and checks
+ * every balance against the sum of its postings and the balanceAfter of the
+ * latest one.
+ *
+ * Transfers: time is split into slices, and each slice streams its transfer
+ * legs in posting order. A TRANSFER_OUT pairs with the TRANSFER_IN of the same
+ * amount between the same two accounts within pocketbank.reconciliation.
+ * pairing-window-seconds; only legs inside the window are held in memory.
+ *
+ * Each finished range is checkpointed with its mismatches, so a run that stops
+ * half way resumes where it left off.
+ */
+@Slf4j
+@Service
+public class ReconciliationService {
+
+	private final AccountRepository accountRepository;
+	private final TransactionRepository transactionRepository;
+	private final ReconciliationRunRepository runRepository;
+	private final ReconciliationRangeRepository rangeRepository;
+	private final ReconciliationMismatchRepository mismatchRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final TransactionTemplate snapshotTemplate;
+	private final int workers;
+	private final long accountRangeSize;
+	private final long transferSliceSeconds;
+	private final long pairingWindowSeconds;
+	private final long maxReported;
+
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	public ReconciliationService(AccountRepository accountRepository,
+			TransactionRepository transactionRepository,
+			ReconciliationRunRepository runRepository,
+			ReconciliationRangeRepository rangeRepository,
+			ReconciliationMismatchRepository mismatchRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${pocketbank.reconciliation.workers:4}") int workers,
+			@Value("${pocketbank.reconciliation.account-range-size:10000}") long accountRangeSize,
+			@Value("${pocketbank.reconciliation.transfer-slice-hours:24}") long transferSliceHours,
+			@Value("${pocketbank.reconciliation.pairing-window-seconds:300}") long pairingWindowSeconds,
+			@Value("${pocketbank.reconciliation.max-reported:10000}") long maxReported) {
+		this.accountRepository = accountRepository;
+		this.transactionRepository = transactionRepository;
+		this.runRepository = runRepository;
+		this.rangeRepository = rangeRepository;
+		this.mismatchRepository = mismatchRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		// accounts, slots and postings of a range are read from one consistent snapshot
+		this.snapshotTemplate = new TransactionTemplate(transactionManager);
+		this.snapshotTemplate.setReadOnly(true);
+		this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+		this.workers = workers;
+		this.accountRangeSize = accountRangeSize;
+		this.transferSliceSeconds = transferSliceHours * 3600;
+		this.pairingWindowSeconds = pairingWindowSeconds;
+		this.maxReported = maxReported;
+	}
+
+	@Scheduled(cron = "${pocketbank.reconciliation.cron:0 0 3 * * *}")
+	public void runNightly() {
+		run();
+	}
+
+	// Run a reconciliation, or resume the last one if it did not finish
+	public RunReport run() {
+		if (!running.compareAndSet(false, true)) {
+			throw new RuntimeException("A reconciliation is already running");
+		}
+		try {
+			ReconciliationRun existing = runRepository
+					.findFirstByStatusOrderByIdDesc(ReconciliationStatus.RUNNING)
+					.orElse(null);
+			ReconciliationRun run = existing != null ? existing : startRun();
+
+			Set<String> done = ConcurrentHashMap.newKeySet();
+			done.addAll(rangeRepository.findRangeKeysByRunId(run.getId()));
+			AtomicLong reported = new AtomicLong(mismatchRepository.countByRunId(run.getId()));
+			AtomicLong postings = new AtomicLong();
+			long started = System.nanoTime();
+
+			ForkJoinPool pool = new ForkJoinPool(workers);
+			try {
+				pool.invoke(new SplitTask(run.getFirstAccountId(), run.getLastAccountId() + 1,
+						accountRangeSize, (from, to) -> postings
+								.addAndGet(checkAccounts(run.getId(), from, to, done, reported))));
+				if (run.getFirstPostingAt() != null) {
+					long first = epochSecond(run.getFirstPostingAt());
+					pool.invoke(new SplitTask(first - Math.floorMod(first, transferSliceSeconds),
+							epochSecond(run.getCutoff()), transferSliceSeconds,
+							(from, to) -> checkTransfers(run.getId(), from, to, done, reported)));
+				}
+			} finally {
+				pool.shutdownNow();
+			}
+
+			long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+			RunReport report = finishRun(run, existing != null, elapsedMs, postings.get());
+			log.info("Reconciliation run {} finished: {} accounts, {} postings, {} transfer legs, "
+					+ "{} mismatches; scanned {} postings in {} ms ({} postings/s)", report.runId(),
+					report.accounts(), report.postings(), report.transferLegs(), report.mismatches(),
+					report.scannedPostings(), report.elapsedMs(), report.postingsPerSecond());
+			return report;
+		} finally {
+			running.set(false);
+		}
+	}
+
+	// Balances of accounts [from, to) against their postings; returns postings scanned
+	private long checkAccounts(Long runId, long from, long to, Set<String> done,
+			AtomicLong reported) {
+		String key = "accounts:" + from;
+		if (done.contains(key)) {
+			return 0;
+		}
+		long started = System.nanoTime();
+		RangeResult result = snapshotTemplate.execute(status -> {
+			RangeResult found = new RangeResult(runId);
+			Map<Long, Object[]> accounts = new LinkedHashMap<>();
+			for (Object[] row : accountRepository.findForReconciliation(from, to - 1)) {
+				accounts.put(((Number) row[0]).longValue(), row);
+			}
+			found.accounts = accounts.size();
+
+			// postings arrive grouped by account, so one running tally is enough
+			Tally tally = null;
+			try (Stream<Object[]> postings = transactionRepository.streamForReconciliation(from,
+					to - 1)) {
+				for (Iterator<Object[]> it = postings.iterator(); it.hasNext();) {
+					Object[] row = it.next();
+					Long accountId = (Long) row[0];
+					if (tally == null || !tally.accountId.equals(accountId)) {
+						if (tally != null) {
+							found.check(accounts.remove(tally.accountId), tally);
+						}
+						tally = new Tally(accountId);
+					}
+					tally.add((TransactionType) row[1], (Money) row[2], (Money) row[3]);
+					found.postings++;
+				}
+			}
+			if (tally != null) {
+				found.check(accounts.remove(tally.accountId), tally);
+			}
+			// accounts without a single posting
+			for (Object[] account : accounts.values()) {
+				found.check(account, new Tally(((Number) account[0]).longValue()));
+			}
+			return found;
+		});
+
+		checkpoint(key, result, started, reported);
+		done.add(key);
+		return result.postings;
+	}
+
+	// Transfer legs posted in [from, to) epoch seconds, read with a window either side
+	// so legs near the edges still find their partner
+	private void checkTransfers(Long runId, long from, long to, Set<String> done,
+			AtomicLong reported) {
+		String key = "transfers:" + from;
+		if (done.contains(key)) {
+			return;
+		}
+		long started = System.nanoTime();
+		LocalDateTime reportFrom = dateTime(from);
+		LocalDateTime reportTo = dateTime(to);
+		RangeResult result = snapshotTemplate.execute(status -> {
+			LegPairing pairing = new LegPairing(new RangeResult(runId), reportFrom, reportTo);
+			try (Stream<Object[]> legs = transactionRepository.streamTransferLegs(
+					dateTime(from - pairingWindowSeconds), dateTime(to + pairingWindowSeconds))) {
+				legs.forEach(row -> pairing.add(new Leg(((Number) row[0]).longValue(),
+						(TransactionType) row[1], (String) row[2], (String) row[3], (Money) row[4],
+						(LocalDateTime) row[5])));
+			}
+			pairing.expire(LocalDateTime.MAX);
+			return pairing.result;
+		});
+
+		checkpoint(key, result, started, reported);
+		done.add(key);
+	}
+
+	// Save a finished range with the mismatches it found, up to max-reported per run
+	private void checkpoint(String key, RangeResult result, long started, AtomicLong reported) {
+		long found = result.mismatches.size();
+		long before = reported.getAndAdd(found);
+		int keep = (int) Math.max(0, Math.min(found, maxReported - before));
+		transactionTemplate.executeWithoutResult(status -> {
+			mismatchRepository.saveAll(result.mismatches.subList(0, keep));
+			rangeRepository.save(ReconciliationRange.builder()
+					.runId(result.runId)
+					.rangeKey(key)
+					.accounts(result.accounts)
+					.postings(result.postings)
+					.transferLegs(result.transferLegs)
+					.mismatches(found)
+					.elapsedMs((System.nanoTime() - started) / 1_000_000)
+					.build());
+		});
+	}
+
+	private ReconciliationRun startRun() {
+		return transactionTemplate.execute(status -> {
+			Object[] bounds = accountRepository.findIdBounds()
+					.get(0);
+			return runRepository.save(ReconciliationRun.builder()
+					.status(ReconciliationStatus.RUNNING)
+					.startedAt(LocalDateTime.now())
+					.firstAccountId(bounds[0] != null ? (Long) bounds[0] : 1L)
+					.lastAccountId(bounds[1] != null ? (Long) bounds[1] : 0L)
+					.firstPostingAt(transactionRepository.findFirstPostingDate())
+					.cutoff(LocalDateTime.now())
+					.build());
+		});
+	}
+
+	private RunReport finishRun(ReconciliationRun run, boolean resumed, long elapsedMs,
+			long scannedPostings) {
+		return transactionTemplate.execute(status -> {
+			Object[] totals = rangeRepository.sumByRunId(run.getId())
+					.get(0);
+			run.setAccounts(((Number) totals[0]).longValue());
+			run.setPostings(((Number) totals[1]).longValue());
+			run.setTransferLegs(((Number) totals[2]).longValue());
+			run.setMismatches(((Number) totals[3]).longValue());
+			run.setStatus(ReconciliationStatus.COMPLETED);
+			run.setFinishedAt(LocalDateTime.now());
+			runRepository.save(run);
+			return new RunReport(run.getId(), resumed, run.getAccounts(), run.getPostings(),
+					run.getTransferLegs(), run.getMismatches(), scannedPostings, elapsedMs,
+					scannedPostings * 1000 / elapsedMs);
+		});
+	}
+
+	private static long epochSecond(LocalDateTime dateTime) {
+		return dateTime.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	private static LocalDateTime dateTime(long epochSecond) {
+		return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+	}
+
+	@FunctionalInterface
+	private interface RangeWork {
+		void run(long from, long to);
+	}
+
+	// Splits [from, to) in halves down to ranges of `size`, aligned to `from` so a
+	// resumed run gets the same ranges
+	private static class SplitTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long from;
+		private final long to;
+		private final long size;
+		private final transient RangeWork work;
+
+		SplitTask(long from, long to, long size, RangeWork work) {
+			this.from = from;
+			this.to = to;
+			this.size = size;
+			this.work = work;
+		}
+
+		@Override
+		protected void compute() {
+			if (to <= from) {
+				return;
+			}
+			long ranges = (to - from + size - 1) / size;
+			if (ranges == 1) {
+				work.run(from, to);
+				return;
+			}
+			long middle = from + ranges / 2 * size;
+			invokeAll(new SplitTask(from, middle, size, work), new SplitTask(middle, to, size, work));
+		}
+	}
+
+	// What one range found
+	private static class RangeResult {
+
+		private final Long runId;
+		private long accounts;
+		private long postings;
+		private long transferLegs;
+		private final List<ReconciliationMismatch> mismatches = new ArrayList<>();
+
+		RangeResult(Long runId) {
+			this.runId = runId;
+		}
+
+		// account row is (id, account number, live balance, balance slots)
+		void check(Object[] account, Tally tally) {
+			if (account == null) {
+				return;
+			}
+			String accountNumber = (String) account[1];
+			Money balance = Money.of((BigDecimal) account[2]);
+			Money sum = Money.ofPaise(tally.sum);
+			if (!sum.equals(balance)) {
+				report(MismatchKind.BALANCE_VS_POSTINGS, accountNumber, null, sum, balance);
+			}
+			// slots of a sharded account move independently, its postings carry no
+			// running balance
+			boolean sharded = account[3] != null;
+			if (!sharded && tally.last != null && !tally.last.equals(balance)) {
+				report(MismatchKind.BALANCE_VS_LAST_POSTING, accountNumber, null, tally.last, balance);
+			}
+		}
+
+		void report(MismatchKind kind, String accountNumber, Long transactionId, Money expected,
+				Money actual) {
+			mismatches.add(ReconciliationMismatch.builder()
+					.runId(runId)
+					.kind(kind)
+					.accountNumber(accountNumber)
+					.transactionId(transactionId)
+					.expected(expected)
+					.actual(actual)
+					.build());
+		}
+	}
+
+	// Running sum (paise) and latest balanceAfter of one account's postings
+	private static class Tally {
+
+		private final Long accountId;
+		private long sum;
+		private Money last;
+
+		Tally(Long accountId) {
+			this.accountId = accountId;
+		}
+
+		void add(TransactionType type, Money amount, Money balanceAfter) {
+			switch (type) {
+			case DEPOSIT, TRANSFER_IN, LOAN_DISBURSMENT -> sum += amount.paise();
+			case WITHDRAWAL, TRANSFER_OUT, FD_CREATION -> sum -= amount.paise();
+			}
+			last = balanceAfter;
+		}
+	}
+
+	// A transfer leg; its key names the sender and receiver whichever side it is
+	private static class Leg {
+
+		private final long id;
+		private final TransactionType type;
+		private final String accountNumber;
+		private final Money amount;
+		private final LocalDateTime date;
+		private final LegKey key;
+		private boolean matched;
+
+		Leg(long id, TransactionType type, String accountNumber, String counterparty, Money amount,
+				LocalDateTime date) {
+			this.id = id;
+			this.type = type;
+			this.accountNumber = accountNumber;
+			this.amount = amount;
+			this.date = date;
+			this.key = type == TransactionType.TRANSFER_OUT
+					? new LegKey(accountNumber, counterparty, amount.paise())
+					: new LegKey(counterparty, accountNumber, amount.paise());
+		}
+	}
+
+	private record LegKey(String sender, String receiver, long paise) {
+	}
+
+	// Pairs legs in posting order; unmatched legs leave the window oldest first
+	private class LegPairing {
+
+		private final RangeResult result;
+		private final LocalDateTime reportFrom;
+		private final LocalDateTime reportTo;
+		private final Deque<Leg> window = new ArrayDeque<>();
+		private final Map<LegKey, Deque<Leg>> openOut = new HashMap<>();
+		private final Map<LegKey, Deque<Leg>> openIn = new HashMap<>();
+
+		LegPairing(RangeResult result, LocalDateTime reportFrom, LocalDateTime reportTo) {
+			this.result = result;
+			this.reportFrom = reportFrom;
+			this.reportTo = reportTo;
+		}
+
+		void add(Leg leg) {
+			expire(leg.date.minusSeconds(pairingWindowSeconds));
+			if (reported(leg)) {
+				result.transferLegs++;
+			}
+			boolean out = leg.type == TransactionType.TRANSFER_OUT;
+			Map<LegKey, Deque<Leg>> opposite = out ? openIn : openOut;
+			Deque<Leg> candidates = opposite.get(leg.key);
+			if (candidates != null) {
+				candidates.pollFirst().matched = true;
+				if (candidates.isEmpty()) {
+					opposite.remove(leg.key);
+				}
+				return;
+			}
+			(out ? openOut : openIn).computeIfAbsent(leg.key, k -> new ArrayDeque<>())
+					.addLast(leg);
+			window.addLast(leg);
+		}
+
+		// report unmatched legs posted before `until`
+		void expire(LocalDateTime until) {
+			while (!window.isEmpty() && window.peekFirst().date.isBefore(until)) {
+				Leg leg = window.pollFirst();
+				if (leg.matched) {
+					continue;
+				}
+				boolean out = leg.type == TransactionType.TRANSFER_OUT;
+				Map<LegKey, Deque<Leg>> own = out ? openOut : openIn;
+				Deque<Leg> legs = own.get(leg.key);
+				legs.pollFirst();
+				if (legs.isEmpty()) {
+					own.remove(leg.key);
+				}
+				if (reported(leg)) {
+					result.report(out ? MismatchKind.UNPAIRED_TRANSFER_OUT
+							: MismatchKind.UNPAIRED_TRANSFER_IN, leg.accountNumber, leg.id, null,
+							leg.amount);
+				}
+			}
+		}
+
+		// legs read from the window around the slice belong to the neighbouring slice
+		private boolean reported(Leg leg) {
+			return !leg.date.isBefore(reportFrom) && leg.date.isBefore(reportTo);
+		}
+	}
+
+	/**
+	 * Outcome of a reconciliation run. Totals cover the whole run, scanned postings
+	 * and throughput only this invocation.
+	 */
+	public record RunReport(Long runId,
+			boolean resumed,
+			long accounts,
+			long postings,
+			long transferLegs,
+			long mismatches,
+			long scannedPostings,
+			long elapsedMs,
+			long postingsPerSecond) {
+	}
+}
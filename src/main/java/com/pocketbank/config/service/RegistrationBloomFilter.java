@@ -0,0 +1,225 @@
+package com.pocketbank.config.service;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bloom filter of the usernames and emails already taken, so registration only
+ * probes the users table for names the filter cannot rule out. A "no" is
+ * certain for everything loaded or added; a "maybe" is wrong at about the
+ * configured false-positive rate.
+ *
+ * Loaded by streaming the users table once the application is ready and rebuilt
+ * nightly, sized for the larger of the expected users and twice those loaded.
+ * Until the first load finishes every name is a "maybe", and a load that fails
+ * is logged without stopping the application. The unique constraints
+ * on users stay the real check: a name registered while a rebuild streams may
+ * be missed by it, and then the insert is what fails.
+ */
+@Slf4j
+@Service
+public class RegistrationBloomFilter {
+
+	private final UserRepository userRepository;
+	private final TransactionTemplate readTemplate;
+	private final long expectedUsers;
+	private final double falsePositiveRate;
+
+	private volatile Bits bits;
+	// the filter being rebuilt, which is sent adds as well
+	private volatile Bits building;
+
+	private final Counter free;
+	private final Counter maybe;
+
+	public RegistrationBloomFilter(UserRepository userRepository,
+			PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry,
+			@Value("${pocketbank.registration-filter.expected-users:1000000}") long expectedUsers,
+			@Value("${pocketbank.registration-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+		if (expectedUsers < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException(
+					"Registration filter needs expected users >= 1 and a false-positive rate in (0, 1)");
+		}
+		this.userRepository = userRepository;
+		this.readTemplate = new TransactionTemplate(transactionManager);
+		this.readTemplate.setReadOnly(true);
+		this.expectedUsers = expectedUsers;
+		this.falsePositiveRate = falsePositiveRate;
+
+		this.free = checks(meterRegistry, "free");
+		this.maybe = checks(meterRegistry, "maybe");
+		Gauge.builder("pocketbank.registration-filter.bits", this,
+				filter -> filter.bits == null ? 0 : filter.bits.size)
+				.register(meterRegistry);
+	}
+
+	// false only when no user has this username
+	public boolean mightHaveUsername(String username) {
+		return mightContain("u:" + normalize(username));
+	}
+
+	// false only when no user has this email
+	public boolean mightHaveEmail(String email) {
+		return mightContain("e:" + normalize(email));
+	}
+
+	// Remember a username and email being registered, or an email changed to
+	public void add(String username, String email) {
+		if (username != null) {
+			add("u:" + normalize(username));
+		}
+		if (email != null) {
+			add("e:" + normalize(email));
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void load() {
+		try {
+			rebuild();
+		} catch (RuntimeException e) {
+			log.warn("Could not load the registration filter, every name is a maybe until the "
+					+ "next rebuild", e);
+		}
+	}
+
+	// Drops names no longer taken and resizes for the users there are now
+	@Scheduled(cron = "${pocketbank.registration-filter.rebuild-cron:0 15 3 * * *}")
+	public void rebuild() {
+		long started = System.nanoTime();
+		long loaded;
+		try {
+			loaded = readTemplate.execute(status -> {
+				long users = userRepository.count();
+				Bits fresh = new Bits(Math.max(expectedUsers, users * 2) * 2, falsePositiveRate);
+				building = fresh;
+				long count = 0;
+				try (Stream<Object[]> rows = userRepository.streamUsernamesAndEmails()) {
+					for (Iterator<Object[]> it = rows.iterator(); it.hasNext();) {
+						Object[] row = it.next();
+						fresh.add("u:" + normalize((String) row[0]));
+						fresh.add("e:" + normalize((String) row[1]));
+						count++;
+					}
+				}
+				bits = fresh;
+				return count;
+			});
+		} finally {
+			building = null;
+		}
+		log.info("Registration filter loaded {} users in {} ms ({} bits)", loaded,
+				(System.nanoTime() - started) / 1_000_000, bits.size);
+	}
+
+	private boolean mightContain(String key) {
+		Bits current = bits;
+		boolean found = current == null || current.mightContain(key);
+		(found ? maybe : free).increment();
+		return found;
+	}
+
+	private void add(String key) {
+		Bits current = bits;
+		if (current != null) {
+			current.add(key);
+		}
+		Bits next = building;
+		if (next != null) {
+			next.add(key);
+		}
+	}
+
+	// MySQL compares these case-insensitively, so the filter does too
+	private static String normalize(String value) {
+		return value == null ? "" : value.toLowerCase(Locale.ROOT);
+	}
+
+	private static Counter checks(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("pocketbank.registration-filter.checks")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * The bit array, set with CAS so concurrent adds are never lost. Each key's k
+	 * positions come from two 64-bit hashes (h1 + i * h2).
+	 */
+	static final class Bits {
+
+		private final AtomicLongArray words;
+		private final long size;
+		private final int hashes;
+
+		// sized for entries keys at the given false-positive rate
+		Bits(long entries, double falsePositiveRate) {
+			double ln2 = Math.log(2);
+			long wanted = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (ln2 * ln2));
+			long wordCount = Math.max(1, (wanted + 63) / 64);
+			if (wordCount > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Registration filter too large: " + wanted + " bits");
+			}
+			this.words = new AtomicLongArray((int) wordCount);
+			this.size = wordCount * 64;
+			this.hashes = Math.max(1, (int) Math.round((double) size / entries * ln2));
+		}
+
+		void add(String key) {
+			long h1 = hash(key, 0x9e3779b97f4a7c15L);
+			long h2 = hash(key, 0xc2b2ae3d27d4eb4fL) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Long.remainderUnsigned(h1 + i * h2, size);
+				int word = (int) (bit >>> 6);
+				long mask = 1L << bit;
+				long current = words.get(word);
+				while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+					current = words.get(word);
+				}
+			}
+		}
+
+		boolean mightContain(String key) {
+			long h1 = hash(key, 0x9e3779b97f4a7c15L);
+			long h2 = hash(key, 0xc2b2ae3d27d4eb4fL) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Long.remainderUnsigned(h1 + i * h2, size);
+				if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// seeded multiply-xorshift over the chars, finished with the murmur3 mix
+		private static long hash(String key, long seed) {
+			long hash = seed ^ key.length();
+			for (int i = 0; i < key.length(); i++) {
+				hash = (hash ^ key.charAt(i)) * 0xff51afd7ed558ccdL;
+				hash ^= hash >>> 29;
+			}
+			hash ^= hash >>> 33;
+			hash *= 0xff51afd7ed558ccdL;
+			hash ^= hash >>> 33;
+			hash *= 0xc4ceb9fe1a85ec53L;
+			return hash ^ (hash >>> 33);
+		}
+	}
+}
@@ -0,0 +1,317 @@
+package com.pocketbank.config.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.TransactionRollup;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.entity.enums.RollupPeriod;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.TransactionRepository;
+import com.pocketbank.repository.TransactionRollupRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-day and per-month count, sum, min and max of postings by transaction and
+ * account type, for date-range reports. Postings fold into their day and month
+ * rows in the same database transaction; a range is answered from whole months
+ * plus the days at either edge, so at most about 60 day rows are read.
+ *
+ * History from before the rollups existed is filled in by backfill, which
+ * scans the transactions table in parallel chunks of days. One backfill runs
+ * at a time, as two over the same days would both add the same correction.
+ */
+@Slf4j
+@Service
+public class RollupService {
+
+	private final TransactionRollupRepository rollupRepository;
+	private final TransactionRepository transactionRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final TransactionTemplate snapshotTemplate;
+	private final int backfillThreads;
+	private final int chunkDays;
+	private final AtomicBoolean backfilling = new AtomicBoolean();
+
+	public RollupService(TransactionRollupRepository rollupRepository,
+			TransactionRepository transactionRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${pocketbank.rollups.backfill-threads:4}") int backfillThreads,
+			@Value("${pocketbank.rollups.backfill-chunk-days:7}") int chunkDays) {
+		this.rollupRepository = rollupRepository;
+		this.transactionRepository = transactionRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		// postings and day rows of a chunk are read from one consistent snapshot
+		this.snapshotTemplate = new TransactionTemplate(transactionManager);
+		this.snapshotTemplate.setReadOnly(true);
+		this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+		this.backfillThreads = backfillThreads;
+		this.chunkDays = chunkDays;
+	}
+
+	// Fold postings into their day and month rows, in key order so concurrent
+	// committers lock rows in the same order
+	public void recordPostings(Collection<Transaction> postings) {
+		Map<RollupKey, Stats> changes = new TreeMap<>();
+		for (Transaction posting : postings) {
+			LocalDate day = posting.getTransactionDate()
+					.toLocalDate();
+			AccountType accountType = posting.getAccount()
+					.getAccountType();
+			long paise = posting.getAmount()
+					.paise();
+			for (RollupPeriod period : RollupPeriod.values()) {
+				changes.computeIfAbsent(new RollupKey(period, start(period, day), posting.getType(),
+						accountType), key -> new Stats())
+						.add(1, paise, paise, paise);
+			}
+		}
+		changes.forEach(this::add);
+	}
+
+	// Postings of [from, to] per transaction and account type
+	public RangeReport range(LocalDate from, LocalDate to) {
+		if (to.isBefore(from)) {
+			throw new RuntimeException("Report start date is after its end date");
+		}
+		Map<RollupKey, Stats> rows = new TreeMap<>();
+		// whole months are [firstMonth, afterLastMonth), the days around them are read one by one
+		LocalDate firstMonth = start(RollupPeriod.MONTH, from.minusDays(1))
+				.plusMonths(1);
+		LocalDate afterLastMonth = start(RollupPeriod.MONTH, to.plusDays(1));
+
+		if (firstMonth.isBefore(afterLastMonth)) {
+			sum(rows, RollupPeriod.MONTH, firstMonth, afterLastMonth.minusMonths(1));
+			if (from.isBefore(firstMonth)) {
+				sum(rows, RollupPeriod.DAY, from, firstMonth.minusDays(1));
+			}
+			if (!to.isBefore(afterLastMonth)) {
+				sum(rows, RollupPeriod.DAY, afterLastMonth, to);
+			}
+		} else {
+			sum(rows, RollupPeriod.DAY, from, to);
+		}
+
+		List<RangeRow> result = new ArrayList<>(rows.size());
+		rows.forEach((key, stats) -> result.add(new RangeRow(key.transactionType(),
+				key.accountType(), stats.count, Money.ofPaise(stats.total),
+				Money.ofPaise(stats.min), Money.ofPaise(stats.max))));
+		return new RangeReport(from, to, result);
+	}
+
+	// Bring the rollups of [from, to] in line with the transactions table,
+	// chunkDays at a time on backfillThreads threads
+	public BackfillReport backfill(LocalDate from, LocalDate to) {
+		if (to.isBefore(from)) {
+			throw new RuntimeException("Backfill start date is after its end date");
+		}
+		if (!backfilling.compareAndSet(false, true)) {
+			throw new RuntimeException("Rollups are already being backfilled");
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(backfillThreads);
+		try {
+			List<Future<Integer>> chunks = new ArrayList<>();
+			for (LocalDate chunk = from; !chunk.isAfter(to); chunk = chunk.plusDays(chunkDays)) {
+				LocalDate chunkFrom = chunk;
+				LocalDate last = chunk.plusDays(chunkDays - 1L);
+				LocalDate chunkTo = last.isAfter(to) ? to : last;
+				chunks.add(executor.submit(() -> backfillChunk(chunkFrom, chunkTo)));
+			}
+
+			int corrected = 0;
+			for (Future<Integer> chunk : chunks) {
+				corrected += chunk.get();
+			}
+			long days = ChronoUnit.DAYS.between(from, to) + 1;
+			log.info("Rollup backfill of {} to {} corrected {} day rows", from, to, corrected);
+			return new BackfillReport(days, chunks.size(), corrected);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+			throw new RuntimeException("Rollup backfill interrupted");
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Rollup backfill failed: " + e.getCause()
+					.getMessage(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+			backfilling.set(false);
+		}
+	}
+
+	// Compare one chunk's day rows with a scan of its postings, then add the
+	// difference. A delta commutes with postings made since the snapshot.
+	int backfillChunk(LocalDate from, LocalDate to) {
+		Map<RollupKey, Stats> changes = snapshotTemplate.execute(status -> {
+			Map<RollupKey, Stats> scanned = new TreeMap<>();
+			for (Object[] row : transactionRepository.summarizeByDay(from.atStartOfDay(),
+					to.plusDays(1)
+							.atStartOfDay())) {
+				LocalDate day = row[0] instanceof java.sql.Date date ? date.toLocalDate()
+						: (LocalDate) row[0];
+				scanned.put(new RollupKey(RollupPeriod.DAY, day,
+						TransactionType.valueOf((String) row[1]), AccountType.valueOf((String) row[2])),
+						new Stats().add(((Number) row[3]).longValue(), paise(row[4]), paise(row[5]),
+								paise(row[6])));
+			}
+
+			Map<RollupKey, Stats> deltas = new TreeMap<>();
+			for (TransactionRollup rollup : rollupRepository
+					.findByPeriodAndPeriodStartBetween(RollupPeriod.DAY, from, to)) {
+				RollupKey key = new RollupKey(RollupPeriod.DAY, rollup.getPeriodStart(),
+						rollup.getTransactionType(), rollup.getAccountType());
+				Stats actual = scanned.remove(key);
+				if (actual == null) {
+					actual = new Stats();
+				}
+				if (actual.count != rollup.getPostingCount() || actual.total != rollup.getTotal()
+						|| actual.min < rollup.getMinAmount() || actual.max > rollup.getMaxAmount()) {
+					deltas.put(key, actual.minus(rollup));
+				}
+			}
+			// days that have postings but no rollup row yet
+			deltas.putAll(scanned);
+			return deltas;
+		});
+
+		if (!changes.isEmpty()) {
+			transactionTemplate.executeWithoutResult(status -> {
+				Map<RollupKey, Stats> withMonths = new TreeMap<>(changes);
+				changes.forEach((key, delta) -> withMonths
+						.computeIfAbsent(new RollupKey(RollupPeriod.MONTH,
+								start(RollupPeriod.MONTH, key.periodStart()), key.transactionType(),
+								key.accountType()), k -> new Stats())
+						.merge(delta));
+				withMonths.forEach(this::add);
+			});
+		}
+		return changes.size();
+	}
+
+	private void sum(Map<RollupKey, Stats> rows, RollupPeriod period, LocalDate from, LocalDate to) {
+		for (Object[] row : rollupRepository.sumBetween(period, from, to)) {
+			RollupKey key = new RollupKey(RollupPeriod.DAY, LocalDate.EPOCH, (TransactionType) row[0],
+					(AccountType) row[1]);
+			rows.computeIfAbsent(key, k -> new Stats())
+					.merge(new Stats().add(((Number) row[2]).longValue(), ((Number) row[3]).longValue(),
+							((Number) row[4]).longValue(), ((Number) row[5]).longValue()));
+		}
+	}
+
+	private void add(RollupKey key, Stats delta) {
+		rollupRepository.add(key.period()
+				.name(), key.periodStart(),
+				key.transactionType()
+						.name(),
+				key.accountType()
+						.name(),
+				delta.count, delta.total, delta.min, delta.max);
+	}
+
+	private static LocalDate start(RollupPeriod period, LocalDate day) {
+		return period == RollupPeriod.MONTH ? day.withDayOfMonth(1) : day;
+	}
+
+	private static long paise(Object amount) {
+		return Money.of((BigDecimal) amount)
+				.paise();
+	}
+
+	// Row of a rollup table; range() sums rows under a period start of EPOCH
+	private record RollupKey(RollupPeriod period,
+			LocalDate periodStart,
+			TransactionType transactionType,
+			AccountType accountType) implements Comparable<RollupKey> {
+
+		private static final Comparator<RollupKey> ORDER = Comparator
+				.comparing(RollupKey::period)
+				.thenComparing(RollupKey::periodStart)
+				.thenComparing(RollupKey::transactionType)
+				.thenComparing(RollupKey::accountType);
+
+		@Override
+		public int compareTo(RollupKey other) {
+			return ORDER.compare(this, other);
+		}
+	}
+
+	// Count, sum, min and max in paise; also used as a delta
+	private static class Stats {
+
+		private long count;
+		private long total;
+		private long min = Long.MAX_VALUE;
+		private long max = Long.MIN_VALUE;
+
+		Stats add(long count, long total, long min, long max) {
+			this.count += count;
+			this.total += total;
+			this.min = Math.min(this.min, min);
+			this.max = Math.max(this.max, max);
+			return this;
+		}
+
+		Stats merge(Stats other) {
+			return add(other.count, other.total, other.min, other.max);
+		}
+
+		// what to add to the row to match these stats; min and max only ever widen
+		Stats minus(TransactionRollup row) {
+			Stats delta = new Stats();
+			delta.count = count - row.getPostingCount();
+			delta.total = total - row.getTotal();
+			delta.min = Math.min(min, row.getMinAmount());
+			delta.max = Math.max(max, row.getMaxAmount());
+			return delta;
+		}
+	}
+
+	/**
+	 * Postings of one transaction type on one account type within a report range
+	 */
+	public record RangeRow(TransactionType transactionType,
+			AccountType accountType,
+			long count,
+			Money total,
+			Money min,
+			Money max) {
+	}
+
+	/**
+	 * Date-range report answered from the rollups
+	 */
+	public record RangeReport(LocalDate from, LocalDate to, List<RangeRow> rows) {
+
+		public long count() {
+			return rows.stream()
+					.mapToLong(RangeRow::count)
+					.sum();
+		}
+	}
+
+	/**
+	 * Outcome of a backfill: days scanned, chunks run and day rows corrected
+	 */
+	public record BackfillReport(long days, int chunks, int corrected) {
+	}
+}
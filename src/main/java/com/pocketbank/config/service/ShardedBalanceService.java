@@ -0,0 +1,202 @@
+package com.pocketbank.config.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.AccountBalanceSlot;
+import com.pocketbank.entity.Money;
+import com.pocketbank.repository.AccountBalanceSlotRepository;
+import com.pocketbank.repository.AccountRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sharded balance mode for hot accounts (treasury, loan disbursement, FD pool).
+ * The balance of a flagged account lives in K account_balance_slots rows.
+ * Writers lock one random free slot with SKIP LOCKED instead of the account
+ * row, so concurrent postings rarely wait on each other. The balance is the
+ * sum of the slots, and a background rebalancer spreads it evenly again so
+ * that single-slot withdrawals keep succeeding.
+ *
+ * Lock order: fast paths hold one slot and never wait for another; anything
+ * that needs several slots locks all of them in slot order.
+ */
+@Slf4j
+@Service
+public class ShardedBalanceService implements CommandLineRunner {
+
+	private final AccountRepository accountRepository;
+	private final AccountBalanceSlotRepository slotRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final int maxSlots;
+
+	// account number -> account id of every sharded account
+	private final Map<String, Long> shardedAccounts = new ConcurrentHashMap<>();
+
+	public ShardedBalanceService(AccountRepository accountRepository,
+			AccountBalanceSlotRepository slotRepository,
+			PlatformTransactionManager transactionManager,
+			@Value("${pocketbank.balance-slots.max:64}") int maxSlots) {
+		this.accountRepository = accountRepository;
+		this.slotRepository = slotRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.maxSlots = maxSlots;
+	}
+
+	@Override
+	public void run(String... args) {
+		accountRepository.findByBalanceSlotsIsNotNull()
+				.forEach(a -> shardedAccounts.put(a.getAccountNumber(), a.getId()));
+	}
+
+	public boolean isSharded(String accountNumber) {
+		return shardedAccounts.containsKey(accountNumber);
+	}
+
+	// Split the balance of an account over the given number of slots
+	@Transactional
+	public Account enable(Long accountId, int slots) {
+		if (slots < 2 || slots > maxSlots) {
+			throw new RuntimeException("Number of slots must be between 2 and " + maxSlots);
+		}
+
+		Account account = accountRepository.findByIdForUpdate(accountId)
+				.orElseThrow(() -> new RuntimeException("Account not found"));
+		if (account.getBalanceSlots() != null) {
+			throw new RuntimeException("Account balance is already sharded");
+		}
+
+		List<AccountBalanceSlot> created = new ArrayList<>(slots);
+		for (int i = 0; i < slots; i++) {
+			created.add(AccountBalanceSlot.builder()
+					.accountId(account.getId())
+					.slot(i)
+					.build());
+		}
+		spread(created, account.getBalance());
+		slotRepository.saveAll(created);
+
+		account.setBalanceSlots(slots);
+		shardedAccounts.put(account.getAccountNumber(), account.getId());
+		return accountRepository.save(account);
+	}
+
+	// Current balance: the sum of the slots for a sharded account
+	public Money balanceOf(Account account) {
+		if (account.getBalanceSlots() == null) {
+			return account.getBalance();
+		}
+		return total(account);
+	}
+
+	// Add to one random slot and return the new total balance
+	@Transactional
+	public Money credit(Account account, Money amount) {
+		AccountBalanceSlot slot = slotRepository.lockFreeSlot(account.getId())
+				.or(() -> slotRepository.findSlotForUpdate(account.getId(),
+						ThreadLocalRandom.current()
+								.nextInt(account.getBalanceSlots())))
+				.orElseThrow(() -> new RuntimeException("Account balance slots not found"));
+
+		slot.setBalance(slot.getBalance()
+				.plus(amount));
+		return total(account);
+	}
+
+	// Take from one random slot that covers the amount, or from all slots when
+	// none does on its own. Returns the new total balance.
+	@Transactional
+	public Money debit(Account account, Money amount) {
+		AccountBalanceSlot covering = slotRepository
+				.lockFreeSlotCovering(account.getId(), amount.toBigDecimal())
+				.orElse(null);
+		if (covering != null) {
+			covering.setBalance(covering.getBalance()
+					.minus(amount));
+			return total(account);
+		}
+
+		List<AccountBalanceSlot> slots = slotRepository.findAllSlotsForUpdate(account.getId());
+		if (sum(slots).isLessThan(amount)) {
+			throw new RuntimeException("Insufficient balance");
+		}
+
+		Money remaining = amount;
+		for (AccountBalanceSlot slot : slots) {
+			Money taken = slot.getBalance()
+					.min(remaining);
+			slot.setBalance(slot.getBalance()
+					.minus(taken));
+			remaining = remaining.minus(taken);
+			if (remaining.isZero()) {
+				break;
+			}
+		}
+		return total(account);
+	}
+
+	// Refill drained slots of every sharded account
+	@Scheduled(fixedDelayString = "${pocketbank.balance-slots.rebalance-interval-ms:5000}")
+	public void rebalanceAll() {
+		for (Long accountId : shardedAccounts.values()) {
+			try {
+				transactionTemplate.executeWithoutResult(status -> rebalance(accountId));
+			} catch (RuntimeException e) {
+				log.warn("Could not rebalance account {}: {}", accountId, e.getMessage());
+			}
+		}
+	}
+
+	// Spread the balance evenly when a slot has dropped below half its share, and
+	// store the total on the account row for reports
+	void rebalance(Long accountId) {
+		List<AccountBalanceSlot> slots = slotRepository.findAllSlotsForUpdate(accountId);
+		if (slots.isEmpty()) {
+			return;
+		}
+		Money total = sum(slots);
+		long halfShare = total.paise() / (slots.size() * 2L);
+
+		boolean drained = slots.stream()
+				.anyMatch(s -> s.getBalance()
+						.paise() < halfShare);
+		if (drained) {
+			spread(slots, total);
+		}
+		accountRepository.updateBalance(accountId, total);
+	}
+
+	private Money total(Account account) {
+		// the query flushes our own slot first, other writers show their committed value
+		return Money.of(slotRepository.sumBalance(account.getId()));
+	}
+
+	private static Money sum(List<AccountBalanceSlot> slots) {
+		Money total = Money.ZERO;
+		for (AccountBalanceSlot slot : slots) {
+			total = total.plus(slot.getBalance());
+		}
+		return total;
+	}
+
+	// Even split in paise, the remainder goes to slot 0
+	private static void spread(List<AccountBalanceSlot> slots, Money total) {
+		Money share = Money.ofPaise(total.paise() / slots.size());
+		Money remainder = Money.ofPaise(total.paise() % slots.size());
+		for (AccountBalanceSlot slot : slots) {
+			slot.setBalance(slot.getSlot() == 0 ? share.plus(remainder) : share);
+		}
+	}
+}
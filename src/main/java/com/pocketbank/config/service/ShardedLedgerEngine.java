@@ -0,0 +1,352 @@
+package com.pocketbank.config.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Single-writer ledger. Every operation is routed by account number to one of N
+ * LedgerShard workers, which apply it in memory and group-commit the postings.
+ * Transfers use a two-phase hand-off: the destination shard prepares (validates
+ * the account), the source shard debits, and once the debit has committed the
+ * destination shard credits. A credit that fails after its debit committed is
+ * refunded to the source account with a compensating TRANSFER_IN, which is
+ * flushed and journaled like any other posting before the caller is told.
+ *
+ * Enabled with pocketbank.ledger.sharded=true. Postings commit in the shard's
+ * own transaction, not in the caller's. A caller that gives up waiting gets an
+ * OutcomeUnknownException carrying the pending outcome, since the posting may
+ * still commit.
+ */
+@Component
+@ConditionalOnProperty(name = "pocketbank.ledger.sharded", havingValue = "true")
+public class ShardedLedgerEngine {
+
+	private final LedgerShard[] shards;
+	private final Thread[] workers;
+	private final long timeoutMillis;
+
+	public ShardedLedgerEngine(AccountRepository accountRepository,
+			TransactionRepository transactionRepository,
+			PlatformTransactionManager transactionManager,
+			LedgerJournal ledgerJournal,
+			AggregateCounterService aggregateCounterService,
+			RollupService rollupService,
+			ApplicationEventPublisher eventPublisher,
+			@Value("${pocketbank.ledger.shards:4}") int shardCount,
+			@Value("${pocketbank.ledger.ring-size:4096}") int ringSize,
+			@Value("${pocketbank.ledger.batch-size:256}") int batchSize,
+			@Value("${pocketbank.ledger.hot-accounts:100000}") int hotAccounts,
+			@Value("${pocketbank.ledger.timeout-ms:5000}") long timeoutMillis) {
+
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		this.shards = new LedgerShard[shardCount];
+		this.workers = new Thread[shardCount];
+		this.timeoutMillis = timeoutMillis;
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new LedgerShard(ringSize, batchSize, hotAccounts, accountRepository,
+					transactionRepository, transactionTemplate, ledgerJournal, aggregateCounterService,
+					rollupService, eventPublisher);
+			workers[i] = new Thread(shards[i], "ledger-shard-" + i);
+		}
+	}
+
+	@PostConstruct
+	public void start() {
+		for (Thread worker : workers) {
+			worker.start();
+		}
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		for (LedgerShard shard : shards) {
+			shard.stop();
+		}
+		for (Thread worker : workers) {
+			worker.join(timeoutMillis);
+		}
+	}
+
+	// Deposit money
+	public Transaction deposit(String accountNumber, BigDecimal amount, String description) {
+		Money value = positive(amount);
+
+		CompletableFuture<Transaction> result = new CompletableFuture<>();
+		LedgerShard shard = shardFor(accountNumber);
+		shard.submit(result, () -> {
+			Account account = activeAccount(shard, accountNumber, "Account not found",
+					"Account is not active");
+
+			account.setBalance(account.getBalance()
+					.plus(value));
+			shard.post(account,
+					Transaction.builder()
+							.type(TransactionType.DEPOSIT)
+							.amount(value)
+							.balanceAfter(account.getBalance())
+							.description(description != null ? description : "Deposit")
+							.account(account)
+							.build(),
+					result);
+		});
+		return await(result);
+	}
+
+	// withdraw money
+	public Transaction withdraw(String accountNumber, BigDecimal amount, String description) {
+		Money value = positive(amount);
+
+		CompletableFuture<Transaction> result = new CompletableFuture<>();
+		LedgerShard shard = shardFor(accountNumber);
+		shard.submit(result, () -> {
+			Account account = activeAccount(shard, accountNumber, "Account not found",
+					"Account is not active.");
+			requireFunds(account, value);
+
+			account.setBalance(account.getBalance()
+					.minus(value));
+			shard.post(account,
+					Transaction.builder()
+							.type(TransactionType.WITHDRAWAL)
+							.amount(value)
+							.balanceAfter(account.getBalance())
+							.description(description != null ? description : "Withdrawal")
+							.account(account)
+							.build(),
+					result);
+		});
+		return await(result);
+	}
+
+	// Transfer money between accounts
+	public Transaction transfer(String fromAccountNumber,
+			String toAccountNumber,
+			BigDecimal amount,
+			String description) {
+
+		Money value = positive(amount);
+		// a mistyped recipient fails its check digit, no need to look it up
+		if (!AccountNumberGenerator.isValid(toAccountNumber)) {
+			throw new RuntimeException("Invalid destination account number.");
+		}
+		if (fromAccountNumber.equals(toAccountNumber)) {
+			throw new RuntimeException("Cannot transfer to the same account.");
+		}
+
+		LedgerShard source = shardFor(fromAccountNumber);
+		LedgerShard destination = shardFor(toAccountNumber);
+		CompletableFuture<Transaction> debitLeg = new CompletableFuture<>();
+		CompletableFuture<Transaction> creditLeg = new CompletableFuture<>();
+		CompletableFuture<Transaction> refund = new CompletableFuture<>();
+
+		// a failed leg fails the other one, so the caller is never left waiting
+		debitLeg.whenComplete((t, e) -> {
+			if (e != null) {
+				creditLeg.completeExceptionally(e);
+			}
+		});
+		creditLeg.whenComplete((t, e) -> {
+			if (e != null) {
+				debitLeg.completeExceptionally(e);
+			}
+		});
+
+		// phase 1: destination shard checks the account can be credited
+		destination.submit(creditLeg, () -> {
+			activeAccount(destination, toAccountNumber, "Destination account not found.",
+					"Account is not active");
+
+			// phase 2: source shard debits, then hands the credit back
+			source.handOff(debitLeg, () -> {
+				Account fromAccount = activeAccount(source, fromAccountNumber,
+						"Source account not found.", "Account is not active");
+				requireFunds(fromAccount, value);
+
+				fromAccount.setBalance(fromAccount.getBalance()
+						.minus(value));
+				source.post(fromAccount,
+						Transaction.builder()
+								.type(TransactionType.TRANSFER_OUT)
+								.amount(value)
+								.balanceAfter(fromAccount.getBalance())
+								.recipientAccountNumber(toAccountNumber)
+								.description(description != null ? description
+										: "Transfer to " + toAccountNumber)
+								.account(fromAccount)
+								.build(),
+						debitLeg);
+
+				// the credit is only handed over once the debit has committed
+				debitLeg.thenRun(() -> destination.handOff(creditLeg, () -> {
+					Account toAccount = destination.account(toAccountNumber);
+					if (toAccount == null) {
+						throw new RuntimeException("Destination account not found.");
+					}
+
+					toAccount.setBalance(toAccount.getBalance()
+							.plus(value));
+					destination.post(toAccount,
+							Transaction.builder()
+									.type(TransactionType.TRANSFER_IN)
+									.amount(value)
+									.balanceAfter(toAccount.getBalance())
+									.recipientAccountNumber(fromAccountNumber)
+									.description(description != null ? description
+											: "Transfer from " + fromAccountNumber)
+									.account(toAccount)
+									.build(),
+							creditLeg);
+				}));
+			});
+		});
+
+		// a credit failing after the debit committed gives the money back
+		creditLeg.whenComplete((t, e) -> {
+			if (e != null && debitLeg.isDone() && !debitLeg.isCompletedExceptionally()) {
+				source.handOff(refund, () -> refund(source, fromAccountNumber, toAccountNumber,
+						value, refund));
+			} else {
+				refund.complete(null);
+			}
+		});
+
+		// waits for the refund too, but reports the failure of the debit or credit
+		return await(CompletableFuture.allOf(debitLeg, creditLeg, refund)
+				.thenApply(done -> debitLeg.join()));
+	}
+
+	// Run a posting that writes the account through the database, e.g. a transfer
+	// with a sharded-balance account, on the account's shard
+	public <T> T onShard(String accountNumber, Supplier<T> posting) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		LedgerShard shard = shardFor(accountNumber);
+		shard.submit(result, () -> result.complete(shard.exclusive(accountNumber, posting)));
+		return await(result);
+	}
+
+	// keep the hot copy of the account in step with admin approvals/suspensions
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onAccountStatusChanged(AccountStatusChangedEvent event) {
+		LedgerShard shard = shardFor(event.accountNumber());
+		shard.handOff(new CompletableFuture<>(),
+				() -> shard.statusChanged(event.accountNumber(), event.status()));
+	}
+
+	LedgerShard shardFor(String accountNumber) {
+		int h = accountNumber.hashCode();
+		h ^= (h >>> 16);
+		return shards[Math.floorMod(h, shards.length)];
+	}
+
+	// Credit the source account back. Source shard thread only.
+	private static void refund(LedgerShard source,
+			String fromAccountNumber,
+			String toAccountNumber,
+			Money value,
+			CompletableFuture<Transaction> result) {
+		Account fromAccount = source.account(fromAccountNumber);
+		if (fromAccount == null) {
+			throw new RuntimeException("Source account not found.");
+		}
+
+		fromAccount.setBalance(fromAccount.getBalance()
+				.plus(value));
+		source.post(fromAccount,
+				Transaction.builder()
+						.type(TransactionType.TRANSFER_IN)
+						.amount(value)
+						.balanceAfter(fromAccount.getBalance())
+						.recipientAccountNumber(toAccountNumber)
+						.description("Refund of failed transfer to " + toAccountNumber)
+						.account(fromAccount)
+						.build(),
+				result);
+	}
+
+	private static Account activeAccount(LedgerShard shard,
+			String accountNumber,
+			String notFound,
+			String notActive) {
+		Account account = shard.account(accountNumber);
+		if (account == null) {
+			throw new RuntimeException(notFound);
+		}
+		if (account.getStatus() != AccountStatus.APPROVED) {
+			throw new RuntimeException(notActive);
+		}
+		return account;
+	}
+
+	private static Money positive(BigDecimal amount) {
+		Money money = Money.of(amount);
+		if (!money.isPositive()) {
+			throw new RuntimeException("Amount must be posetive");
+		}
+		return money;
+	}
+
+	private static void requireFunds(Account account, Money amount) {
+		if (account.getBalance()
+				.isLessThan(amount)) {
+			throw new RuntimeException("Insufficient balance");
+		}
+	}
+
+	private <T> T await(CompletableFuture<T> result) {
+		try {
+			return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (TimeoutException e) {
+			throw new OutcomeUnknownException(result);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+			throw new RuntimeException("Interrupted while waiting for the ledger");
+		}
+	}
+
+	/**
+	 * The ledger did not answer in time; the posting may still commit or fail
+	 * later, which completes the outcome.
+	 */
+	public static class OutcomeUnknownException extends RuntimeException {
+
+		private final transient CompletableFuture<?> outcome;
+
+		public OutcomeUnknownException(CompletableFuture<?> outcome) {
+			super("Ledger did not respond in time, the posting may still complete");
+			this.outcome = outcome;
+		}
+
+		public CompletableFuture<?> outcome() {
+			return outcome;
+		}
+	}
+}
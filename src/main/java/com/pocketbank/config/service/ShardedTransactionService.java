@@ -0,0 +1,100 @@
+package com.pocketbank.config.service;
+
+import java.math.BigDecimal;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/**
+ * TransactionService that sends deposits, withdrawals and transfers through the
+ * ShardedLedgerEngine. Reads are inherited unchanged, so controllers and the
+ * loan/FD services keep working against the same API. Accounts in sharded
+ * balance mode keep their balance in slot rows, so they stay on the database
+ * path; a transfer between one of them and a ledger account runs on the ledger
+ * account's shard, so the shard's copy of it does not go stale.
+ *
+ * Postings commit on their own, so they cannot be made inside a caller's
+ * transaction: a rollback there would not take the money back.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "pocketbank.ledger.sharded", havingValue = "true")
+public class ShardedTransactionService extends TransactionService {
+
+	private final ShardedLedgerEngine ledgerEngine;
+	private final ShardedBalanceService shardedBalanceService;
+	private final TransactionTemplate transactionTemplate;
+
+	public ShardedTransactionService(TransactionRepository transactionRepository,
+			AccountRepository accountRepository,
+			AccountLockManager accountLockManager,
+			LedgerJournal ledgerJournal,
+			ShardedBalanceService shardedBalanceService,
+			RecentActivityCache recentActivityCache,
+			AggregateCounterService aggregateCounterService,
+			RollupService rollupService,
+			AccountDescriptorCache accountDescriptorCache,
+			ApplicationEventPublisher eventPublisher,
+			ShardedLedgerEngine ledgerEngine,
+			PlatformTransactionManager transactionManager) {
+		super(transactionRepository, accountRepository, accountLockManager, ledgerJournal,
+				shardedBalanceService, recentActivityCache, aggregateCounterService, rollupService,
+				accountDescriptorCache, eventPublisher);
+		this.ledgerEngine = ledgerEngine;
+		this.shardedBalanceService = shardedBalanceService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.NEVER)
+	public Transaction deposit(String accountNumber, BigDecimal amount, String description) {
+		if (shardedBalanceService.isSharded(accountNumber)) {
+			return transactionTemplate
+					.execute(status -> super.deposit(accountNumber, amount, description));
+		}
+		return ledgerEngine.deposit(accountNumber, amount, description);
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.NEVER)
+	public Transaction withdraw(String accountNumber, BigDecimal amount, String description) {
+		if (shardedBalanceService.isSharded(accountNumber)) {
+			return transactionTemplate
+					.execute(status -> super.withdraw(accountNumber, amount, description));
+		}
+		return ledgerEngine.withdraw(accountNumber, amount, description);
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.NEVER)
+	public Transaction transfer(String fromAccountNumber,
+			String toAccountNumber,
+			BigDecimal amount,
+			String description) {
+		if (!AccountNumberGenerator.isValid(toAccountNumber)) {
+			throw new RuntimeException("Invalid destination account number.");
+		}
+		boolean fromSharded = shardedBalanceService.isSharded(fromAccountNumber);
+		boolean toSharded = shardedBalanceService.isSharded(toAccountNumber);
+		if (fromSharded && toSharded) {
+			return transactionTemplate.execute(status -> super.transfer(fromAccountNumber,
+					toAccountNumber, amount, description));
+		}
+		if (fromSharded || toSharded) {
+			return ledgerEngine.onShard(fromSharded ? toAccountNumber : fromAccountNumber,
+					() -> transactionTemplate.execute(status -> super.transfer(fromAccountNumber,
+							toAccountNumber, amount, description)));
+		}
+		return ledgerEngine.transfer(fromAccountNumber, toAccountNumber, amount, description);
+	}
+}
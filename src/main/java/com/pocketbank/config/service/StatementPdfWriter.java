@@ -0,0 +1,181 @@
+package com.pocketbank.config.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.pocketbank.entity.Transaction;
+
+/**
+ * Minimal PDF 1.4 writer for statements: A4 pages of Courier text, written to
+ * the output as soon as a page is full. Only the byte offset of each object is
+ * kept until the end, for the cross-reference table.
+ *
+ * Object layout: 1 catalog, 2 page tree (written last), 3 font, then a content
+ * stream and a page object for every page.
+ */
+class StatementPdfWriter {
+
+	private static final int ROWS_PER_PAGE = 60;
+	private static final int FIRST_PAGE_OBJECT = 4;
+
+	private final CountingOutputStream out;
+	private final String title;
+	private final StringBuilder page = new StringBuilder(8192);
+
+	private long[] offsets = new long[1024];
+	private int objects = 0;
+	private int pages = 0;
+	private int rowsOnPage = 0;
+
+	StatementPdfWriter(OutputStream out, String title) throws IOException {
+		this.out = new CountingOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		this.title = title;
+
+		// binary marker so transfer tools keep the file as binary
+		write("%PDF-1.4\n%âãÏÓ\n");
+		startObject(1);
+		write("<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+		startObject(3);
+		write("<< /Type /Font /Subtype /Type1 /BaseFont /Courier "
+				+ "/Encoding /WinAnsiEncoding >>\nendobj\n");
+	}
+
+	void addRow(Transaction txn) throws IOException {
+		if (rowsOnPage == ROWS_PER_PAGE) {
+			flushPage();
+		}
+		if (rowsOnPage == 0) {
+			startPage();
+		}
+		line(String.format("%-19s %-12s %13s %13s %-28s %s",
+				StatementService.DATE_FORMAT.format(txn.getTransactionDate()),
+				txn.getType(),
+				txn.getAmount(),
+				txn.getBalanceAfter(),
+				truncate(txn.getDescription(), 28),
+				txn.getRecipientAccountNumber() != null ? txn.getRecipientAccountNumber() : "-"));
+		rowsOnPage++;
+	}
+
+	// Write the last page, the page tree, the cross-reference table and the trailer
+	void finish() throws IOException {
+		if (pages == 0 || rowsOnPage > 0) {
+			if (rowsOnPage == 0) {
+				startPage();
+				line("No transactions");
+			}
+			flushPage();
+		}
+
+		startObject(2);
+		write("<< /Type /Pages /Count " + pages + " /Kids [");
+		for (int i = 0; i < pages; i++) {
+			write((FIRST_PAGE_OBJECT + i * 2 + 1) + " 0 R ");
+		}
+		write("] >>\nendobj\n");
+
+		long xref = out.count;
+		write("xref\n0 " + (objects + 1) + "\n0000000000 65535 f \n");
+		for (int i = 1; i <= objects; i++) {
+			write(String.format("%010d 00000 n \n", offsets[i]));
+		}
+		write("trailer\n<< /Size " + (objects + 1) + " /Root 1 0 R >>\nstartxref\n" + xref
+				+ "\n%%EOF\n");
+		out.flush();
+	}
+
+	private void startPage() {
+		page.setLength(0);
+		page.append("BT\n/F1 7 Tf\n9 TL\n40 800 Td\n");
+		line(title);
+		line("");
+		line(String.format("%-19s %-12s %13s %13s %-28s %s", "Date & Time", "Type", "Amount",
+				"Balance After", "Description", "Recipient/Sender"));
+		line("");
+	}
+
+	private void flushPage() throws IOException {
+		page.append("0 -18 Td\n");
+		line("Page " + (pages + 1));
+		page.append("ET\n");
+		byte[] content = page.toString()
+				.getBytes(StandardCharsets.ISO_8859_1);
+
+		int contentObject = FIRST_PAGE_OBJECT + pages * 2;
+		startObject(contentObject);
+		write("<< /Length " + content.length + " >>\nstream\n");
+		out.write(content);
+		write("\nendstream\nendobj\n");
+
+		startObject(contentObject + 1);
+		write("<< /Type /Page /Parent 2 0 R /MediaBox [0 0 595 842] "
+				+ "/Resources << /Font << /F1 3 0 R >> >> /Contents " + contentObject
+				+ " 0 R >>\nendobj\n");
+
+		pages++;
+		rowsOnPage = 0;
+	}
+
+	private void line(String text) {
+		page.append('(');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '(' || c == ')' || c == '\\') {
+				page.append('\\');
+			}
+			// the standard Courier font only covers Latin-1
+			page.append(c < 0x20 || c > 0xff ? '?' : c);
+		}
+		page.append(") '\n");
+	}
+
+	private void startObject(int number) throws IOException {
+		if (number >= offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[number] = out.count;
+		objects = Math.max(objects, number);
+		write(number + " 0 obj\n");
+	}
+
+	private void write(String text) throws IOException {
+		out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private static String truncate(String value, int length) {
+		if (value == null) {
+			return "";
+		}
+		return value.length() <= length ? value : value.substring(0, length - 3) + "...";
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+
+		private final OutputStream delegate;
+		private long count;
+
+		CountingOutputStream(OutputStream delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			delegate.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			delegate.write(b, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			delegate.flush();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.pocketbank.config.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Full account statements as CSV or PDF. Postings are read through a JDBC
+ * streaming result set and written to the output one at a time, and each
+ * posting is detached once written, so memory stays flat no matter how long
+ * the history is.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatementService {
+
+	static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+	private final TransactionRepository transactionRepository;
+	private final EntityManager entityManager;
+
+	// Statement as CSV, oldest posting first
+	@Transactional(readOnly = true)
+	public void writeCsv(Account account, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write("Date,Type,Amount,Balance After,Description,Recipient/Sender\r\n");
+
+		forEachPosting(account, txn -> {
+			try {
+				writer.write(DATE_FORMAT.format(txn.getTransactionDate()));
+				writer.write(',');
+				writer.write(txn.getType()
+						.name());
+				writer.write(',');
+				writer.write(txn.getAmount()
+						.toString());
+				writer.write(',');
+				writer.write(txn.getBalanceAfter()
+						.toString());
+				writer.write(',');
+				writer.write(csv(txn.getDescription()));
+				writer.write(',');
+				writer.write(csv(txn.getRecipientAccountNumber()));
+				writer.write("\r\n");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		writer.flush();
+	}
+
+	// Statement as PDF, oldest posting first
+	@Transactional(readOnly = true)
+	public void writePdf(Account account, OutputStream out) throws IOException {
+		StatementPdfWriter pdf = new StatementPdfWriter(out,
+				"Statement for account " + account.getAccountNumber() + " (" + account
+						.getAccountType() + ")");
+		forEachPosting(account, txn -> {
+			try {
+				pdf.addRow(txn);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		pdf.finish();
+	}
+
+	private void forEachPosting(Account account, Consumer<Transaction> action) throws IOException {
+		try (Stream<Transaction> postings = transactionRepository
+				.streamByAccountId(account.getId())) {
+			postings.forEach(txn -> {
+				action.accept(txn);
+				// nothing may pile up in the persistence context
+				entityManager.detach(txn);
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// Quote a field when it contains a separator, quote or line break
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+				&& value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+}
@@ -1,12 +1,19 @@
 package com.pocketbank.config.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.pocketbank.config.service.AccountDescriptorCache.AccountDescriptor;
 import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
 import com.pocketbank.entity.Transaction;
 import com.pocketbank.entity.enums.AccountStatus;
 import com.pocketbank.entity.enums.TransactionType;
@@ -19,149 +26,284 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class TransactionService {
 
+	private static final int HISTORY_PAGE_SIZE = 25;
+
 	private final TransactionRepository transactionRepository;
 	private final AccountRepository accountRepository;
-
-	// Get recent transactions for an account
+	private final AccountLockManager accountLockManager;
+	private final LedgerJournal ledgerJournal;
+	private final ShardedBalanceService shardedBalanceService;
+	private final RecentActivityCache recentActivityCache;
+	private final AggregateCounterService aggregateCounterService;
+	private final RollupService rollupService;
+	private final AccountDescriptorCache accountDescriptorCache;
+	private final ApplicationEventPublisher eventPublisher;
+
+	// Get recent transactions for an account, served from the recent-activity cache
 	public List<Transaction> getRecentTransactions(Long accountId) {
-		return transactionRepository.findTop10ByAccountIdOrderByTransactionDateDesc(accountId);
+		return recentActivityCache.recent(accountId);
 	}
 
-	// Get transaction history for an account
-	public List<Transaction> getAccountTransactions(Long accountId) {
-		return transactionRepository.findByAccountIdOrderByTransactionDateDesc(accountId);
+	// Get one page of transaction history for an account, newest first. Pass the
+	// next cursor as after to go to older postings, the previous cursor as before
+	// to go back to newer ones, or neither for the newest page.
+	public HistoryPage getAccountTransactions(Long accountId, String after, String before) {
+		Limit limit = Limit.of(HISTORY_PAGE_SIZE + 1);
+
+		if (before != null && !before.isBlank()) {
+			Cursor cursor = Cursor.parse(before);
+			List<Transaction> newer = new ArrayList<>(transactionRepository
+					.findNewerThan(accountId, cursor.transactionDate(), cursor.id(), limit));
+			boolean moreNewer = newer.size() > HISTORY_PAGE_SIZE;
+			if (moreNewer) {
+				newer.remove(HISTORY_PAGE_SIZE);
+			}
+			Collections.reverse(newer);
+			return HistoryPage.of(newer, true, moreNewer);
+		}
+
+		boolean paged = after != null && !after.isBlank();
+		List<Transaction> older;
+		if (paged) {
+			Cursor cursor = Cursor.parse(after);
+			older = new ArrayList<>(transactionRepository.findOlderThan(accountId,
+					cursor.transactionDate(), cursor.id(), limit));
+		} else {
+			older = new ArrayList<>(transactionRepository
+					.findByAccountIdOrderByTransactionDateDescIdDesc(accountId, limit));
+		}
+		boolean moreOlder = older.size() > HISTORY_PAGE_SIZE;
+		if (moreOlder) {
+			older.remove(HISTORY_PAGE_SIZE);
+		}
+		return HistoryPage.of(older, moreOlder, paged);
 	}
 
 	// Deposit money
 	@Transactional
 	public Transaction deposit(String accountNumber, BigDecimal amount, String description) {
-		if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-			throw new RuntimeException("Amount must be posetive");
+		Money value = positive(amount);
+		AccountDescriptor descriptor = activeDescriptor(accountNumber, "Account not found",
+				"Account is not active");
+
+		// hot account: one balance slot is locked instead of the account row
+		Account hotAccount = findShardedAccount(accountNumber, descriptor);
+		if (hotAccount != null) {
+			return postDeposit(hotAccount, value, description);
 		}
 
-		Account account = accountRepository.findByAccountNumber(accountNumber)
-				.orElseThrow(() -> new RuntimeException("Account not found"));
+		try (AccountLockManager.Lease lease = accountLockManager.lock(accountNumber)) {
+			Account account = lockAccount(descriptor, "Account not found");
+			return postDeposit(account, value, description);
+		}
+	}
 
+	// withdraw money
+	@Transactional
+	public Transaction withdraw(String accountNumber, BigDecimal amount, String description) {
+
+		Money value = positive(amount);
+		AccountDescriptor descriptor = activeDescriptor(accountNumber, "Account not found",
+				"Account is not active.");
+
+		Account hotAccount = findShardedAccount(accountNumber, descriptor);
+		if (hotAccount != null) {
+			return postWithdrawal(hotAccount, value, description);
+		}
+
+		try (AccountLockManager.Lease lease = accountLockManager.lock(accountNumber)) {
+			Account account = lockAccount(descriptor, "Account not found");
+			return postWithdrawal(account, value, description);
+		}
+	}
+
+	private Transaction postDeposit(Account account, Money amount, String description) {
 		if (account.getStatus() != AccountStatus.APPROVED) {
 			throw new RuntimeException("Account is not active");
 		}
 
 		// update balance
-		account.setBalance(account.getBalance()
-				.add(amount));
-		accountRepository.save(account);
+		Money balance = credit(account, amount);
 
 		// create transaction record
 		Transaction transaction = Transaction.builder()
 				.type(TransactionType.DEPOSIT)
 				.amount(amount)
-				.balanceAfter(account.getBalance())
+				.balanceAfter(balance)
 				.description(description != null ? description : "Deposit")
 				.account(account)
 				.build();
 
-		return transactionRepository.save(transaction);
+		Transaction saved = transactionRepository.save(transaction);
+		record(List.of(saved));
+		return saved;
 	}
 
-	// withdraw money
-	@Transactional
-	public Transaction withdraw(String accountNumber, BigDecimal amount, String description) {
-
-		if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-			throw new RuntimeException("Amount must be posetive");
-		}
-
-		Account account = accountRepository.findByAccountNumber(accountNumber)
-				.orElseThrow(() -> new RuntimeException("Account not found"));
-
+	private Transaction postWithdrawal(Account account, Money amount, String description) {
 		if (account.getStatus() != AccountStatus.APPROVED) {
 			throw new RuntimeException("Account is not active.");
 		}
 
-		if (account.getBalance()
-				.compareTo(amount) < 0) {
-			throw new RuntimeException("Insufficient balance");
-		}
-
 		// update balance
-		account.setBalance(account.getBalance()
-				.subtract(amount));
-		accountRepository.save(account);
+		Money balance = debit(account, amount);
 
 		// create transaction record
 		Transaction transaction = Transaction.builder()
 				.type(TransactionType.WITHDRAWAL)
 				.amount(amount)
-				.balanceAfter(account.getBalance())
+				.balanceAfter(balance)
 				.description(description != null ? description : "Withdrawal")
 				.account(account)
 				.build();
 
-		return transactionRepository.save(transaction);
+		Transaction saved = transactionRepository.save(transaction);
+		record(List.of(saved));
+		return saved;
 	}
 
-	// Transfer money between accounts
+	// Transfer money between accounts, returns the debit posting
 	@Transactional
-	public void transfer(String fromAccountNumber,
+	public Transaction transfer(String fromAccountNumber,
 			String toAccountNumber,
 			BigDecimal amount,
 			String description) {
 
-		if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-			throw new RuntimeException("Amount must be posetive");
+		Money value = positive(amount);
+		// a mistyped recipient fails its check digit, no need to look it up
+		if (!AccountNumberGenerator.isValid(toAccountNumber)) {
+			throw new RuntimeException("Invalid destination account number.");
 		}
 
 		if (fromAccountNumber.equals(toAccountNumber)) {
 			throw new RuntimeException("Cannot transfer to the same account.");
 		}
 
-		Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
-				.orElseThrow(() -> new RuntimeException("Source account not found."));
+		AccountDescriptor source = activeDescriptor(fromAccountNumber,
+				"Source account not found.", "Account is not active");
+		AccountDescriptor destination = activeDescriptor(toAccountNumber,
+				"Destination account not found.", "Account is not active");
+
+		// lock both accounts, rows are always locked in account number order
+		try (AccountLockManager.Lease lease = accountLockManager
+				.lock(fromAccountNumber, toAccountNumber)) {
+			Account fromAccount;
+			Account toAccount;
+			if (fromAccountNumber.compareTo(toAccountNumber) < 0) {
+				fromAccount = lockAccount(source, "Source account not found.");
+				toAccount = lockAccount(destination, "Destination account not found.");
+			} else {
+				toAccount = lockAccount(destination, "Destination account not found.");
+				fromAccount = lockAccount(source, "Source account not found.");
+			}
+
+			if (fromAccount.getStatus() != AccountStatus.APPROVED
+					|| toAccount.getStatus() != AccountStatus.APPROVED) {
+
+				throw new RuntimeException("Account is not active");
+			}
+
+			// Debit from source account
+			Money fromBalance = debit(fromAccount, value);
+
+			Transaction debitTxn = Transaction.builder()
+					.type(TransactionType.TRANSFER_OUT)
+					.amount(value)
+					.balanceAfter(fromBalance)
+					.recipientAccountNumber(toAccountNumber)
+					.description(
+							description != null ? description : "Transfer to " + toAccountNumber)
+					.account(fromAccount)
+					.build();
+
+			// credit to destination account
+			Money toBalance = credit(toAccount, value);
+
+			Transaction creditTxn = Transaction.builder()
+					.type(TransactionType.TRANSFER_IN)
+					.amount(value)
+					.balanceAfter(toBalance)
+					.recipientAccountNumber(fromAccountNumber)
+					.description(
+							description != null ? description : "Transfer from " + fromAccountNumber)
+					.account(toAccount)
+					.build();
+
+			// both legs go to the database in one JDBC batch
+			record(transactionRepository.saveAll(List.of(debitTxn, creditTxn)));
+			return debitTxn;
+		}
+	}
 
-		Account toAccount = accountRepository.findByAccountNumber(toAccountNumber)
-				.orElseThrow(() -> new RuntimeException("Destination account not found."));
+	// journal the postings and count them in the bank totals and rollups; the
+	// dashboards and profiles pick them up once they commit
+	private void record(List<Transaction> postings) {
+		postings.forEach(ledgerJournal::record);
+		aggregateCounterService.recordPostings(postings);
+		rollupService.recordPostings(postings);
+		eventPublisher.publishEvent(new PostingsCommitted(postings));
+	}
 
-		if (fromAccount.getStatus() != AccountStatus.APPROVED
-				|| toAccount.getStatus() != AccountStatus.APPROVED) {
+	// account in sharded balance mode, or null when the row has to be locked
+	private Account findShardedAccount(String accountNumber, AccountDescriptor descriptor) {
+		if (!shardedBalanceService.isSharded(accountNumber)) {
+			return null;
+		}
+		Account account = accountRepository.findById(descriptor.id())
+				.orElseThrow(() -> new RuntimeException("Account not found"));
+		return account.getBalanceSlots() != null ? account : null;
+	}
 
-			throw new RuntimeException("Account is not active");
+	// add to the balance and return the new balance
+	private Money credit(Account account, Money amount) {
+		if (account.getBalanceSlots() != null) {
+			return shardedBalanceService.credit(account, amount);
 		}
+		account.setBalance(account.getBalance()
+				.plus(amount));
+		accountRepository.save(account);
+		return account.getBalance();
+	}
 
-		if (fromAccount.getBalance()
-				.compareTo(amount) < 0) {
+	// take from the balance and return the new balance
+	private Money debit(Account account, Money amount) {
+		if (account.getBalanceSlots() != null) {
+			return shardedBalanceService.debit(account, amount);
+		}
+		if (account.getBalance()
+				.isLessThan(amount)) {
 			throw new RuntimeException("Insufficient balance");
 		}
+		account.setBalance(account.getBalance()
+				.minus(amount));
+		accountRepository.save(account);
+		return account.getBalance();
+	}
 
-		// Debit from source account
-		fromAccount.setBalance(fromAccount.getBalance()
-				.subtract(amount));
-		accountRepository.save(fromAccount);
-
-		Transaction debitTxn = Transaction.builder()
-				.type(TransactionType.TRANSFER_OUT)
-				.amount(amount)
-				.balanceAfter(fromAccount.getBalance())
-				.recipientAccountNumber(toAccountNumber)
-				.description(description != null ? description : "Transfer to " + toAccountNumber)
-				.account(fromAccount)
-				.build();
-		transactionRepository.save(debitTxn);
+	// amount in paise, zero and negative amounts are rejected
+	private static Money positive(BigDecimal amount) {
+		Money money = Money.of(amount);
+		if (!money.isPositive()) {
+			throw new RuntimeException("Amount must be posetive");
+		}
+		return money;
+	}
 
-		// credit to destination account
-		toAccount.setBalance(toAccount.getBalance()
-				.add(amount));
-		accountRepository.save(toAccount);
+	// unknown and inactive accounts are turned away before anything is locked; the
+	// status is checked again on the locked row
+	private AccountDescriptor activeDescriptor(String accountNumber, String notFound,
+			String inactive) {
+		AccountDescriptor descriptor = accountDescriptorCache.find(accountNumber)
+				.orElseThrow(() -> new RuntimeException(notFound));
+		if (!descriptor.isActive()) {
+			throw new RuntimeException(inactive);
+		}
+		return descriptor;
+	}
 
-		Transaction creditTxn = Transaction.builder()
-				.type(TransactionType.TRANSFER_IN)
-				.amount(amount)
-				.balanceAfter(toAccount.getBalance())
-				.recipientAccountNumber(fromAccountNumber)
-				.description(
-						description != null ? description : "Transfer from " + fromAccountNumber)
-				.account(toAccount)
-				.build();
-		transactionRepository.save(creditTxn);
+	// lock the row by primary key, the account number is already resolved
+	private Account lockAccount(AccountDescriptor descriptor, String notFound) {
+		return accountRepository.findByIdForUpdate(descriptor.id())
+				.orElseThrow(() -> new RuntimeException(notFound));
 	}
 
 	public Long countTransactions() {
@@ -182,4 +324,48 @@ public class TransactionService {
 		return transactionRepository.getTotalWithdrawals();
 	}
 
+
+	/**
+	 * Position in an account's history: the (transactionDate, id) of the last
+	 * posting shown, written as "2025-01-31T10:15:30.123_42" in links
+	 */
+	public record Cursor(LocalDateTime transactionDate, Long id) {
+
+		static Cursor of(Transaction transaction) {
+			return new Cursor(transaction.getTransactionDate(), transaction.getId());
+		}
+
+		static Cursor parse(String value) {
+			int separator = value.lastIndexOf('_');
+			try {
+				return new Cursor(LocalDateTime.parse(value.substring(0, separator)),
+						Long.valueOf(value.substring(separator + 1)));
+			} catch (RuntimeException e) {
+				throw new RuntimeException("Invalid page cursor");
+			}
+		}
+
+		@Override
+		public String toString() {
+			return transactionDate + "_" + id;
+		}
+	}
+
+	/**
+	 * One page of history with cursors to the older (next) and newer (previous)
+	 * pages; a cursor is null when there is no such page
+	 */
+	public record HistoryPage(List<Transaction> transactions, String next, String previous) {
+
+		static HistoryPage of(List<Transaction> transactions, boolean hasOlder, boolean hasNewer) {
+			if (transactions.isEmpty()) {
+				return new HistoryPage(transactions, null, null);
+			}
+			return new HistoryPage(transactions,
+					hasOlder ? Cursor.of(transactions.get(transactions.size() - 1))
+							.toString() : null,
+					hasNewer ? Cursor.of(transactions.get(0))
+							.toString() : null);
+		}
+	}
 }
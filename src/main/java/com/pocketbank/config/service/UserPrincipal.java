@@ -0,0 +1,122 @@
+package com.pocketbank.config.service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.pocketbank.entity.User;
+import com.pocketbank.entity.enums.Role;
+
+/**
+ * The signed-in user as kept in the session: id, role, name and the ids of the
+ * accounts they own, loaded once at login. Controllers take it with
+ * {@code @AuthenticationPrincipal} instead of looking the user up by name on
+ * every request, and check account ownership against it.
+ *
+ * Opening an account or editing the profile updates the principal of the
+ * session that did it. An account opened from another session is not on it
+ * yet, so an ownership miss has to be confirmed against the database.
+ */
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long userId;
+	private final String username;
+	private final Role role;
+	private final boolean enabled;
+	private String password;
+
+	// replaced whole, never changed in place
+	private volatile String fullName;
+	private volatile Set<Long> accountIds;
+
+	public UserPrincipal(User user, Collection<Long> accountIds) {
+		this.userId = user.getId();
+		this.username = user.getUsername();
+		this.password = user.getPassword();
+		this.role = user.getRole();
+		this.enabled = Boolean.TRUE.equals(user.getEnabled());
+		this.fullName = user.getFullName();
+		this.accountIds = Set.copyOf(accountIds);
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public Role getRole() {
+		return role;
+	}
+
+	public String getFullName() {
+		return fullName;
+	}
+
+	public boolean owns(Long accountId) {
+		return accountIds.contains(accountId);
+	}
+
+	// Invalidation hooks, called by the session that made the change
+	public synchronized void accountOpened(Long accountId) {
+		Set<Long> ids = new HashSet<>(accountIds);
+		ids.add(accountId);
+		accountIds = Set.copyOf(ids);
+	}
+
+	public void profileUpdated(User user) {
+		fullName = user.getFullName();
+	}
+
+	// the stored hash was upgraded at login
+	void passwordChanged(String encodedPassword) {
+		password = encodedPassword;
+	}
+
+	@Override
+	public Collection<? extends GrantedAuthority> getAuthorities() {
+		return List.of(new SimpleGrantedAuthority(role.name()));
+	}
+
+	@Override
+	public String getPassword() {
+		return password;
+	}
+
+	@Override
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void eraseCredentials() {
+		password = null;
+	}
+
+	// same user, same principal, like Spring's own User
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof UserPrincipal principal && username.equals(principal.username);
+	}
+
+	@Override
+	public int hashCode() {
+		return username.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "UserPrincipal[" + username + ", " + role + "]";
+	}
+}
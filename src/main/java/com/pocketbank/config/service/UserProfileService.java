@@ -0,0 +1,288 @@
+package com.pocketbank.config.service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.User;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.entity.enums.FdStatus;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.entity.enums.Role;
+import com.pocketbank.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A user's whole financial profile for the admin user page: the user row, then
+ * accounts, loans and fixed deposits together in one UNION ALL, folded into
+ * immutable records with the totals worked out here.
+ *
+ * Profiles are kept in a bounded LRU map per user. Anything that changes one
+ * (postings, account, loan and deposit changes, profile edits) evicts it after
+ * commit; a profile built while an eviction for it went by is returned but not
+ * kept.
+ */
+@Service
+public class UserProfileService {
+
+	private final UserRepository userRepository;
+
+	// guarded by itself, like accountOwners
+	private final Map<Long, Entry> profiles;
+	private final Map<Long, Long> accountOwners = new HashMap<>();
+
+	private final Counter hits;
+	private final Counter misses;
+
+	public UserProfileService(UserRepository userRepository,
+			MeterRegistry meterRegistry,
+			@Value("${pocketbank.user-profiles.max-users:10000}") int maxUsers) {
+		this.userRepository = userRepository;
+		this.profiles = new LinkedHashMap<>(256, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+				if (size() > maxUsers) {
+					forgetAccounts(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+
+		this.hits = lookups(meterRegistry, "hit");
+		this.misses = lookups(meterRegistry, "miss");
+		Gauge.builder("pocketbank.user-profiles.users", this, UserProfileService::size)
+				.register(meterRegistry);
+	}
+
+	public UserProfile profile(Long userId) {
+		Entry entry;
+		synchronized (profiles) {
+			entry = profiles.get(userId);
+			if (entry != null && entry.profile != null) {
+				hits.increment();
+				return entry.profile;
+			}
+			// an eviction removes this marker, which tells us not to keep what we build
+			entry = new Entry();
+			profiles.put(userId, entry);
+		}
+
+		misses.increment();
+		UserProfile profile;
+		try {
+			profile = load(userId);
+		} catch (RuntimeException e) {
+			synchronized (profiles) {
+				profiles.remove(userId, entry);
+			}
+			throw e;
+		}
+		synchronized (profiles) {
+			if (profiles.get(userId) == entry) {
+				entry.profile = profile;
+				profile.accounts()
+						.forEach(account -> accountOwners.put(account.id(), userId));
+			}
+		}
+		return profile;
+	}
+
+	// Balances moved: evict the owners of the posted accounts once the postings commit
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPostingsCommitted(PostingsCommitted event) {
+		synchronized (profiles) {
+			for (Transaction posting : event.postings()) {
+				Account account = posting.getAccount();
+				Long owner = account.getUser() != null ? account.getUser()
+						.getId() : accountOwners.get(account.getId());
+				if (owner != null) {
+					evict(owner);
+				}
+			}
+		}
+	}
+
+	// Something else about the user changed
+	public void invalidate(Long userId) {
+		afterCommit(() -> {
+			synchronized (profiles) {
+				evict(userId);
+			}
+		});
+	}
+
+	public int size() {
+		synchronized (profiles) {
+			return profiles.size();
+		}
+	}
+
+	private UserProfile load(Long userId) {
+		User user = userRepository.findById(userId)
+				.orElseThrow(() -> new RuntimeException("User not found"));
+
+		List<AccountView> accounts = new ArrayList<>();
+		List<LoanView> loans = new ArrayList<>();
+		List<FixedDepositView> fixedDeposits = new ArrayList<>();
+		Money totalBalance = Money.ZERO;
+		BigDecimal outstandingLoans = BigDecimal.ZERO;
+		BigDecimal fdMaturityValue = BigDecimal.ZERO;
+
+		for (Object[] row : userRepository.findHoldingRows(userId)) {
+			long id = ((Number) row[1]).longValue();
+			switch ((String) row[0]) {
+			case "ACCOUNT" -> {
+				AccountView account = new AccountView(id, (String) row[2],
+						AccountType.valueOf((String) row[3]), AccountStatus.valueOf((String) row[4]),
+						Money.of((BigDecimal) row[5]), dateTime(row[9]));
+				totalBalance = totalBalance.plus(account.balance());
+				accounts.add(account);
+			}
+			case "LOAN" -> {
+				LoanView loan = new LoanView(id, (String) row[2], LoanStatus.valueOf((String) row[4]),
+						(BigDecimal) row[5], (BigDecimal) row[6], ((Number) row[7]).intValue(),
+						((Number) row[8]).doubleValue(), dateTime(row[9]), dateTime(row[10]));
+				// no repayments are tracked yet, so a paid-out loan is owed in full
+				if (loan.status() == LoanStatus.APPROVED || loan.status() == LoanStatus.DISBURSED) {
+					outstandingLoans = outstandingLoans.add(loan.loanAmount());
+				}
+				loans.add(loan);
+			}
+			case "FIXED_DEPOSIT" -> {
+				FixedDepositView fd = new FixedDepositView(id, FdStatus.valueOf((String) row[4]),
+						(BigDecimal) row[5], (BigDecimal) row[6], ((Number) row[7]).intValue(),
+						((Number) row[8]).doubleValue(), dateTime(row[9]), dateTime(row[10]));
+				if (fd.status() == FdStatus.ACTIVE) {
+					fdMaturityValue = fdMaturityValue.add(fd.maturityAmount());
+				}
+				fixedDeposits.add(fd);
+			}
+			default -> throw new RuntimeException("Unknown holding " + row[0]);
+			}
+		}
+
+		return new UserProfile(new UserView(user.getId(), user.getUsername(), user.getFullName(),
+				user.getEmail(), user.getPhoneNumber(), user.getAddress(), user.getRole(),
+				user.getEnabled(), user.getCreatedAt()), List.copyOf(accounts), List.copyOf(loans),
+				List.copyOf(fixedDeposits), totalBalance, outstandingLoans, fdMaturityValue);
+	}
+
+	// caller holds the profiles monitor
+	private void evict(Long userId) {
+		Entry entry = profiles.remove(userId);
+		if (entry != null) {
+			forgetAccounts(entry);
+		}
+	}
+
+	private void forgetAccounts(Entry entry) {
+		if (entry.profile != null) {
+			entry.profile.accounts()
+					.forEach(account -> accountOwners.remove(account.id()));
+		}
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronization() {
+						@Override
+						public void afterCommit() {
+							change.run();
+						}
+					});
+		} else {
+			change.run();
+		}
+	}
+
+	private static LocalDateTime dateTime(Object value) {
+		return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime()
+				: (LocalDateTime) value;
+	}
+
+	private static Counter lookups(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("pocketbank.user-profiles.lookups")
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	// A cached profile, or a marker for one being built. Guarded by the profiles monitor.
+	private static class Entry {
+
+		private UserProfile profile;
+	}
+
+	/**
+	 * Everything the admin user page shows, with server-side totals: balance over
+	 * all accounts, principal of approved and disbursed loans, and the maturity
+	 * value of active fixed deposits
+	 */
+	public record UserProfile(UserView user,
+			List<AccountView> accounts,
+			List<LoanView> loans,
+			List<FixedDepositView> fixedDeposits,
+			Money totalBalance,
+			BigDecimal outstandingLoans,
+			BigDecimal fdMaturityValue) {
+	}
+
+	public record UserView(Long id,
+			String username,
+			String fullName,
+			String email,
+			String phoneNumber,
+			String address,
+			Role role,
+			Boolean enabled,
+			LocalDateTime createdAt) {
+	}
+
+	public record AccountView(Long id,
+			String accountNumber,
+			AccountType accountType,
+			AccountStatus status,
+			Money balance,
+			LocalDateTime createdAt) {
+	}
+
+	public record LoanView(Long id,
+			String purpose,
+			LoanStatus status,
+			BigDecimal loanAmount,
+			BigDecimal monthlyEmi,
+			int tenureMonths,
+			double interestRate,
+			LocalDateTime appliedAt,
+			LocalDateTime approvedAt) {
+	}
+
+	public record FixedDepositView(Long id,
+			FdStatus status,
+			BigDecimal principalAmount,
+			BigDecimal maturityAmount,
+			int tenureMonths,
+			double interestRate,
+			LocalDateTime startDate,
+			LocalDateTime maturityDate) {
+	}
+}
@@ -1,8 +1,12 @@
 package com.pocketbank.config.service;
 
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -11,30 +15,51 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.Role;
+import com.pocketbank.repository.AccountRepository;
 import com.pocketbank.repository.UserRepository;
 
 import lombok.RequiredArgsConstructor;
 
 @Service
 @RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
+
+	// sort keys of the admin customer listing
+	private static final Map<String, String> SORT_KEYS = Map.of("createdAt", "createdAt",
+			"fullName", "fullName", "username", "username");
 
 	private final UserRepository userRepository;
+	private final AccountRepository accountRepository;
 	private final PasswordEncoder passwordEncoder;
+	private final AggregateCounterService aggregateCounterService;
+	private final UserProfileService userProfileService;
+	private final RegistrationBloomFilter registrationBloomFilter;
 
-	// Register new user
+	// Register new user; names the filter rules out skip their lookup, and the
+	// unique constraints catch the rest
 	@Transactional
 	public User registerUser(User user) {
-		if (userRepository.existsByUsername(user.getUsername())) {
+		if (registrationBloomFilter.mightHaveUsername(user.getUsername())
+				&& userRepository.existsByUsername(user.getUsername())) {
 			throw new RuntimeException("Username already exists");
 		}
-		if (userRepository.existsByEmail(user.getEmail())) {
+		if (registrationBloomFilter.mightHaveEmail(user.getEmail())
+				&& userRepository.existsByEmail(user.getEmail())) {
 			throw new RuntimeException("Email already exists");
 		}
 		user.setPassword(passwordEncoder.encode(user.getPassword()));
 		user.setRole(Role.CUSTOMER);
 		user.setEnabled(true);
-		return userRepository.save(user);
+		registrationBloomFilter.add(user.getUsername(), user.getEmail());
+		aggregateCounterService.customerRegistered();
+		try {
+			User saved = userRepository.save(user);
+			// flushed here so a taken name fails in this method, not at commit
+			userRepository.flush();
+			return saved;
+		} catch (DataIntegrityViolationException e) {
+			throw new RuntimeException("Username or email already exists");
+		}
 	}
 
 	// Find user by username
@@ -54,9 +79,11 @@ public class UserService implements UserDetailsService {
 		return userRepository.findAll();
 	}
 
-	// Get all customers
-	public List<User> getAllCustomers() {
-		return userRepository.findByRole(Role.CUSTOMER);
+	// One page of customers, optionally searched by username, name or email
+	public Page<User> getCustomersPage(String search, int page, int size, String sort,
+			String direction) {
+		return userRepository.findAdminPage(Role.CUSTOMER, AdminListing.searchPattern(search),
+				AdminListing.pageRequest(page, size, sort, direction, SORT_KEYS, "createdAt"));
 	}
 
 	// Update user profile
@@ -67,6 +94,8 @@ public class UserService implements UserDetailsService {
 		user.setEmail(updatedUser.getEmail());
 		user.setPhoneNumber(updatedUser.getPhoneNumber());
 		user.setAddress(updatedUser.getAddress());
+		userProfileService.invalidate(userId);
+		registrationBloomFilter.add(null, user.getEmail());
 		return userRepository.save(user);
 	}
 
@@ -78,17 +107,22 @@ public class UserService implements UserDetailsService {
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-		var user = findByUsername(username);
+		User user = userRepository.findByUsername(username)
+				.orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-		if (user == null) {
-			throw new UsernameNotFoundException("User not found: " + username);
-		}
+		// the principal carries what controllers used to look up on every request
+		return new UserPrincipal(user, accountRepository.findIdsByUserId(user.getId()));
+	}
 
-		return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
-				.password(user.getPassword())
-				.disabled(!user.getEnabled())
-				.authorities(user.getRole()
-						.name())
-				.build();
+	// Called on login when the stored hash was made with a lower BCrypt cost than the
+	// current one; newPassword is already hashed at the current cost
+	@Override
+	@Transactional
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		userRepository.updatePassword(user.getUsername(), newPassword);
+		if (user instanceof UserPrincipal principal) {
+			principal.passwordChanged(newPassword);
+		}
+		return user;
 	}
 }
@@ -1,8 +1,13 @@
 package com.pocketbank.controller;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,12 +15,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.pocketbank.config.service.AccountService;
+import com.pocketbank.config.service.AdminListing;
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.DashboardBroadcaster;
+import com.pocketbank.config.service.DashboardService;
 import com.pocketbank.config.service.FixedDepositService;
 import com.pocketbank.config.service.LoanService;
+import com.pocketbank.config.service.RollupService;
+import com.pocketbank.config.service.ShardedBalanceService;
 import com.pocketbank.config.service.TransactionService;
+import com.pocketbank.config.service.UserProfileService;
 import com.pocketbank.config.service.UserService;
 import com.pocketbank.entity.Account;
 import com.pocketbank.entity.FixedDeposit;
@@ -23,6 +36,8 @@ import com.pocketbank.entity.Loan;
 import com.pocketbank.entity.Transaction;
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.FdStatus;
+import com.pocketbank.entity.enums.LoanStatus;
 
 import lombok.RequiredArgsConstructor;
 
@@ -36,25 +51,33 @@ public class AdminController {
 	private final TransactionService transactionService;
 	private final LoanService loanService;
 	private final FixedDepositService fdService;
+	private final ShardedBalanceService shardedBalanceService;
+	private final AggregateCounterService aggregateCounterService;
+	private final DashboardService dashboardService;
+	private final DashboardBroadcaster dashboardBroadcaster;
+	private final RollupService rollupService;
+	private final UserProfileService userProfileService;
 
 	// Admin Dashboard
 	@GetMapping("/dashboard")
 	public String dashboard(Model model) {
 
-		// statics
-		Long totalCustomers = userService.countCustomers();
-		Long totalAccounts = accountService.countAccounts();
-		Long totalTransactions = transactionService.countTransactions();
-		BigDecimal totalBalance = accountService.getTotalBalance();
+		// all reads run in parallel; slow ones come back stale
+		DashboardService.Dashboard dashboard = dashboardService.load();
 
-		// Recent data
-		List<Transaction> recentTransaction = transactionService.getAllRecentTransactions();
-		List<Account> pendingAccounts = accountService.getPendingAccounts();
-		List<Loan> pendingLoans = loanService.getPendingLoans();
+		// statics, from the running aggregate counters
+		AggregateCounterService.Totals totals = dashboard.totals();
+		Long totalCustomers = totals.customers();
+		Long totalAccounts = totals.accounts();
+		Long totalTransactions = totals.transactions();
+		BigDecimal totalBalance = totals.balance()
+				.toBigDecimal();
 
 		// Financial summary
-		BigDecimal totalDeposits = transactionService.getTotalDeposits();
-		BigDecimal totalWithdrawals = transactionService.getTotalWithdrawals();
+		BigDecimal totalDeposits = totals.deposits()
+				.toBigDecimal();
+		BigDecimal totalWithdrawals = totals.withdrawals()
+				.toBigDecimal();
 
 		model.addAttribute("totalCustomers", totalCustomers);
 		model.addAttribute("totalAccounts", totalAccounts);
@@ -62,42 +85,65 @@ public class AdminController {
 		model.addAttribute("totalBalance", totalBalance);
 		model.addAttribute("totalDeposits", totalDeposits);
 		model.addAttribute("totalWithdrawals", totalWithdrawals);
-		model.addAttribute("recentTransaction", recentTransaction);
-		model.addAttribute("pendingAccounts", pendingAccounts);
-		model.addAttribute("pendingLoans", pendingLoans);
+		model.addAttribute("recentTransactions", dashboard.recentTransactions());
+		model.addAttribute("pendingAccounts", dashboard.pendingAccounts());
+		model.addAttribute("pendingLoans", dashboard.pendingLoans());
+		model.addAttribute("stale", dashboard.stale());
 
 		return null;
 	}
 
+	// Live dashboard: small deltas pushed after each commit
+	@GetMapping(path = "/dashboard/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter liveDashboard() {
+		return dashboardBroadcaster.subscribe();
+	}
+
 	// User Management
 	@GetMapping("/users")
-	public String users(Model model) {
-
-		List<User> customers = userService.getAllCustomers();
-		model.addAttribute("users", customers);
+	public String users(@RequestParam(required = false) String q,
+			@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "" + AdminListing.DEFAULT_PAGE_SIZE) int size,
+			@RequestParam(defaultValue = "createdAt") String sort,
+			@RequestParam(defaultValue = "desc") String dir,
+			Model model) {
+
+		Page<User> customers = userService.getCustomersPage(q, page, size, sort, dir);
+		model.addAttribute("users", customers.getContent());
+		addListing(model, customers, null, q, sort, dir);
 		return "admin/users";
 	}
 
 	@GetMapping("/users/{id}")
 	public String userDetails(@PathVariable Long id, Model model) {
-		User user = userService.findById(id);
-		List<Account> accounts = accountService.getUserAccounts(id);
-		List<Loan> loans = loanService.getUserLoans(id);
-		List<FixedDeposit> fds = fdService.getUserFixedDeposits(id);
-
-		model.addAttribute("user", user);
-		model.addAttribute("accounts", accounts);
-		model.addAttribute("loans", loans);
-		model.addAttribute("fixedDeposits", fds);
+		// user, accounts, loans and deposits in two queries, or none when cached
+		UserProfileService.UserProfile profile = userProfileService.profile(id);
+
+		model.addAttribute("user", profile.user());
+		model.addAttribute("accounts", profile.accounts());
+		model.addAttribute("loans", profile.loans());
+		model.addAttribute("fixedDeposits", profile.fixedDeposits());
+		model.addAttribute("totalBalance", profile.totalBalance()
+				.toBigDecimal());
+		model.addAttribute("outstandingLoans", profile.outstandingLoans());
+		model.addAttribute("fdMaturityValue", profile.fdMaturityValue());
 
 		return "admin/user-details";
 	}
 
 	// Account Management
 	@GetMapping("/accounts")
-	public String accounts(Model model) {
-		List<Account> accounts = accountService.getAllAccounts();
-		model.addAttribute("accounts", accounts);
+	public String accounts(@RequestParam(required = false) AccountStatus status,
+			@RequestParam(required = false) String q,
+			@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "" + AdminListing.DEFAULT_PAGE_SIZE) int size,
+			@RequestParam(defaultValue = "createdAt") String sort,
+			@RequestParam(defaultValue = "desc") String dir,
+			Model model) {
+		Page<Account> accounts = accountService.getAccountsPage(status, q, page, size, sort, dir);
+		model.addAttribute("accounts", accounts.getContent());
+		model.addAttribute("statuses", AccountStatus.values());
+		addListing(model, accounts, status, q, sort, dir);
 		return "admin/accounts";
 	}
 
@@ -132,6 +178,22 @@ public class AdminController {
 		return null;
 	}
 
+	// Split the balance of a hot account (treasury, disbursement pool) into slots
+	@PostMapping("/accounts/{id}/balance-slots")
+	public String shardAccountBalance(@PathVariable Long id,
+			@RequestParam int slots,
+			RedirectAttributes redirectAttributes) {
+
+		try {
+			shardedBalanceService.enable(id, slots);
+			redirectAttributes.addFlashAttribute("success",
+					"Account balance split into " + slots + " slots");
+		} catch (Exception e) {
+			redirectAttributes.addFlashAttribute("error", e.getMessage());
+		}
+		return "redirect:/admin/accounts";
+	}
+
 	// Transaction Management
 	@GetMapping("/transactions")
 	public String transactions(Model model) {
@@ -142,12 +204,20 @@ public class AdminController {
 
 	// Loan Management
 	@GetMapping("/loans")
-	public String loans(Model model) {
-		List<Loan> allLoans = loanService.getAllLoans();
+	public String loans(@RequestParam(required = false) LoanStatus status,
+			@RequestParam(required = false) String q,
+			@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "" + AdminListing.DEFAULT_PAGE_SIZE) int size,
+			@RequestParam(defaultValue = "appliedAt") String sort,
+			@RequestParam(defaultValue = "desc") String dir,
+			Model model) {
+		Page<Loan> allLoans = loanService.getLoansPage(status, q, page, size, sort, dir);
 		List<Loan> pendingLoans = loanService.getPendingLoans();
 
-		model.addAttribute("loans", allLoans);
+		model.addAttribute("loans", allLoans.getContent());
 		model.addAttribute("pendingLoans", pendingLoans);
+		model.addAttribute("statuses", LoanStatus.values());
+		addListing(model, allLoans, status, q, sort, dir);
 		return "admin/loans";
 	}
 
@@ -172,6 +242,15 @@ public class AdminController {
 		return "admin/loan-details";
 	}
 
+	@GetMapping("/loans/{id}/schedule")
+	public String loanSchedule(@PathVariable Long id, Model model) {
+		Loan loan = loanService.findById(id);
+		model.addAttribute("loan", loan);
+		model.addAttribute("schedule", loanService.getSchedule(loan));
+		model.addAttribute("backUrl", "/admin/loans");
+		return "loan-schedule";
+	}
+
 	@PostMapping("/loans/{id}/approve")
 	public String approveLoan(@PathVariable Long id,
 			@RequestParam String accountNumber,
@@ -201,24 +280,39 @@ public class AdminController {
 
 	// Fixed deposits management
 	@GetMapping("/fixed-deposits")
-	public String fixedDeposits(Model model) {
-		List<FixedDeposit> fds = fdService.getAllFixedDeposits();
-		model.addAttribute("fixedDeposits", fds);
+	public String fixedDeposits(@RequestParam(required = false) FdStatus status,
+			@RequestParam(required = false) String q,
+			@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "" + AdminListing.DEFAULT_PAGE_SIZE) int size,
+			@RequestParam(defaultValue = "startDate") String sort,
+			@RequestParam(defaultValue = "desc") String dir,
+			Model model) {
+		Page<FixedDeposit> fds = fdService.getFixedDepositsPage(status, q, page, size, sort, dir);
+		model.addAttribute("fixedDeposits", fds.getContent());
+		model.addAttribute("statuses", FdStatus.values());
+		addListing(model, fds, status, q, sort, dir);
 		return "admin/fixed-deposits";
 	}
 
 	// Reports
 	@GetMapping("/reports")
-	public String reports(Model model) {
-		// Financial summary
-		BigDecimal totalDeposits = transactionService.getTotalDeposits();
-		BigDecimal totalWithdrawals = transactionService.getTotalWithdrawals();
-		BigDecimal totalBalance = accountService.getTotalBalance();
+	public String reports(
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			Model model) {
+		// Financial summary, from the running aggregate counters
+		AggregateCounterService.Totals totals = aggregateCounterService.totals();
+		BigDecimal totalDeposits = totals.deposits()
+				.toBigDecimal();
+		BigDecimal totalWithdrawals = totals.withdrawals()
+				.toBigDecimal();
+		BigDecimal totalBalance = totals.balance()
+				.toBigDecimal();
 
 		// Counts
-		Long totalCustomers = userService.countCustomers();
-		Long totalAccounts = accountService.countAccounts();
-		Long totalTransactions = transactionService.countTransactions();
+		Long totalCustomers = totals.customers();
+		Long totalAccounts = totals.accounts();
+		Long totalTransactions = totals.transactions();
 
 		model.addAttribute("totalDeposits", totalDeposits);
 		model.addAttribute("totalWithdrawals", totalWithdrawals);
@@ -227,6 +321,44 @@ public class AdminController {
 		model.addAttribute("totalAccounts", totalAccounts);
 		model.addAttribute("totalTransactions", totalTransactions);
 
+		// Date range, from the daily and monthly rollups
+		if (from != null && to != null) {
+			try {
+				model.addAttribute("rangeReport", rollupService.range(from, to));
+			} catch (Exception e) {
+				model.addAttribute("error", e.getMessage());
+			}
+		}
+		model.addAttribute("from", from);
+		model.addAttribute("to", to);
+
 		return "admin/reports";
 	}
+
+	@PostMapping("/reports/rollups/backfill")
+	public String backfillRollups(@RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+			RedirectAttributes redirectAttributes) {
+
+		try {
+			RollupService.BackfillReport report = rollupService.backfill(from, to);
+			redirectAttributes.addFlashAttribute("success", "Rollups rebuilt for " + report.days()
+					+ " days, " + report.corrected() + " day rows corrected");
+		} catch (Exception e) {
+			redirectAttributes.addFlashAttribute("error", e.getMessage());
+		}
+		redirectAttributes.addAttribute("from", from);
+		redirectAttributes.addAttribute("to", to);
+		return "redirect:/admin/reports";
+	}
+
+	// Paging and filter state the listing templates and their pager links need
+	private void addListing(Model model, Page<?> page, Enum<?> status, String q, String sort,
+			String dir) {
+		model.addAttribute("page", page);
+		model.addAttribute("status", status);
+		model.addAttribute("q", q);
+		model.addAttribute("sort", sort);
+		model.addAttribute("dir", dir);
+	}
 }
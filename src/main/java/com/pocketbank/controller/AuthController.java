@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.pocketbank.config.service.PasswordHashingService;
 import com.pocketbank.config.service.UserService;
 import com.pocketbank.entity.User;
 
@@ -54,6 +55,8 @@ public class AuthController {
 			userService.registerUser(user);
 			redirectAttributes.addFlashAttribute("success", "Registeratio successful! please login.");
 			return "redirect:/login";
+		} catch (PasswordHashingService.BusyException e) {
+			throw e; // 503, see the exception
 		} catch (Exception e) {
 			redirectAttributes.addFlashAttribute("error", e.getMessage());
 			return "redirect:/register";
@@ -1,23 +1,37 @@
 package com.pocketbank.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.UUID;
 
-import org.springframework.security.core.Authentication;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.pocketbank.config.service.AccountService;
+import com.pocketbank.config.service.BatchTransferService;
 import com.pocketbank.config.service.FixedDepositService;
+import com.pocketbank.config.service.IdempotencyService;
 import com.pocketbank.config.service.LoanService;
+import com.pocketbank.config.service.StatementService;
 import com.pocketbank.config.service.TransactionService;
+import com.pocketbank.config.service.UserPrincipal;
 import com.pocketbank.config.service.UserService;
 import com.pocketbank.entity.Account;
 import com.pocketbank.entity.FixedDeposit;
@@ -39,14 +53,16 @@ public class CustomerController {
 	private final TransactionService transactionService;
 	private final LoanService loanService;
 	private final FixedDepositService fdService;
+	private final BatchTransferService batchTransferService;
+	private final IdempotencyService idempotencyService;
+	private final StatementService statementService;
 
 	// Customer Dashboard
 	@GetMapping("/dashboard")
-	public String dashboard(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
-		List<Account> accounts = accountService.getUserAccounts(user.getId());
+	public String dashboard(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<Account> accounts = accountService.getUserAccounts(principal.getUserId());
 
-		model.addAttribute("user", user);
+		model.addAttribute("user", principal);
 		model.addAttribute("accounts", accounts);
 
 		// Get recent transactions for first account if exists
@@ -61,19 +77,18 @@ public class CustomerController {
 
 	// profile management
 	@GetMapping("/profile")
-	public String profile(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
+	public String profile(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		User user = userService.findById(principal.getUserId());
 		model.addAttribute("user", user);
 		return "customer/profile";
 	}
 
 	@PostMapping("/profile/update")
 	public String updateProfile(@ModelAttribute User updatedUser,
-			Authentication auth,
+			@AuthenticationPrincipal UserPrincipal principal,
 			RedirectAttributes redirectAttributes) {
 		try {
-			User user = userService.findByUsername(auth.getName());
-			userService.updateProfile(user.getId(), updatedUser);
+			principal.profileUpdated(userService.updateProfile(principal.getUserId(), updatedUser));
 			redirectAttributes.addFlashAttribute("success", "Profile updated successfully");
 
 		} catch (Exception e) {
@@ -85,21 +100,20 @@ public class CustomerController {
 
 	// Account Management
 	@GetMapping("/accounts")
-	public String accounts(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
-		List<Account> accounts = accountService.getUserAccounts(user.getId());
+	public String accounts(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<Account> accounts = accountService.getUserAccounts(principal.getUserId());
 		model.addAttribute("accounts", accounts);
 		return "customer/accounts";
 	}
 
 	@PostMapping("accounts/create")
 	public String createAccount(@RequestParam AccountType accountType,
-			Authentication auth,
+			@AuthenticationPrincipal UserPrincipal principal,
 			RedirectAttributes redirectAttributes) {
 
 		try {
-			User user = userService.findByUsername(auth.getName());
-			accountService.createAccount(user.getId(), accountType);
+			Account account = accountService.createAccount(principal.getUserId(), accountType);
+			principal.accountOpened(account.getId());
 			redirectAttributes.addAttribute("success",
 					"Account creation request submitted. Awaiting admin approval.");
 		} catch (Exception e) {
@@ -111,34 +125,72 @@ public class CustomerController {
 
 	// Transactions
 	@GetMapping("/accounts/{id}/transactions")
-	public String accountTransactions(@PathVariable Long id, Authentication auth, Model model) {
-
-		Account account = accountService.findById(id);
-		User user = userService.findByUsername(auth.getName());
+	public String accountTransactions(@PathVariable Long id,
+			@RequestParam(required = false) String after,
+			@RequestParam(required = false) String before,
+			@AuthenticationPrincipal UserPrincipal principal,
+			Model model,
+			RedirectAttributes redirectAttributes) {
 
 		// security check: ensure account belongs to user
-		if (!account.getUser()
-				.getId()
-				.equals(user.getId())) {
+		if (!owns(principal, id)) {
 			return "redirect:/customer/dashboard";
 		}
+		Account account = accountService.findById(id);
 
-		List<Transaction> transactions = transactionService.getAccountTransactions(id);
+		TransactionService.HistoryPage page;
+		try {
+			page = transactionService.getAccountTransactions(id, after, before);
+		} catch (RuntimeException e) {
+			// tampered or stale page link: start again from the newest postings
+			redirectAttributes.addFlashAttribute("error", e.getMessage());
+			return "redirect:/customer/accounts/" + id + "/transactions";
+		}
 		model.addAttribute("account", account);
-		model.addAttribute("transactions", transactions);
+		model.addAttribute("transactions", page.transactions());
+		model.addAttribute("nextCursor", page.next());
+		model.addAttribute("previousCursor", page.previous());
 		return "customer/transactions";
 
 	}
 
+	// Statement download, streamed straight to the response
+	@GetMapping("/accounts/{id}/statement")
+	public ResponseEntity<StreamingResponseBody> accountStatement(@PathVariable Long id,
+			@RequestParam(defaultValue = "csv") String format,
+			@AuthenticationPrincipal UserPrincipal principal) {
+
+		// security check: ensure account belongs to user
+		if (!owns(principal, id)) {
+			return ResponseEntity.status(403)
+					.build();
+		}
+		Account account = accountService.findById(id);
+
+		boolean pdf = "pdf".equalsIgnoreCase(format);
+		String fileName = "statement-" + account.getAccountNumber() + (pdf ? ".pdf" : ".csv");
+		StreamingResponseBody body = pdf ? out -> statementService.writePdf(account, out)
+				: out -> statementService.writeCsv(account, out);
+
+		return ResponseEntity.ok()
+				.contentType(pdf ? MediaType.APPLICATION_PDF : new MediaType("text", "csv"))
+				.header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+						.filename(fileName)
+						.build()
+						.toString())
+				.body(body);
+	}
+
 	// Deposit
 	@GetMapping("/deposit")
-	public String depositPage(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
-		List<Account> accounts = accountService.getUserAccounts(user.getId());
+	public String depositPage(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<Account> accounts = accountService.getUserAccounts(principal.getUserId());
 		model.addAttribute("accounts",
 				accounts.stream()
 						.filter(a -> a.getStatus() == AccountStatus.APPROVED)
 						.toList());
+		model.addAttribute("idempotencyKey", UUID.randomUUID()
+				.toString());
 		return "customer/deposit";
 	}
 
@@ -146,11 +198,22 @@ public class CustomerController {
 	public String deposit(@RequestParam String accountNumber,
 			@RequestParam BigDecimal amount,
 			@RequestParam(required = false) String description,
-			Authentication auth,
+			@RequestParam(required = false) String idempotencyKey,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyHeader,
+			@AuthenticationPrincipal UserPrincipal principal,
 			RedirectAttributes redirectAttributes) {
 
+		// security check: money only moves through the customer's own accounts
+		if (!ownsAccountNumber(principal, accountNumber)) {
+			redirectAttributes.addFlashAttribute("error", "Account does not belong to you");
+			return "redirect:/customer/deposit";
+		}
+
 		try {
-			transactionService.deposit(accountNumber, amount, description);
+			idempotencyService.execute(principal.getUsername(),
+					idempotencyHeader != null ? idempotencyHeader : idempotencyKey,
+					"DEPOSIT|" + accountNumber + "|" + amount.toPlainString(),
+					() -> transactionService.deposit(accountNumber, amount, description));
 			redirectAttributes.addFlashAttribute("success",
 					"Deposit of ₹" + amount + " successful");
 		} catch (Exception e) {
@@ -161,13 +224,14 @@ public class CustomerController {
 
 	// withdraw
 	@GetMapping("/withdraw")
-	public String withdrawPage(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
-		List<Account> accounts = accountService.getUserAccounts(user.getId());
+	public String withdrawPage(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<Account> accounts = accountService.getUserAccounts(principal.getUserId());
 		model.addAttribute("accounts",
 				accounts.stream()
 						.filter(a -> a.getStatus() == AccountStatus.APPROVED)
 						.toList());
+		model.addAttribute("idempotencyKey", UUID.randomUUID()
+				.toString());
 		return "customer/withdraw";
 	}
 
@@ -175,11 +239,22 @@ public class CustomerController {
 	public String withdraw(@RequestParam String accountNumber,
 			@RequestParam BigDecimal amount,
 			@RequestParam(required = false) String description,
-			Authentication auth,
+			@RequestParam(required = false) String idempotencyKey,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyHeader,
+			@AuthenticationPrincipal UserPrincipal principal,
 			RedirectAttributes redirectAttributes) {
 
+		// security check: money only moves through the customer's own accounts
+		if (!ownsAccountNumber(principal, accountNumber)) {
+			redirectAttributes.addFlashAttribute("error", "Account does not belong to you");
+			return "redirect:/customer/withdraw";
+		}
+
 		try {
-			transactionService.withdraw(accountNumber, amount, description);
+			idempotencyService.execute(principal.getUsername(),
+					idempotencyHeader != null ? idempotencyHeader : idempotencyKey,
+					"WITHDRAW|" + accountNumber + "|" + amount.toPlainString(),
+					() -> transactionService.withdraw(accountNumber, amount, description));
 			redirectAttributes.addFlashAttribute("success",
 					"Withdrawal of ₹" + amount + " successful");
 		} catch (Exception e) {
@@ -190,24 +265,40 @@ public class CustomerController {
 
 	// Transfer
 	@GetMapping("/transfer")
-	public String transferPage(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
-		List<Account> accounts = accountService.getUserAccounts(user.getId());
+	public String transferPage(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<Account> accounts = accountService.getUserAccounts(principal.getUserId());
 		model.addAttribute("accounts",
 				accounts.stream()
 						.filter(a -> a.getStatus() == AccountStatus.APPROVED)
 						.toList());
+		model.addAttribute("idempotencyKey", UUID.randomUUID()
+				.toString());
 		return "customer/transfer";
 	}
 
+	@PostMapping("/transfer")
 	public String transfer(@RequestParam String fromAccountNumber,
 			@RequestParam String toAccountNumber,
 			@RequestParam BigDecimal amount,
 			@RequestParam(required = false) String description,
+			@RequestParam(required = false) String idempotencyKey,
+			@RequestHeader(name = "Idempotency-Key", required = false) String idempotencyHeader,
+			@AuthenticationPrincipal UserPrincipal principal,
 			RedirectAttributes redirectAttributes) {
 
+		// security check: money only moves through the customer's own accounts
+		if (!ownsAccountNumber(principal, fromAccountNumber)) {
+			redirectAttributes.addFlashAttribute("error", "Account does not belong to you");
+			return "redirect:/customer/transfer";
+		}
+
 		try {
-			transactionService.transfer(fromAccountNumber, toAccountNumber, amount, description);
+			idempotencyService.execute(principal.getUsername(),
+					idempotencyHeader != null ? idempotencyHeader : idempotencyKey,
+					"TRANSFER|" + fromAccountNumber + "|" + toAccountNumber + "|"
+							+ amount.toPlainString(),
+					() -> transactionService.transfer(fromAccountNumber, toAccountNumber, amount,
+							description));
 			redirectAttributes.addFlashAttribute("success",
 					"Transfer of ₹" + amount + " successful");
 		} catch (Exception e) {
@@ -216,25 +307,67 @@ public class CustomerController {
 		return "redirect:/customer/transfer";
 	}
 
+	// Batch transfer from an uploaded CSV (payroll)
+	@GetMapping("/transfer/batch")
+	public String batchTransferPage(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<Account> accounts = accountService.getUserAccounts(principal.getUserId());
+		model.addAttribute("accounts",
+				accounts.stream()
+						.filter(a -> a.getStatus() == AccountStatus.APPROVED)
+						.toList());
+		return "customer/batch-transfer";
+	}
+
+	@PostMapping("/transfer/batch")
+	public String batchTransfer(@RequestParam String fromAccountNumber,
+			@RequestParam MultipartFile file,
+			@AuthenticationPrincipal UserPrincipal principal,
+			Model model) {
+
+		try (InputStream csv = file.getInputStream()) {
+			model.addAttribute("report",
+					batchTransferService.transfer(principal.getUserId(), fromAccountNumber, csv));
+		} catch (IOException | RuntimeException e) {
+			model.addAttribute("error", e.getMessage());
+		}
+		return batchTransferPage(principal, model);
+	}
+
 	// Loans
 	@GetMapping("/loans")
-	public String loans(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
-		List<Loan> loans = loanService.getUserLoans(user.getId());
+	public String loans(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<Loan> loans = loanService.getUserLoans(principal.getUserId());
 		model.addAttribute("loans", loans);
 		return "customer/loans";
 	}
 
+	@GetMapping("/loans/{id}/schedule")
+	public String loanSchedule(@PathVariable Long id,
+			@AuthenticationPrincipal UserPrincipal principal,
+			Model model) {
+		Loan loan = loanService.findById(id);
+
+		// security check: ensure loan belongs to user
+		if (!loan.getUser()
+				.getId()
+				.equals(principal.getUserId())) {
+			return "redirect:/customer/loans";
+		}
+		model.addAttribute("loan", loan);
+		model.addAttribute("schedule", loanService.getSchedule(loan));
+		model.addAttribute("backUrl", "/customer/loans");
+		return "loan-schedule";
+	}
+
 	@PostMapping("/loans/apply")
 	public String applyLoan(@RequestParam BigDecimal loanAmount,
 			@RequestParam Integer tenureMonths,
 			@RequestParam String purpose,
-			Authentication auth,
+			@AuthenticationPrincipal UserPrincipal principal,
 			RedirectAttributes redirectAttributes) {
 
 		try {
-			User user = userService.findByUsername(auth.getName());
-			loanService.applyForLoan(user.getId(), loanAmount, tenureMonths, purpose);
+			loanService.applyForLoan(principal.getUserId(), loanAmount, tenureMonths, purpose);
 			redirectAttributes.addFlashAttribute("success",
 					"Loan application submitted successfully");
 		} catch (Exception e) {
@@ -245,10 +378,9 @@ public class CustomerController {
 
 	// Fixed Deposit
 	@GetMapping("/fixed-deposits")
-	public String fixedDeposit(Authentication auth, Model model) {
-		User user = userService.findByUsername(auth.getName());
-		List<FixedDeposit> fds = fdService.getUserFixedDeposits(user.getId());
-		List<Account> accounts = accountService.getUserAccounts(user.getId());
+	public String fixedDeposit(@AuthenticationPrincipal UserPrincipal principal, Model model) {
+		List<FixedDeposit> fds = fdService.getUserFixedDeposits(principal.getUserId());
+		List<Account> accounts = accountService.getUserAccounts(principal.getUserId());
 
 		model.addAttribute("fixedDeposits", fds);
 		model.addAttribute("accounts",
@@ -262,13 +394,12 @@ public class CustomerController {
 	public String createFd(@RequestParam String accountNumber,
 			@RequestParam BigDecimal principalAmount,
 			@RequestParam Integer tenureMonths,
-			Authentication auth,
+			@AuthenticationPrincipal UserPrincipal principal,
 			RedirectAttributes redirectAttributes) {
 
 		try {
-			User user = userService.findByUsername(auth.getName());
-			fdService
-					.createFixedDeposit(user.getId(), accountNumber, principalAmount, tenureMonths);
+			fdService.createFixedDeposit(principal.getUserId(), accountNumber, principalAmount,
+					tenureMonths);
 			redirectAttributes.addFlashAttribute("success", "Fixed Deposit Created Successfully");
 		} catch (Exception e) {
 			redirectAttributes.addFlashAttribute("error", e.getMessage());
@@ -276,4 +407,22 @@ public class CustomerController {
 
 		return "redirect:/customer/fixed-deposits";
 	}
+
+	private boolean ownsAccountNumber(UserPrincipal principal, String accountNumber) {
+		Long accountId = accountService.findIdByAccountNumber(accountNumber);
+		return accountId != null && owns(principal, accountId);
+	}
+
+	// an account opened from another session since login is not on the principal
+	// yet, so a miss is checked once against the database
+	private boolean owns(UserPrincipal principal, Long accountId) {
+		if (principal.owns(accountId)) {
+			return true;
+		}
+		if (!accountService.isOwnedBy(accountId, principal.getUserId())) {
+			return false;
+		}
+		principal.accountOpened(accountId);
+		return true;
+	}
 }
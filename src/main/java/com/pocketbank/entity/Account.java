@@ -1,6 +1,5 @@
 package com.pocketbank.entity;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,6 +20,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -32,11 +32,13 @@ import lombok.ToString;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Account {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "account_ids")
+	@TableGenerator(name = "account_ids", table = "id_generators", pkColumnName = "sequence_name",
+			valueColumnName = "next_val", pkColumnValue = "accounts", allocationSize = 100)
 	private Long id;
 	
 	@Column(unique = true,nullable = false)
@@ -48,7 +50,7 @@ public class Account {
 	
 	@Column(nullable = false,precision = 15,scale = 2)
 	@Builder.Default
-	private BigDecimal balance=BigDecimal.ZERO;
+	private Money balance=Money.ZERO;
 	
 	@Enumerated(EnumType.STRING)
 	@Column(nullable = false)
@@ -59,6 +61,9 @@ public class Account {
 	@Builder.Default
 	private LocalDateTime createdAt=LocalDateTime.now();
 	
+	//Number of balance slots when the balance is sharded, null for a normal account
+	private Integer balanceSlots;
+	
 	//Many-to-One: Many Accounts belongs to one user
 	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "user_id",nullable = false)
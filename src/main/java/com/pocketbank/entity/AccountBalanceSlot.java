@@ -0,0 +1,42 @@
+package com.pocketbank.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One slice of the balance of an account that runs in sharded balance mode
+@Entity
+@Table(name = "account_balance_slots",
+		uniqueConstraints = @UniqueConstraint(columnNames = { "account_id", "slot" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalanceSlot {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "balance_slot_ids")
+	@TableGenerator(name = "balance_slot_ids", table = "id_generators",
+			pkColumnName = "sequence_name", valueColumnName = "next_val",
+			pkColumnValue = "account_balance_slots", allocationSize = 100)
+	private Long id;
+
+	@Column(name = "account_id", nullable = false)
+	private Long accountId;
+
+	@Column(nullable = false)
+	private Integer slot;
+
+	@Column(nullable = false, precision = 15, scale = 2)
+	@Builder.Default
+	private Money balance = Money.ZERO;
+}
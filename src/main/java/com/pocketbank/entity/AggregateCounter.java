@@ -0,0 +1,48 @@
+package com.pocketbank.entity;
+
+import com.pocketbank.entity.enums.Aggregate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One stripe of a bank-wide running total; the total is the sum of its stripes
+@Entity
+@Table(name = "aggregate_counters",
+		uniqueConstraints = @UniqueConstraint(columnNames = { "name", "stripe" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AggregateCounter {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "aggregate_counter_ids")
+	@TableGenerator(name = "aggregate_counter_ids", table = "id_generators",
+			pkColumnName = "sequence_name", valueColumnName = "next_val",
+			pkColumnValue = "aggregate_counters", allocationSize = 100)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private Aggregate name;
+
+	@Column(nullable = false)
+	private Integer stripe;
+
+	// paise for money aggregates, a plain count otherwise
+	@Column(nullable = false)
+	@Builder.Default
+	private Long total = 0L;
+}
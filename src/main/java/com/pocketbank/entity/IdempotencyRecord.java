@@ -0,0 +1,39 @@
+package com.pocketbank.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Outcome of a money-moving request, stored under the client's idempotency key
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_created_at",
+		columnList = "createdAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+	// username + ":" + client key
+	@Id
+	@Column(length = 120)
+	private String idempotencyKey;
+
+	// operation and parameters, so a reused key with a different request is rejected
+	@Column(nullable = false, length = 255)
+	private String fingerprint;
+
+	// posting returned to the original request
+	private Long transactionId;
+
+	@Column(nullable = false)
+	private LocalDateTime createdAt;
+}
@@ -0,0 +1,58 @@
+package com.pocketbank.entity;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One monthly installment of a loan's repayment schedule
+@Entity
+@Table(name = "loan_installments",
+		uniqueConstraints = @UniqueConstraint(columnNames = { "loan_id", "number" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoanInstallment {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "loan_installment_ids")
+	@TableGenerator(name = "loan_installment_ids", table = "id_generators",
+			pkColumnName = "sequence_name", valueColumnName = "next_val",
+			pkColumnValue = "loan_installments", allocationSize = 100)
+	private Long id;
+
+	@Column(name = "loan_id", nullable = false)
+	private Long loanId;
+
+	// 1 for the first installment
+	@Column(nullable = false)
+	private Integer number;
+
+	@Column(nullable = false)
+	private LocalDate dueDate;
+
+	// principal plus interest
+	@Column(nullable = false, precision = 15, scale = 2)
+	private Money amount;
+
+	@Column(nullable = false, precision = 15, scale = 2)
+	private Money principal;
+
+	@Column(nullable = false, precision = 15, scale = 2)
+	private Money interest;
+
+	// outstanding principal once this installment is paid
+	@Column(nullable = false, precision = 15, scale = 2)
+	private Money balance;
+}
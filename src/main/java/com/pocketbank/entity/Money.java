@@ -0,0 +1,130 @@
+package com.pocketbank.entity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of rupees held as a long number of paise. Arithmetic is exact and
+ * allocation-light (one small object per result, no BigInteger/BigDecimal
+ * work), and overflow throws ArithmeticException instead of wrapping. Stored
+ * in the existing DECIMAL(15,2) columns through MoneyConverter.
+ *
+ * Extends Number so Thymeleaf's #numbers.formatDecimal keeps working on it.
+ */
+public final class Money extends Number implements Comparable<Money> {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final Money ZERO = new Money(0);
+
+	private final long paise;
+
+	private Money(long paise) {
+		this.paise = paise;
+	}
+
+	public static Money ofPaise(long paise) {
+		return paise == 0 ? ZERO : new Money(paise);
+	}
+
+	// Rupees with at most 2 decimals; more decimals are rounded half up
+	public static Money of(BigDecimal rupees) {
+		// scaleByPowerOfTen keeps the compact long form, so no BigInteger is created
+		return ofPaise(rupees.setScale(2, RoundingMode.HALF_UP)
+				.scaleByPowerOfTen(2)
+				.longValueExact());
+	}
+
+	public static Money of(String rupees) {
+		return of(new BigDecimal(rupees));
+	}
+
+	public long paise() {
+		return paise;
+	}
+
+	public Money plus(Money other) {
+		return ofPaise(Math.addExact(paise, other.paise));
+	}
+
+	public Money minus(Money other) {
+		return ofPaise(Math.subtractExact(paise, other.paise));
+	}
+
+	public Money times(long factor) {
+		return ofPaise(Math.multiplyExact(paise, factor));
+	}
+
+	// Multiply by a rate or growth factor, rounding half up to the paisa
+	public Money times(BigDecimal factor) {
+		return of(BigDecimal.valueOf(paise, 2)
+				.multiply(factor));
+	}
+
+	public Money min(Money other) {
+		return paise <= other.paise ? this : other;
+	}
+
+	public int signum() {
+		return Long.signum(paise);
+	}
+
+	public boolean isPositive() {
+		return paise > 0;
+	}
+
+	public boolean isZero() {
+		return paise == 0;
+	}
+
+	public boolean isLessThan(Money other) {
+		return paise < other.paise;
+	}
+
+	public BigDecimal toBigDecimal() {
+		return BigDecimal.valueOf(paise, 2);
+	}
+
+	@Override
+	public int compareTo(Money other) {
+		return Long.compare(paise, other.paise);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Money other && paise == other.paise;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(paise);
+	}
+
+	// Plain rupees with two decimals, e.g. 1500.05 or -0.50
+	@Override
+	public String toString() {
+		long abs = Math.abs(paise);
+		long fraction = abs % 100;
+		return (paise < 0 ? "-" : "") + abs / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+	}
+
+	@Override
+	public int intValue() {
+		return (int) (paise / 100);
+	}
+
+	@Override
+	public long longValue() {
+		return paise / 100;
+	}
+
+	@Override
+	public float floatValue() {
+		return paise / 100f;
+	}
+
+	@Override
+	public double doubleValue() {
+		return paise / 100d;
+	}
+}
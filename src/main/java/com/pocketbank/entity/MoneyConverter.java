@@ -0,0 +1,21 @@
+package com.pocketbank.entity;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Maps every Money attribute onto its DECIMAL(15,2) column
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Money money) {
+		return money != null ? money.toBigDecimal() : null;
+	}
+
+	@Override
+	public Money convertToEntityAttribute(BigDecimal value) {
+		return value != null ? Money.of(value) : null;
+	}
+}
@@ -0,0 +1,27 @@
+package com.pocketbank.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A named counter handed out in blocks; nextValue is the first number not yet leased
+@Entity
+@Table(name = "number_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NumberSequence {
+
+	@Id
+	@Column(length = 40)
+	private String name;
+
+	@Column(nullable = false)
+	private Long nextValue;
+}
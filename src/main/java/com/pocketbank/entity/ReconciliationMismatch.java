@@ -0,0 +1,55 @@
+package com.pocketbank.entity;
+
+import com.pocketbank.entity.enums.MismatchKind;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Something a reconciliation run found wrong with the ledger
+@Entity
+@Table(name = "reconciliation_mismatches",
+		indexes = @Index(name = "idx_reconciliation_mismatches_run", columnList = "runId"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationMismatch {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "reconciliation_mismatch_ids")
+	@TableGenerator(name = "reconciliation_mismatch_ids", table = "id_generators",
+			pkColumnName = "sequence_name", valueColumnName = "next_val",
+			pkColumnValue = "reconciliation_mismatches", allocationSize = 100)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long runId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 30)
+	private MismatchKind kind;
+
+	@Column(nullable = false)
+	private String accountNumber;
+
+	// the transfer leg, for unpaired legs
+	private Long transactionId;
+
+	@Column(precision = 15, scale = 2)
+	private Money expected;
+
+	@Column(precision = 15, scale = 2)
+	private Money actual;
+}
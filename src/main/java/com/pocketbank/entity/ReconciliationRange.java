@@ -0,0 +1,55 @@
+package com.pocketbank.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Checkpoint of a finished range of a reconciliation run, written in the same
+// transaction as its mismatches
+@Entity
+@Table(name = "reconciliation_ranges",
+		uniqueConstraints = @UniqueConstraint(columnNames = { "runId", "rangeKey" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationRange {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "reconciliation_range_ids")
+	@TableGenerator(name = "reconciliation_range_ids", table = "id_generators",
+			pkColumnName = "sequence_name", valueColumnName = "next_val",
+			pkColumnValue = "reconciliation_ranges", allocationSize = 100)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long runId;
+
+	// "accounts:<first id>" or "transfers:<first epoch second>"
+	@Column(nullable = false, length = 60)
+	private String rangeKey;
+
+	@Column(nullable = false)
+	private Long accounts;
+
+	@Column(nullable = false)
+	private Long postings;
+
+	@Column(nullable = false)
+	private Long transferLegs;
+
+	@Column(nullable = false)
+	private Long mismatches;
+
+	@Column(nullable = false)
+	private Long elapsedMs;
+}
@@ -0,0 +1,67 @@
+package com.pocketbank.entity;
+
+import java.time.LocalDateTime;
+
+import com.pocketbank.entity.enums.ReconciliationStatus;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One ledger reconciliation, with the bounds it splits into ranges so a resumed
+// run finds the same ranges again
+@Entity
+@Table(name = "reconciliation_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationRun {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "reconciliation_run_ids")
+	@TableGenerator(name = "reconciliation_run_ids", table = "id_generators",
+			pkColumnName = "sequence_name", valueColumnName = "next_val",
+			pkColumnValue = "reconciliation_runs", allocationSize = 100)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 20)
+	private ReconciliationStatus status;
+
+	@Column(nullable = false)
+	private LocalDateTime startedAt;
+
+	private LocalDateTime finishedAt;
+
+	// accounts [firstAccountId, lastAccountId] and transfers before cutoff are checked
+	@Column(nullable = false)
+	private Long firstAccountId;
+
+	@Column(nullable = false)
+	private Long lastAccountId;
+
+	private LocalDateTime firstPostingAt;
+
+	@Column(nullable = false)
+	private LocalDateTime cutoff;
+
+	// totals over all ranges, filled in when the run completes
+	private Long accounts;
+
+	private Long postings;
+
+	private Long transferLegs;
+
+	private Long mismatches;
+}
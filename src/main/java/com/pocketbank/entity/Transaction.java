@@ -1,6 +1,5 @@
 package com.pocketbank.entity;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import com.pocketbank.entity.enums.TransactionType;
@@ -13,9 +12,11 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,7 +24,12 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 @Entity
-@Table(name = "transactions")
+// (account_id, transaction_date, id) serves the keyset-paginated account history
+// and reconciliation, (type, transaction_date) the transfer pairing pass
+@Table(name = "transactions", indexes = {
+		@Index(name = "idx_transactions_account_date_id",
+				columnList = "account_id, transaction_date, id"),
+		@Index(name = "idx_transactions_type_date", columnList = "type, transaction_date") })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,7 +37,9 @@ import lombok.ToString;
 public class Transaction {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_ids")
+	@TableGenerator(name = "transaction_ids", table = "id_generators", pkColumnName = "sequence_name",
+			valueColumnName = "next_val", pkColumnValue = "transactions", allocationSize = 100)
 	private Long id;
 
 	@Enumerated(EnumType.STRING)
@@ -39,10 +47,10 @@ public class Transaction {
 	private TransactionType type;
 
 	@Column(nullable = false, precision = 15, scale = 2)
-	private BigDecimal amount;
+	private Money amount;
 
 	@Column(nullable = false, precision = 15, scale = 2)
-	private BigDecimal balanceAfter;
+	private Money balanceAfter;
 
 	@Column(length = 500)
 	private String description;
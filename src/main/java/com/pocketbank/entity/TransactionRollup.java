@@ -0,0 +1,77 @@
+package com.pocketbank.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.entity.enums.RollupPeriod;
+import com.pocketbank.entity.enums.TransactionType;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Count, sum, min and max of one day's or one month's postings of a transaction
+// type on an account type. Keyed by what it counts, so postings can upsert it.
+@Entity
+@Table(name = "transaction_rollups")
+@IdClass(TransactionRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionRollup {
+
+	@Id
+	@Enumerated(EnumType.STRING)
+	@Column(name = "rollup_period", length = 10)
+	private RollupPeriod period;
+
+	// the day, or the first day of the month
+	@Id
+	private LocalDate periodStart;
+
+	@Id
+	@Enumerated(EnumType.STRING)
+	@Column(length = 20)
+	private TransactionType transactionType;
+
+	@Id
+	@Enumerated(EnumType.STRING)
+	@Column(length = 20)
+	private AccountType accountType;
+
+	@Column(nullable = false)
+	private Long postingCount;
+
+	// amounts in paise
+	@Column(nullable = false)
+	private Long total;
+
+	@Column(nullable = false)
+	private Long minAmount;
+
+	@Column(nullable = false)
+	private Long maxAmount;
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Key implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private RollupPeriod period;
+		private LocalDate periodStart;
+		private TransactionType transactionType;
+		private AccountType accountType;
+	}
+}
@@ -17,11 +17,13 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
@@ -34,7 +36,9 @@ import lombok.ToString;
 public class User {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "user_ids")
+	@TableGenerator(name = "user_ids", table = "id_generators", pkColumnName = "sequence_name",
+			valueColumnName = "next_val", pkColumnValue = "users", allocationSize = 100)
 	private Long id;
 	
 	@NotBlank(message = "Username is required")
@@ -78,16 +82,21 @@ public class User {
 	//One to many : One user has many account
 	@OneToMany(mappedBy = "user",cascade = CascadeType.ALL,fetch = FetchType.LAZY)
 	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
 	@Builder.Default
 	private List<Account> accounts = new ArrayList<>();
 	
 	//One to many: One user has many loans
 	@OneToMany(mappedBy = "user",cascade = CascadeType.ALL,fetch = FetchType.LAZY)
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
 	@Builder.Default
 	private List<Loan> loans = new ArrayList<>();
 	
 	//One-to-many: One user has many fixed deposits
 	@OneToMany(mappedBy = "user",cascade = CascadeType.ALL,fetch = FetchType.LAZY)
+	@ToString.Exclude
+	@EqualsAndHashCode.Exclude
 	@Builder.Default
 	private List<FixedDeposit> fixedDeposits = new ArrayList<>();
 }
@@ -0,0 +1,6 @@
+package com.pocketbank.entity.enums;
+
+// Bank-wide running totals kept in aggregate_counters; money ones are in paise
+public enum Aggregate {
+	DEPOSITS, WITHDRAWALS, BALANCE, TRANSACTIONS, ACCOUNTS, CUSTOMERS
+}
@@ -0,0 +1,10 @@
+package com.pocketbank.entity.enums;
+
+public enum MismatchKind {
+	// balance differs from the sum of the account's postings
+	BALANCE_VS_POSTINGS,
+	// balance differs from the balanceAfter of the account's latest posting
+	BALANCE_VS_LAST_POSTING,
+	// transfer leg without its counterpart on the other account
+	UNPAIRED_TRANSFER_OUT, UNPAIRED_TRANSFER_IN
+}
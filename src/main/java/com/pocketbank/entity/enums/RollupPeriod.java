@@ -0,0 +1,5 @@
+package com.pocketbank.entity.enums;
+
+public enum RollupPeriod {
+	DAY, MONTH
+}
@@ -0,0 +1,47 @@
+package com.pocketbank.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.AccountBalanceSlot;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlot, Long> {
+
+	// lock a random slot nobody else holds, without waiting
+	@Query(value = "SELECT * FROM account_balance_slots WHERE account_id = :accountId "
+			+ "ORDER BY RAND() LIMIT 1 FOR UPDATE SKIP LOCKED", nativeQuery = true)
+	Optional<AccountBalanceSlot> lockFreeSlot(@Param("accountId") Long accountId);
+
+	// lock a random free slot that can cover the amount on its own, without waiting
+	@Query(value = "SELECT * FROM account_balance_slots WHERE account_id = :accountId "
+			+ "AND balance >= :amount ORDER BY RAND() LIMIT 1 FOR UPDATE SKIP LOCKED",
+			nativeQuery = true)
+	Optional<AccountBalanceSlot> lockFreeSlotCovering(@Param("accountId") Long accountId,
+			@Param("amount") BigDecimal amount);
+
+	// lock one slot, waiting for it if needed
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT s FROM AccountBalanceSlot s WHERE s.accountId = :accountId AND s.slot = :slot")
+	Optional<AccountBalanceSlot> findSlotForUpdate(@Param("accountId") Long accountId,
+			@Param("slot") Integer slot);
+
+	// lock every slot of an account, always in slot order
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT s FROM AccountBalanceSlot s WHERE s.accountId = :accountId ORDER BY s.slot")
+	List<AccountBalanceSlot> findAllSlotsForUpdate(@Param("accountId") Long accountId);
+
+	// total balance of a sharded account
+	@Query(value = "SELECT COALESCE(SUM(balance), 0) FROM account_balance_slots "
+			+ "WHERE account_id = :accountId", nativeQuery = true)
+	BigDecimal sumBalance(@Param("accountId") Long accountId);
+}
@@ -1,16 +1,26 @@
 package com.pocketbank.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
 import com.pocketbank.entity.enums.AccountStatus;
 
+import jakarta.persistence.LockModeType;
+
 /**
  * Repository for Account entity operations Handles database queries related to
  * accounts
@@ -22,22 +32,83 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
 	// find account by Account number
 	Optional<Account> findByAccountNumber(String accountNumber);
 
+	// find account by id and lock the row
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT a FROM Account a WHERE a.id = :id")
+	Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
+	// lock several accounts at once, always in account number order
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.accountNumber")
+	List<Account> findByAccountNumberInForUpdate(
+			@Param("accountNumbers") Collection<String> accountNumbers);
+
+	// accounts running in sharded balance mode
+	List<Account> findByBalanceSlotsIsNotNull();
+
 	// find all accounts for a specific user
 	List<Account> findByUserId(Long userId);
 
+	// ids of a user's accounts, for the session principal
+	@Query("SELECT a.id FROM Account a WHERE a.user.id = :userId")
+	List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+	boolean existsByIdAndUserId(Long id, Long userId);
+
 	// Find all accounts by status
 	List<Account> findByStatus(AccountStatus status);
 
-	boolean existsByAccountNumber(String accountNumber);
+	// overwrite the balance of an account (used by the sharded ledger flush)
+	@Modifying
+	@Query("UPDATE Account a SET a.balance = :balance WHERE a.id = :id")
+	int updateBalance(@Param("id") Long id, @Param("balance") Money balance);
 
 	// count total accounts
 	Long countBy();
 
 	// sum of all balances across all accounts
-	@Query("SELECT COALESCE(SUM(a.balance),0) FROM Account a WHERE a.status = 'APPROVED'")
+	@Query(value = "SELECT COALESCE(SUM(balance), 0) FROM accounts WHERE status = 'APPROVED'",
+			nativeQuery = true)
 	BigDecimal getTotalBalance();
 
+	// sum of approved balances, reading the slots of sharded accounts (full scan)
+	@Query(value = "SELECT COALESCE(SUM(CASE WHEN a.balance_slots IS NULL THEN a.balance "
+			+ "ELSE (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slots s "
+			+ "WHERE s.account_id = a.id) END), 0) FROM accounts a WHERE a.status = 'APPROVED'",
+			nativeQuery = true)
+	BigDecimal getLiveTotalBalance();
+
+	// what never changes about an account, as one (id, user id, type, status) row
+	@Query("SELECT a.id, a.user.id, a.accountType, a.status FROM Account a "
+			+ "WHERE a.accountNumber = :accountNumber")
+	List<Object[]> findDescriptor(@Param("accountNumber") String accountNumber);
+
+	// lowest and highest account id, as one (min, max) row
+	@Query("SELECT MIN(a.id), MAX(a.id) FROM Account a")
+	List<Object[]> findIdBounds();
+
+	// accounts of an id range as (id, account number, live balance, balance slots),
+	// reading the slots of sharded accounts
+	@Query(value = "SELECT a.id, a.account_number, CASE WHEN a.balance_slots IS NULL THEN a.balance "
+			+ "ELSE (SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slots s "
+			+ "WHERE s.account_id = a.id) END, a.balance_slots FROM accounts a "
+			+ "WHERE a.id BETWEEN :fromId AND :toId ORDER BY a.id", nativeQuery = true)
+	List<Object[]> findForReconciliation(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
 	// Find all pending accounts (for admin approval)
+	@EntityGraph(attributePaths = "user")
 	List<Account> findByStatusOrderByCreatedAtDesc(AccountStatus pending);
 
+	// One page of the admin account listing, owners fetched in the same query.
+	// status and search (a lower-case LIKE pattern) are optional
+	@Query(value = "SELECT a FROM Account a JOIN FETCH a.user u "
+			+ "WHERE (:status IS NULL OR a.status = :status) AND (:search IS NULL "
+			+ "OR LOWER(a.accountNumber) LIKE :search OR LOWER(u.fullName) LIKE :search)",
+			countQuery = "SELECT COUNT(a) FROM Account a JOIN a.user u "
+					+ "WHERE (:status IS NULL OR a.status = :status) AND (:search IS NULL "
+					+ "OR LOWER(a.accountNumber) LIKE :search OR LOWER(u.fullName) LIKE :search)")
+	Page<Account> findAdminPage(@Param("status") AccountStatus status,
+			@Param("search") String search,
+			Pageable pageable);
+
 }
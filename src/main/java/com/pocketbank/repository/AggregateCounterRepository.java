@@ -0,0 +1,29 @@
+package com.pocketbank.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.AggregateCounter;
+import com.pocketbank.entity.enums.Aggregate;
+
+@Repository
+public interface AggregateCounterRepository extends JpaRepository<AggregateCounter, Long> {
+
+	// add to one stripe; the row lock is held until the posting commits
+	@Modifying
+	@Query("UPDATE AggregateCounter c SET c.total = c.total + :delta "
+			+ "WHERE c.name = :name AND c.stripe = :stripe")
+	int add(@Param("name") Aggregate name, @Param("stripe") Integer stripe,
+			@Param("delta") Long delta);
+
+	// every aggregate summed over its stripes, as (Aggregate, Long) pairs
+	@Query("SELECT c.name, SUM(c.total) FROM AggregateCounter c GROUP BY c.name")
+	List<Object[]> sumByName();
+
+	boolean existsByNameAndStripe(Aggregate name, Integer stripe);
+}
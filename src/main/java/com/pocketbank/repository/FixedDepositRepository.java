@@ -2,14 +2,31 @@ package com.pocketbank.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pocketbank.entity.FixedDeposit;
+import com.pocketbank.entity.enums.FdStatus;
 
 @Repository
 public interface FixedDepositRepository extends JpaRepository<FixedDeposit, Long> {
 
 	List<FixedDeposit> findByUserIdOrderByStartDateDesc(Long userId);
 
+	// One page of the admin fixed deposit listing, owners fetched in the same query.
+	// status and search (a lower-case LIKE pattern) are optional
+	@Query(value = "SELECT f FROM FixedDeposit f JOIN FETCH f.user u "
+			+ "WHERE (:status IS NULL OR f.status = :status) "
+			+ "AND (:search IS NULL OR LOWER(u.fullName) LIKE :search)",
+			countQuery = "SELECT COUNT(f) FROM FixedDeposit f JOIN f.user u "
+					+ "WHERE (:status IS NULL OR f.status = :status) "
+					+ "AND (:search IS NULL OR LOWER(u.fullName) LIKE :search)")
+	Page<FixedDeposit> findAdminPage(@Param("status") FdStatus status,
+			@Param("search") String search,
+			Pageable pageable);
+
 }
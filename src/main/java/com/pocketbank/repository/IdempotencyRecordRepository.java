@@ -0,0 +1,38 @@
+package com.pocketbank.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+	// claim a key; a concurrent claim of the same key waits and then fails on the primary key
+	@Modifying
+	@Query(value = "INSERT INTO idempotency_keys (idempotency_key, fingerprint, created_at) "
+			+ "VALUES (:key, :fingerprint, :createdAt)", nativeQuery = true)
+	int claim(@Param("key") String key,
+			@Param("fingerprint") String fingerprint,
+			@Param("createdAt") LocalDateTime createdAt);
+
+	// store the posting once the operation has run
+	@Modifying
+	@Query("UPDATE IdempotencyRecord r SET r.transactionId = :transactionId WHERE r.idempotencyKey = :key")
+	int complete(@Param("key") String key, @Param("transactionId") Long transactionId);
+
+	// remove keys older than the retention window
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+	int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+
+	// remove one expired key so it can be claimed again
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.createdAt < :cutoff")
+	int deleteExpired(@Param("key") String key, @Param("cutoff") LocalDateTime cutoff);
+}
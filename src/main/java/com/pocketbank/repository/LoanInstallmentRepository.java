@@ -0,0 +1,23 @@
+package com.pocketbank.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.LoanInstallment;
+
+@Repository
+public interface LoanInstallmentRepository extends JpaRepository<LoanInstallment, Long> {
+
+	// a loan's schedule, first installment first
+	List<LoanInstallment> findByLoanIdOrderByNumberAsc(Long loanId);
+
+	// drop a schedule before it is generated again
+	@Modifying
+	@Query("DELETE FROM LoanInstallment i WHERE i.loanId = :loanId")
+	int deleteByLoanId(@Param("loanId") Long loanId);
+}
@@ -1,8 +1,14 @@
 package com.pocketbank.repository;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pocketbank.entity.Loan;
@@ -17,4 +23,31 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
 	// Find all pending loans (for admin approval)
 	List<Loan> findByStatus(LoanStatus status);
 
+	@Query("SELECT MIN(l.id), MAX(l.id) FROM Loan l")
+	List<Object[]> findIdBounds();
+
+	// loans of an id range in one of the statuses that have no repayment schedule yet
+	@Query("SELECT l FROM Loan l WHERE l.id BETWEEN :fromId AND :toId AND l.status IN :statuses "
+			+ "AND NOT EXISTS (SELECT i.id FROM LoanInstallment i WHERE i.loanId = l.id)")
+	List<Loan> findWithoutSchedule(@Param("fromId") Long fromId,
+			@Param("toId") Long toId,
+			@Param("statuses") Collection<LoanStatus> statuses);
+
+	// Loans awaiting a decision with each applicant and the accounts a loan can be
+	// paid into, in one query
+	@EntityGraph(attributePaths = { "user", "user.accounts" })
+	List<Loan> findWithApplicantAccountsByStatusOrderByAppliedAtAsc(LoanStatus status);
+
+	// One page of the admin loan listing, applicants fetched in the same query.
+	// status and search (a lower-case LIKE pattern) are optional
+	@Query(value = "SELECT l FROM Loan l JOIN FETCH l.user u "
+			+ "WHERE (:status IS NULL OR l.status = :status) AND (:search IS NULL "
+			+ "OR LOWER(u.fullName) LIKE :search OR LOWER(l.purpose) LIKE :search)",
+			countQuery = "SELECT COUNT(l) FROM Loan l JOIN l.user u "
+					+ "WHERE (:status IS NULL OR l.status = :status) AND (:search IS NULL "
+					+ "OR LOWER(u.fullName) LIKE :search OR LOWER(l.purpose) LIKE :search)")
+	Page<Loan> findAdminPage(@Param("status") LoanStatus status,
+			@Param("search") String search,
+			Pageable pageable);
+
 }
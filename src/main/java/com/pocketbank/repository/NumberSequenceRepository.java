@@ -0,0 +1,22 @@
+package com.pocketbank.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.NumberSequence;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface NumberSequenceRepository extends JpaRepository<NumberSequence, String> {
+
+	// lock the sequence row (SELECT ... FOR UPDATE) while a block is leased
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT s FROM NumberSequence s WHERE s.name = :name")
+	Optional<NumberSequence> findByNameForUpdate(@Param("name") String name);
+}
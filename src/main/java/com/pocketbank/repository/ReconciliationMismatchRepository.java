@@ -0,0 +1,13 @@
+package com.pocketbank.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.ReconciliationMismatch;
+
+@Repository
+public interface ReconciliationMismatchRepository
+		extends JpaRepository<ReconciliationMismatch, Long> {
+
+	long countByRunId(Long runId);
+}
@@ -0,0 +1,23 @@
+package com.pocketbank.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.ReconciliationRange;
+
+@Repository
+public interface ReconciliationRangeRepository extends JpaRepository<ReconciliationRange, Long> {
+
+	@Query("SELECT r.rangeKey FROM ReconciliationRange r WHERE r.runId = :runId")
+	List<String> findRangeKeysByRunId(@Param("runId") Long runId);
+
+	// (accounts, postings, transfer legs, mismatches) over all ranges of a run
+	@Query("SELECT COALESCE(SUM(r.accounts), 0), COALESCE(SUM(r.postings), 0), "
+			+ "COALESCE(SUM(r.transferLegs), 0), COALESCE(SUM(r.mismatches), 0) "
+			+ "FROM ReconciliationRange r WHERE r.runId = :runId")
+	List<Object[]> sumByRunId(@Param("runId") Long runId);
+}
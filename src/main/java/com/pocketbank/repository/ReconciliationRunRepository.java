@@ -0,0 +1,16 @@
+package com.pocketbank.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.ReconciliationRun;
+import com.pocketbank.entity.enums.ReconciliationStatus;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+
+	// the run to resume, if the last one did not finish
+	Optional<ReconciliationRun> findFirstByStatusOrderByIdDesc(ReconciliationStatus status);
+}
@@ -1,35 +1,117 @@
 package com.pocketbank.repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pocketbank.entity.Transaction;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
 	// find all transaction for a specific account with limit
 	List<Transaction> findTop10ByAccountIdOrderByTransactionDateDesc(Long accountId);
 
-	// find all transaction for a specific account
-	List<Transaction> findByAccountIdOrderByTransactionDateDesc(Long accountId);
+	// newest page of an account's history
+	List<Transaction> findByAccountIdOrderByTransactionDateDescIdDesc(Long accountId, Limit limit);
+
+	// page of postings older than the (date, id) cursor, newest first
+	@Query("SELECT t FROM Transaction t WHERE t.account.id = :accountId "
+			+ "AND t.transactionDate <= :date AND (t.transactionDate < :date OR t.id < :id) "
+			+ "ORDER BY t.transactionDate DESC, t.id DESC")
+	List<Transaction> findOlderThan(@Param("accountId") Long accountId,
+			@Param("date") LocalDateTime date,
+			@Param("id") Long id,
+			Limit limit);
+
+	// page of postings newer than the (date, id) cursor, oldest first
+	@Query("SELECT t FROM Transaction t WHERE t.account.id = :accountId "
+			+ "AND t.transactionDate >= :date AND (t.transactionDate > :date OR t.id > :id) "
+			+ "ORDER BY t.transactionDate ASC, t.id ASC")
+	List<Transaction> findNewerThan(@Param("accountId") Long accountId,
+			@Param("date") LocalDateTime date,
+			@Param("id") Long id,
+			Limit limit);
+
+	// whole history of an account, oldest first, as a forward-only streaming result set
+	// fetched 1000 rows at a time (through a server-side cursor on MySQL, see
+	// PersistenceConfig)
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false") })
+	@Query("SELECT t FROM Transaction t WHERE t.account.id = :accountId "
+			+ "ORDER BY t.transactionDate ASC, t.id ASC")
+	Stream<Transaction> streamByAccountId(@Param("accountId") Long accountId);
+
+	// postings of an id range of accounts as (account id, type, amount, balance after),
+	// ordered by account and then as posted, streamed for reconciliation
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+			@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false") })
+	@Query("SELECT t.account.id, t.type, t.amount, t.balanceAfter FROM Transaction t "
+			+ "WHERE t.account.id BETWEEN :fromId AND :toId "
+			+ "ORDER BY t.account.id, t.transactionDate, t.id")
+	Stream<Object[]> streamForReconciliation(@Param("fromId") Long fromId,
+			@Param("toId") Long toId);
+
+	// transfer legs of [from, to) as (id, type, account number, counterparty, amount, date),
+	// in posting order, streamed for reconciliation
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+			@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false") })
+	@Query("SELECT t.id, t.type, a.accountNumber, t.recipientAccountNumber, t.amount, "
+			+ "t.transactionDate FROM Transaction t JOIN t.account a "
+			+ "WHERE t.type IN (com.pocketbank.entity.enums.TransactionType.TRANSFER_OUT, "
+			+ "com.pocketbank.entity.enums.TransactionType.TRANSFER_IN) "
+			+ "AND t.transactionDate >= :from AND t.transactionDate < :to "
+			+ "ORDER BY t.transactionDate, t.id")
+	Stream<Object[]> streamTransferLegs(@Param("from") LocalDateTime from,
+			@Param("to") LocalDateTime to);
+
+	// the ids of these that are stored, for checking the ledger journal
+	@Query("SELECT t.id FROM Transaction t WHERE t.id IN :ids")
+	List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+	@Query("SELECT MIN(t.transactionDate) FROM Transaction t")
+	LocalDateTime findFirstPostingDate();
 
 	// count total transactions
 	Long countBy();
 
-	// Get recent transactions across all accounts (for admin)
+	// Get recent transactions across all accounts (for admin), with their account
+	// so they can be shown after the read-only transaction has ended
+	@EntityGraph(attributePaths = "account")
 	List<Transaction> findTop20ByOrderByTransactionDateDesc();
 
 	// calculae total deposits
-	@Query("SELECT COALESCE(SUM(t.amount),0) FROM Transaction t WHERE t.type = 'DEPOSIT'")
+	@Query(value = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE type = 'DEPOSIT'",
+			nativeQuery = true)
 	BigDecimal getTotalDeposits();
 
 	// calculate total withdrawals
-	@Query("SELECT COALESCE(SUM(t.amount),0) FROM Transaction t WHERE t.type = 'WITHDRAWAL'")
+	@Query(value = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE type = 'WITHDRAWAL'",
+			nativeQuery = true)
 	BigDecimal getTotalWithdrawals();
 
+	// postings of [from, to) per day, transaction type and account type, as
+	// (day, type, account type, count, sum, min, max), for the rollup backfill
+	@Query(value = "SELECT DATE(t.transaction_date), t.type, a.account_type, COUNT(*), "
+			+ "SUM(t.amount), MIN(t.amount), MAX(t.amount) "
+			+ "FROM transactions t JOIN accounts a ON a.id = t.account_id "
+			+ "WHERE t.transaction_date >= :from AND t.transaction_date < :to "
+			+ "GROUP BY DATE(t.transaction_date), t.type, a.account_type", nativeQuery = true)
+	List<Object[]> summarizeByDay(@Param("from") LocalDateTime from,
+			@Param("to") LocalDateTime to);
+
 }
@@ -0,0 +1,50 @@
+package com.pocketbank.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.pocketbank.entity.TransactionRollup;
+import com.pocketbank.entity.enums.RollupPeriod;
+
+@Repository
+public interface TransactionRollupRepository
+		extends JpaRepository<TransactionRollup, TransactionRollup.Key> {
+
+	// create the rollup row or fold the postings into it; the row lock is held until commit
+	@Modifying
+	@Query(value = "INSERT INTO transaction_rollups (rollup_period, period_start, transaction_type, "
+			+ "account_type, posting_count, total, min_amount, max_amount) "
+			+ "VALUES (:period, :periodStart, :transactionType, :accountType, :count, :total, "
+			+ ":minAmount, :maxAmount) "
+			+ "ON DUPLICATE KEY UPDATE posting_count = posting_count + VALUES(posting_count), "
+			+ "total = total + VALUES(total), "
+			+ "min_amount = LEAST(min_amount, VALUES(min_amount)), "
+			+ "max_amount = GREATEST(max_amount, VALUES(max_amount))", nativeQuery = true)
+	int add(@Param("period") String period,
+			@Param("periodStart") LocalDate periodStart,
+			@Param("transactionType") String transactionType,
+			@Param("accountType") String accountType,
+			@Param("count") long count,
+			@Param("total") long total,
+			@Param("minAmount") long minAmount,
+			@Param("maxAmount") long maxAmount);
+
+	List<TransactionRollup> findByPeriodAndPeriodStartBetween(RollupPeriod period, LocalDate from,
+			LocalDate to);
+
+	// rows of a period range summed per transaction and account type, as
+	// (TransactionType, AccountType, count, total, min, max)
+	@Query("SELECT r.transactionType, r.accountType, SUM(r.postingCount), SUM(r.total), "
+			+ "MIN(r.minAmount), MAX(r.maxAmount) FROM TransactionRollup r "
+			+ "WHERE r.period = :period AND r.periodStart BETWEEN :from AND :to "
+			+ "GROUP BY r.transactionType, r.accountType")
+	List<Object[]> sumBetween(@Param("period") RollupPeriod period,
+			@Param("from") LocalDate from,
+			@Param("to") LocalDate to);
+}
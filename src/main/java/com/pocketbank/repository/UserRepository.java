@@ -2,14 +2,24 @@ package com.pocketbank.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.Role;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
@@ -27,7 +37,45 @@ public interface UserRepository extends JpaRepository<User, Long> {
 	
 	//Find all users by role
 	List<User> findByRole(Role role);
+
+	// every (username, email), streamed to load the registration filter
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+			@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false") })
+	@Query("SELECT u.username, u.email FROM User u")
+	Stream<Object[]> streamUsernamesAndEmails();
+
+	// store a re-hashed password
+	@Modifying
+	@Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+	int updatePassword(@Param("username") String username, @Param("password") String password);
+
+	// One page of the users with a role; search (a lower-case LIKE pattern) is optional
+	@Query("SELECT u FROM User u WHERE u.role = :role AND (:search IS NULL "
+			+ "OR LOWER(u.username) LIKE :search OR LOWER(u.fullName) LIKE :search "
+			+ "OR LOWER(u.email) LIKE :search)")
+	Page<User> findAdminPage(@Param("role") Role role,
+			@Param("search") String search,
+			Pageable pageable);
 	
+	// Accounts, loans and fixed deposits of a user in one round trip, as rows of
+	// (kind, id, label, category, status, amount, second amount, tenure months,
+	// interest rate, opened at, closes at). Sharded accounts read their slots.
+	@Query(value = "SELECT 'ACCOUNT' AS kind, a.id, a.account_number AS label, "
+			+ "a.account_type AS category, a.status, CASE WHEN a.balance_slots IS NULL "
+			+ "THEN a.balance ELSE (SELECT COALESCE(SUM(s.balance), 0) "
+			+ "FROM account_balance_slots s WHERE s.account_id = a.id) END AS amount, "
+			+ "NULL AS second_amount, NULL AS tenure_months, NULL AS interest_rate, "
+			+ "a.created_at AS opened_at, NULL AS closes_at "
+			+ "FROM accounts a WHERE a.user_id = :userId "
+			+ "UNION ALL SELECT 'LOAN', l.id, l.purpose, NULL, l.status, l.loan_amount, "
+			+ "l.monthly_emi, l.tenure_months, l.interest_rate, l.applied_at, l.approved_at "
+			+ "FROM loans l WHERE l.user_id = :userId "
+			+ "UNION ALL SELECT 'FIXED_DEPOSIT', f.id, NULL, NULL, f.status, f.principal_amount, "
+			+ "f.maturity_amount, f.tenure_months, f.interest_rate, f.start_date, f.maturity_date "
+			+ "FROM fixed_deposits f WHERE f.user_id = :userId "
+			+ "ORDER BY kind, opened_at DESC, id DESC", nativeQuery = true)
+	List<Object[]> findHoldingRows(@Param("userId") Long userId);
+
     // Count total customers
     @Query("SELECT COUNT(u) FROM User u WHERE u.role = 'CUSTOMER'")
     Long countCustomers();
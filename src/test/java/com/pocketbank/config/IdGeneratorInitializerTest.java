@@ -0,0 +1,78 @@
+package com.pocketbank.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.pocketbank.entity.AggregateCounter;
+import com.pocketbank.entity.enums.Aggregate;
+
+/*
+ * Tests for the id generator seeding
+ * Every table generator gets a row past the ids already in its table before JPA is used
+ * Runs on H2 in MySQL mode, with one row loaded right after the schema is created
+ * */
+@DataJpaTest
+@Import(IdGeneratorInitializer.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:id-generators;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.hbm2ddl.import_files=id-generators-legacy.sql" })
+@DisplayName("Id Generator Initializer Tests")
+public class IdGeneratorInitializerTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Test
+	@DisplayName("Should seed a row for every entity with a table generator")
+	void testSeed_EveryGenerator() {
+		Map<String, Long> nextValues = nextValues();
+
+		assertEquals(Set.of("users", "accounts", "transactions", "loans", "fixed_deposits",
+				"loan_installments", "aggregate_counters", "account_balance_slots",
+				"reconciliation_runs", "reconciliation_ranges", "reconciliation_mismatches"),
+				nextValues.keySet());
+		assertEquals(100L, nextValues.get("users"));
+	}
+
+	@Test
+	@DisplayName("Should move a generator past the ids already in its table")
+	void testSeed_PastExistingIds() {
+		// Given: aggregate_counters already holds id 250
+		assertEquals(350L, nextValues().get("aggregate_counters"));
+
+		// When
+		AggregateCounter counter = entityManager.persistAndFlush(AggregateCounter.builder()
+				.name(Aggregate.WITHDRAWALS)
+				.stripe(0)
+				.build());
+
+		// Then
+		assertTrue(counter.getId() > 250, "allocated id " + counter.getId());
+	}
+
+	private Map<String, Long> nextValues() {
+		return jdbcTemplate.queryForList("SELECT sequence_name, next_val FROM id_generators")
+				.stream()
+				.collect(Collectors.toMap(row -> (String) row.get("sequence_name"),
+						row -> ((Number) row.get("next_val")).longValue()));
+	}
+}
@@ -0,0 +1,75 @@
+package com.pocketbank.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.pocketbank.config.service.RateLimiter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * ns per request the rate limit filter adds on a throttled route, with requests
+ * spread over 100k distinct client IPs and users. The target is under 1 µs.
+ * Set POCKETBANK_BENCH_RATE_LIMIT=true to run it.
+ * */
+@EnabledIfEnvironmentVariable(named = "POCKETBANK_BENCH_RATE_LIMIT", matches = "true")
+@DisplayName("Rate Limit Filter Benchmark")
+public class RateLimitFilterBenchmarkTest {
+
+	private static final int KEYS = 100_000;
+	private static final int REQUESTS = 5_000_000;
+	private static final int ROUNDS = 5;
+
+	@Test
+	@DisplayName("Rate limit filter adds under a microsecond per request")
+	void testFilterOverhead() throws Exception {
+		// limits high enough that every request goes through
+		RateLimitFilter filter = new RateLimitFilter(new RateLimiter(new SimpleMeterRegistry(),
+				"1000000/1", "1000000/1", "1000000/1", "1000000/1", "1000000/1", "1000000/1", 600));
+		String[] ips = new String[KEYS];
+		String[] users = new String[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			ips[i] = "10." + (i >> 16) + "." + ((i >> 8) & 255) + "." + (i & 255);
+			users[i] = "user" + i;
+		}
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		// the same requests through a chain without the filter, as the baseline
+		long baseline = Long.MAX_VALUE;
+		long filtered = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			baseline = Math.min(baseline, run(null, request, response, ips, users));
+			filtered = Math.min(filtered, run(filter, request, response, ips, users));
+		}
+
+		double addedNanos = (filtered - baseline) / (double) REQUESTS;
+		assertEquals(200, response.getStatus());
+		System.out.printf("Rate limit filter: %.1f ns/request over %,d keys%n", addedNanos, KEYS);
+		assertTrue(addedNanos < 1_000, "filter adds " + addedNanos + " ns/request");
+	}
+
+	private static long run(RateLimitFilter filter, MockHttpServletRequest request,
+			MockHttpServletResponse response, String[] ips, String[] users) throws Exception {
+		long began = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			int key = (int) ((i * 2654435761L) % KEYS);
+			request.setRemoteAddr(ips[key]);
+			request.setParameter("username", users[key]);
+			MockFilterChain chain = new MockFilterChain();
+			if (filter != null) {
+				filter.doFilter(request, response, chain);
+			} else {
+				chain.doFilter(request, response);
+			}
+		}
+		return System.nanoTime() - began;
+	}
+}
@@ -0,0 +1,150 @@
+package com.pocketbank.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.pocketbank.config.service.AccountService;
+import com.pocketbank.config.service.BatchTransferService;
+import com.pocketbank.config.service.FixedDepositService;
+import com.pocketbank.config.service.IdempotencyService;
+import com.pocketbank.config.service.LoanService;
+import com.pocketbank.config.service.StatementService;
+import com.pocketbank.config.service.TransactionService;
+import com.pocketbank.config.service.UserPrincipal;
+import com.pocketbank.config.service.UserService;
+import com.pocketbank.entity.User;
+import com.pocketbank.entity.enums.Role;
+
+/*
+ * Controller test for CustomerController
+ * Money only moves through accounts the signed-in customer owns
+ * */
+@WebMvcTest(CustomerController.class)
+@DisplayName("Customer Controller Tests")
+public class CustomerControllerTest {
+
+	private static final String OWN_ACCOUNT = "PB00000000018";
+	private static final String OTHER_ACCOUNT = "PB00000000026";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private UserService userService;
+
+	@MockitoBean
+	private AccountService accountService;
+
+	@MockitoBean
+	private TransactionService transactionService;
+
+	@MockitoBean
+	private LoanService loanService;
+
+	@MockitoBean
+	private FixedDepositService fdService;
+
+	@MockitoBean
+	private BatchTransferService batchTransferService;
+
+	@MockitoBean
+	private IdempotencyService idempotencyService;
+
+	@MockitoBean
+	private StatementService statementService;
+
+	private UserPrincipal principal;
+
+	@BeforeEach
+	void setUp() {
+		principal = new UserPrincipal(User.builder()
+				.id(1L)
+				.username("asha")
+				.password("secret")
+				.fullName("Asha Rao")
+				.role(Role.CUSTOMER)
+				.enabled(true)
+				.build(), List.of(10L));
+
+		// account 20 belongs to another customer
+		when(accountService.findIdByAccountNumber(OWN_ACCOUNT)).thenReturn(10L);
+		when(accountService.findIdByAccountNumber(OTHER_ACCOUNT)).thenReturn(20L);
+		when(accountService.isOwnedBy(20L, 1L)).thenReturn(false);
+	}
+
+	@Test
+	@DisplayName("Should refuse a transfer out of another customer's account")
+	void testTransfer_NotOwner() throws Exception {
+		mockMvc.perform(post("/customer/transfer").with(csrf())
+				.with(user(principal))
+				.param("fromAccountNumber", OTHER_ACCOUNT)
+				.param("toAccountNumber", OWN_ACCOUNT)
+				.param("amount", "500.00"))
+				.andExpect(redirectedUrl("/customer/transfer"))
+				.andExpect(flash().attribute("error", "Account does not belong to you"));
+
+		verify(idempotencyService, never()).execute(anyString(), any(), anyString(), any());
+		verify(transactionService, never()).transfer(anyString(), anyString(), any(), any());
+	}
+
+	@Test
+	@DisplayName("Should refuse a withdrawal from another customer's account")
+	void testWithdraw_NotOwner() throws Exception {
+		mockMvc.perform(post("/customer/withdraw").with(csrf())
+				.with(user(principal))
+				.param("accountNumber", OTHER_ACCOUNT)
+				.param("amount", "500.00"))
+				.andExpect(redirectedUrl("/customer/withdraw"))
+				.andExpect(flash().attribute("error", "Account does not belong to you"));
+
+		verify(transactionService, never()).withdraw(anyString(), any(), any());
+	}
+
+	@Test
+	@DisplayName("Should transfer out of the customer's own account")
+	void testTransfer_Owner() throws Exception {
+		mockMvc.perform(post("/customer/transfer").with(csrf())
+				.with(user(principal))
+				.param("fromAccountNumber", OWN_ACCOUNT)
+				.param("toAccountNumber", OTHER_ACCOUNT)
+				.param("amount", "500.00")
+				.param("idempotencyKey", "key-1"))
+				.andExpect(redirectedUrl("/customer/transfer"))
+				.andExpect(flash().attributeExists("success"));
+
+		verify(idempotencyService).execute(anyString(), any(), anyString(), any());
+	}
+
+	@Test
+	@DisplayName("Should go back to the first page of history on a tampered page link")
+	void testAccountTransactions_InvalidCursor() throws Exception {
+		when(transactionService.getAccountTransactions(eq(10L), eq("not-a-cursor"), isNull()))
+				.thenThrow(new RuntimeException("Invalid page cursor"));
+
+		mockMvc.perform(get("/customer/accounts/10/transactions").with(user(principal))
+				.param("after", "not-a-cursor"))
+				.andExpect(redirectedUrl("/customer/accounts/10/transactions"))
+				.andExpect(flash().attribute("error", "Invalid page cursor"));
+	}
+}
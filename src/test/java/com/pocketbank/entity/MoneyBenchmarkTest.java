@@ -0,0 +1,88 @@
+package com.pocketbank.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import com.sun.management.ThreadMXBean;
+
+/*
+ * ns/op and bytes allocated per posting for the balance arithmetic of the
+ * posting hot path (funds check, new balance, running total), BigDecimal
+ * against Money.
+ * Set POCKETBANK_BENCH_MONEY=true to run it.
+ * */
+@EnabledIfEnvironmentVariable(named = "POCKETBANK_BENCH_MONEY", matches = "true")
+@DisplayName("Money Benchmark")
+public class MoneyBenchmarkTest {
+
+	private static final int POSTINGS = 10_000_000;
+	private static final int ROUNDS = 5;
+
+	private final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@Test
+	@DisplayName("Money allocates less and runs faster than BigDecimal")
+	void testPostingArithmetic() {
+		BigDecimal[] decimals = new BigDecimal[100];
+		Money[] amounts = new Money[100];
+		for (int i = 0; i < amounts.length; i++) {
+			decimals[i] = BigDecimal.valueOf(100 + i * 37L, 2);
+			amounts[i] = Money.of(decimals[i]);
+		}
+
+		// warm up both paths before measuring
+		for (int round = 0; round < ROUNDS; round++) {
+			withBigDecimal(decimals);
+			withMoney(amounts);
+		}
+
+		long began = System.nanoTime();
+		long allocated = threads.getCurrentThreadAllocatedBytes();
+		BigDecimal decimalTotal = withBigDecimal(decimals);
+		double decimalNanos = (System.nanoTime() - began) / (double) POSTINGS;
+		double decimalBytes = (threads.getCurrentThreadAllocatedBytes() - allocated)
+				/ (double) POSTINGS;
+
+		began = System.nanoTime();
+		allocated = threads.getCurrentThreadAllocatedBytes();
+		Money moneyTotal = withMoney(amounts);
+		double moneyNanos = (System.nanoTime() - began) / (double) POSTINGS;
+		double moneyBytes = (threads.getCurrentThreadAllocatedBytes() - allocated)
+				/ (double) POSTINGS;
+
+		assertEquals(decimalTotal, moneyTotal.toBigDecimal());
+		System.out.printf("BigDecimal : %.1f ns/op, %.1f bytes/op%n", decimalNanos, decimalBytes);
+		System.out.printf("Money      : %.1f ns/op, %.1f bytes/op%n", moneyNanos, moneyBytes);
+	}
+
+	// deposit into a running balance, then check funds and withdraw half of it back
+	private static BigDecimal withBigDecimal(BigDecimal[] amounts) {
+		BigDecimal balance = BigDecimal.ZERO.setScale(2);
+		for (int i = 0; i < POSTINGS; i++) {
+			BigDecimal amount = amounts[i % amounts.length];
+			balance = balance.add(amount);
+			if (i % 2 == 1 && balance.compareTo(amount) >= 0) {
+				balance = balance.subtract(amount);
+			}
+		}
+		return balance;
+	}
+
+	private static Money withMoney(Money[] amounts) {
+		Money balance = Money.ZERO;
+		for (int i = 0; i < POSTINGS; i++) {
+			Money amount = amounts[i % amounts.length];
+			balance = balance.plus(amount);
+			if (i % 2 == 1 && !balance.isLessThan(amount)) {
+				balance = balance.minus(amount);
+			}
+		}
+		return balance;
+	}
+}
@@ -0,0 +1,80 @@
+package com.pocketbank.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Tests for the fixed-point Money type
+ * Conversion, rounding, overflow and formatting
+ * */
+@DisplayName("Money Tests")
+public class MoneyTest {
+
+	@Test
+	@DisplayName("Should convert to and from BigDecimal without loss")
+	void testConversion_RoundTrip() {
+		Money money = Money.of(new BigDecimal("1234567890123.45"));
+
+		assertEquals(123456789012345L, money.paise());
+		assertEquals(new BigDecimal("1234567890123.45"), money.toBigDecimal());
+		assertEquals(Money.of("10.50"), Money.of(new BigDecimal("10.5")));
+	}
+
+	@Test
+	@DisplayName("Should round more than two decimals half up")
+	void testConversion_RoundsHalfUp() {
+		assertEquals(Money.ofPaise(1001), Money.of("10.005"));
+		assertEquals(Money.ofPaise(1000), Money.of("10.004"));
+		assertEquals(Money.ofPaise(-1001), Money.of("-10.005"));
+	}
+
+	@Test
+	@DisplayName("Should add, subtract and compare exactly")
+	void testArithmetic() {
+		Money balance = Money.of("0.10")
+				.plus(Money.of("0.20"));
+
+		assertEquals(Money.of("0.30"), balance);
+		assertEquals(Money.of("-0.70"), balance.minus(Money.of("1.00")));
+		assertEquals(Money.of("0.90"), balance.times(3));
+		assertTrue(balance.isLessThan(Money.of("0.31")));
+		assertEquals(Money.of("0.30"), balance.min(Money.of("5.00")));
+		assertTrue(Money.ZERO.plus(Money.ZERO)
+				.isZero());
+	}
+
+	@Test
+	@DisplayName("Should apply a rate rounding to the paisa")
+	void testTimesFactor() {
+		assertEquals(Money.of("1083.33"), Money.of("1000.00")
+				.times(new BigDecimal("1.083333333")));
+	}
+
+	@Test
+	@DisplayName("Should throw instead of wrapping on overflow")
+	void testOverflow() {
+		Money max = Money.ofPaise(Long.MAX_VALUE);
+
+		assertThrows(ArithmeticException.class, () -> max.plus(Money.ofPaise(1)));
+		assertThrows(ArithmeticException.class, () -> max.times(2));
+		assertThrows(ArithmeticException.class, () -> Money.of("1e30"));
+	}
+
+	@Test
+	@DisplayName("Should print plain rupees with two decimals")
+	void testToString() {
+		assertEquals("1500.05", Money.of("1500.05")
+				.toString());
+		assertEquals("-0.50", Money.of("-0.5")
+				.toString());
+		assertEquals("0.00", Money.ZERO.toString());
+		assertEquals(12.34, Money.of("12.34")
+				.doubleValue());
+	}
+}
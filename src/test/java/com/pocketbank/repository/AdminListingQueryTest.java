@@ -0,0 +1,189 @@
+package com.pocketbank.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.FixedDeposit;
+import com.pocketbank.entity.Loan;
+import com.pocketbank.entity.User;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.entity.enums.Role;
+
+/*
+ * Statement counts of the admin listings: a page of rows and its owners is one
+ * query plus the count, however many rows the page has, so an N+1 fails here.
+ * Runs on H2 in MySQL mode
+ * */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+		"spring.datasource.url=jdbc:h2:mem:admin-listings;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.properties.hibernate.generate_statistics=true" })
+@DisplayName("Admin Listing Query Tests")
+public class AdminListingQueryTest {
+
+	private static final int CUSTOMERS = 5;
+	// smaller than every listing, so each page also runs its count query
+	private static final PageRequest PAGE = PageRequest.of(0, 3, Sort.by("id"));
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private AccountRepository accountRepository;
+
+	@Autowired
+	private LoanRepository loanRepository;
+
+	@Autowired
+	private FixedDepositRepository fixedDepositRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < CUSTOMERS; i++) {
+			User user = entityManager.persist(User.builder()
+					.username("customer" + i)
+					.password("secret")
+					.fullName("Customer " + i)
+					.email("customer" + i + "@pocketbank.test")
+					.phoneNumber("90000000" + i)
+					.address("Street " + i)
+					.role(Role.CUSTOMER)
+					.build());
+			for (AccountType type : List.of(AccountType.SAVINGS, AccountType.CHECKING)) {
+				entityManager.persist(Account.builder()
+						.accountNumber(String.format("PB%08d%s", i, type.name()
+								.charAt(0)))
+						.accountType(type)
+						.status(AccountStatus.APPROVED)
+						.user(user)
+						.build());
+			}
+			entityManager.persist(Loan.builder()
+					.loanAmount(new BigDecimal("10000.00"))
+					.tenureMonths(12)
+					.interestRate(10.5)
+					.monthlyEmi(new BigDecimal("881.60"))
+					.purpose("Loan " + i)
+					.status(LoanStatus.PENDING)
+					.user(user)
+					.build());
+			entityManager.persist(FixedDeposit.builder()
+					.principalAmount(new BigDecimal("5000.00"))
+					.tenureMonths(12)
+					.interestRate(7.0)
+					.maturityAmount(new BigDecimal("5350.00"))
+					.maturityDate(LocalDateTime.now()
+							.plusMonths(12))
+					.user(user)
+					.build());
+		}
+		entityManager.flush();
+		entityManager.clear();
+
+		statistics = entityManager.getEntityManager()
+				.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	@DisplayName("Should load a page of accounts with their owners in one query")
+	void testAccountPage() {
+		Page<Account> page = accountRepository.findAdminPage(null, "%customer%", PAGE);
+
+		assertEquals(CUSTOMERS * 2, page.getTotalElements());
+		assertStatements(2, () -> page.getContent()
+				.stream()
+				.map(account -> account.getUser()
+						.getFullName())
+				.toList());
+	}
+
+	@Test
+	@DisplayName("Should load a page of loans with their applicants in one query")
+	void testLoanPage() {
+		Page<Loan> page = loanRepository.findAdminPage(LoanStatus.PENDING, null, PAGE);
+
+		assertEquals(CUSTOMERS, page.getTotalElements());
+		assertStatements(2, () -> page.getContent()
+				.stream()
+				.map(loan -> loan.getUser()
+						.getFullName())
+				.toList());
+	}
+
+	@Test
+	@DisplayName("Should load pending loans with the applicants' accounts in one query")
+	void testPendingLoans() {
+		List<Loan> loans = loanRepository
+				.findWithApplicantAccountsByStatusOrderByAppliedAtAsc(LoanStatus.PENDING);
+
+		assertEquals(CUSTOMERS, loans.size());
+		assertStatements(1, () -> loans.stream()
+				.mapToInt(loan -> loan.getUser()
+						.getAccounts()
+						.size())
+				.sum());
+	}
+
+	@Test
+	@DisplayName("Should load a page of fixed deposits with their owners in one query")
+	void testFixedDepositPage() {
+		Page<FixedDeposit> page = fixedDepositRepository.findAdminPage(null, null, PAGE);
+
+		assertEquals(CUSTOMERS, page.getTotalElements());
+		assertStatements(2, () -> page.getContent()
+				.stream()
+				.map(fd -> fd.getUser()
+						.getFullName())
+				.toList());
+	}
+
+	@Test
+	@DisplayName("Should load a page of customers in one query")
+	void testCustomerPage() {
+		Page<User> page = userRepository.findAdminPage(Role.CUSTOMER, "%customer%", PAGE);
+
+		assertEquals(CUSTOMERS, page.getTotalElements());
+		assertStatements(2, () -> page.getContent()
+				.stream()
+				.map(User::getFullName)
+				.toList());
+	}
+
+	// statements since setUp, after touching what the admin template renders
+	private void assertStatements(long expected, Supplier<?> render) {
+		render.get();
+		assertEquals(expected, statistics.getPrepareStatementCount(),
+				"Statements run for the page");
+	}
+}
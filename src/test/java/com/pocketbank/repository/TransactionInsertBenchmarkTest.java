@@ -0,0 +1,161 @@
+package com.pocketbank.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/*
+ * Rows/sec for transaction postings written the old way (IDENTITY, one round trip
+ * per row) against pooled ids with JDBC batching.
+ * Needs a MySQL database: set POCKETBANK_BENCH_URL, POCKETBANK_BENCH_USER and
+ * POCKETBANK_BENCH_PASSWORD to run it.
+ * */
+@EnabledIfEnvironmentVariable(named = "POCKETBANK_BENCH_URL", matches = ".+")
+@DisplayName("Transaction Insert Benchmark")
+public class TransactionInsertBenchmarkTest {
+
+	private static final int ROWS = 10_000;
+	private static final int BATCH_SIZE = 100;
+
+	private Connection connection;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		Properties properties = new Properties();
+		properties.setProperty("user", System.getenv("POCKETBANK_BENCH_USER"));
+		properties.setProperty("password", System.getenv("POCKETBANK_BENCH_PASSWORD"));
+		properties.setProperty("rewriteBatchedStatements", "true");
+		connection = DriverManager.getConnection(System.getenv("POCKETBANK_BENCH_URL"),
+				properties);
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("DROP TABLE IF EXISTS bench_identity");
+			statement.execute("DROP TABLE IF EXISTS bench_pooled");
+			statement.execute("DROP TABLE IF EXISTS bench_id_generators");
+			statement.execute("CREATE TABLE bench_identity (id BIGINT AUTO_INCREMENT PRIMARY KEY,"
+					+ " type VARCHAR(20), amount DECIMAL(15,2), balance_after DECIMAL(15,2),"
+					+ " account_id BIGINT)");
+			statement.execute("CREATE TABLE bench_pooled (id BIGINT PRIMARY KEY,"
+					+ " type VARCHAR(20), amount DECIMAL(15,2), balance_after DECIMAL(15,2),"
+					+ " account_id BIGINT)");
+			statement.execute("CREATE TABLE bench_id_generators (sequence_name VARCHAR(255)"
+					+ " PRIMARY KEY, next_val BIGINT)");
+			statement.execute("INSERT INTO bench_id_generators VALUES ('transactions', 0)");
+		}
+	}
+
+	@AfterEach
+	void tearDown() throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("DROP TABLE bench_identity");
+			statement.execute("DROP TABLE bench_pooled");
+			statement.execute("DROP TABLE bench_id_generators");
+		}
+		connection.close();
+	}
+
+	@Test
+	@DisplayName("Pooled ids with batching beat IDENTITY inserts")
+	void testInsertThroughput() throws SQLException {
+		connection.setAutoCommit(false);
+
+		long began = System.nanoTime();
+		insertWithIdentity();
+		connection.commit();
+		double identityRate = ROWS / seconds(began);
+
+		began = System.nanoTime();
+		insertWithPooledIdsAndBatching();
+		connection.commit();
+		double pooledRate = ROWS / seconds(began);
+
+		assertEquals(ROWS, count("bench_identity"));
+		assertEquals(ROWS, count("bench_pooled"));
+		System.out.printf("IDENTITY, row by row : %.0f rows/sec%n", identityRate);
+		System.out.printf("pooled ids, batch %d : %.0f rows/sec (x%.1f)%n", BATCH_SIZE,
+				pooledRate, pooledRate / identityRate);
+	}
+
+	// what Hibernate does for GenerationType.IDENTITY: insert and read the key back
+	private void insertWithIdentity() throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement(
+				"INSERT INTO bench_identity (type, amount, balance_after, account_id)"
+						+ " VALUES (?, ?, ?, ?)",
+				Statement.RETURN_GENERATED_KEYS)) {
+			for (int i = 0; i < ROWS; i++) {
+				bind(insert, 1, i);
+				insert.executeUpdate();
+				try (ResultSet keys = insert.getGeneratedKeys()) {
+					keys.next();
+				}
+			}
+		}
+	}
+
+	// what Hibernate does for the pooled table generator plus hibernate.jdbc.batch_size
+	private void insertWithPooledIdsAndBatching() throws SQLException {
+		try (PreparedStatement nextBlock = connection.prepareStatement(
+				"UPDATE bench_id_generators SET next_val = next_val + ?"
+						+ " WHERE sequence_name = 'transactions'");
+				PreparedStatement readBlock = connection.prepareStatement(
+						"SELECT next_val FROM bench_id_generators"
+								+ " WHERE sequence_name = 'transactions'");
+				PreparedStatement insert = connection.prepareStatement(
+						"INSERT INTO bench_pooled (id, type, amount, balance_after, account_id)"
+								+ " VALUES (?, ?, ?, ?, ?)")) {
+
+			long nextId = 0;
+			long blockEnd = 0;
+			for (int i = 0; i < ROWS; i++) {
+				if (nextId == blockEnd) {
+					nextBlock.setInt(1, BATCH_SIZE);
+					nextBlock.executeUpdate();
+					try (ResultSet rs = readBlock.executeQuery()) {
+						rs.next();
+						blockEnd = rs.getLong(1);
+					}
+					nextId = blockEnd - BATCH_SIZE;
+				}
+				insert.setLong(1, ++nextId);
+				bind(insert, 2, i);
+				insert.addBatch();
+				if ((i + 1) % BATCH_SIZE == 0) {
+					insert.executeBatch();
+				}
+			}
+			insert.executeBatch();
+		}
+	}
+
+	private void bind(PreparedStatement insert, int first, int i) throws SQLException {
+		insert.setString(first, i % 2 == 0 ? "DEPOSIT" : "WITHDRAWAL");
+		insert.setBigDecimal(first + 1, new BigDecimal("100.00"));
+		insert.setBigDecimal(first + 2, BigDecimal.valueOf(i, 2));
+		insert.setLong(first + 3, i % 50);
+	}
+
+	private long count(String table) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	private static double seconds(long began) {
+		return (System.nanoTime() - began) / 1_000_000_000.0;
+	}
+}
@@ -0,0 +1,92 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.pocketbank.config.service.AccountDescriptorCache;
+import com.pocketbank.config.service.AccountDescriptorCache.AccountDescriptor;
+import com.pocketbank.config.service.AccountStatusChangedEvent;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.repository.AccountRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the account descriptor cache
+ * One lookup per account number, eviction on status changes, no kept misses
+ * */
+@DisplayName("Account Descriptor Cache Tests")
+public class AccountDescriptorCacheTest {
+
+	private AccountRepository accountRepository;
+	private AccountDescriptorCache accountDescriptorCache;
+
+	@BeforeEach
+	void setUp() {
+		accountRepository = mock(AccountRepository.class);
+		accountDescriptorCache = new AccountDescriptorCache(accountRepository,
+				new SimpleMeterRegistry(), 2);
+		when(accountRepository.findDescriptor("PB00000012344")).thenReturn(List.<Object[]>of(
+				new Object[] { 10L, 1L, AccountType.SAVINGS, AccountStatus.PENDING }));
+	}
+
+	@Test
+	@DisplayName("Should look an account up once and serve it from the cache after")
+	void testFind_Cached() {
+		// When
+		AccountDescriptor descriptor = accountDescriptorCache.find("PB00000012344")
+				.orElseThrow();
+		accountDescriptorCache.find("PB00000012344");
+
+		// Then
+		assertEquals(10L, descriptor.id());
+		assertEquals(1L, descriptor.userId());
+		assertFalse(descriptor.isActive());
+		verify(accountRepository, times(1)).findDescriptor("PB00000012344");
+	}
+
+	@Test
+	@DisplayName("Should reload an account after its status changed")
+	void testStatusChanged_Evicts() {
+		// Given
+		accountDescriptorCache.find("PB00000012344");
+		when(accountRepository.findDescriptor("PB00000012344")).thenReturn(List.<Object[]>of(
+				new Object[] { 10L, 1L, AccountType.SAVINGS, AccountStatus.APPROVED }));
+
+		// When
+		accountDescriptorCache.onAccountStatusChanged(
+				new AccountStatusChangedEvent(10L, "PB00000012344", AccountStatus.APPROVED));
+
+		// Then
+		assertTrue(accountDescriptorCache.find("PB00000012344")
+				.orElseThrow()
+				.isActive());
+	}
+
+	@Test
+	@DisplayName("Should not keep unknown account numbers")
+	void testFind_Unknown() {
+		// Given
+		when(accountRepository.findDescriptor("PB00000000018")).thenReturn(List.of());
+
+		// When
+		boolean found = accountDescriptorCache.find("PB00000000018")
+				.isPresent();
+
+		// Then
+		assertFalse(found);
+		assertEquals(0, accountDescriptorCache.size());
+	}
+}
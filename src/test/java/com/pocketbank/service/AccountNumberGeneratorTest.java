@@ -0,0 +1,148 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.AccountNumberGenerator;
+import com.pocketbank.entity.NumberSequence;
+import com.pocketbank.repository.NumberSequenceRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the account number generator
+ * Format and check digit, one row lock per block, no repeats under contention
+ * */
+@DisplayName("Account Number Generator Tests")
+public class AccountNumberGeneratorTest {
+
+	private NumberSequenceRepository numberSequenceRepository;
+	private NumberSequence sequence;
+
+	@BeforeEach
+	void setUp() {
+		numberSequenceRepository = mock(NumberSequenceRepository.class);
+		sequence = NumberSequence.builder()
+				.name("account_numbers")
+				.nextValue(1234L)
+				.build();
+		when(numberSequenceRepository.findByNameForUpdate("account_numbers"))
+				.thenAnswer(invocation -> Optional.of(sequence));
+	}
+
+	@Test
+	@DisplayName("Should hand out fixed-length numbers with a Luhn check digit")
+	void testNext_Format() {
+		// Given
+		AccountNumberGenerator generator = generator(10);
+
+		// When
+		String first = generator.next();
+		String second = generator.next();
+
+		// Then
+		assertEquals("PB00000012344", first);
+		assertEquals("PB00000012351", second);
+		assertTrue(AccountNumberGenerator.isValid(first));
+		assertTrue(AccountNumberGenerator.isValid(second));
+	}
+
+	@Test
+	@DisplayName("Should reject a wrong check digit and swapped digits")
+	void testIsValid_Mistyped() {
+		assertFalse(AccountNumberGenerator.isValid("PB00000012345"));
+		assertFalse(AccountNumberGenerator.isValid("PB00000021344"));
+		assertFalse(AccountNumberGenerator.isValid("PB0000001234X"));
+		assertFalse(AccountNumberGenerator.isValid("00000012344"));
+		assertFalse(AccountNumberGenerator.isValid(null));
+		// numbers issued before the check digit only need the shape
+		assertTrue(AccountNumberGenerator.isValid("PB1760000000000123"));
+	}
+
+	@Test
+	@DisplayName("Should lock the sequence row once per block")
+	void testNext_OneLeasePerBlock() {
+		// Given
+		AccountNumberGenerator generator = generator(10);
+
+		// When
+		for (int i = 0; i < 25; i++) {
+			generator.next();
+		}
+
+		// Then: three blocks of ten
+		verify(numberSequenceRepository, times(3)).findByNameForUpdate("account_numbers");
+		assertEquals(1264L, sequence.getNextValue());
+	}
+
+	@Test
+	@DisplayName("Should create the sequence row on first use")
+	void testNext_CreatesSequence() {
+		// Given
+		when(numberSequenceRepository.findByNameForUpdate("account_numbers"))
+				.thenReturn(Optional.empty());
+		AccountNumberGenerator generator = generator(10);
+
+		// When
+		String number = generator.next();
+
+		// Then
+		assertEquals("PB00000000018", number);
+		verify(numberSequenceRepository).saveAndFlush(any(NumberSequence.class));
+	}
+
+	@Test
+	@DisplayName("Should never hand out the same number twice across threads")
+	void testNext_Concurrent() throws Exception {
+		// Given
+		AccountNumberGenerator generator = generator(7);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+
+		// When
+		List<Future<List<String>>> futures = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			futures.add(pool.submit(() -> {
+				List<String> numbers = new ArrayList<>();
+				for (int i = 0; i < 500; i++) {
+					numbers.add(generator.next());
+				}
+				return numbers;
+			}));
+		}
+		Set<String> unique = new HashSet<>();
+		for (Future<List<String>> future : futures) {
+			unique.addAll(future.get());
+		}
+		pool.shutdown();
+
+		// Then
+		assertEquals(4000, unique.size());
+		assertTrue(unique.stream()
+				.allMatch(AccountNumberGenerator::isValid));
+	}
+
+	private AccountNumberGenerator generator(int blockSize) {
+		return new AccountNumberGenerator(numberSequenceRepository,
+				mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), blockSize);
+	}
+}
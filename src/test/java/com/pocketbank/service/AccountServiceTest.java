@@ -3,11 +3,10 @@ package com.pocketbank.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -19,9 +18,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
+import com.pocketbank.config.service.AccountNumberGenerator;
 import com.pocketbank.config.service.AccountService;
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.DashboardBroadcaster;
+import com.pocketbank.config.service.ShardedBalanceService;
+import com.pocketbank.config.service.UserProfileService;
 import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.AccountStatus;
 import com.pocketbank.entity.enums.AccountType;
@@ -38,6 +48,24 @@ public class AccountServiceTest {
 	@Mock
 	private UserRepository userRepository;
 
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private ShardedBalanceService shardedBalanceService;
+
+	@Mock
+	private AggregateCounterService aggregateCounterService;
+
+	@Mock
+	private DashboardBroadcaster dashboardBroadcaster;
+
+	@Mock
+	private UserProfileService userProfileService;
+
+	@Mock
+	private AccountNumberGenerator accountNumberGenerator;
+
 	@InjectMocks
 	private AccountService accountService;
 
@@ -55,7 +83,7 @@ public class AccountServiceTest {
 		testAccount = Account.builder()
 				.accountNumber("PB123456789")
 				.accountType(AccountType.SAVINGS)
-				.balance(BigDecimal.ZERO)
+				.balance(Money.ZERO)
 				.status(AccountStatus.PENDING)
 				.user(testUser)
 				.build();
@@ -67,8 +95,8 @@ public class AccountServiceTest {
 
 		// Given
 		when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-		when(accountRepository.existsByAccountNumber(anyString())).thenReturn(false);
-		when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
+		when(accountNumberGenerator.next()).thenReturn("PB00000012344");
+		when(accountRepository.save(any(Account.class))).thenAnswer(i -> i.getArgument(0));
 
 		// When
 		Account result = accountService.createAccount(1L, AccountType.SAVINGS);
@@ -77,6 +105,7 @@ public class AccountServiceTest {
 		assertNotNull(result);
 		assertEquals(AccountType.SAVINGS, result.getAccountType());
 		assertEquals(AccountStatus.PENDING, result.getStatus());
+		assertEquals("PB00000012344", result.getAccountNumber());
 		verify(accountRepository).save(any(Account.class));
 	}
 
@@ -96,6 +125,25 @@ public class AccountServiceTest {
 		verify(accountRepository).save(any(Account.class));
 	}
 
+	@Test
+	@DisplayName("Should count the live balance of a sharded account when approving it")
+	void testApproveAccount_ShardedBalance() {
+		// Given
+		testAccount.setBalanceSlots(8);
+		when(accountRepository.findById(1L)).thenReturn(Optional.of(testAccount));
+		when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
+		when(shardedBalanceService.balanceOf(testAccount)).thenReturn(Money.of("750.00"));
+
+		// when
+		accountService.approveAccount(1L);
+
+		// Then
+		verify(aggregateCounterService).accountStatusChanged(Money.of("750.00"),
+				AccountStatus.PENDING, AccountStatus.APPROVED);
+		verify(dashboardBroadcaster).accountStatusChanged(Money.of("750.00"),
+				AccountStatus.PENDING, AccountStatus.APPROVED);
+	}
+
 	@Test
 	@DisplayName("Should get all user accounts")
 	void testGetUserAccounts_Success() {
@@ -116,6 +164,24 @@ public class AccountServiceTest {
 						.getAccountNumber());
 	}
 
+	@Test
+	@DisplayName("Should show the live balance of a sharded account without changing the entity")
+	void testGetUserAccounts_ShardedBalance() {
+
+		// Given
+		testAccount.setBalanceSlots(8);
+		when(accountRepository.findByUserId(1L)).thenReturn(List.of(testAccount));
+		when(shardedBalanceService.balanceOf(testAccount)).thenReturn(Money.of("750.00"));
+
+		// When
+		List<Account> result = accountService.getUserAccounts(1L);
+
+		// Then
+		assertEquals(Money.of("750.00"), result.get(0)
+				.getBalance());
+		assertEquals(Money.ZERO, testAccount.getBalance());
+	}
+
 	@Test
 	@DisplayName("Should suspend account successfully")
 	void testSuspendAccount_Success() {
@@ -133,4 +199,41 @@ public class AccountServiceTest {
 		assertEquals(AccountStatus.SUSPENDED, result.getStatus());
 	}
 
+	@Test
+	@DisplayName("Should page accounts with a whitelisted sort and capped page size")
+	void testGetAccountsPage() {
+
+		// Given
+		PageRequest expected = PageRequest.of(2, 100, Sort.by(Sort.Direction.ASC, "user.fullName")
+				.and(Sort.by(Sort.Direction.ASC, "id")));
+		when(accountRepository.findAdminPage(AccountStatus.APPROVED, "%pb\\_12%", expected))
+				.thenReturn(new PageImpl<>(List.of(testAccount), expected, 201));
+
+		// When
+		Page<Account> result = accountService.getAccountsPage(AccountStatus.APPROVED, " PB_12 ", 2,
+				5_000, "customer", "asc");
+
+		// Then
+		assertEquals(1, result.getNumberOfElements());
+		assertEquals(3, result.getTotalPages());
+	}
+
+	@Test
+	@DisplayName("Should fall back to the default sort for an unknown sort key")
+	void testGetAccountsPage_UnknownSort() {
+
+		// Given
+		PageRequest expected = PageRequest.of(0, 25, Sort.by(Sort.Direction.DESC, "createdAt")
+				.and(Sort.by(Sort.Direction.DESC, "id")));
+		when(accountRepository.findAdminPage(eq(null), eq(null), eq(expected)))
+				.thenReturn(new PageImpl<>(List.of(), expected, 0));
+
+		// When
+		Page<Account> result = accountService.getAccountsPage(null, " ", -1, 0, "password",
+				"sideways");
+
+		// Then
+		assertEquals(0, result.getTotalElements());
+	}
+
 }
@@ -0,0 +1,159 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.Aggregate;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.AggregateCounterRepository;
+import com.pocketbank.repository.TransactionRepository;
+import com.pocketbank.repository.UserRepository;
+
+/*
+ * Tests for the striped bank-wide counters
+ * Posting deltas, status changes, summing stripes and the nightly check
+ * */
+@DisplayName("Aggregate Counter Service Tests")
+public class AggregateCounterServiceTest {
+
+	private AggregateCounterRepository counterRepository;
+	private TransactionRepository transactionRepository;
+	private AccountRepository accountRepository;
+	private UserRepository userRepository;
+	private AggregateCounterService aggregateCounterService;
+
+	@BeforeEach
+	void setUp() {
+		counterRepository = mock(AggregateCounterRepository.class);
+		transactionRepository = mock(TransactionRepository.class);
+		accountRepository = mock(AccountRepository.class);
+		userRepository = mock(UserRepository.class);
+		when(counterRepository.add(any(), anyInt(), anyLong())).thenReturn(1);
+
+		aggregateCounterService = new AggregateCounterService(counterRepository,
+				transactionRepository, accountRepository, userRepository,
+				mock(PlatformTransactionManager.class), 4, true);
+	}
+
+	@Test
+	@DisplayName("Should count deposits and withdrawals and move the balance")
+	void testRecordPostings_DepositAndWithdrawal() {
+		// When
+		aggregateCounterService.recordPostings(List.of(posting(TransactionType.DEPOSIT, "500.00"),
+				posting(TransactionType.WITHDRAWAL, "120.50")));
+
+		// Then
+		verify(counterRepository).add(eq(Aggregate.TRANSACTIONS), anyInt(), eq(2L));
+		verify(counterRepository).add(eq(Aggregate.DEPOSITS), anyInt(), eq(50_000L));
+		verify(counterRepository).add(eq(Aggregate.WITHDRAWALS), anyInt(), eq(12_050L));
+		verify(counterRepository).add(eq(Aggregate.BALANCE), anyInt(), eq(37_950L));
+	}
+
+	@Test
+	@DisplayName("Should leave the balance alone for both legs of a transfer")
+	void testRecordPostings_TransferLegsCancel() {
+		// When
+		aggregateCounterService.recordPostings(List.of(posting(TransactionType.TRANSFER_OUT, "75.00"),
+				posting(TransactionType.TRANSFER_IN, "75.00")));
+
+		// Then
+		verify(counterRepository).add(eq(Aggregate.TRANSACTIONS), anyInt(), eq(2L));
+		verify(counterRepository, never()).add(eq(Aggregate.BALANCE), anyInt(), anyLong());
+		verify(counterRepository, never()).add(eq(Aggregate.DEPOSITS), anyInt(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should only count approved balances")
+	void testAccountStatusChanged() {
+		// When
+		aggregateCounterService.accountStatusChanged(Money.of("200.00"), AccountStatus.PENDING,
+				AccountStatus.APPROVED);
+		aggregateCounterService.accountStatusChanged(Money.of("80.00"), AccountStatus.APPROVED,
+				AccountStatus.SUSPENDED);
+		aggregateCounterService.accountStatusChanged(Money.of("10.00"), AccountStatus.SUSPENDED,
+				AccountStatus.SUSPENDED);
+
+		// Then
+		verify(counterRepository).add(eq(Aggregate.BALANCE), anyInt(), eq(20_000L));
+		verify(counterRepository).add(eq(Aggregate.BALANCE), anyInt(), eq(-8_000L));
+		verify(counterRepository, never()).add(eq(Aggregate.BALANCE), anyInt(), eq(1_000L));
+	}
+
+	@Test
+	@DisplayName("Should add up the stripes into totals")
+	void testTotals() {
+		// Given
+		when(counterRepository.sumByName()).thenReturn(List.of(
+				new Object[] { Aggregate.DEPOSITS, 150_000L },
+				new Object[] { Aggregate.BALANCE, 99_950L },
+				new Object[] { Aggregate.CUSTOMERS, 3L }));
+
+		// When
+		AggregateCounterService.Totals totals = aggregateCounterService.totals();
+
+		// Then
+		assertEquals(Money.of("1500.00"), totals.deposits());
+		assertEquals(Money.of("999.50"), totals.balance());
+		assertEquals(Money.ZERO, totals.withdrawals());
+		assertEquals(3L, totals.customers());
+		assertEquals(0L, totals.transactions());
+	}
+
+	@Test
+	@DisplayName("Should repair a drifted counter by the difference")
+	void testVerify_RepairsDrift() {
+		// Given: the counters missed one posting of 10.00
+		when(counterRepository.sumByName()).thenReturn(List.of(
+				new Object[] { Aggregate.DEPOSITS, 10_000L },
+				new Object[] { Aggregate.BALANCE, 10_000L },
+				new Object[] { Aggregate.TRANSACTIONS, 1L },
+				new Object[] { Aggregate.ACCOUNTS, 1L },
+				new Object[] { Aggregate.CUSTOMERS, 1L }));
+		when(transactionRepository.getTotalDeposits()).thenReturn(new BigDecimal("110.00"));
+		when(transactionRepository.getTotalWithdrawals()).thenReturn(BigDecimal.ZERO);
+		when(accountRepository.getLiveTotalBalance()).thenReturn(new BigDecimal("110.00"));
+		when(transactionRepository.countBy()).thenReturn(2L);
+		when(accountRepository.countBy()).thenReturn(1L);
+		when(userRepository.countCustomers()).thenReturn(1L);
+
+		// When
+		List<AggregateCounterService.Mismatch> mismatches = aggregateCounterService.verify(true);
+
+		// Then
+		assertEquals(3, mismatches.size());
+		assertTrue(mismatches.contains(new AggregateCounterService.Mismatch(Aggregate.DEPOSITS,
+				10_000L, 11_000L)));
+		verify(counterRepository).add(eq(Aggregate.DEPOSITS), anyInt(), eq(1_000L));
+		verify(counterRepository).add(eq(Aggregate.BALANCE), anyInt(), eq(1_000L));
+		verify(counterRepository).add(eq(Aggregate.TRANSACTIONS), anyInt(), eq(1L));
+		verify(counterRepository, never()).add(eq(Aggregate.CUSTOMERS), anyInt(), anyLong());
+	}
+
+	private static Transaction posting(TransactionType type, String amount) {
+		return Transaction.builder()
+				.type(type)
+				.amount(Money.of(amount))
+				.build();
+	}
+}
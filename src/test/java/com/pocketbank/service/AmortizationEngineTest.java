@@ -0,0 +1,176 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.AmortizationEngine;
+import com.pocketbank.config.service.AmortizationEngine.Installment;
+import com.pocketbank.entity.Loan;
+import com.pocketbank.entity.LoanInstallment;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.repository.LoanInstallmentRepository;
+import com.pocketbank.repository.LoanRepository;
+
+import jakarta.persistence.EntityManager;
+
+/*
+ * Tests for the loan amortization engine
+ * EMIs from the factor tables, schedules that end at zero, loan book generation
+ * */
+@DisplayName("Amortization Engine Tests")
+public class AmortizationEngineTest {
+
+	private LoanRepository loanRepository;
+	private LoanInstallmentRepository installmentRepository;
+	private EntityManager entityManager;
+	private AmortizationEngine engine;
+
+	@BeforeEach
+	void setUp() {
+		loanRepository = mock(LoanRepository.class);
+		installmentRepository = mock(LoanInstallmentRepository.class);
+		entityManager = mock(EntityManager.class);
+		engine = new AmortizationEngine(loanRepository, installmentRepository,
+				mock(PlatformTransactionManager.class), entityManager, 360, 2, 500, 10);
+	}
+
+	@Test
+	@DisplayName("Should give the same EMI as the closed formula for every tier and tenure")
+	void testEmi_MatchesFormula() {
+		for (double rate : new double[] { 8.5, 9.0, 9.5, 10.0 }) {
+			for (int months = 1; months <= 360; months++) {
+				for (String principal : List.of("10000.00", "123456.78", "5000000.00")) {
+					assertEquals(formulaEmi(new BigDecimal(principal), rate, months),
+							engine.emi(new BigDecimal(principal), rate, months),
+							rate + "% over " + months + " months");
+				}
+			}
+		}
+		assertEquals(new BigDecimal("8721.98"), engine.emi(new BigDecimal("100000.00"), 8.5, 12));
+	}
+
+	@Test
+	@DisplayName("Should split each EMI into interest and principal and end at zero")
+	void testSchedule_EndsAtZero() {
+		// Given
+		Money principal = Money.of("100000.00");
+		Money emi = Money.of(engine.emi(principal.toBigDecimal(), 8.5, 12));
+
+		// When
+		List<Installment> schedule = engine.schedule(principal, 8.5, 12, emi,
+				LocalDate.of(2025, 1, 31));
+
+		// Then
+		assertEquals(12, schedule.size());
+		Installment first = schedule.get(0);
+		assertEquals(Money.of("708.33"), first.interest());
+		assertEquals(emi, first.amount());
+		assertEquals(Money.of("100000.00").minus(first.principal()), first.balance());
+		assertEquals(LocalDate.of(2025, 2, 28), first.dueDate());
+
+		Money repaid = Money.ZERO;
+		for (Installment installment : schedule) {
+			assertEquals(installment.amount(), installment.principal()
+					.plus(installment.interest()));
+			repaid = repaid.plus(installment.principal());
+		}
+		assertEquals(principal, repaid);
+		assertEquals(Money.ZERO, schedule.get(11)
+				.balance());
+	}
+
+	@Test
+	@DisplayName("Should generate the schedules of the loan book range by range, batch by batch")
+	void testGenerateLoanBook() {
+		// Given: ids 1..1200 in ranges of 500, one range with loans still to schedule
+		when(loanRepository.findIdBounds())
+				.thenReturn(Collections.singletonList(new Object[] { 1L, 1200L }));
+		when(loanRepository.findWithoutSchedule(anyLong(), anyLong(), anyCollection()))
+				.thenReturn(List.of());
+		when(loanRepository.findWithoutSchedule(eq(501L), eq(1000L), anyCollection()))
+				.thenReturn(List.of(loan(600L, 12), loan(601L, 24)));
+
+		// When
+		AmortizationEngine.BookReport report = engine.generateLoanBook();
+
+		// Then
+		assertEquals(2, report.loans());
+		assertEquals(36, report.installments());
+		verify(loanRepository).findWithoutSchedule(eq(1L), eq(500L), anyCollection());
+		verify(loanRepository).findWithoutSchedule(eq(1001L), eq(1200L), anyCollection());
+		// 36 rows in batches of 10, each flushed and cleared
+		verify(installmentRepository, times(4)).saveAll(anyList());
+		verify(entityManager, times(4)).flush();
+		verify(entityManager, times(4)).clear();
+	}
+
+	@Test
+	@DisplayName("Should serve the stored schedule when there is one")
+	void testGetSchedule_Stored() {
+		// Given
+		Loan loan = loan(7L, 12);
+		List<LoanInstallment> stored = new ArrayList<>();
+		for (Installment installment : engine.schedule(loan)) {
+			stored.add(LoanInstallment.builder()
+					.loanId(7L)
+					.number(installment.number())
+					.dueDate(installment.dueDate())
+					.amount(installment.amount())
+					.principal(installment.principal())
+					.interest(installment.interest())
+					.balance(installment.balance())
+					.build());
+		}
+		when(installmentRepository.findByLoanIdOrderByNumberAsc(7L)).thenReturn(stored);
+
+		// When & Then
+		assertEquals(engine.schedule(loan), engine.getSchedule(loan));
+	}
+
+	// the EMI LoanService worked out before the factor tables
+	private static BigDecimal formulaEmi(BigDecimal principal, double annualRate, int months) {
+		BigDecimal monthlyRate = BigDecimal.valueOf(annualRate)
+				.divide(BigDecimal.valueOf(1200), MathContext.DECIMAL128);
+		BigDecimal growth = BigDecimal.ONE.add(monthlyRate)
+				.pow(months, MathContext.DECIMAL128);
+		BigDecimal factor = monthlyRate.multiply(growth, MathContext.DECIMAL128)
+				.divide(growth.subtract(BigDecimal.ONE), MathContext.DECIMAL128);
+		return Money.of(principal)
+				.times(factor)
+				.toBigDecimal();
+	}
+
+	private Loan loan(Long id, int months) {
+		BigDecimal amount = new BigDecimal("50000.00");
+		return Loan.builder()
+				.id(id)
+				.loanAmount(amount)
+				.tenureMonths(months)
+				.interestRate(9.0)
+				.monthlyEmi(engine.emi(amount, 9.0, months))
+				.status(LoanStatus.DISBURSED)
+				.approvedAt(LocalDateTime.of(2025, 3, 1, 10, 0))
+				.build();
+	}
+}
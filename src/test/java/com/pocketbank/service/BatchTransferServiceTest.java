@@ -0,0 +1,205 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.AccountLockManager;
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.BatchTransferService;
+import com.pocketbank.config.service.BatchTransferService.BatchReport;
+import com.pocketbank.config.service.LedgerJournal;
+import com.pocketbank.config.service.PostingsCommitted;
+import com.pocketbank.config.service.RollupService;
+import com.pocketbank.config.service.ShardedBalanceService;
+import com.pocketbank.config.service.ShardedLedgerEngine;
+import com.pocketbank.config.service.TransactionService;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.User;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/*
+ * Tests for the streaming CSV batch transfer
+ * Per-row validation, one debit per chunk and batched postings
+ * */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Batch Transfer Service Tests")
+public class BatchTransferServiceTest {
+
+	@Mock
+	private AccountRepository accountRepository;
+
+	@Mock
+	private TransactionRepository transactionRepository;
+
+	@Mock
+	private LedgerJournal ledgerJournal;
+
+	@Mock
+	private AggregateCounterService aggregateCounterService;
+
+	@Mock
+	private RollupService rollupService;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
+	@Mock
+	private TransactionService transactionService;
+
+	@Mock
+	private ObjectProvider<ShardedLedgerEngine> ledgerEngine;
+
+	@Mock
+	private ShardedBalanceService shardedBalanceService;
+
+	private BatchTransferService batchTransferService;
+
+	private Account source;
+	private Account alice;
+	private Account bob;
+
+	@BeforeEach
+	void setUp() {
+		batchTransferService = new BatchTransferService(accountRepository, transactionRepository,
+				new AccountLockManager(16), ledgerJournal, aggregateCounterService, rollupService,
+				eventPublisher, transactionService, ledgerEngine, shardedBalanceService,
+				mock(PlatformTransactionManager.class), 2);
+
+		source = account("PB000000001", "1000.00", AccountStatus.APPROVED);
+		alice = account("PB000000002", "0.00", AccountStatus.APPROVED);
+		bob = account("PB000000003", "50.00", AccountStatus.SUSPENDED);
+		source.setUser(User.builder()
+				.id(1L)
+				.build());
+	}
+
+	@Test
+	@DisplayName("Should transfer valid rows and report failed ones")
+	void testTransfer_MixedRows() {
+		// Given
+		when(accountRepository.findByAccountNumber("PB000000001")).thenReturn(Optional.of(source));
+		when(accountRepository.findByAccountNumberInForUpdate(anyCollection()))
+				.thenReturn(List.of(source, alice, bob));
+		when(transactionRepository.saveAll(anyList())).thenAnswer(i -> i.getArgument(0));
+
+		String csv = """
+				toAccount,amount,description
+				PB000000002,300.00,Salary
+				PB000000003,100.00
+				PB000000002,abc
+				PB000000002,400.00,Bonus
+				PB000000009,10.00
+				PB000000002,500.00
+				PB000000002,1e30
+				""";
+
+		// When
+		BatchReport report = batchTransferService.transfer(1L, "PB000000001", stream(csv));
+
+		// Then
+		assertEquals(7, report.rows()
+				.size());
+		assertEquals(2, report.succeeded());
+		assertEquals(5, report.failed());
+		assertEquals(Money.of("700.00"), report.totalTransferred());
+		assertEquals("Account is not active", report.rows()
+				.get(1)
+				.message());
+		assertEquals("Invalid amount", report.rows()
+				.get(2)
+				.message());
+		assertEquals("Destination account not found.", report.rows()
+				.get(4)
+				.message());
+		assertEquals("Insufficient balance", report.rows()
+				.get(5)
+				.message());
+		assertFalse(report.rows()
+				.get(5)
+				.success());
+		assertEquals("Invalid amount", report.rows()
+				.get(6)
+				.message());
+
+		assertEquals(Money.of("300.00"), source.getBalance());
+		assertEquals(Money.of("700.00"), alice.getBalance());
+		assertEquals(Money.of("50.00"), bob.getBalance());
+		// three chunks of at most two parsed rows, postings saved once per chunk
+		verify(transactionRepository, times(3)).saveAll(anyList());
+		verify(ledgerJournal, times(4)).record(any());
+		verify(eventPublisher, times(3)).publishEvent(any(PostingsCommitted.class));
+	}
+
+	@Test
+	@DisplayName("Should reject a source account owned by someone else")
+	void testTransfer_NotOwner() {
+		when(accountRepository.findByAccountNumber("PB000000001")).thenReturn(Optional.of(source));
+
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> batchTransferService.transfer(2L, "PB000000001", stream("PB000000002,1")));
+		assertEquals("Source account does not belong to you", exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Should stream a large file through fixed size chunks")
+	void testTransfer_LargeFile() {
+		when(accountRepository.findByAccountNumber("PB000000001")).thenReturn(Optional.of(source));
+		when(accountRepository.findByAccountNumberInForUpdate(anyCollection()))
+				.thenReturn(List.of(source, alice));
+		when(transactionRepository.saveAll(anyList())).thenAnswer(i -> i.getArgument(0));
+
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			csv.append("PB000000002,1.00\n");
+		}
+
+		BatchReport report = batchTransferService.transfer(1L, "PB000000001",
+				stream(csv.toString()));
+
+		assertEquals(1000, report.succeeded());
+		assertTrue(report.rowsPerSecond() > 0);
+		assertEquals(Money.ZERO, source.getBalance());
+		assertEquals(Money.of("1000.00"), alice.getBalance());
+		verify(accountRepository, times(500)).findByAccountNumberInForUpdate(anyCollection());
+	}
+
+	private static Account account(String number, String balance, AccountStatus status) {
+		return Account.builder()
+				.accountNumber(number)
+				.balance(Money.of(balance))
+				.status(status)
+				.build();
+	}
+
+	private static InputStream stream(String csv) {
+		return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,154 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pocketbank.config.service.DashboardBroadcaster;
+import com.pocketbank.config.service.PostingsCommitted;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.entity.enums.TransactionType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the live admin dashboard broadcaster
+ * Coalescing changes into one event per push, and dropping slow clients
+ * */
+@DisplayName("Dashboard Broadcaster Tests")
+public class DashboardBroadcasterTest {
+
+	private static final int QUEUE_CAPACITY = 2;
+
+	private SimpleMeterRegistry meterRegistry;
+	private BlockingQueue<DashboardBroadcaster.DashboardDelta> sent;
+	private CountDownLatch release;
+	private boolean blockSends;
+	private DashboardBroadcaster broadcaster;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		sent = new LinkedBlockingQueue<>();
+		release = new CountDownLatch(1);
+		broadcaster = new DashboardBroadcaster(meterRegistry, 60_000, QUEUE_CAPACITY, 2) {
+			@Override
+			protected SseEmitter newEmitter() {
+				return new RecordingEmitter();
+			}
+		};
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		broadcaster.stop();
+	}
+
+	@Test
+	@DisplayName("Should send one coalesced event per push")
+	void testFlush_CoalescesChanges() throws InterruptedException {
+		// Given
+		broadcaster.subscribe();
+		broadcaster.onPostingsCommitted(
+				new PostingsCommitted(List.of(posting(1, TransactionType.DEPOSIT, "100.00"))));
+		broadcaster.onPostingsCommitted(
+				new PostingsCommitted(List.of(posting(2, TransactionType.WITHDRAWAL, "30.00"))));
+		broadcaster.accountOpened();
+		broadcaster.accountStatusChanged(Money.ZERO, AccountStatus.PENDING, AccountStatus.APPROVED);
+		broadcaster.loanStatusChanged(null, LoanStatus.PENDING);
+
+		// When
+		broadcaster.flush();
+		broadcaster.flush();
+
+		// Then
+		DashboardBroadcaster.DashboardDelta delta = sent.poll(5, TimeUnit.SECONDS);
+		assertEquals(2, delta.transactions());
+		assertEquals(0, new BigDecimal("100.00").compareTo(delta.deposits()));
+		assertEquals(0, new BigDecimal("70.00").compareTo(delta.balance()));
+		assertEquals(0, delta.pendingAccounts());
+		assertEquals(1, delta.pendingLoans());
+		assertEquals("PB000000002", delta.recent()
+				.get(0)
+				.accountNumber());
+		assertTrue(sent.isEmpty(), "Nothing changed between the two pushes");
+	}
+
+	@Test
+	@DisplayName("Should drop a client that stops reading instead of waiting for it")
+	void testFlush_DropsSlowClient() {
+		// Given: the client's first send never finishes
+		blockSends = true;
+		broadcaster.subscribe();
+
+		// When
+		long start = System.nanoTime();
+		for (int i = 0; i < QUEUE_CAPACITY + 5; i++) {
+			broadcaster.onPostingsCommitted(
+					new PostingsCommitted(List.of(posting(i, TransactionType.DEPOSIT, "1.00"))));
+			broadcaster.flush();
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		// Then
+		assertTrue(elapsedMs < 1_000, "Pushing took " + elapsedMs + " ms");
+		assertEquals(0, broadcaster.clientCount());
+		assertEquals(1.0, meterRegistry.get("pocketbank.dashboard.live.dropped")
+				.counter()
+				.count());
+	}
+
+	private static Transaction posting(long id, TransactionType type, String amount) {
+		return Transaction.builder()
+				.id(id)
+				.type(type)
+				.amount(Money.of(amount))
+				.transactionDate(LocalDateTime.of(2025, 1, 1, 10, 0))
+				.account(Account.builder()
+						.accountNumber(String.format("PB%09d", id))
+						.build())
+				.build();
+	}
+
+	// Emitter that records the deltas it is asked to send, or blocks
+	private class RecordingEmitter extends SseEmitter {
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (blockSends) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread()
+							.interrupt();
+				}
+				return;
+			}
+			builder.build()
+					.stream()
+					.map(part -> part.getData())
+					.filter(DashboardBroadcaster.DashboardDelta.class::isInstance)
+					.map(DashboardBroadcaster.DashboardDelta.class::cast)
+					.forEach(sent::add);
+		}
+	}
+}
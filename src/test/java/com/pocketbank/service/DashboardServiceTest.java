@@ -0,0 +1,149 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.DashboardService;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Loan;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.LoanRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/*
+ * Tests for the parallel admin dashboard
+ * Reads run side by side, slow or failing reads come back stale
+ * */
+@DisplayName("Dashboard Service Tests")
+public class DashboardServiceTest {
+
+	private static final long TIMEOUT_MS = 300;
+	private static final long SLOW_MS = 200;
+
+	private AggregateCounterService aggregateCounterService;
+	private TransactionRepository transactionRepository;
+	private AccountRepository accountRepository;
+	private LoanRepository loanRepository;
+	private DashboardService dashboardService;
+
+	@BeforeEach
+	void setUp() {
+		aggregateCounterService = mock(AggregateCounterService.class);
+		transactionRepository = mock(TransactionRepository.class);
+		accountRepository = mock(AccountRepository.class);
+		loanRepository = mock(LoanRepository.class);
+		dashboardService = new DashboardService(aggregateCounterService, transactionRepository,
+				accountRepository, loanRepository, mock(PlatformTransactionManager.class), 4,
+				TIMEOUT_MS);
+	}
+
+	@AfterEach
+	void tearDown() {
+		dashboardService.stop();
+	}
+
+	@Test
+	@DisplayName("Should take about as long as the slowest read, not the sum")
+	void testLoad_RunsReadsInParallel() {
+		// Given: every read takes 200 ms
+		when(aggregateCounterService.totals()).thenAnswer(inv -> slow(totals(5L)));
+		when(transactionRepository.findTop20ByOrderByTransactionDateDesc())
+				.thenAnswer(inv -> slow(List.of(new Transaction())));
+		when(accountRepository.findByStatusOrderByCreatedAtDesc(AccountStatus.PENDING))
+				.thenAnswer(inv -> slow(List.of(new Account(), new Account())));
+		when(loanRepository.findByStatus(LoanStatus.PENDING))
+				.thenAnswer(inv -> slow(List.of(new Loan())));
+
+		// When
+		long start = System.nanoTime();
+		DashboardService.Dashboard dashboard = dashboardService.load();
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		// Then
+		assertTrue(elapsedMs < 4 * SLOW_MS, "Dashboard took " + elapsedMs + " ms");
+		assertTrue(dashboard.stale()
+				.isEmpty());
+		assertEquals(5L, dashboard.totals()
+				.customers());
+		assertEquals(1, dashboard.recentTransactions()
+				.size());
+		assertEquals(2, dashboard.pendingAccounts()
+				.size());
+		assertEquals(1, dashboard.pendingLoans()
+				.size());
+	}
+
+	@Test
+	@DisplayName("Should not wait past the deadline for a slow read")
+	void testLoad_SlowReadIsStale() {
+		// Given
+		when(aggregateCounterService.totals()).thenReturn(totals(5L));
+		when(transactionRepository.findTop20ByOrderByTransactionDateDesc()).thenAnswer(inv -> {
+			Thread.sleep(10 * TIMEOUT_MS);
+			return List.of(new Transaction());
+		});
+		when(accountRepository.findByStatusOrderByCreatedAtDesc(AccountStatus.PENDING))
+				.thenReturn(List.of(new Account()));
+		when(loanRepository.findByStatus(LoanStatus.PENDING)).thenReturn(List.of());
+
+		// When
+		long start = System.nanoTime();
+		DashboardService.Dashboard dashboard = dashboardService.load();
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		// Then
+		assertTrue(elapsedMs < 3 * TIMEOUT_MS, "Dashboard took " + elapsedMs + " ms");
+		assertEquals(Set.of(DashboardService.RECENT_TRANSACTIONS), dashboard.stale());
+		assertTrue(dashboard.recentTransactions()
+				.isEmpty());
+		assertEquals(1, dashboard.pendingAccounts()
+				.size());
+	}
+
+	@Test
+	@DisplayName("Should fall back to the last good value when a read fails")
+	void testLoad_FailedReadKeepsLastValue() {
+		// Given
+		when(aggregateCounterService.totals()).thenReturn(totals(5L))
+				.thenThrow(new RuntimeException("Database unavailable"));
+		when(transactionRepository.findTop20ByOrderByTransactionDateDesc()).thenReturn(List.of());
+		when(accountRepository.findByStatusOrderByCreatedAtDesc(AccountStatus.PENDING))
+				.thenReturn(List.of());
+		when(loanRepository.findByStatus(LoanStatus.PENDING)).thenReturn(List.of());
+		dashboardService.load();
+
+		// When
+		DashboardService.Dashboard dashboard = dashboardService.load();
+
+		// Then
+		assertEquals(Set.of(DashboardService.TOTALS), dashboard.stale());
+		assertEquals(5L, dashboard.totals()
+				.customers());
+	}
+
+	private static <T> T slow(T value) throws InterruptedException {
+		Thread.sleep(SLOW_MS);
+		return value;
+	}
+
+	private static AggregateCounterService.Totals totals(long customers) {
+		return new AggregateCounterService.Totals(Money.ZERO, Money.ZERO, Money.ZERO, 0, 0,
+				customers);
+	}
+}
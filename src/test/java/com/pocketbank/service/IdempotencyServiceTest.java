@@ -0,0 +1,212 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.IdempotencyService;
+import com.pocketbank.config.service.ShardedLedgerEngine;
+import com.pocketbank.entity.IdempotencyRecord;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.IdempotencyRecordRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the idempotency key layer
+ * Retries replay the first outcome, reused keys with other parameters fail
+ * */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Idempotency Service Tests")
+public class IdempotencyServiceTest {
+
+	@Mock
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Mock
+	private TransactionRepository transactionRepository;
+
+	private SimpleMeterRegistry meterRegistry;
+	private IdempotencyService idempotencyService;
+	private Transaction posting;
+	private AtomicInteger runs;
+	private Supplier<Transaction> deposit;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		idempotencyService = new IdempotencyService(idempotencyRecordRepository,
+				transactionRepository, mock(PlatformTransactionManager.class), meterRegistry, 100,
+				60, false);
+
+		posting = Transaction.builder()
+				.id(42L)
+				.type(TransactionType.DEPOSIT)
+				.amount(Money.of("500.00"))
+				.balanceAfter(Money.of("1500.00"))
+				.build();
+		runs = new AtomicInteger();
+		deposit = () -> {
+			runs.incrementAndGet();
+			return posting;
+		};
+	}
+
+	@Test
+	@DisplayName("Should run the operation once and replay it for a retry")
+	void testExecute_RetryReplaysResult() {
+		// Given
+		when(idempotencyRecordRepository.findById("john:key-1")).thenReturn(Optional.empty());
+
+		// When
+		Transaction first = idempotencyService.execute("john", "key-1", "DEPOSIT|PB1|500", deposit);
+		Transaction retry = idempotencyService.execute("john", "key-1", "DEPOSIT|PB1|500", deposit);
+
+		// Then
+		assertSame(posting, first);
+		assertSame(posting, retry);
+		assertEquals(1, runs.get());
+		verify(idempotencyRecordRepository).claim(eq("john:key-1"), eq("DEPOSIT|PB1|500"),
+				any(LocalDateTime.class));
+		verify(idempotencyRecordRepository).complete("john:key-1", 42L);
+		assertEquals(1, idempotencyService.cacheSize());
+		assertEquals(0.5, idempotencyService.hitRatio());
+		assertEquals(1, meterRegistry.get("pocketbank.idempotency.lookups")
+				.tag("result", "cache_hit")
+				.counter()
+				.count());
+	}
+
+	@Test
+	@DisplayName("Should reject a key reused for a different request")
+	void testExecute_DifferentRequest() {
+		when(idempotencyRecordRepository.findById("john:key-1")).thenReturn(Optional.empty());
+		idempotencyService.execute("john", "key-1", "DEPOSIT|PB1|500", deposit);
+
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> idempotencyService.execute("john", "key-1", "DEPOSIT|PB1|900", deposit));
+		assertEquals("Idempotency key was already used for a different request",
+				exception.getMessage());
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	@DisplayName("Should replay a stored outcome when the cache does not have it")
+	void testExecute_StoredOutcome() {
+		when(idempotencyRecordRepository.findById("john:key-1")).thenReturn(Optional.of(stored()));
+		when(transactionRepository.findById(42L)).thenReturn(Optional.of(posting));
+
+		Transaction result = idempotencyService.execute("john", "key-1", "DEPOSIT|PB1|500",
+				deposit);
+
+		assertSame(posting, result);
+		assertEquals(0, runs.get());
+		verify(idempotencyRecordRepository, never()).claim(any(), any(), any());
+	}
+
+	@Test
+	@DisplayName("Should return the winner's outcome after losing a concurrent claim")
+	void testExecute_ConcurrentClaim() {
+		when(idempotencyRecordRepository.findById("john:key-1")).thenReturn(Optional.empty())
+				.thenReturn(Optional.of(stored()));
+		when(idempotencyRecordRepository.claim(any(), any(), any()))
+				.thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+		when(transactionRepository.findById(42L)).thenReturn(Optional.of(posting));
+
+		Transaction result = idempotencyService.execute("john", "key-1", "DEPOSIT|PB1|500",
+				deposit);
+
+		assertSame(posting, result);
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	@DisplayName("Should run every request without a key")
+	void testExecute_NoKey() {
+		idempotencyService.execute("john", null, "DEPOSIT|PB1|500", deposit);
+		idempotencyService.execute("john", "", "DEPOSIT|PB1|500", deposit);
+
+		assertEquals(2, runs.get());
+		verify(idempotencyRecordRepository, never()).findById(any());
+	}
+
+	@Test
+	@DisplayName("Should keep the key in progress until a timed-out ledger posting settles")
+	void testExecute_LedgerOutcomeUnknown() {
+		// Given: the sharded ledger does not answer in time
+		IdempotencyService sharded = new IdempotencyService(idempotencyRecordRepository,
+				transactionRepository, mock(PlatformTransactionManager.class), meterRegistry, 100,
+				60, true);
+		when(idempotencyRecordRepository.findById("john:key-1")).thenReturn(Optional.empty());
+		CompletableFuture<Transaction> outcome = new CompletableFuture<>();
+
+		// When
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> sharded.execute("john", "key-1", "DEPOSIT|PB1|500", () -> {
+					throw new ShardedLedgerEngine.OutcomeUnknownException(outcome);
+				}));
+
+		// Then
+		assertEquals("Request is still being processed, retry with the same idempotency key",
+				exception.getMessage());
+		verify(idempotencyRecordRepository, never()).complete(any(), any());
+		verify(idempotencyRecordRepository, never()).deleteById(any());
+
+		outcome.complete(posting);
+		verify(idempotencyRecordRepository, timeout(1000)).complete("john:key-1", 42L);
+		assertEquals(0, sharded.cacheSize());
+	}
+
+	@Test
+	@DisplayName("Should release the key when a ledger posting fails")
+	void testExecute_LedgerPostingFails() {
+		IdempotencyService sharded = new IdempotencyService(idempotencyRecordRepository,
+				transactionRepository, mock(PlatformTransactionManager.class), meterRegistry, 100,
+				60, true);
+		when(idempotencyRecordRepository.findById("john:key-1")).thenReturn(Optional.empty());
+
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> sharded.execute("john", "key-1", "WITHDRAWAL|PB1|500", () -> {
+					throw new RuntimeException("Insufficient balance");
+				}));
+
+		assertEquals("Insufficient balance", exception.getMessage());
+		verify(idempotencyRecordRepository).claim(eq("john:key-1"), eq("WITHDRAWAL|PB1|500"),
+				any(LocalDateTime.class));
+		verify(idempotencyRecordRepository).deleteById("john:key-1");
+	}
+
+	private static IdempotencyRecord stored() {
+		return IdempotencyRecord.builder()
+				.idempotencyKey("john:key-1")
+				.fingerprint("DEPOSIT|PB1|500")
+				.transactionId(42L)
+				.createdAt(LocalDateTime.now())
+				.build();
+	}
+}
@@ -0,0 +1,172 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pocketbank.config.service.LedgerJournal;
+import com.pocketbank.config.service.LedgerJournal.JournalRecord;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.TransactionType;
+
+/*
+ * Tests for the memory-mapped ledger journal
+ * Append, reopen after a "crash", replay, torn record handling and checkpoints
+ * */
+@DisplayName("Ledger Journal Tests")
+public class LedgerJournalTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Should replay records in order after reopening")
+	void testReplay_AfterReopen() {
+		LedgerJournal journal = new LedgerJournal(true, directory.toString(), 16);
+		journal.record(posting(1L, 7L, "500.00", "1500.00"));
+		journal.record(posting(2L, 7L, "200.50", "1299.50"));
+
+		// reopen without close, like a restart after a crash
+		LedgerJournal reopened = new LedgerJournal(true, directory.toString(), 16);
+		reopened.record(posting(3L, 8L, "10.00", "10.00"));
+
+		List<JournalRecord> records = replay(reopened);
+		assertEquals(3, records.size());
+		assertEquals(3L, records.get(2)
+				.sequence());
+		assertEquals(Money.of("1299.50"), records.get(1)
+				.balanceAfter());
+		assertEquals(TransactionType.WITHDRAWAL, records.get(1)
+				.type());
+		assertEquals(8L, records.get(2)
+				.accountId());
+	}
+
+	@Test
+	@DisplayName("Should roll over to a new segment when one is full")
+	void testAppend_RollsSegments() {
+		LedgerJournal journal = new LedgerJournal(true, directory.toString(), 4);
+		for (long i = 1; i <= 10; i++) {
+			journal.record(posting(i, 1L, "1.00", i + ".00"));
+		}
+
+		List<JournalRecord> records = replay(journal);
+		assertEquals(10, records.size());
+		assertEquals(Money.of("10.00"), records.get(9)
+				.balanceAfter());
+	}
+
+	@Test
+	@DisplayName("Should stop replay at a torn record")
+	void testReplay_StopsAtTornRecord() throws IOException {
+		LedgerJournal journal = new LedgerJournal(true, directory.toString(), 16);
+		journal.record(posting(1L, 7L, "500.00", "500.00"));
+		journal.record(posting(2L, 7L, "100.00", "400.00"));
+		journal.close();
+
+		// corrupt the amount of the second record
+		try (RandomAccessFile file = new RandomAccessFile(
+				directory.resolve("ledger-000000.journal")
+						.toFile(),
+				"rw")) {
+			file.seek(64 + 40);
+			file.writeByte(0x7f);
+		}
+
+		assertEquals(1, replay(new LedgerJournal(true, directory.toString(), 16)).size());
+	}
+
+	@Test
+	@DisplayName("Should drop settled segments and replay only the tail after a checkpoint")
+	void testCheckpoint_DropsSettledSegments() {
+		LedgerJournal journal = new LedgerJournal(true, directory.toString(), 4);
+		for (long i = 1; i <= 10; i++) {
+			journal.record(posting(i, 1L, "1.00", i + ".00"));
+		}
+
+		journal.checkpoint();
+
+		// records 1-8 filled the first two segments, the third is still written
+		assertEquals(10L, journal.checkpointSequence());
+		assertFalse(Files.exists(directory.resolve("ledger-000000.journal")));
+		assertFalse(Files.exists(directory.resolve("ledger-000001.journal")));
+		assertTrue(Files.exists(directory.resolve("ledger-000002.journal")));
+
+		journal.record(posting(11L, 1L, "1.00", "11.00"));
+		LedgerJournal reopened = new LedgerJournal(true, directory.toString(), 4);
+		List<JournalRecord> tail = new ArrayList<>();
+		reopened.replay(reopened.checkpointSequence(), tail::add);
+		assertEquals(List.of(11L), tail.stream()
+				.map(JournalRecord::sequence)
+				.toList());
+
+		// the tail stays in doubt until recovery has checked it
+		reopened.checkpoint();
+		assertEquals(10L, reopened.checkpointSequence());
+		reopened.recovered(0);
+		reopened.checkpoint();
+		assertEquals(11L, reopened.checkpointSequence());
+	}
+
+	@Test
+	@DisplayName("Should not checkpoint past a transaction that has not completed")
+	void testCheckpoint_WaitsForOpenTransaction() throws InterruptedException {
+		LedgerJournal journal = new LedgerJournal(true, directory.toString(), 16);
+		journal.record(posting(1L, 7L, "500.00", "500.00"));
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			journal.record(posting(2L, 7L, "100.00", "400.00"));
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager
+					.getSynchronizations();
+			synchronizations.forEach(s -> s.beforeCommit(false));
+			// another thread's posting outside any transaction
+			Thread other = new Thread(() -> journal.record(posting(3L, 8L, "10.00", "10.00")));
+			other.start();
+			other.join();
+
+			// record 2 is on disk but its transaction may still roll back
+			journal.checkpoint();
+			assertEquals(1L, journal.checkpointSequence());
+
+			synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+			journal.checkpoint();
+			assertEquals(3L, journal.checkpointSequence());
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	private static List<JournalRecord> replay(LedgerJournal journal) {
+		List<JournalRecord> records = new ArrayList<>();
+		journal.replay(records::add);
+		return records;
+	}
+
+	private static Transaction posting(Long id, Long accountId, String amount, String balance) {
+		return Transaction.builder()
+				.id(id)
+				.type(id % 2 == 0 ? TransactionType.WITHDRAWAL : TransactionType.DEPOSIT)
+				.amount(Money.of(amount))
+				.balanceAfter(Money.of(balance))
+				.account(Account.builder()
+						.id(accountId)
+						.build())
+				.build();
+	}
+}
@@ -0,0 +1,143 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.pocketbank.config.service.LedgerJournal;
+import com.pocketbank.config.service.LedgerRecoveryService;
+import com.pocketbank.config.service.LedgerRecoveryService.Mismatch;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/*
+ * Tests for the ledger journal recovery
+ * Only postings the database lost are replayed, rolled back ones are dropped
+ * */
+@DisplayName("Ledger Recovery Service Tests")
+public class LedgerRecoveryServiceTest {
+
+	@TempDir
+	Path directory;
+
+	private LedgerJournal journal;
+	private AccountRepository accountRepository;
+	private TransactionRepository transactionRepository;
+	private LedgerRecoveryService recoveryService;
+	private Account account;
+
+	@BeforeEach
+	void setUp() {
+		journal = new LedgerJournal(true, directory.toString(), 16);
+		accountRepository = mock(AccountRepository.class);
+		transactionRepository = mock(TransactionRepository.class);
+		recoveryService = new LedgerRecoveryService(journal, accountRepository,
+				transactionRepository);
+
+		account = Account.builder()
+				.id(7L)
+				.accountNumber("PB00000000018")
+				.balance(Money.of("1300.00"))
+				.build();
+		when(accountRepository.findAllById(anyList())).thenReturn(List.of(account));
+		when(transactionRepository.saveAll(anyList())).thenAnswer(inv -> {
+			List<Transaction> postings = inv.getArgument(0);
+			postings.forEach(t -> t.setId(100L));
+			return postings;
+		});
+
+		// posting 2 rolled back after it was journaled, posting 4 was lost
+		journal.record(posting(1L, TransactionType.DEPOSIT, "1000.00", "1000.00"));
+		journal.record(posting(2L, TransactionType.WITHDRAWAL, "200.00", "800.00"));
+		journal.record(posting(3L, TransactionType.DEPOSIT, "300.00", "1300.00"));
+		journal.record(posting(4L, TransactionType.DEPOSIT, "50.00", "1350.00"));
+		stored(Set.of(1L, 3L));
+	}
+
+	@Test
+	@DisplayName("Should report only the postings missing at the end of the journal")
+	void testVerify_ReportsLostPostings() {
+		// When
+		List<Mismatch> mismatches = recoveryService.verify(false);
+
+		// Then
+		assertEquals(List.of(new Mismatch(7L, Money.of("1300.00"), Money.of("1350.00"), 1, true)),
+				mismatches);
+		verify(accountRepository, never()).updateBalance(anyLong(), any(Money.class));
+	}
+
+	@Test
+	@DisplayName("Should replay the lost postings and move the balance by them")
+	void testVerify_RepairsLostPostings() {
+		// When
+		recoveryService.verify(true);
+
+		// Then
+		verify(transactionRepository).saveAll(argThat((List<Transaction> postings) -> postings
+				.size() == 1
+				&& postings.get(0)
+						.getBalanceAfter()
+						.equals(Money.of("1350.00"))));
+		verify(accountRepository).updateBalance(7L, Money.of("1350.00"));
+
+		// the replayed posting is journaled under its new id, so a restart finds nothing
+		stored(Set.of(1L, 3L, 100L));
+		assertEquals(List.of(), recoveryService.verify(false));
+	}
+
+	@Test
+	@DisplayName("Should check only the journal after the checkpoint, from the unresolved postings on")
+	void testVerify_ChecksOnlyTheTail() {
+		// Given - posting 4 is still unresolved after the first check
+		recoveryService.verify(false);
+		journal.checkpoint();
+
+		// When
+		List<Mismatch> mismatches = recoveryService.verify(false);
+
+		// Then
+		assertEquals(3L, journal.checkpointSequence());
+		assertEquals(1, mismatches.size());
+		verify(transactionRepository).findExistingIds(List.of(4L));
+	}
+
+	private void stored(Set<Long> ids) {
+		when(transactionRepository.findExistingIds(anyCollection())).thenAnswer(inv -> {
+			Collection<Long> asked = inv.getArgument(0);
+			return asked.stream()
+					.filter(ids::contains)
+					.toList();
+		});
+	}
+
+	private Transaction posting(Long id, TransactionType type, String amount, String balance) {
+		return Transaction.builder()
+				.id(id)
+				.type(type)
+				.amount(Money.of(amount))
+				.balanceAfter(Money.of(balance))
+				.account(account)
+				.build();
+	}
+}
@@ -0,0 +1,233 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.pocketbank.config.service.PasswordHashingService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the pooled BCrypt password encoder
+ * Hashing on the pool, shedding when the queue is full, cost upgrades
+ * */
+@DisplayName("Password Hashing Service Tests")
+public class PasswordHashingServiceTest {
+
+	@Test
+	@DisplayName("Should hash and verify passwords on the hashing pool")
+	void testEncodeAndMatches() {
+		// Given: cost 4, the lowest BCrypt allows, keeps the test fast
+		PasswordHashingService hashing = service(4, 2, 4);
+
+		// When
+		String hash = hashing.encode("secret123");
+
+		// Then
+		assertTrue(hashing.matches("secret123", hash));
+		assertFalse(hashing.matches("secret124", hash));
+		hashing.stop();
+	}
+
+	@Test
+	@DisplayName("Should ask for a re-hash of passwords stored with a lower cost")
+	void testUpgradeEncoding() {
+		// Given
+		PasswordHashingService hashing = service(5, 1, 4);
+
+		// Then
+		assertTrue(hashing.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret123")));
+		assertFalse(hashing.upgradeEncoding(hashing.encode("secret123")));
+		hashing.stop();
+	}
+
+	@Test
+	@DisplayName("Should refuse a hash at once when the pool and its queue are full")
+	void testEncode_ShedsWhenFull() throws Exception {
+		// Given: one thread and one queue slot, both taken by hashes that wait on a latch
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		PasswordHashingService hashing = new PasswordHashingService(meterRegistry, 4, 250, 1, 1,
+				5000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> running = CompletableFuture
+				.supplyAsync(() -> hashing.encode(new Held(started, release)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		CompletableFuture<String> queued = CompletableFuture
+				.supplyAsync(() -> hashing.encode(new Held(started, release)));
+		awaitQueueDepth(meterRegistry, 1);
+
+		// When & Then
+		long before = System.nanoTime();
+		assertThrows(PasswordHashingService.BusyException.class,
+				() -> hashing.encode("secret123"));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - before) < 1000);
+		assertEquals(1, meterRegistry.get("pocketbank.passwords.shed")
+				.counter()
+				.count());
+
+		// the held hashes still finish
+		release.countDown();
+		String first = running.get(5, TimeUnit.SECONDS);
+		String second = queued.get(5, TimeUnit.SECONDS);
+		assertTrue(hashing.matches("held", first));
+		assertTrue(hashing.matches("held", second));
+		hashing.stop();
+	}
+
+	@Test
+	@DisplayName("Should refuse a hash at once when the hashes ahead would outlast the wait")
+	void testEncode_ShedsWhenQueueTooSlow() throws Exception {
+		// Given: one thread with room to queue, a 100 ms wait, and hashes seen taking ~200 ms
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		PasswordHashingService hashing = new PasswordHashingService(meterRegistry, 4, 5000, 1, 8,
+				100);
+		CountDownLatch slowStarted = new CountDownLatch(1);
+		CountDownLatch slowRelease = new CountDownLatch(1);
+		CompletableFuture<String> slow = CompletableFuture
+				.supplyAsync(() -> hashing.encode(new Held(slowStarted, slowRelease)));
+		assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+		Thread.sleep(200);
+		slowRelease.countDown();
+		slow.get(5, TimeUnit.SECONDS);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> running = CompletableFuture
+				.supplyAsync(() -> hashing.encode(new Held(started, release)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// When & Then: the running hash alone is already more than the wait
+		assertThrows(PasswordHashingService.BusyException.class,
+				() -> hashing.encode("secret123"));
+		assertEquals(1, meterRegistry.get("pocketbank.passwords.shed")
+				.counter()
+				.count());
+
+		// the held hash still finishes
+		release.countDown();
+		assertTrue(hashing.matches("held", running.get(5, TimeUnit.SECONDS)));
+		hashing.stop();
+	}
+
+	@Test
+	@DisplayName("Should take a hash off the queue, unrun, when it does not start within the wait")
+	void testEncode_ShedsWhenNotStarted() throws Exception {
+		// Given: one thread taken by a held hash, a 100 ms wait
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		PasswordHashingService hashing = new PasswordHashingService(meterRegistry, 4, 5000, 1, 8,
+				100);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> running = CompletableFuture
+				.supplyAsync(() -> hashing.encode(new Held(started, release)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// When
+		CountDownLatch queuedStarted = new CountDownLatch(1);
+		assertThrows(PasswordHashingService.BusyException.class,
+				() -> hashing.encode(new Held(queuedStarted, release)));
+
+		// Then
+		assertEquals(0, meterRegistry.get("pocketbank.passwords.queue.depth")
+				.gauge()
+				.value());
+		release.countDown();
+		assertTrue(hashing.matches("held", running.get(5, TimeUnit.SECONDS)));
+		assertEquals(1, queuedStarted.getCount());
+		hashing.stop();
+	}
+
+	@Test
+	@DisplayName("Should wait for a started hash however long it takes")
+	void testEncode_WaitsForStartedHash() throws Exception {
+		// Given: a 100 ms wait and a hash that runs for 500 ms
+		PasswordHashingService hashing = new PasswordHashingService(new SimpleMeterRegistry(), 4,
+				100, 1, 8, 100);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> running = CompletableFuture
+				.supplyAsync(() -> hashing.encode(new Held(started, release)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// When
+		Thread.sleep(500);
+		release.countDown();
+
+		// Then
+		assertTrue(hashing.matches("held", running.get(5, TimeUnit.SECONDS)));
+		hashing.stop();
+	}
+
+	@Test
+	@DisplayName("Should pick the highest cost that stays within the target latency")
+	void testStrengthFor() {
+		assertEquals(12, PasswordHashingService.strengthFor(50, 250));
+		assertEquals(10, PasswordHashingService.strengthFor(400, 250));
+		assertEquals(16, PasswordHashingService.strengthFor(1, 100_000));
+	}
+
+	private static PasswordHashingService service(int strength, int threads, int queueCapacity) {
+		return new PasswordHashingService(new SimpleMeterRegistry(), strength, 250, threads,
+				queueCapacity, 5000);
+	}
+
+	private static void awaitQueueDepth(SimpleMeterRegistry meterRegistry, int depth)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (meterRegistry.get("pocketbank.passwords.queue.depth")
+				.gauge()
+				.value() < depth && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	// The password "held", which BCrypt only gets once the latch is released
+	private static class Held implements CharSequence {
+
+		private final CountDownLatch started;
+		private final CountDownLatch release;
+
+		private Held(CountDownLatch started, CountDownLatch release) {
+			this.started = started;
+			this.release = release;
+		}
+
+		@Override
+		public String toString() {
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+						.interrupt();
+			}
+			return "held";
+		}
+
+		@Override
+		public int length() {
+			return 4;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return toString().charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().subSequence(start, end);
+		}
+	}
+}
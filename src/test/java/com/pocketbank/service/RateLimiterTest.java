@@ -0,0 +1,119 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.pocketbank.config.service.RateLimiter;
+import com.pocketbank.config.service.RateLimiter.Route;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the token-bucket rate limiter
+ * Bursts, lazy refill, per-user limits across IPs, dropping idle buckets
+ * */
+@DisplayName("Rate Limiter Tests")
+public class RateLimiterTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private RateLimiter rateLimiter;
+
+	@BeforeEach
+	void setUp() {
+		// logins: 10 per IP and 3 per user a minute, so a token every 20 s per user
+		rateLimiter = new RateLimiter(new SimpleMeterRegistry(), "10/60", "3/60", "60/60",
+				"20/60", "60/60", "20/60", 600);
+	}
+
+	@Test
+	@DisplayName("Should allow a burst up to capacity, then refill a token per interval")
+	void testTryAcquire_BurstAndRefill() {
+		// Given
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "asha", now));
+		}
+
+		// When
+		long wait = rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "asha", now);
+
+		// Then
+		assertEquals(20 * SECOND, wait);
+		assertTrue(rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "asha", now + 19 * SECOND) > 0);
+		assertEquals(0, rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "asha", now + 20 * SECOND));
+	}
+
+	@Test
+	@DisplayName("Should limit a user however many IPs the attempts come from")
+	void testTryAcquire_PerUserAcrossIps() {
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(Route.LOGIN, "10.0.0." + i, "asha", now));
+		}
+
+		assertTrue(rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.99", "asha", now) > 0);
+		assertEquals(0, rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.99", "ravi", now));
+		// other routes have buckets of their own
+		assertEquals(0, rateLimiter.tryAcquire(Route.TRANSFER, "10.0.0.1", "asha", now));
+	}
+
+	@Test
+	@DisplayName("Should limit an IP trying many usernames")
+	void testTryAcquire_PerIp() {
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "user" + i, now));
+		}
+
+		assertTrue(rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "user10", now) > 0);
+	}
+
+	@Test
+	@DisplayName("Should not spend the IP's token when the user's bucket refuses")
+	void testTryAcquire_UserRefusalKeepsIpToken() {
+		// Given: the user is out of tokens
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "asha", now));
+		}
+
+		// When: the same IP keeps trying that user
+		for (int i = 0; i < 20; i++) {
+			assertTrue(rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "asha", now) > 0);
+		}
+
+		// Then: the IP still has the 7 tokens the user's refusals did not use
+		for (int i = 0; i < 7; i++) {
+			assertEquals(0, rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "user" + i, now));
+		}
+		assertTrue(rateLimiter.tryAcquire(Route.LOGIN, "10.0.0.1", "user7", now) > 0);
+	}
+
+	@Test
+	@DisplayName("Should drop buckets left idle once enough new keys arrive")
+	void testSweep_DropsIdleBuckets() {
+		// Given: many one-off clients, long ago
+		long then = 1_000 * SECOND;
+		for (int i = 0; i < 100_000; i++) {
+			rateLimiter.tryAcquire(Route.WITHDRAW, "ip" + i, null, then);
+		}
+		int before = rateLimiter.size();
+
+		// When: a new wave of clients after the idle time
+		long now = then + 1_000 * SECOND;
+		for (int i = 0; i < 100_000; i++) {
+			rateLimiter.tryAcquire(Route.WITHDRAW, "next" + i, null, now);
+		}
+
+		// Then: most of the first wave has been swept
+		assertEquals(100_000, before);
+		assertTrue(rateLimiter.size() < 150_000, "buckets: " + rateLimiter.size());
+	}
+}
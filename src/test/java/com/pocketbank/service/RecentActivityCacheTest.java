@@ -0,0 +1,167 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pocketbank.config.service.PostingsCommitted;
+import com.pocketbank.config.service.RecentActivityCache;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the per-account recent-activity cache
+ * Warming, after-commit pushes, ring overwrite and LRU eviction
+ * */
+@DisplayName("Recent Activity Cache Tests")
+public class RecentActivityCacheTest {
+
+	private TransactionRepository transactionRepository;
+	private SimpleMeterRegistry meterRegistry;
+	private RecentActivityCache cache;
+
+	@BeforeEach
+	void setUp() {
+		transactionRepository = mock(TransactionRepository.class);
+		meterRegistry = new SimpleMeterRegistry();
+		cache = new RecentActivityCache(transactionRepository, meterRegistry, 2);
+	}
+
+	@Test
+	@DisplayName("Should warm from the repository once and then serve from memory")
+	void testRecent_WarmsOnce() {
+		// Given
+		when(transactionRepository.findTop10ByAccountIdOrderByTransactionDateDesc(1L))
+				.thenReturn(List.of(posting(1L, 2), posting(1L, 1)));
+
+		// When
+		cache.recent(1L);
+		List<Transaction> result = cache.recent(1L);
+
+		// Then
+		assertEquals(2, result.size());
+		assertEquals(2L, result.get(0)
+				.getId());
+		verify(transactionRepository, times(1)).findTop10ByAccountIdOrderByTransactionDateDesc(1L);
+		assertEquals(0.5, cache.hitRatio());
+		assertEquals(1.0, meterRegistry.get("pocketbank.recent-activity.lookups")
+				.tag("result", "hit")
+				.counter()
+				.count());
+	}
+
+	@Test
+	@DisplayName("Should keep the newest postings when the ring is full")
+	void testRecord_OverwritesOldest() {
+		// Given
+		when(transactionRepository.findTop10ByAccountIdOrderByTransactionDateDesc(1L))
+				.thenReturn(List.of());
+		cache.recent(1L);
+
+		// When: 12 postings, one of them twice
+		for (long id = 1; id <= 12; id++) {
+			cache.onPostingsCommitted(new PostingsCommitted(List.of(posting(1L, id))));
+		}
+		cache.onPostingsCommitted(new PostingsCommitted(List.of(posting(1L, 12))));
+
+		// Then
+		List<Transaction> result = cache.recent(1L);
+		assertEquals(10, result.size());
+		assertEquals(12L, result.get(0)
+				.getId());
+		assertEquals(3L, result.get(9)
+				.getId());
+	}
+
+	@Test
+	@DisplayName("Should only show a posting after its transaction commits")
+	void testOnPostingsCommitted_AfterCommit() {
+		// Given
+		when(transactionRepository.findTop10ByAccountIdOrderByTransactionDateDesc(1L))
+				.thenReturn(List.of());
+		cache.recent(1L);
+
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.registerBean(TransactionalEventListenerFactory.class);
+			context.registerBean(RecentActivityCache.class, () -> cache);
+			context.refresh();
+
+			TransactionSynchronizationManager.initSynchronization();
+			TransactionSynchronizationManager.setActualTransactionActive(true);
+			try {
+				// When
+				context.publishEvent(new PostingsCommitted(List.of(posting(1L, 1))));
+
+				// Then
+				assertTrue(cache.recent(1L)
+						.isEmpty());
+				new ArrayList<>(TransactionSynchronizationManager.getSynchronizations())
+						.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+				assertEquals(1, cache.recent(1L)
+						.size());
+			} finally {
+				TransactionSynchronizationManager.setActualTransactionActive(false);
+				TransactionSynchronizationManager.clearSynchronization();
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Should evict the least recently used account")
+	void testRecent_EvictsLeastRecentlyUsed() {
+		// Given
+		when(transactionRepository.findTop10ByAccountIdOrderByTransactionDateDesc(anyLong()))
+				.thenReturn(List.of());
+
+		// When
+		cache.recent(1L);
+		cache.recent(2L);
+		cache.recent(1L);
+		cache.recent(3L);
+		cache.recent(1L);
+		cache.recent(2L);
+
+		// Then: 2 was evicted by 3 and has to be warmed again
+		verify(transactionRepository, times(2)).findTop10ByAccountIdOrderByTransactionDateDesc(2L);
+		verify(transactionRepository, times(1)).findTop10ByAccountIdOrderByTransactionDateDesc(1L);
+		assertEquals(2, cache.size());
+		assertEquals(2.0, meterRegistry.get("pocketbank.recent-activity.evictions")
+				.counter()
+				.count());
+	}
+
+	private static Transaction posting(Long accountId, long id) {
+		return Transaction.builder()
+				.id(id)
+				.type(TransactionType.DEPOSIT)
+				.amount(Money.of("10.00"))
+				.balanceAfter(Money.ofPaise(id * 1000))
+				.transactionDate(LocalDateTime.of(2025, 1, 1, 10, 0)
+						.plusMinutes(id))
+				.account(Account.builder()
+						.id(accountId)
+						.build())
+				.build();
+	}
+}
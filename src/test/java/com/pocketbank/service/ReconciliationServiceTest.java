@@ -0,0 +1,196 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.ReconciliationService;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.ReconciliationMismatch;
+import com.pocketbank.entity.ReconciliationRun;
+import com.pocketbank.entity.enums.MismatchKind;
+import com.pocketbank.entity.enums.ReconciliationStatus;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.ReconciliationMismatchRepository;
+import com.pocketbank.repository.ReconciliationRangeRepository;
+import com.pocketbank.repository.ReconciliationRunRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/*
+ * Tests for the parallel ledger reconciliation
+ * Balance checks per account range, transfer pairing, resuming a run
+ * */
+@DisplayName("Reconciliation Service Tests")
+public class ReconciliationServiceTest {
+
+	private static final LocalDateTime NOON = LocalDateTime.of(2025, 1, 20, 12, 0);
+
+	private AccountRepository accountRepository;
+	private TransactionRepository transactionRepository;
+	private ReconciliationRunRepository runRepository;
+	private ReconciliationRangeRepository rangeRepository;
+	private ReconciliationMismatchRepository mismatchRepository;
+	private ReconciliationService reconciliationService;
+	private List<ReconciliationMismatch> saved;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		accountRepository = mock(AccountRepository.class);
+		transactionRepository = mock(TransactionRepository.class);
+		runRepository = mock(ReconciliationRunRepository.class);
+		rangeRepository = mock(ReconciliationRangeRepository.class);
+		mismatchRepository = mock(ReconciliationMismatchRepository.class);
+		// 2 workers, 10 accounts per range, one-day slices, 5 minute pairing window
+		reconciliationService = new ReconciliationService(accountRepository,
+				transactionRepository, runRepository, rangeRepository, mismatchRepository,
+				mock(PlatformTransactionManager.class), 2, 10, 24, 300, 100);
+
+		saved = Collections.synchronizedList(new ArrayList<>());
+		when(mismatchRepository.saveAll(any())).thenAnswer(invocation -> {
+			((Iterable<ReconciliationMismatch>) invocation.getArgument(0)).forEach(saved::add);
+			return invocation.getArgument(0);
+		});
+		when(runRepository.findFirstByStatusOrderByIdDesc(ReconciliationStatus.RUNNING))
+				.thenReturn(Optional.empty());
+		when(runRepository.save(any(ReconciliationRun.class))).thenAnswer(invocation -> {
+			ReconciliationRun run = invocation.getArgument(0);
+			run.setId(7L);
+			return run;
+		});
+		when(rangeRepository.sumByRunId(7L))
+				.thenReturn(List.<Object[]>of(new Object[] { 0L, 0L, 0L, 0L }));
+		when(accountRepository.findForReconciliation(anyLong(), anyLong())).thenReturn(List.of());
+		when(transactionRepository.streamForReconciliation(anyLong(), anyLong()))
+				.thenAnswer(invocation -> Stream.empty());
+		when(transactionRepository.streamTransferLegs(any(), any()))
+				.thenAnswer(invocation -> Stream.empty());
+	}
+
+	@Test
+	@DisplayName("Should report a balance that does not match its postings")
+	void testRun_BalanceMismatch() {
+		// Given: account 1 is right, account 2 has lost a deposit of 50.00
+		givenAccountIds(1, 2);
+		when(accountRepository.findForReconciliation(1L, 2L)).thenReturn(List.of(
+				account(1, "PB000000001", "70.00", null), account(2, "PB000000002", "150.00", null)));
+		when(transactionRepository.streamForReconciliation(1L, 2L))
+				.thenAnswer(invocation -> Stream.of(posting(1, TransactionType.DEPOSIT, "100.00",
+						"100.00"), posting(1, TransactionType.WITHDRAWAL, "30.00", "70.00"),
+						posting(2, TransactionType.DEPOSIT, "100.00", "100.00")));
+
+		// When
+		ReconciliationService.RunReport report = reconciliationService.run();
+
+		// Then
+		assertFalse(report.resumed());
+		assertEquals(3, report.scannedPostings());
+		assertEquals(2, saved.size());
+		assertTrue(saved.stream()
+				.allMatch(m -> m.getAccountNumber()
+						.equals("PB000000002") && m.getActual()
+								.equals(Money.of("150.00"))));
+		assertTrue(saved.stream()
+				.anyMatch(m -> m.getKind() == MismatchKind.BALANCE_VS_POSTINGS && m.getExpected()
+						.equals(Money.of("100.00"))));
+		assertTrue(saved.stream()
+				.anyMatch(m -> m.getKind() == MismatchKind.BALANCE_VS_LAST_POSTING));
+	}
+
+	@Test
+	@DisplayName("Should skip ranges an unfinished run already checked")
+	void testRun_ResumesUnfinishedRun() {
+		// Given: accounts 1 to 25 make three ranges, the first two already done
+		ReconciliationRun unfinished = ReconciliationRun.builder()
+				.id(7L)
+				.status(ReconciliationStatus.RUNNING)
+				.startedAt(NOON.minusHours(1))
+				.firstAccountId(1L)
+				.lastAccountId(25L)
+				.cutoff(NOON.minusHours(1))
+				.build();
+		when(runRepository.findFirstByStatusOrderByIdDesc(ReconciliationStatus.RUNNING))
+				.thenReturn(Optional.of(unfinished));
+		when(rangeRepository.findRangeKeysByRunId(7L))
+				.thenReturn(List.of("accounts:1", "accounts:11"));
+
+		// When
+		ReconciliationService.RunReport report = reconciliationService.run();
+
+		// Then
+		assertTrue(report.resumed());
+		verify(accountRepository, never()).findForReconciliation(eq(1L), anyLong());
+		verify(accountRepository, never()).findForReconciliation(eq(11L), anyLong());
+		verify(accountRepository).findForReconciliation(21L, 25L);
+		assertEquals(ReconciliationStatus.COMPLETED, unfinished.getStatus());
+	}
+
+	@Test
+	@DisplayName("Should pair transfer legs within the window and report the rest")
+	void testRun_UnpairedTransfer() {
+		// Given: one complete transfer and one whose credit never posted
+		givenAccountIds(1, 2);
+		when(transactionRepository.findFirstPostingDate()).thenReturn(NOON);
+		when(transactionRepository.streamTransferLegs(any(), any()))
+				.thenAnswer(invocation -> Stream.of(
+						leg(10, TransactionType.TRANSFER_OUT, "PB000000001", "PB000000002", "25.00",
+								NOON),
+						leg(11, TransactionType.TRANSFER_IN, "PB000000002", "PB000000001", "25.00",
+								NOON.plusSeconds(1)),
+						leg(12, TransactionType.TRANSFER_OUT, "PB000000001", "PB000000002", "40.00",
+								NOON.plusMinutes(1))));
+
+		// When
+		reconciliationService.run();
+
+		// Then
+		assertEquals(1, saved.size());
+		ReconciliationMismatch mismatch = saved.get(0);
+		assertEquals(MismatchKind.UNPAIRED_TRANSFER_OUT, mismatch.getKind());
+		assertEquals(12L, mismatch.getTransactionId());
+		assertNull(mismatch.getExpected());
+		assertEquals(Money.of("40.00"), mismatch.getActual());
+	}
+
+	private void givenAccountIds(long first, long last) {
+		when(accountRepository.findIdBounds())
+				.thenReturn(List.<Object[]>of(new Object[] { first, last }));
+	}
+
+	private static Object[] account(long id, String accountNumber, String balance,
+			Integer balanceSlots) {
+		return new Object[] { id, accountNumber, new BigDecimal(balance), balanceSlots };
+	}
+
+	private static Object[] posting(long accountId, TransactionType type, String amount,
+			String balanceAfter) {
+		return new Object[] { accountId, type, Money.of(amount), Money.of(balanceAfter) };
+	}
+
+	private static Object[] leg(long id, TransactionType type, String accountNumber,
+			String counterparty, String amount, LocalDateTime date) {
+		return new Object[] { id, type, accountNumber, counterparty, Money.of(amount), date };
+	}
+}
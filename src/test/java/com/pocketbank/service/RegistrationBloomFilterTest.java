@@ -0,0 +1,107 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.RegistrationBloomFilter;
+import com.pocketbank.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the registration Bloom filter
+ * Loading, adding, case-insensitive names and the false-positive rate it is sized for
+ * */
+@DisplayName("Registration Bloom Filter Tests")
+public class RegistrationBloomFilterTest {
+
+	private static final int USERS = 20_000;
+
+	private UserRepository userRepository;
+	private RegistrationBloomFilter filter;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		filter = new RegistrationBloomFilter(userRepository, mock(PlatformTransactionManager.class),
+				new SimpleMeterRegistry(), USERS, 0.01);
+	}
+
+	@Test
+	@DisplayName("Should not rule anything out before it is loaded")
+	void testMightHave_BeforeLoad() {
+		assertTrue(filter.mightHaveUsername("anyone"));
+		assertTrue(filter.mightHaveEmail("anyone@example.com"));
+	}
+
+	@Test
+	@DisplayName("Should start without ruling anything out when the load fails")
+	void testLoad_Fails() {
+		// Given
+		when(userRepository.count()).thenReturn(0L);
+		when(userRepository.streamUsernamesAndEmails())
+				.thenThrow(new RuntimeException("Database unavailable"));
+
+		// When
+		filter.load();
+
+		// Then
+		assertTrue(filter.mightHaveUsername("anyone"));
+		assertTrue(filter.mightHaveEmail("anyone@example.com"));
+	}
+
+	@Test
+	@DisplayName("Should know loaded and added names, whatever their case")
+	void testMightHave_LoadedAndAdded() {
+		// Given
+		loadUsers(List.<Object[]>of(new Object[] { "asha", "asha@example.com" }));
+
+		// When
+		filter.add("Ravi", "ravi@example.com");
+
+		// Then
+		assertTrue(filter.mightHaveUsername("ASHA"));
+		assertTrue(filter.mightHaveEmail("asha@example.com"));
+		assertTrue(filter.mightHaveUsername("ravi"));
+		assertTrue(filter.mightHaveEmail("Ravi@Example.com"));
+		assertFalse(filter.mightHaveUsername("asha@example.com"));
+	}
+
+	@Test
+	@DisplayName("Should keep false positives near the configured rate when full")
+	void testMightHave_FalsePositiveRate() {
+		// Given: as many users as it was sized for
+		loadUsers(IntStream.range(0, USERS)
+				.mapToObj(i -> new Object[] { "user" + i, "user" + i + "@example.com" })
+				.toList());
+
+		// When
+		long falsePositives = IntStream.range(0, 100_000)
+				.filter(i -> filter.mightHaveUsername("stranger" + i))
+				.count();
+
+		// Then
+		for (int i = 0; i < USERS; i++) {
+			assertTrue(filter.mightHaveUsername("user" + i));
+		}
+		assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+	}
+
+	private void loadUsers(List<Object[]> rows) {
+		when(userRepository.count()).thenReturn(0L);
+		when(userRepository.streamUsernamesAndEmails())
+				.thenReturn(Stream.of(rows.toArray(new Object[0][])));
+		filter.rebuild();
+	}
+}
@@ -0,0 +1,218 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.RollupService;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.TransactionRollup;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.entity.enums.RollupPeriod;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.TransactionRepository;
+import com.pocketbank.repository.TransactionRollupRepository;
+
+/*
+ * Tests for the daily and monthly transaction rollups
+ * Incremental updates, answering ranges from months plus edge days, backfill
+ * */
+@DisplayName("Rollup Service Tests")
+public class RollupServiceTest {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 1, 20);
+
+	private TransactionRollupRepository rollupRepository;
+	private TransactionRepository transactionRepository;
+	private RollupService rollupService;
+
+	@BeforeEach
+	void setUp() {
+		rollupRepository = mock(TransactionRollupRepository.class);
+		transactionRepository = mock(TransactionRepository.class);
+		rollupService = new RollupService(rollupRepository, transactionRepository,
+				mock(PlatformTransactionManager.class), 2, 7);
+	}
+
+	@Test
+	@DisplayName("Should fold postings into one day and one month row per type")
+	void testRecordPostings() {
+		// When
+		rollupService.recordPostings(List.of(posting(TransactionType.DEPOSIT, AccountType.SAVINGS,
+				"100.00"), posting(TransactionType.DEPOSIT, AccountType.SAVINGS, "50.00"),
+				posting(TransactionType.WITHDRAWAL, AccountType.CHECKING, "20.00")));
+
+		// Then
+		verify(rollupRepository).add("DAY", DAY, "DEPOSIT", "SAVINGS", 2, 15_000, 5_000, 10_000);
+		verify(rollupRepository).add("MONTH", DAY.withDayOfMonth(1), "DEPOSIT", "SAVINGS", 2,
+				15_000, 5_000, 10_000);
+		verify(rollupRepository).add("DAY", DAY, "WITHDRAWAL", "CHECKING", 1, 2_000, 2_000, 2_000);
+		verify(rollupRepository).add("MONTH", DAY.withDayOfMonth(1), "WITHDRAWAL", "CHECKING", 1,
+				2_000, 2_000, 2_000);
+	}
+
+	@Test
+	@DisplayName("Should answer a range from whole months plus the days at either edge")
+	void testRange_MonthsAndEdgeDays() {
+		// Given: 20 Jan to 10 Mar is 12 days of January, February, and 10 days of March
+		LocalDate from = LocalDate.of(2025, 1, 20);
+		LocalDate to = LocalDate.of(2025, 3, 10);
+		LocalDate february = LocalDate.of(2025, 2, 1);
+		when(rollupRepository.sumBetween(RollupPeriod.MONTH, february, february))
+				.thenReturn(List.<Object[]>of(row(TransactionType.DEPOSIT, 10, 100_000, 1_000, 50_000)));
+		when(rollupRepository.sumBetween(RollupPeriod.DAY, from, LocalDate.of(2025, 1, 31)))
+				.thenReturn(List.<Object[]>of(row(TransactionType.DEPOSIT, 2, 1_000, 500, 500)));
+		when(rollupRepository.sumBetween(RollupPeriod.DAY, LocalDate.of(2025, 3, 1), to))
+				.thenReturn(List.<Object[]>of(row(TransactionType.WITHDRAWAL, 1, 7_000, 7_000, 7_000)));
+
+		// When
+		RollupService.RangeReport report = rollupService.range(from, to);
+
+		// Then
+		assertEquals(2, report.rows()
+				.size());
+		RollupService.RangeRow deposits = report.rows()
+				.get(0);
+		assertEquals(TransactionType.DEPOSIT, deposits.transactionType());
+		assertEquals(12, deposits.count());
+		assertEquals(Money.of("1010.00"), deposits.total());
+		assertEquals(Money.of("5.00"), deposits.min());
+		assertEquals(Money.of("500.00"), deposits.max());
+		assertEquals(13, report.count());
+	}
+
+	@Test
+	@DisplayName("Should read only day rows for a range inside one month")
+	void testRange_DaysOnly() {
+		// Given
+		LocalDate from = LocalDate.of(2025, 1, 5);
+		LocalDate to = LocalDate.of(2025, 1, 25);
+		when(rollupRepository.sumBetween(RollupPeriod.DAY, from, to)).thenReturn(List.of());
+
+		// When
+		rollupService.range(from, to);
+
+		// Then
+		verify(rollupRepository, never()).sumBetween(eq(RollupPeriod.MONTH), any(), any());
+	}
+
+	@Test
+	@DisplayName("Should add the difference between the scan and the day rows on backfill")
+	void testBackfill_AddsDifference() {
+		// Given: the table has three deposits, the rollup row only two of them
+		when(transactionRepository.summarizeByDay(DAY.atStartOfDay(), DAY.plusDays(1)
+				.atStartOfDay()))
+				.thenReturn(List.<Object[]>of(new Object[] { Date.valueOf(DAY), "DEPOSIT", "SAVINGS",
+						3L, new BigDecimal("300.00"), new BigDecimal("50.00"),
+						new BigDecimal("150.00") }));
+		when(rollupRepository.findByPeriodAndPeriodStartBetween(RollupPeriod.DAY, DAY, DAY))
+				.thenReturn(List.of(TransactionRollup.builder()
+						.period(RollupPeriod.DAY)
+						.periodStart(DAY)
+						.transactionType(TransactionType.DEPOSIT)
+						.accountType(AccountType.SAVINGS)
+						.postingCount(2L)
+						.total(25_000L)
+						.minAmount(10_000L)
+						.maxAmount(15_000L)
+						.build()));
+
+		// When
+		RollupService.BackfillReport report = rollupService.backfill(DAY, DAY);
+
+		// Then
+		assertEquals(1, report.corrected());
+		verify(rollupRepository).add("DAY", DAY, "DEPOSIT", "SAVINGS", 1, 5_000, 5_000, 15_000);
+		verify(rollupRepository).add("MONTH", DAY.withDayOfMonth(1), "DEPOSIT", "SAVINGS", 1,
+				5_000, 5_000, 15_000);
+	}
+
+	@Test
+	@DisplayName("Should leave rows that match the scan alone")
+	void testBackfill_NothingToCorrect() {
+		// Given
+		when(transactionRepository.summarizeByDay(any(LocalDateTime.class),
+				any(LocalDateTime.class))).thenReturn(List.of());
+		when(rollupRepository.findByPeriodAndPeriodStartBetween(eq(RollupPeriod.DAY), any(), any()))
+				.thenReturn(List.of());
+
+		// When: 30 days in chunks of 7
+		RollupService.BackfillReport report = rollupService.backfill(DAY, DAY.plusDays(29));
+
+		// Then
+		assertEquals(5, report.chunks());
+		assertEquals(0, report.corrected());
+		verify(rollupRepository, never()).add(anyString(), any(), anyString(), anyString(),
+				anyLong(), anyLong(), anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should refuse a backfill while another one is running")
+	void testBackfill_AlreadyRunning() throws Exception {
+		// Given: a backfill whose scan waits on a latch
+		CountDownLatch scanning = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(transactionRepository.summarizeByDay(any(LocalDateTime.class),
+				any(LocalDateTime.class))).thenAnswer(inv -> {
+					scanning.countDown();
+					release.await(5, TimeUnit.SECONDS);
+					return List.of();
+				});
+		when(rollupRepository.findByPeriodAndPeriodStartBetween(eq(RollupPeriod.DAY), any(), any()))
+				.thenReturn(List.of());
+		CompletableFuture<RollupService.BackfillReport> first = CompletableFuture
+				.supplyAsync(() -> rollupService.backfill(DAY, DAY));
+		assertTrue(scanning.await(5, TimeUnit.SECONDS));
+
+		// When & Then
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> rollupService.backfill(DAY, DAY));
+		assertEquals("Rollups are already being backfilled", exception.getMessage());
+
+		release.countDown();
+		assertEquals(1, first.get(5, TimeUnit.SECONDS)
+				.chunks());
+		assertEquals(1, rollupService.backfill(DAY, DAY)
+				.chunks());
+	}
+
+	private static Object[] row(TransactionType type, long count, long total, long min, long max) {
+		return new Object[] { type, AccountType.SAVINGS, count, total, min, max };
+	}
+
+	private static Transaction posting(TransactionType type, AccountType accountType,
+			String amount) {
+		return Transaction.builder()
+				.type(type)
+				.amount(Money.of(amount))
+				.transactionDate(DAY.atTime(10, 0))
+				.account(Account.builder()
+						.accountType(accountType)
+						.build())
+				.build();
+	}
+}
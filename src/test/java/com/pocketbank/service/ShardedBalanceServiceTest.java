@@ -0,0 +1,174 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.ShardedBalanceService;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.AccountBalanceSlot;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.repository.AccountBalanceSlotRepository;
+import com.pocketbank.repository.AccountRepository;
+
+/*
+ * Tests for sharded balance mode
+ * Enabling, single-slot and multi-slot debits, and rebalancing
+ * */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Sharded Balance Service Tests")
+public class ShardedBalanceServiceTest {
+
+	@Mock
+	private AccountRepository accountRepository;
+
+	@Mock
+	private AccountBalanceSlotRepository slotRepository;
+
+	private ShardedBalanceService shardedBalanceService;
+	private Account treasury;
+	private List<AccountBalanceSlot> slots;
+
+	@BeforeEach
+	void setUp() {
+		shardedBalanceService = new ShardedBalanceService(accountRepository, slotRepository,
+				mock(PlatformTransactionManager.class), 64);
+
+		treasury = Account.builder()
+				.id(1L)
+				.accountNumber("PB000000001")
+				.balance(Money.of("1000.00"))
+				.status(AccountStatus.APPROVED)
+				.balanceSlots(4)
+				.build();
+		slots = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			slots.add(AccountBalanceSlot.builder()
+					.id((long) i)
+					.accountId(1L)
+					.slot(i)
+					.balance(Money.of("250.00"))
+					.build());
+		}
+	}
+
+	@Test
+	@DisplayName("Should split the balance evenly when sharding an account")
+	void testEnable_SplitsBalance() {
+		// Given
+		treasury.setBalanceSlots(null);
+		treasury.setBalance(Money.of("1000.03"));
+		when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(treasury));
+		when(accountRepository.save(any(Account.class))).thenAnswer(i -> i.getArgument(0));
+
+		// When
+		shardedBalanceService.enable(1L, 4);
+
+		// Then
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<AccountBalanceSlot>> created = ArgumentCaptor.forClass(List.class);
+		verify(slotRepository).saveAll(created.capture());
+		assertEquals(Money.of("250.03"), created.getValue()
+				.get(0)
+				.getBalance());
+		assertEquals(Money.of("250.00"), created.getValue()
+				.get(3)
+				.getBalance());
+		assertEquals(4, treasury.getBalanceSlots());
+		assertTrue(shardedBalanceService.isSharded("PB000000001"));
+	}
+
+	@Test
+	@DisplayName("Should debit a single slot when one covers the amount")
+	void testDebit_SingleSlot() {
+		when(slotRepository.lockFreeSlotCovering(1L, new BigDecimal("100.00")))
+				.thenReturn(Optional.of(slots.get(2)));
+		when(slotRepository.sumBalance(1L)).thenReturn(new BigDecimal("900.00"));
+
+		Money balance = shardedBalanceService.debit(treasury, Money.of("100.00"));
+
+		assertEquals(Money.of("900.00"), balance);
+		assertEquals(Money.of("150.00"), slots.get(2)
+				.getBalance());
+	}
+
+	@Test
+	@DisplayName("Should drain several slots when no single slot covers the amount")
+	void testDebit_AcrossSlots() {
+		when(slotRepository.lockFreeSlotCovering(any(), any())).thenReturn(Optional.empty());
+		when(slotRepository.findAllSlotsForUpdate(1L)).thenReturn(slots);
+		when(slotRepository.sumBalance(1L)).thenReturn(new BigDecimal("400.00"));
+
+		shardedBalanceService.debit(treasury, Money.of("600.00"));
+
+		assertEquals(0, slots.get(0)
+				.getBalance()
+				.signum());
+		assertEquals(0, slots.get(1)
+				.getBalance()
+				.signum());
+		assertEquals(Money.of("150.00"), slots.get(2)
+				.getBalance());
+		assertEquals(Money.of("250.00"), slots.get(3)
+				.getBalance());
+	}
+
+	@Test
+	@DisplayName("Should fail when all slots together cannot cover the amount")
+	void testDebit_InsufficientBalance() {
+		when(slotRepository.lockFreeSlotCovering(any(), any())).thenReturn(Optional.empty());
+		when(slotRepository.findAllSlotsForUpdate(1L)).thenReturn(slots);
+
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> shardedBalanceService.debit(treasury, Money.of("1000.01")));
+		assertEquals("Insufficient balance", exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Should refill drained slots when rebalancing")
+	void testRebalance_RefillsSlots() {
+		when(accountRepository.findByBalanceSlotsIsNotNull()).thenReturn(List.of(treasury));
+		when(slotRepository.findAllSlotsForUpdate(1L)).thenReturn(slots);
+		slots.get(0)
+				.setBalance(Money.of("700.00"));
+		slots.get(1)
+				.setBalance(Money.ZERO);
+
+		shardedBalanceService.run();
+		shardedBalanceService.rebalanceAll();
+
+		slots.forEach(s -> assertEquals(Money.of("300.00"), s.getBalance()));
+		verify(accountRepository).updateBalance(1L, Money.of("1200.00"));
+	}
+
+	@Test
+	@DisplayName("Should credit one slot")
+	void testCredit() {
+		when(slotRepository.lockFreeSlot(1L)).thenReturn(Optional.of(slots.get(1)));
+		when(slotRepository.sumBalance(1L)).thenReturn(new BigDecimal("1050.00"));
+
+		assertEquals(Money.of("1050.00"),
+				shardedBalanceService.credit(treasury, Money.of("50.00")));
+		assertEquals(Money.of("300.00"), slots.get(1)
+				.getBalance());
+	}
+}
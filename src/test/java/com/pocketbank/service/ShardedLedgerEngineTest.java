@@ -0,0 +1,261 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.LedgerJournal;
+import com.pocketbank.config.service.RollupService;
+import com.pocketbank.config.service.ShardedLedgerEngine;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+/*
+ * Tests for the single-writer sharded ledger
+ * Repositories are stubbed, so the database balance is tracked through updateBalance
+ * */
+@DisplayName("Sharded Ledger Engine Tests")
+public class ShardedLedgerEngineTest {
+
+	private static final int ACCOUNTS = 12;
+	private static final Money OPENING_BALANCE = Money.of("1000.00");
+
+	private final Map<String, Account> stored = new ConcurrentHashMap<>();
+	private final Map<Long, Money> persistedBalances = new ConcurrentHashMap<>();
+	private final List<String> accountNumbers = new ArrayList<>();
+	private ShardedLedgerEngine engine;
+	// balance updates of this account fail, as if its shard lost the database
+	private volatile Long unwritableAccountId;
+	// balance updates wait for this, as if the database were stalled
+	private volatile CountDownLatch databaseStall;
+	private AccountRepository accountRepository;
+	private TransactionRepository transactionRepository;
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < ACCOUNTS; i++) {
+			String number = "PB" + (200000 + i);
+			stored.put(number,
+					Account.builder()
+							.id((long) i)
+							.accountNumber(number)
+							.accountType(AccountType.SAVINGS)
+							.balance(OPENING_BALANCE)
+							.status(i == ACCOUNTS - 1 ? AccountStatus.PENDING
+									: AccountStatus.APPROVED)
+							.build());
+			persistedBalances.put((long) i, OPENING_BALANCE);
+			accountNumbers.add(number);
+		}
+
+		accountRepository = mock(AccountRepository.class, withSettings().stubOnly());
+		transactionRepository = mock(TransactionRepository.class, withSettings().stubOnly());
+		when(accountRepository.findByAccountNumber(anyString()))
+				.thenAnswer(inv -> Optional.ofNullable(stored.get(inv.getArgument(0))));
+		when(accountRepository.updateBalance(anyLong(), any(Money.class))).thenAnswer(inv -> {
+			CountDownLatch stall = databaseStall;
+			if (stall != null) {
+				stall.await();
+			}
+			if (inv.getArgument(0)
+					.equals(unwritableAccountId)) {
+				throw new RuntimeException("Database unavailable");
+			}
+			persistedBalances.put(inv.getArgument(0), inv.getArgument(1));
+			return 1;
+		});
+		when(transactionRepository.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+		engine = newEngine(5000);
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		engine.stop();
+	}
+
+	@Test
+	@DisplayName("Should deposit and return the flushed posting")
+	void testDeposit_Success() {
+		Transaction result = engine.deposit(accountNumbers.get(0), new BigDecimal("250.00"), null);
+
+		assertNotNull(result);
+		assertEquals(TransactionType.DEPOSIT, result.getType());
+		assertEquals(Money.of("1250.00"), result.getBalanceAfter());
+		assertEquals(Money.of("1250.00"), persistedBalances.get(0L));
+	}
+
+	@Test
+	@DisplayName("Should reject withdrawal above balance")
+	void testWithdraw_InsufficientBalance() {
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> engine.withdraw(accountNumbers.get(0), new BigDecimal("5000.00"), null));
+
+		assertEquals("Insufficient balance", exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("Should reject transfer to an inactive account without debiting")
+	void testTransfer_InactiveDestination() {
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> engine.transfer(accountNumbers.get(0), accountNumbers.get(ACCOUNTS - 1),
+						new BigDecimal("10.00"), null));
+
+		assertEquals("Account is not active", exception.getMessage());
+		assertEquals(OPENING_BALANCE, persistedBalances.get(0L));
+	}
+
+	@Test
+	@DisplayName("Should refund the debit when the credit fails to flush")
+	void testTransfer_CreditFlushFails() {
+		// Given: the destination's balance cannot be written
+		String from = accountNumbers.get(0);
+		String to = accountNumbers.get(1);
+		unwritableAccountId = 1L;
+
+		// When
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> engine.transfer(from, to, new BigDecimal("300.00"), null));
+
+		// Then
+		assertEquals("Database unavailable", exception.getMessage());
+		assertEquals(OPENING_BALANCE, persistedBalances.get(0L));
+		assertEquals(OPENING_BALANCE, persistedBalances.get(1L));
+	}
+
+	@Test
+	@DisplayName("Should not overwrite database-path postings with the shard's stale copy")
+	void testOnShard_MixedWithEnginePostings() throws Exception {
+		String number = accountNumbers.get(0);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			pool.execute(() -> {
+				for (int i = 0; i < 100; i++) {
+					engine.deposit(number, BigDecimal.ONE, null);
+					// a transfer in from a sharded-balance account writes the row directly
+					engine.onShard(number, () -> creditInDatabase(number, Money.of("2.00")));
+				}
+			});
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+		assertEquals(OPENING_BALANCE.plus(Money.of("2400.00")), persistedBalances.get(0L));
+	}
+
+	@Test
+	@DisplayName("Should hand back the pending outcome when the ledger does not answer in time")
+	void testDeposit_OutcomeUnknown() throws Exception {
+		// Given: the flush is stuck in the database
+		ShardedLedgerEngine impatient = newEngine(100);
+		databaseStall = new CountDownLatch(1);
+		try {
+			// When
+			ShardedLedgerEngine.OutcomeUnknownException exception = assertThrows(
+					ShardedLedgerEngine.OutcomeUnknownException.class,
+					() -> impatient.deposit(accountNumbers.get(0), new BigDecimal("250.00"), null));
+
+			// Then: the posting still commits once the database answers
+			databaseStall.countDown();
+			Transaction settled = (Transaction) exception.outcome()
+					.get(5, TimeUnit.SECONDS);
+			assertEquals(Money.of("1250.00"), settled.getBalanceAfter());
+			assertEquals(Money.of("1250.00"), persistedBalances.get(0L));
+		} finally {
+			databaseStall.countDown();
+			impatient.stop();
+		}
+	}
+
+	@Test
+	@DisplayName("Concurrent cross-shard transfers keep total balance constant")
+	void testConcurrentTransfers_BalancesAddUp() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for (int t = 0; t < 8; t++) {
+			pool.execute(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < 500; i++) {
+					String from = accountNumbers.get(random.nextInt(ACCOUNTS - 1));
+					String to = accountNumbers.get(random.nextInt(ACCOUNTS - 1));
+					if (from.equals(to)) {
+						continue;
+					}
+					try {
+						engine.transfer(from, to, BigDecimal.valueOf(random.nextInt(1, 100)), null);
+					} catch (RuntimeException e) {
+						assertEquals("Insufficient balance", e.getMessage());
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+
+		Money total = persistedBalances.values()
+				.stream()
+				.reduce(Money.ZERO, Money::plus);
+		assertEquals(OPENING_BALANCE.times(ACCOUNTS), total);
+	}
+
+	private ShardedLedgerEngine newEngine(long timeoutMillis) {
+		ShardedLedgerEngine started = new ShardedLedgerEngine(accountRepository,
+				transactionRepository, mock(PlatformTransactionManager.class),
+				mock(LedgerJournal.class, withSettings().stubOnly()),
+				mock(AggregateCounterService.class, withSettings().stubOnly()),
+				mock(RollupService.class, withSettings().stubOnly()),
+				mock(ApplicationEventPublisher.class, withSettings().stubOnly()), 4, 1024, 64, 1000,
+				timeoutMillis);
+		started.start();
+		return started;
+	}
+
+	// What TransactionService does: load the row, credit it, write it back
+	private Account creditInDatabase(String number, Money amount) {
+		Account current = stored.get(number);
+		Account credited = Account.builder()
+				.id(current.getId())
+				.accountNumber(number)
+				.accountType(current.getAccountType())
+				.status(current.getStatus())
+				.balance(persistedBalances.get(current.getId())
+						.plus(amount))
+				.build();
+		stored.put(number, credited);
+		persistedBalances.put(credited.getId(), credited.getBalance());
+		return credited;
+	}
+}
@@ -0,0 +1,163 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.pocketbank.config.service.StatementService;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+
+/*
+ * Tests for streamed CSV/PDF statements
+ * Output format, and flat heap while exporting a large synthetic account
+ * */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Statement Service Tests")
+public class StatementServiceTest {
+
+	private static final long LARGE_ACCOUNT_ROWS = 500_000;
+	private static final long MAX_HEAP_GROWTH = 32L * 1024 * 1024;
+
+	@Mock
+	private TransactionRepository transactionRepository;
+
+	@Mock
+	private EntityManager entityManager;
+
+	@InjectMocks
+	private StatementService statementService;
+
+	private Account account;
+
+	@BeforeEach
+	void setUp() {
+		account = Account.builder()
+				.id(1L)
+				.accountNumber("PB123456789")
+				.accountType(AccountType.SAVINGS)
+				.build();
+	}
+
+	@Test
+	@DisplayName("Should write CSV rows oldest first and quote descriptions")
+	void testWriteCsv() throws IOException {
+		// Given
+		Transaction deposit = posting(1, "Salary, March");
+		when(transactionRepository.streamByAccountId(1L))
+				.thenReturn(Stream.of(deposit, posting(2, null)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// When
+		statementService.writeCsv(account, out);
+
+		// Then
+		String[] lines = out.toString(StandardCharsets.UTF_8)
+				.split("\r\n");
+		assertEquals(3, lines.length);
+		assertEquals("01-01-2025 10:00:01,DEPOSIT,100.00,1000.01,\"Salary, March\",", lines[1]);
+		assertEquals("01-01-2025 10:00:02,WITHDRAWAL,100.00,1000.02,,", lines[2]);
+		verify(entityManager).detach(deposit);
+	}
+
+	@Test
+	@DisplayName("Should write a PDF whose cross-reference table can be found")
+	void testWritePdf() throws IOException {
+		// Given: 130 rows fill three pages
+		when(transactionRepository.streamByAccountId(1L))
+				.thenReturn(LongStream.rangeClosed(1, 130)
+						.mapToObj(i -> posting(i, "Transfer (payroll)")));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		// When
+		statementService.writePdf(account, out);
+
+		// Then
+		String pdf = out.toString(StandardCharsets.ISO_8859_1);
+		assertTrue(pdf.startsWith("%PDF-1.4"));
+		assertTrue(pdf.endsWith("%%EOF\n"));
+		assertTrue(pdf.contains("/Count 3"));
+		assertTrue(pdf.contains("Transfer \\(payroll\\)"));
+
+		String tail = pdf.substring(pdf.lastIndexOf("startxref\n") + 10);
+		int xref = Integer.parseInt(tail.substring(0, tail.indexOf('\n')));
+		assertTrue(pdf.startsWith("xref", xref));
+	}
+
+	@Test
+	@DisplayName("Heap stays flat while exporting a large account")
+	void testExport_BoundedHeap() throws IOException {
+		AtomicLong peak = new AtomicLong();
+		long baseline = usedHeapAfterGc();
+
+		// a no-op EntityManager, a Mockito mock would record (and keep) every detached posting
+		EntityManager noOp = (EntityManager) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { EntityManager.class }, (proxy, method, args) -> null);
+		StatementService service = new StatementService(transactionRepository, noOp);
+		when(transactionRepository.streamByAccountId(1L))
+				.thenAnswer(inv -> largeAccount(peak));
+		service.writeCsv(account, OutputStream.nullOutputStream());
+		service.writePdf(account, OutputStream.nullOutputStream());
+
+		assertTrue(peak.get() - baseline < MAX_HEAP_GROWTH,
+				"Heap grew by " + (peak.get() - baseline) / 1024 + " KB");
+	}
+
+	// synthetic postings, checking the live heap every 100k rows
+	private Stream<Transaction> largeAccount(AtomicLong peak) {
+		return LongStream.rangeClosed(1, LARGE_ACCOUNT_ROWS)
+				.mapToObj(i -> {
+					if (i % 100_000 == 0) {
+						peak.accumulateAndGet(usedHeapAfterGc(), Math::max);
+					}
+					return posting(i, "Synthetic posting " + i);
+				});
+	}
+
+	private static long usedHeapAfterGc() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		return memory.getHeapMemoryUsage()
+				.getUsed();
+	}
+
+	private Transaction posting(long id, String description) {
+		return Transaction.builder()
+				.id(id)
+				.type(id % 2 == 1 ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL)
+				.amount(Money.of("100.00"))
+				.balanceAfter(Money.ofPaise(100_000 + id))
+				.description(description)
+				.transactionDate(LocalDateTime.of(2025, 1, 1, 10, 0)
+						.plusSeconds(id))
+				.account(account)
+				.build();
+	}
+}
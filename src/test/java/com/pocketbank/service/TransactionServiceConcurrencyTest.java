@@ -0,0 +1,216 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.pocketbank.config.service.AccountDescriptorCache;
+import com.pocketbank.config.service.AccountLockManager;
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.LedgerJournal;
+import com.pocketbank.config.service.RecentActivityCache;
+import com.pocketbank.config.service.RollupService;
+import com.pocketbank.config.service.ShardedBalanceService;
+import com.pocketbank.config.service.TransactionService;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.enums.AccountStatus;
+import com.pocketbank.entity.enums.AccountType;
+import com.pocketbank.repository.AccountRepository;
+import com.pocketbank.repository.TransactionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Multi-threaded stress test for TransactionService
+ * Random transfers, deposits and withdrawals in both directions must keep the
+ * books balanced and never deadlock
+ * */
+@DisplayName("Transaction Service Concurrency Tests")
+public class TransactionServiceConcurrencyTest {
+
+	private static final int ACCOUNTS = 20;
+	private static final int THREADS = 16;
+	private static final int OPERATIONS_PER_THREAD = 5_000;
+	private static final Money OPENING_BALANCE = Money.of("1000.00");
+
+	private final Map<String, Account> accounts = new HashMap<>();
+	private final Map<Long, Account> accountsById = new HashMap<>();
+	private final List<String> accountNumbers = new ArrayList<>();
+	private TransactionService transactionService;
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < ACCOUNTS; i++) {
+			String number = "PB" + (100000 + i);
+			accounts.put(number,
+					Account.builder()
+							.id((long) i)
+							.accountNumber(number)
+							.accountType(AccountType.SAVINGS)
+							.balance(OPENING_BALANCE)
+							.status(AccountStatus.APPROVED)
+							.build());
+			accountsById.put((long) i, accounts.get(number));
+			accountNumbers.add(number);
+		}
+
+		// stub-only mocks do not record invocations, so they are safe to hammer
+		AccountRepository accountRepository = mock(AccountRepository.class,
+				withSettings().stubOnly());
+		TransactionRepository transactionRepository = mock(TransactionRepository.class,
+				withSettings().stubOnly());
+		when(accountRepository.findDescriptor(anyString())).thenAnswer(inv -> {
+			Account account = accounts.get(inv.getArgument(0));
+			return List.<Object[]>of(new Object[] { account.getId(), null,
+					account.getAccountType(), account.getStatus() });
+		});
+		when(accountRepository.findByIdForUpdate(anyLong()))
+				.thenAnswer(inv -> Optional.ofNullable(accountsById.get(inv.getArgument(0))));
+		when(accountRepository.save(any(Account.class))).thenAnswer(inv -> inv.getArgument(0));
+		when(transactionRepository.save(any(Transaction.class)))
+				.thenAnswer(inv -> inv.getArgument(0));
+
+		transactionService = new TransactionService(transactionRepository, accountRepository,
+				new AccountLockManager(64), mock(LedgerJournal.class, withSettings().stubOnly()),
+				mock(ShardedBalanceService.class, withSettings().stubOnly()),
+				mock(RecentActivityCache.class, withSettings().stubOnly()),
+				mock(AggregateCounterService.class, withSettings().stubOnly()),
+				mock(RollupService.class, withSettings().stubOnly()),
+				new AccountDescriptorCache(accountRepository, new SimpleMeterRegistry(), ACCOUNTS),
+				mock(ApplicationEventPublisher.class, withSettings().stubOnly()));
+	}
+
+	@Test
+	@DisplayName("Concurrent transfers keep total balance constant")
+	void testConcurrentTransfers_BalancesAddUp() throws Exception {
+
+		AtomicLong transfers = new AtomicLong();
+		long elapsed = run(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			String from = accountNumbers.get(random.nextInt(ACCOUNTS));
+			String to = accountNumbers.get(random.nextInt(ACCOUNTS));
+			if (from.equals(to)) {
+				return;
+			}
+			try {
+				transactionService.transfer(from, to, BigDecimal.valueOf(random.nextInt(1, 50)),
+						null);
+				transfers.incrementAndGet();
+			} catch (RuntimeException e) {
+				assertEquals("Insufficient balance", e.getMessage());
+			}
+		});
+
+		assertEquals(OPENING_BALANCE.times(ACCOUNTS), totalBalance());
+		assertNoNegativeBalances();
+		report("transfers", transfers.get(), elapsed);
+	}
+
+	@Test
+	@DisplayName("Concurrent deposits and withdrawals do not lose updates")
+	void testConcurrentDepositsAndWithdrawals_NoLostUpdates() throws Exception {
+
+		AtomicLong net = new AtomicLong();
+		AtomicLong operations = new AtomicLong();
+		long elapsed = run(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			String number = accountNumbers.get(random.nextInt(ACCOUNTS));
+			int amount = random.nextInt(1, 50);
+			try {
+				if (random.nextBoolean()) {
+					transactionService.deposit(number, BigDecimal.valueOf(amount), null);
+					net.addAndGet(amount);
+				} else {
+					transactionService.withdraw(number, BigDecimal.valueOf(amount), null);
+					net.addAndGet(-amount);
+				}
+				operations.incrementAndGet();
+			} catch (RuntimeException e) {
+				assertEquals("Insufficient balance", e.getMessage());
+			}
+		});
+
+		Money expected = OPENING_BALANCE.times(ACCOUNTS)
+				.plus(Money.ofPaise(net.get() * 100));
+		assertEquals(expected, totalBalance());
+		assertNoNegativeBalances();
+		report("deposits/withdrawals", operations.get(), elapsed);
+	}
+
+	// runs the operation on all threads and returns elapsed nanos; a worker that
+	// failed an assertion or hit an unexpected exception fails the test
+	private long run(Runnable operation) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> workers = new ArrayList<>(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			workers.add(pool.submit(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread()
+							.interrupt();
+					return;
+				}
+				for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+					operation.run();
+				}
+			}));
+		}
+
+		long began = System.nanoTime();
+		start.countDown();
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS), "Possible deadlock");
+		long elapsed = System.nanoTime() - began;
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+		return elapsed;
+	}
+
+	private Money totalBalance() {
+		return accounts.values()
+				.stream()
+				.map(Account::getBalance)
+				.reduce(Money.ZERO, Money::plus);
+	}
+
+	private void assertNoNegativeBalances() {
+		accounts.values()
+				.forEach(a -> assertTrue(a.getBalance()
+						.signum() >= 0, a.getAccountNumber() + " went negative"));
+	}
+
+	private void report(String what, long count, long elapsedNanos) {
+		double perSecond = count / (elapsedNanos / 1_000_000_000.0);
+		System.out.printf("%d %s on %d threads in %d ms (%.0f/sec)%n", count, what, THREADS,
+				TimeUnit.NANOSECONDS.toMillis(elapsedNanos), perSecond);
+	}
+}
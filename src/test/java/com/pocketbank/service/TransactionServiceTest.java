@@ -2,14 +2,20 @@ package com.pocketbank.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,10 +25,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+
+import com.pocketbank.config.service.AccountDescriptorCache;
+import com.pocketbank.config.service.AccountDescriptorCache.AccountDescriptor;
+import com.pocketbank.config.service.AccountLockManager;
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.LedgerJournal;
+import com.pocketbank.config.service.RecentActivityCache;
+import com.pocketbank.config.service.RollupService;
+import com.pocketbank.config.service.ShardedBalanceService;
 import com.pocketbank.config.service.TransactionService;
+import com.pocketbank.config.service.TransactionService.HistoryPage;
 import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
 import com.pocketbank.entity.Transaction;
 import com.pocketbank.entity.enums.AccountStatus;
 import com.pocketbank.entity.enums.AccountType;
@@ -39,6 +58,30 @@ public class TransactionServiceTest {
 	@Mock
 	private AccountRepository accountRepository;
 
+	@Spy
+	private AccountLockManager accountLockManager = new AccountLockManager(16);
+
+	@Mock
+	private LedgerJournal ledgerJournal;
+
+	@Mock
+	private ShardedBalanceService shardedBalanceService;
+
+	@Mock
+	private RecentActivityCache recentActivityCache;
+
+	@Mock
+	private AggregateCounterService aggregateCounterService;
+
+	@Mock
+	private RollupService rollupService;
+
+	@Mock
+	private AccountDescriptorCache accountDescriptorCache;
+
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+
 	@InjectMocks
 	private TransactionService transactionService;
 
@@ -51,15 +94,15 @@ public class TransactionServiceTest {
 				.id(1L)
 				.accountNumber("PB123456789")
 				.accountType(AccountType.SAVINGS)
-				.balance(new BigDecimal("1000.00"))
+				.balance(Money.of("1000.00"))
 				.status(AccountStatus.APPROVED)
 				.build();
 
 		testTransaction = Transaction.builder()
 				.id(1L)
 				.type(TransactionType.DEPOSIT)
-				.amount(new BigDecimal("500.00"))
-				.balanceAfter(new BigDecimal("1500.00"))
+				.amount(Money.of("500.00"))
+				.balanceAfter(Money.of("1500.00"))
 				.description("Test deposit")
 				.account(testAccount)
 				.build();
@@ -70,8 +113,8 @@ public class TransactionServiceTest {
 	void testDeposit_Success() {
 		// Given
 		BigDecimal depositAmount = new BigDecimal("500.00");
-		when(accountRepository.findByAccountNumber("PB123456789"))
-				.thenReturn(Optional.of(testAccount));
+		describe(testAccount);
+		when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testAccount));
 		when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
 		when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
@@ -82,11 +125,34 @@ public class TransactionServiceTest {
 		// Then
 		assertNotNull(result);
 		assertEquals(TransactionType.DEPOSIT, result.getType());
-		assertEquals(depositAmount, result.getAmount());
+		assertEquals(Money.of(depositAmount), result.getAmount());
 		verify(accountRepository).save(any(Account.class));
 		verify(transactionRepository).save(any(Transaction.class));
 	}
 
+	@Test
+	@DisplayName("Should deposit into a balance slot for a sharded account")
+	void testDeposit_ShardedAccount() {
+		// Given
+		testAccount.setBalanceSlots(4);
+		describe(testAccount);
+		when(shardedBalanceService.isSharded("PB123456789")).thenReturn(true);
+		when(accountRepository.findById(1L)).thenReturn(Optional.of(testAccount));
+		when(shardedBalanceService.credit(testAccount, Money.of("500.00")))
+				.thenReturn(Money.of("1500.00"));
+		when(transactionRepository.save(any(Transaction.class)))
+				.thenAnswer(i -> i.getArgument(0));
+
+		// When
+		Transaction result = transactionService
+				.deposit("PB123456789", new BigDecimal("500.00"), "Loan disbursment");
+
+		// Then
+		assertEquals(Money.of("1500.00"), result.getBalanceAfter());
+		assertEquals(Money.of("1000.00"), testAccount.getBalance());
+		verify(accountRepository, never()).findByIdForUpdate(any());
+	}
+
 	@Test
 	@DisplayName("Should throw exception for negative deposit amount")
 	void testDeposit_NegativeAmount() {
@@ -104,8 +170,8 @@ public class TransactionServiceTest {
 	void testWithdraw_Success() {
 		// Given
 		BigDecimal withdrawAmount = new BigDecimal("300.00");
-		when(accountRepository.findByAccountNumber("PB123456789"))
-				.thenReturn(Optional.of(testAccount));
+		describe(testAccount);
+		when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testAccount));
 		when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
 		when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
@@ -124,8 +190,8 @@ public class TransactionServiceTest {
 	void testWithdraw_InsufficientBalance() {
 		// Given
 		BigDecimal withdrawAmount = new BigDecimal("2000.00"); // More than balance
-		when(accountRepository.findByAccountNumber("PB123456789"))
-				.thenReturn(Optional.of(testAccount));
+		describe(testAccount);
+		when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testAccount));
 
 		// When & Then
 		RuntimeException exception = assertThrows(RuntimeException.class,
@@ -140,25 +206,24 @@ public class TransactionServiceTest {
 		Account toAccount = Account.builder()
 				.id(2L)
 				.accountNumber("PB987654321")
-				.balance(new BigDecimal("500.00"))
+				.balance(Money.of("500.00"))
 				.status(AccountStatus.APPROVED)
 				.build();
 
 		BigDecimal transferAmount = new BigDecimal("200.00");
 
-		when(accountRepository.findByAccountNumber("PB123456789"))
-				.thenReturn(Optional.of(testAccount));
-		when(accountRepository.findByAccountNumber("PB987654321"))
-				.thenReturn(Optional.of(toAccount));
+		describe(testAccount);
+		when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testAccount));
+		describe(toAccount);
+		when(accountRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toAccount));
 		when(accountRepository.save(any(Account.class))).thenReturn(testAccount);
-		when(transactionRepository.save(any(Transaction.class))).thenReturn(testTransaction);
 
 		// When
 		transactionService.transfer("PB123456789", "PB987654321", transferAmount, "Test transfer");
 
 		// Then
 		verify(accountRepository, times(2)).save(any(Account.class));
-		verify(transactionRepository, times(2)).save(any(Transaction.class));
+		verify(transactionRepository).saveAll(anyList());
 	}
 
 	@Test
@@ -174,20 +239,77 @@ public class TransactionServiceTest {
 	}
 
 	@Test
-	@DisplayName("Should get account transactions")
-	void testGetAccountTransactions_Success() {
+	@DisplayName("Should reject a mistyped recipient before looking up any account")
+	void testTransfer_BadCheckDigit() {
+		// Given: PB00000012344 with its check digit changed
+		BigDecimal amount = new BigDecimal("100.00");
+
+		// When & Then
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> transactionService.transfer("PB123456789", "PB00000012345", amount, "Test"));
+		assertEquals("Invalid destination account number.", exception.getMessage());
+		verifyNoInteractions(accountRepository);
+	}
+
+	@Test
+	@DisplayName("Should turn away a suspended account without locking it")
+	void testWithdraw_SuspendedAccount() {
 		// Given
-		List<Transaction> transactions = new ArrayList<>();
-		transactions.add(testTransaction);
-		when(transactionRepository.findByAccountIdOrderByTransactionDateDesc(1L))
-				.thenReturn(transactions);
+		testAccount.setStatus(AccountStatus.SUSPENDED);
+		describe(testAccount);
+
+		// When & Then
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> transactionService.withdraw("PB123456789", new BigDecimal("10.00"), "Test"));
+		assertEquals("Account is not active.", exception.getMessage());
+		verify(accountRepository, never()).findByIdForUpdate(any());
+	}
+
+	@Test
+	@DisplayName("Should get the newest page of account transactions")
+	void testGetAccountTransactions_FirstPage() {
+		// Given: one posting more than a page, so there is an older page
+		List<Transaction> transactions = history(26, 100L);
+		when(transactionRepository.findByAccountIdOrderByTransactionDateDescIdDesc(1L,
+				Limit.of(26))).thenReturn(transactions);
 
 		// When
-		List<Transaction> result = transactionService.getAccountTransactions(1L);
+		HistoryPage page = transactionService.getAccountTransactions(1L, null, null);
 
 		// Then
-		assertNotNull(result);
-		assertEquals(1, result.size());
+		assertEquals(25, page.transactions()
+				.size());
+		assertEquals("2025-01-01T10:01:16_76", page.next());
+		assertNull(page.previous());
+	}
+
+	@Test
+	@DisplayName("Should page back to newer transactions in newest-first order")
+	void testGetAccountTransactions_PreviousPage() {
+		// Given: the newer postings come back oldest first
+		List<Transaction> newer = history(3, 50L);
+		Collections.reverse(newer);
+		when(transactionRepository.findNewerThan(1L, LocalDateTime.of(2025, 1, 1, 10, 0, 40),
+				40L, Limit.of(26))).thenReturn(newer);
+
+		// When
+		HistoryPage page = transactionService.getAccountTransactions(1L, null,
+				"2025-01-01T10:00:40_40");
+
+		// Then
+		assertEquals(50L, page.transactions()
+				.get(0)
+				.getId());
+		assertEquals("2025-01-01T10:00:48_48", page.next());
+		assertNull(page.previous());
+	}
+
+	@Test
+	@DisplayName("Should reject a malformed page cursor")
+	void testGetAccountTransactions_InvalidCursor() {
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> transactionService.getAccountTransactions(1L, "not-a-cursor", null));
+		assertEquals("Invalid page cursor", exception.getMessage());
 	}
 
 	@Test
@@ -203,4 +325,25 @@ public class TransactionServiceTest {
 		// Then
 		assertEquals(expectedTotal, result);
 	}
+
+	// postings newest first, ids counting down from newestId; id n was posted at 10:00 + n seconds
+	private List<Transaction> history(int count, long newestId) {
+		List<Transaction> transactions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			transactions.add(Transaction.builder()
+					.id(newestId - i)
+					.transactionDate(LocalDateTime.of(2025, 1, 1, 10, 0)
+							.plusSeconds(newestId - i))
+					.account(testAccount)
+					.build());
+		}
+		return transactions;
+	}
+
+	// the account as the descriptor cache knows it
+	private void describe(Account account) {
+		when(accountDescriptorCache.find(account.getAccountNumber()))
+				.thenReturn(Optional.of(new AccountDescriptor(account.getId(), 7L,
+						AccountType.SAVINGS, account.getStatus())));
+	}
 }
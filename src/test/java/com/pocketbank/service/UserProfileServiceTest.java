@@ -0,0 +1,137 @@
+package com.pocketbank.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.pocketbank.config.service.PostingsCommitted;
+import com.pocketbank.config.service.UserProfileService;
+import com.pocketbank.entity.Account;
+import com.pocketbank.entity.Money;
+import com.pocketbank.entity.Transaction;
+import com.pocketbank.entity.User;
+import com.pocketbank.entity.enums.LoanStatus;
+import com.pocketbank.entity.enums.TransactionType;
+import com.pocketbank.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/*
+ * Tests for the admin user profile read model
+ * Totals worked out from one holdings query, caching, eviction on change
+ * */
+@DisplayName("User Profile Service Tests")
+public class UserProfileServiceTest {
+
+	private static final LocalDateTime OPENED = LocalDateTime.of(2025, 1, 20, 10, 0);
+
+	private UserRepository userRepository;
+	private UserProfileService userProfileService;
+
+	@BeforeEach
+	void setUp() {
+		userRepository = mock(UserRepository.class);
+		userProfileService = new UserProfileService(userRepository, new SimpleMeterRegistry(), 100);
+
+		when(userRepository.findById(1L)).thenReturn(Optional.of(User.builder()
+				.id(1L)
+				.username("asha")
+				.fullName("Asha Rao")
+				.build()));
+		when(userRepository.findHoldingRows(1L)).thenReturn(List.of(
+				account(10L, "PB000000010", "1500.00"), account(11L, "PB000000011", "250.50"),
+				loan(20L, "DISBURSED", "50000.00"), loan(21L, "REJECTED", "90000.00"),
+				fixedDeposit(30L, "ACTIVE", "10000.00", "10600.00"),
+				fixedDeposit(31L, "MATURED", "5000.00", "5300.00")));
+	}
+
+	@Test
+	@DisplayName("Should build the profile and its totals, then serve it from the cache")
+	void testProfile_TotalsAndCache() {
+		// When
+		UserProfileService.UserProfile profile = userProfileService.profile(1L);
+		UserProfileService.UserProfile again = userProfileService.profile(1L);
+
+		// Then
+		assertEquals("Asha Rao", profile.user()
+				.fullName());
+		assertEquals(2, profile.accounts()
+				.size());
+		assertEquals(LoanStatus.DISBURSED, profile.loans()
+				.get(0)
+				.status());
+		assertEquals(Money.of("1750.50"), profile.totalBalance());
+		assertEquals(0, new BigDecimal("50000.00").compareTo(profile.outstandingLoans()));
+		assertEquals(0, new BigDecimal("10600.00").compareTo(profile.fdMaturityValue()));
+		assertSame(profile, again);
+		verify(userRepository, times(1)).findHoldingRows(1L);
+	}
+
+	@Test
+	@DisplayName("Should rebuild the profile after a posting on one of its accounts")
+	void testRecordPostings_Evicts() {
+		// Given: the posting's account carries no user, only its id
+		userProfileService.profile(1L);
+		Transaction posting = Transaction.builder()
+				.type(TransactionType.DEPOSIT)
+				.amount(Money.of("100.00"))
+				.account(Account.builder()
+						.id(11L)
+						.build())
+				.build();
+
+		// When
+		userProfileService.onPostingsCommitted(new PostingsCommitted(List.of(posting)));
+		userProfileService.profile(1L);
+
+		// Then
+		verify(userRepository, times(2)).findHoldingRows(1L);
+		assertEquals(1, userProfileService.size());
+	}
+
+	@Test
+	@DisplayName("Should not keep a profile that was invalidated while it was built")
+	void testProfile_InvalidatedWhileLoading() {
+		// Given: the user changes between the user row and the holdings query
+		when(userRepository.findHoldingRows(1L)).thenAnswer(invocation -> {
+			userProfileService.invalidate(1L);
+			return List.of();
+		});
+
+		// When
+		userProfileService.profile(1L);
+		userProfileService.profile(1L);
+
+		// Then
+		verify(userRepository, times(2)).findHoldingRows(1L);
+	}
+
+	private static Object[] account(long id, String accountNumber, String balance) {
+		return new Object[] { "ACCOUNT", id, accountNumber, "SAVINGS", "APPROVED",
+				new BigDecimal(balance), null, null, null, Timestamp.valueOf(OPENED), null };
+	}
+
+	private static Object[] loan(long id, String status, String amount) {
+		return new Object[] { "LOAN", id, "Home repairs", null, status, new BigDecimal(amount),
+				new BigDecimal("4400.00"), 12, 10.5, OPENED, OPENED.plusDays(1) };
+	}
+
+	private static Object[] fixedDeposit(long id, String status, String principal,
+			String maturity) {
+		return new Object[] { "FIXED_DEPOSIT", id, null, null, status, new BigDecimal(principal),
+				new BigDecimal(maturity), 12, 6.0, OPENED, OPENED.plusMonths(12) };
+	}
+}
@@ -1,14 +1,19 @@
 package com.pocketbank.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -18,11 +23,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.pocketbank.config.service.AggregateCounterService;
+import com.pocketbank.config.service.RegistrationBloomFilter;
+import com.pocketbank.config.service.UserPrincipal;
+import com.pocketbank.config.service.UserProfileService;
 import com.pocketbank.config.service.UserService;
 import com.pocketbank.entity.User;
 import com.pocketbank.entity.enums.Role;
+import com.pocketbank.repository.AccountRepository;
 import com.pocketbank.repository.UserRepository;
 
 /*
@@ -36,9 +49,21 @@ public class UserServiceTest {
 	@Mock
 	private UserRepository userRepository;
 
+	@Mock
+	private AccountRepository accountRepository;
+
 	@Mock
 	private PasswordEncoder passwordEncoder;
 
+	@Mock
+	private AggregateCounterService aggregateCounterService;
+
+	@Mock
+	private UserProfileService userProfileService;
+
+	@Mock
+	private RegistrationBloomFilter registrationBloomFilter;
+
 	@InjectMocks
 	private UserService userService;
 
@@ -57,6 +82,12 @@ public class UserServiceTest {
 				.role(Role.CUSTOMER)
 				.enabled(true)
 				.build();
+
+		// the filter cannot rule names out unless a test says so
+		lenient().when(registrationBloomFilter.mightHaveUsername(anyString()))
+				.thenReturn(true);
+		lenient().when(registrationBloomFilter.mightHaveEmail(anyString()))
+				.thenReturn(true);
 	}
 
 	@Test
@@ -109,6 +140,44 @@ public class UserServiceTest {
 		assertEquals("Email already exists", exception.getMessage());
 	}
 
+	@Test
+	@DisplayName("Should skip the lookups for names the filter rules out")
+	void testRegisterUser_FilterRulesOut() {
+		// Given
+		when(registrationBloomFilter.mightHaveUsername("testuser")).thenReturn(false);
+		when(registrationBloomFilter.mightHaveEmail("test@example.com")).thenReturn(false);
+		when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+		when(userRepository.save(any(User.class))).thenReturn(testUser);
+
+		// When
+		userService.registerUser(testUser);
+
+		// Then
+		verify(userRepository, never()).existsByUsername(anyString());
+		verify(userRepository, never()).existsByEmail(anyString());
+		verify(userRepository).flush();
+		verify(registrationBloomFilter).add("testuser", "test@example.com");
+	}
+
+	@Test
+	@DisplayName("Should report a name taken between the check and the insert")
+	void testRegisterUser_UniqueConstraint() {
+		// Given
+		when(registrationBloomFilter.mightHaveUsername("testuser")).thenReturn(false);
+		when(registrationBloomFilter.mightHaveEmail("test@example.com")).thenReturn(false);
+		when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+		when(userRepository.save(any(User.class))).thenReturn(testUser);
+		doThrow(new DataIntegrityViolationException("Duplicate entry"))
+				.when(userRepository)
+				.flush();
+
+		// When & Then
+		RuntimeException exception = assertThrows(RuntimeException.class,
+				() -> userService.registerUser(testUser));
+
+		assertEquals("Username or email already exists", exception.getMessage());
+	}
+
 	@Test
 	@DisplayName("Should find user by username")
 	void testFindByUsername_Success() {
@@ -155,4 +224,53 @@ public class UserServiceTest {
 		assertNotNull(result);
 		verify(userRepository).save(any(User.class));
 	}
+
+	@Test
+	@DisplayName("Should load a principal carrying the user's id, role and account ids")
+	void testLoadUserByUsername_Principal() {
+		// Given
+		when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+		when(accountRepository.findIdsByUserId(1L)).thenReturn(List.of(10L, 11L));
+
+		// When
+		UserPrincipal principal = (UserPrincipal) userService.loadUserByUsername("testuser");
+		principal.accountOpened(12L);
+
+		// Then
+		assertEquals(1L, principal.getUserId());
+		assertEquals(Role.CUSTOMER, principal.getRole());
+		assertEquals("CUSTOMER", principal.getAuthorities()
+				.iterator()
+				.next()
+				.getAuthority());
+		assertTrue(principal.owns(10L));
+		assertTrue(principal.owns(12L));
+		assertFalse(principal.owns(99L));
+	}
+
+	@Test
+	@DisplayName("Should report an unknown username to Spring Security")
+	void testLoadUserByUsername_NotFound() {
+		// Given
+		when(userRepository.findByUsername(anyString())).thenReturn(Optional.empty());
+
+		// When & Then
+		assertThrows(UsernameNotFoundException.class,
+				() -> userService.loadUserByUsername("nonexistent"));
+		verify(accountRepository, never()).findIdsByUserId(any());
+	}
+
+	@Test
+	@DisplayName("Should store a password re-hashed at login on the user and the principal")
+	void testUpdatePassword() {
+		// Given
+		UserPrincipal principal = new UserPrincipal(testUser, List.of());
+
+		// When
+		UserDetails updated = userService.updatePassword(principal, "$2a$12$rehashed");
+
+		// Then
+		verify(userRepository).updatePassword("testuser", "$2a$12$rehashed");
+		assertEquals("$2a$12$rehashed", updated.getPassword());
+	}
 }
@@ -0,0 +1,2 @@
+-- a row written while aggregate_counters still used AUTO_INCREMENT
+INSERT INTO aggregate_counters (id, name, stripe, total) VALUES (250, 'DEPOSITS', 0, 0);